@@ -0,0 +1,75 @@
+package com.discord.bot.benchmarks;
+
+import com.discord.bot.benchmarks.support.StandIns;
+import com.discord.bot.feature_knowledge_graph.agent.ChatToGraphAgent;
+import com.discord.bot.feature_knowledge_graph.agent.GraphToCypherQueryAgent;
+import com.discord.bot.feature_knowledge_graph.domain.GraphResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.agentic.AgenticServices;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side cost of the two graph agents: rendering the prompt (including the serialized GraphResult),
+ * and parsing the model's JSON back into a GraphResult or a list of Cypher statements.
+ * The agents are built exactly like AgentConfig builds them, over a model that answers instantly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GraphToCypherBenchmark {
+
+    // Facts per graph; 20 matches one KG batch of chat lines
+    @Param({"5", "20", "100"})
+    private int facts;
+
+    private GraphToCypherQueryAgent graphToCypherQueryAgent;
+    private ChatToGraphAgent chatToGraphAgent;
+    private GraphResult graph;
+    private List<String> chatLines;
+
+    @Setup
+    public void setUp() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        graph = StandIns.graph(facts);
+        chatLines = StandIns.messages(facts).stream()
+                .map(message -> message.getAuthor().getName() + " | " + message.getContentDisplay())
+                .toList();
+
+        graphToCypherQueryAgent = AgenticServices
+                .agentBuilder(GraphToCypherQueryAgent.class)
+                .chatModel(StandIns.chatModel(objectMapper.writeValueAsString(StandIns.cypher(facts))))
+                .outputKey("graph-to-cypher")
+                .build();
+        chatToGraphAgent = AgenticServices
+                .agentBuilder(ChatToGraphAgent.class)
+                .chatModel(StandIns.chatModel(objectMapper.writeValueAsString(graph)))
+                .outputKey("chat-to-graph")
+                .build();
+    }
+
+    @Benchmark
+    public List<String> graphToCypher() {
+        return graphToCypherQueryAgent.convertJsonGraphToCypherCommands(graph);
+    }
+
+    @Benchmark
+    public GraphResult chatToGraph() {
+        return chatToGraphAgent.extractGraphJson(chatLines);
+    }
+}
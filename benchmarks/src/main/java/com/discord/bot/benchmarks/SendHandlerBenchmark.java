@@ -0,0 +1,61 @@
+package com.discord.bot.benchmarks;
+
+import com.discord.bot.benchmarks.support.StandIns;
+import com.discord.bot.feature_music.service.GuildPlaybackStats;
+import com.discord.bot.feature_music.service.LavaPlayerSendHandler;
+import com.discord.bot.feature_music.service.TrackScheduler;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One 20 ms frame as JDA's audio thread pulls it: canProvide() followed by provide20MsAudio().
+ * Run with the gc profiler to see allocations per frame, which should stay at zero.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SendHandlerBenchmark {
+
+    // A typical Opus frame at 128 kbps
+    private static final int FRAME_BYTES = 320;
+
+    @Param({"false", "true"})
+    private boolean withPlaybackStats;
+
+    private LavaPlayerSendHandler sendHandler;
+
+    @Setup
+    public void setUp() {
+        TrackScheduler scheduler = new TrackScheduler(StandIns.busyPlayer(new byte[FRAME_BYTES]));
+        GuildPlaybackStats stats = null;
+        if (withPlaybackStats) {
+            stats = new GuildPlaybackStats(1L, new SimpleMeterRegistry());
+            stats.bind(scheduler);
+        }
+        sendHandler = new LavaPlayerSendHandler(scheduler, stats);
+    }
+
+    @Benchmark
+    public ByteBuffer provideFrame() {
+        if (!sendHandler.canProvide()) {
+            return null;
+        }
+        return sendHandler.provide20MsAudio();
+    }
+}
@@ -0,0 +1,67 @@
+package com.discord.bot.benchmarks;
+
+import com.discord.bot.benchmarks.support.StandIns;
+import com.discord.bot.feature_music.service.TrackScheduler;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queue operations of a guild with a long queue, on a player that is always busy so every track is queued
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrackSchedulerBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int queueSize;
+
+    private TrackScheduler scheduler;
+    private AudioTrack extraTrack;
+    private int lastPage;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        scheduler = new TrackScheduler(StandIns.busyPlayer(new byte[0]));
+        for (int i = 1; i <= queueSize; i++) {
+            scheduler.queue(StandIns.track(i));
+        }
+        extraTrack = StandIns.track(queueSize + 1);
+        lastPage = (queueSize + TrackScheduler.QUEUE_PAGE_SIZE - 1) / TrackScheduler.QUEUE_PAGE_SIZE;
+    }
+
+    /**
+     * Append one track, then drop it again so the queue keeps its size across invocations
+     */
+    @Benchmark
+    public String queueAndRemoveLast() {
+        scheduler.queue(extraTrack);
+        return scheduler.remove(scheduler.getQueueSize());
+    }
+
+    @Benchmark
+    public String getQueueInfoFirstPage() {
+        return scheduler.getQueueInfo(1);
+    }
+
+    @Benchmark
+    public String getQueueInfoLastPage() {
+        return scheduler.getQueueInfo(lastPage);
+    }
+}
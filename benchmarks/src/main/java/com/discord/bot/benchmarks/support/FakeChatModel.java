@@ -0,0 +1,149 @@
+package com.discord.bot.benchmarks.support;
+
+import com.discord.bot.feature_knowledge_graph.domain.GraphResult;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.exception.InternalServerException;
+import dev.langchain4j.exception.RateLimitException;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Chat model answering like the graph agents' LLM without leaving the process. Answers are derived from the prompt,
+ * so they scale with the request: one fact per chat line for extraction, two statements per fact for Cypher.
+ * Latency, rate limits and server errors are drawn from a seeded random, so a sequential run is repeatable.
+ */
+public class FakeChatModel implements ChatModel {
+
+    public enum Role {
+        // Answers with a GraphResult for the chat lines in the prompt
+        CHAT_TO_GRAPH,
+        // Answers with a JSON array of Cypher statements for the graph in the prompt
+        GRAPH_TO_CYPHER
+    }
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final Role role;
+    private final Settings settings;
+    private final AtomicLong calls = new AtomicLong();
+
+    public FakeChatModel(Role role, Settings settings) {
+        this.role = role;
+        this.settings = settings;
+    }
+
+    @Override
+    public ChatResponse doChat(ChatRequest chatRequest) {
+        SplittableRandom random = new SplittableRandom(settings.seed() + calls.getAndIncrement());
+        String userText = userText(chatRequest);
+
+        long latencyMs = settings.latencyMs() + (settings.jitterMs() > 0 ? random.nextLong(settings.jitterMs() + 1) : 0);
+        sleep(latencyMs);
+        if (random.nextDouble() < settings.rateLimitRate()) {
+            throw new RateLimitException("Injected rate limit");
+        }
+        if (random.nextDouble() < settings.errorRate()) {
+            throw new InternalServerException("Injected server error");
+        }
+
+        String answer = switch (role) {
+            // StandIns.graph writes one "author-1 -> LIKES -> fact-n" path per fact
+            case GRAPH_TO_CYPHER -> toJson(StandIns.cypher(count(userText, " -> LIKES -> ")));
+            // Chat lines are rendered as "author | content"; the verbose prompt's example adds a few
+            case CHAT_TO_GRAPH -> toJson(graph(count(userText, " | ")));
+        };
+        // Roughly four characters per token, counting the response schema the provider also has to read
+        int promptCharacters = systemText(chatRequest).length() + userText.length()
+                + (chatRequest.responseFormat() != null ? chatRequest.responseFormat().toString().length() : 0);
+        return ChatResponse.builder()
+                .aiMessage(AiMessage.from(answer))
+                .tokenUsage(new TokenUsage(promptCharacters / 4, answer.length() / 4))
+                .build();
+    }
+
+    /**
+     * Like the extraction model in ChatModelConfig, the extraction agent gets schema-shaped output
+     */
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return role == Role.CHAT_TO_GRAPH ? Set.of(Capability.RESPONSE_FORMAT_JSON_SCHEMA) : Set.of();
+    }
+
+    public long getCallCount() {
+        return calls.get();
+    }
+
+    private static GraphResult graph(int facts) {
+        return StandIns.graph(Math.max(facts, 1));
+    }
+
+    private static String systemText(ChatRequest chatRequest) {
+        StringBuilder text = new StringBuilder();
+        for (ChatMessage message : chatRequest.messages()) {
+            if (message instanceof SystemMessage system) {
+                text.append(system.text()).append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    private static String userText(ChatRequest chatRequest) {
+        StringBuilder text = new StringBuilder();
+        for (ChatMessage message : chatRequest.messages()) {
+            if (message instanceof UserMessage user && user.hasSingleText()) {
+                text.append(user.singleText()).append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    private static int count(String text, String needle) {
+        int count = 0;
+        for (int i = text.indexOf(needle); i >= 0; i = text.indexOf(needle, i + needle.length())) {
+            count++;
+        }
+        return count;
+    }
+
+    private static String toJson(Object value) {
+        try {
+            return OBJECT_MAPPER.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while simulating LLM latency", e);
+        }
+    }
+
+    /**
+     * @param latencyMs     Base latency of every call
+     * @param jitterMs      Up to this much is added to the base latency
+     * @param rateLimitRate Share of calls failing with a rate limit
+     * @param errorRate     Share of calls failing with a server error
+     * @param seed          Seed of the random draws
+     */
+    public record Settings(long latencyMs, long jitterMs, double rateLimitRate, double errorRate, long seed) {
+    }
+}
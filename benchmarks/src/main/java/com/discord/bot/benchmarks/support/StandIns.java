@@ -0,0 +1,291 @@
+package com.discord.bot.benchmarks.support;
+
+import com.discord.bot.feature_knowledge_graph.domain.GraphNode;
+import com.discord.bot.feature_knowledge_graph.domain.GraphRelationship;
+import com.discord.bot.feature_knowledge_graph.domain.GraphResult;
+import com.discord.bot.feature_knowledge_graph.service.ReactiveGraphStore;
+import com.discord.bot.observability.Neo4jMetrics;
+import com.discord.bot.properties.ReactiveGraphProperties;
+import com.discord.bot.properties.ResilienceProperties;
+import com.discord.bot.resilience.DependencyGuards;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayer;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
+import com.sedmelluq.discord.lavaplayer.track.BaseAudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.playback.LocalAudioTrackExecutor;
+import com.sedmelluq.discord.lavaplayer.track.playback.MutableAudioFrame;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.entities.channel.unions.MessageChannelUnion;
+import org.neo4j.driver.summary.ResultSummary;
+import org.neo4j.driver.summary.SummaryCounters;
+import org.springframework.data.neo4j.core.Neo4jClient;
+
+import java.lang.reflect.Proxy;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-memory replacements for Discord, the LLM and Neo4j, so benchmarks measure this project's code only.
+ * JDA and Neo4j types are large interfaces, so they are stood in by proxies that answer the few methods used.
+ */
+public final class StandIns {
+    private static final List<String> TOPICS = List.of("I really like", "yesterday I went to", "my favourite game is",
+            "we should plan", "I just finished reading", "can anyone recommend");
+    private static final OffsetDateTime EPOCH = OffsetDateTime.of(2024, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    private static final AtomicLong MESSAGE_IDS = new AtomicLong();
+
+    // Channel every stand-in message was sent in; only its id is read
+    private static final MessageChannelUnion CHANNEL = (MessageChannelUnion) Proxy.newProxyInstance(
+            MessageChannelUnion.class.getClassLoader(), new Class<?>[]{MessageChannelUnion.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "getId" -> "1";
+                case "toString" -> "Channel(1)";
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                default -> throw new UnsupportedOperationException(method.getName());
+            });
+
+    // Summary of a statement that changed nothing; every counter reads zero
+    private static final ResultSummary EMPTY_SUMMARY = (ResultSummary) Proxy.newProxyInstance(
+            ResultSummary.class.getClassLoader(), new Class<?>[]{ResultSummary.class},
+            (summary, summaryMethod, summaryArgs) -> {
+                if ("counters".equals(summaryMethod.getName())) {
+                    return Proxy.newProxyInstance(SummaryCounters.class.getClassLoader(),
+                            new Class<?>[]{SummaryCounters.class},
+                            (counters, counterMethod, counterArgs) -> counterMethod.getReturnType() == int.class ? 0 : false);
+                }
+                throw new UnsupportedOperationException(summaryMethod.getName());
+            });
+
+    private StandIns() {
+    }
+
+    /**
+     * Chat history as /fetch sees it, a few authors with distinct messages and increasing timestamps
+     */
+    public static List<Message> messages(int count) {
+        List<User> authors = List.of(user("alice"), user("bob"), user("carol"), user("dave"));
+        List<Message> messages = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            messages.add(message(authors.get(i % authors.size()), "message number " + i + " about topic " + (i % 17),
+                    EPOCH.plusSeconds(i)));
+        }
+        return messages;
+    }
+
+    /**
+     * Synthetic channel history, newest message first as Discord returns it. Authors are drawn with Zipf-like
+     * weights, so a skew of 0 spreads messages evenly and higher skews let a few authors dominate.
+     */
+    public static List<Message> channel(int count, int authors, double skew, long seed) {
+        List<User> users = new ArrayList<>(authors);
+        double[] cumulativeWeights = new double[authors];
+        double totalWeight = 0;
+        for (int i = 0; i < authors; i++) {
+            users.add(user("author" + i));
+            totalWeight += 1 / Math.pow(i + 1, skew);
+            cumulativeWeights[i] = totalWeight;
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        List<Message> messages = new ArrayList<>(count);
+        for (int i = count - 1; i >= 0; i--) {
+            double draw = random.nextDouble() * totalWeight;
+            int author = 0;
+            while (cumulativeWeights[author] < draw) {
+                author++;
+            }
+            String content = TOPICS.get(random.nextInt(TOPICS.size())) + " " + random.nextInt(1000) + " message " + i;
+            messages.add(message(users.get(author), content, EPOCH.plusSeconds(i)));
+        }
+        return messages;
+    }
+
+    public static Message message(User author, String content, OffsetDateTime created) {
+        String id = Long.toString(MESSAGE_IDS.incrementAndGet());
+        return (Message) Proxy.newProxyInstance(Message.class.getClassLoader(), new Class<?>[]{Message.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getAuthor" -> author;
+                    case "getContentDisplay", "getContentRaw" -> content;
+                    case "getTimeCreated" -> created;
+                    case "getId" -> id;
+                    case "getChannel" -> CHANNEL;
+                    case "getGuildId" -> "1";
+                    case "toString" -> "Message(" + content + ")";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    public static User user(String name) {
+        return (User) Proxy.newProxyInstance(User.class.getClassLoader(), new Class<?>[]{User.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "getName", "getEffectiveName" -> name;
+                    case "getId" -> name;
+                    case "isBot" -> false;
+                    case "toString" -> "User(" + name + ")";
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /**
+     * Graph the extraction agent would return for a batch of chat lines: one author node plus one fact per line,
+     * the n-th fact sourced from line n
+     */
+    public static GraphResult graph(int facts) {
+        List<GraphNode> nodes = new ArrayList<>(facts + 1);
+        List<GraphRelationship> relationships = new ArrayList<>(facts);
+        List<String> paths = new ArrayList<>(facts);
+        nodes.add(new GraphNode("author-1", "Author", Map.of("username", "alice")));
+        for (int i = 1; i <= facts; i++) {
+            String id = "fact-" + i;
+            nodes.add(new GraphNode(id, "Preference", Map.of("value", "thing " + i)));
+            relationships.add(new GraphRelationship("author-1", id, "LIKES", i));
+            paths.add("author-1 -> LIKES -> " + id);
+        }
+        return new GraphResult(nodes, relationships, paths);
+    }
+
+    /**
+     * Cypher the conversion agent would return for {@link #graph(int)}
+     */
+    public static List<String> cypher(int facts) {
+        List<String> commands = new ArrayList<>(facts * 2 + 1);
+        commands.add("MERGE (n:Author {id: 'author-1'}) SET n.username = 'alice'");
+        for (int i = 1; i <= facts; i++) {
+            commands.add("MERGE (n:Preference {id: 'fact-" + i + "'}) SET n.value = 'thing " + i + "'");
+            commands.add("MATCH (a {id: 'author-1'}), (b {id: 'fact-" + i + "'}) MERGE (a)-[:LIKES]->(b)");
+        }
+        return commands;
+    }
+
+    /**
+     * Chat model that answers every request with the same text, as if the LLM replied instantly
+     */
+    public static ChatModel chatModel(String response) {
+        return new ChatModel() {
+            @Override
+            public ChatResponse doChat(ChatRequest chatRequest) {
+                return ChatResponse.builder().aiMessage(AiMessage.from(response)).build();
+            }
+        };
+    }
+
+    /**
+     * Neo4j client that accepts every statement and counts them instead of talking to a database
+     */
+    public static Neo4jClient neo4jClient(AtomicLong executedStatements) {
+        return neo4jClient(executedStatements, 0);
+    }
+
+    /**
+     * Neo4j client that accepts every statement after the given latency, standing in for a local database.
+     * Parameters are bound and ignored.
+     */
+    public static Neo4jClient neo4jClient(AtomicLong executedStatements, long writeLatencyMicros) {
+        Neo4jClient.RunnableSpec spec = (Neo4jClient.RunnableSpec) Proxy.newProxyInstance(
+                Neo4jClient.class.getClassLoader(), new Class<?>[]{Neo4jClient.RunnableSpec.class, Neo4jClient.OngoingBindSpec.class},
+                (proxy, method, args) -> {
+                    if ("run".equals(method.getName())) {
+                        if (writeLatencyMicros > 0) {
+                            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(writeLatencyMicros));
+                        }
+                        executedStatements.incrementAndGet();
+                        return EMPTY_SUMMARY;
+                    }
+                    if (method.getReturnType().isInstance(proxy)) {
+                        return proxy;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        return (Neo4jClient) Proxy.newProxyInstance(Neo4jClient.class.getClassLoader(), new Class<?>[]{Neo4jClient.class},
+                (proxy, method, args) -> {
+                    if ("query".equals(method.getName())) {
+                        return spec;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /**
+     * Guards with the default bulkhead and circuit breaker settings of application.yaml
+     */
+    public static DependencyGuards dependencyGuards(MeterRegistry meterRegistry) {
+        ResilienceProperties.Dependency settings = new ResilienceProperties.Dependency(8, 32, 2000, 20, 10, 0.5, 30000, 2);
+        return new DependencyGuards(new ResilienceProperties(settings, settings, settings), meterRegistry);
+    }
+
+    /**
+     * Reactive store as configured by default, switched off, so the knowledge graph goes through Neo4jClient
+     */
+    public static ReactiveGraphStore reactiveGraphStore(MeterRegistry meterRegistry, DependencyGuards dependencyGuards) {
+        return new ReactiveGraphStore(null, new Neo4jMetrics(meterRegistry), dependencyGuards,
+                new ReactiveGraphProperties(false, 8, 30000), meterRegistry, "");
+    }
+
+    /**
+     * Track that never plays; enough for queue bookkeeping
+     */
+    public static AudioTrack track(int index) {
+        return new StubTrack(new AudioTrackInfo("Track " + index, "Artist " + (index % 50), 180_000,
+                "stub-" + index, false, "stub://" + index));
+    }
+
+    /**
+     * Player that is always busy with one track, so everything handed to the scheduler goes to its queue,
+     * and that provides the same Opus frame on every call
+     */
+    public static AudioPlayer busyPlayer(byte[] frame) {
+        AudioTrack playing = track(0);
+        return (AudioPlayer) Proxy.newProxyInstance(AudioPlayer.class.getClassLoader(), new Class<?>[]{AudioPlayer.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "startTrack" -> args[0] == null;
+                    case "getPlayingTrack" -> playing;
+                    case "isPaused" -> false;
+                    case "provide" -> {
+                        if (args.length == 1 && args[0] instanceof MutableAudioFrame mutable) {
+                            mutable.store(frame, 0, frame.length);
+                            yield true;
+                        }
+                        throw new UnsupportedOperationException("provide");
+                    }
+                    case "stopTrack", "destroy", "addListener", "removeListener", "setPaused" -> null;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "BusyPlayer";
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private static final class StubTrack extends BaseAudioTrack {
+        private StubTrack(AudioTrackInfo trackInfo) {
+            super(trackInfo);
+        }
+
+        @Override
+        public void process(LocalAudioTrackExecutor executor) {
+            // Never played
+        }
+
+        @Override
+        protected AudioTrack makeShallowClone() {
+            return new StubTrack(trackInfo);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.discord.bot.feature_chat;
+
+import com.discord.bot.benchmarks.support.StandIns;
+import com.discord.bot.feature_knowledge_graph.domain.GraphResult;
+import com.discord.bot.feature_knowledge_graph.service.GraphIndexes;
+import com.discord.bot.feature_knowledge_graph.service.KGService;
+import com.discord.bot.feature_knowledge_graph.service.ReactiveGraphStore;
+import com.discord.bot.observability.DiscordMetrics;
+import com.discord.bot.observability.Neo4jMetrics;
+import com.discord.bot.resilience.DependencyGuards;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.dv8tion.jda.api.entities.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.data.neo4j.core.Neo4jClient;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ingestion work done per history page: mapping messages, de-duplicating lines, chunking them for the LLM and
+ * pushing the resulting statements to Neo4j. The agents answer instantly, so only the bot's own overhead is measured.
+ * Lives in ChatService's package to reach its package-private batch methods.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChatServiceBenchmark {
+
+    // 100 is the page size /fetch uses
+    @Param({"100", "1000"})
+    private int messageCount;
+
+    private ChatService chatService;
+    private List<Message> messages;
+    private List<String> lines;
+
+    @Setup
+    public void setUp() {
+        GraphResult graph = StandIns.graph(ChatService.KG_BATCH_SIZE);
+        List<String> cypher = StandIns.cypher(ChatService.KG_BATCH_SIZE);
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        DependencyGuards dependencyGuards = StandIns.dependencyGuards(meterRegistry);
+        Neo4jClient neo4jClient = StandIns.neo4jClient(new AtomicLong());
+        Neo4jMetrics neo4jMetrics = new Neo4jMetrics(meterRegistry);
+        ReactiveGraphStore reactiveGraphStore = StandIns.reactiveGraphStore(meterRegistry, dependencyGuards);
+        KGService kgService = new KGService(
+                chatLines -> graph,
+                jsonGraph -> cypher,
+                neo4jClient,
+                null,
+                null,
+                neo4jMetrics,
+                dependencyGuards,
+                new GraphIndexes(neo4jClient, neo4jMetrics, dependencyGuards),
+                reactiveGraphStore,
+                meterRegistry
+        );
+        kgService.registerMeters();
+        chatService = new ChatService(kgService, null, new DiscordMetrics(meterRegistry), dependencyGuards,
+                reactiveGraphStore);
+        messages = StandIns.messages(messageCount);
+        lines = messages.stream()
+                .map(message -> message.getAuthor().getName() + " | " + message.getContentDisplay())
+                .toList();
+    }
+
+    @Benchmark
+    public OffsetDateTime processMessagesInBatch() {
+        return chatService.processMessagesInBatch(messages);
+    }
+
+    @Benchmark
+    public void convertListToChunk(Blackhole blackhole) {
+        chatService.convertListToChunk(lines).forEach(blackhole::consume);
+    }
+}
@@ -0,0 +1,220 @@
+package com.discord.bot.feature_chat;
+
+import com.discord.bot.benchmarks.support.FakeChatModel;
+import com.discord.bot.benchmarks.support.StandIns;
+import com.discord.bot.config.AgentConfig;
+import com.discord.bot.feature_knowledge_graph.agent.ChatToGraphAgent;
+import com.discord.bot.feature_knowledge_graph.agent.GraphToCypherQueryAgent;
+import com.discord.bot.feature_knowledge_graph.service.GraphIndexes;
+import com.discord.bot.feature_knowledge_graph.service.KGService;
+import com.discord.bot.feature_knowledge_graph.service.ReactiveGraphStore;
+import com.discord.bot.observability.DiscordMetrics;
+import com.discord.bot.observability.MeteredChatModel;
+import com.discord.bot.observability.Neo4jMetrics;
+import com.discord.bot.resilience.DependencyGuards;
+import dev.langchain4j.agentic.AgenticServices;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.dv8tion.jda.api.entities.Message;
+import org.springframework.data.neo4j.core.Neo4jClient;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Offline load test of channel ingestion. Synthetic channels are pushed page by page through the real ChatService,
+ * KGService and graph agents, with the LLM replaced by {@link FakeChatModel} and Neo4j by a client that accepts
+ * statements after a fixed latency. Channels run in parallel like ingestion workers of different shards.
+ * <p>
+ * Options, all {@code --name=value}: channels, messages (per channel), authors, author-skew, llm-latency-ms,
+ * llm-jitter-ms, rate-limit-rate, error-rate, write-latency-us, seed, extraction-mode (compact or verbose).
+ * Token counts are estimated from prompt and answer length, so compare modes by their ratio.
+ */
+public final class IngestionLoadHarness {
+    // Page size of /fetch
+    private static final int PAGE_SIZE = 100;
+
+    private IngestionLoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        int channelCount = Integer.parseInt(options.getOrDefault("channels", "4"));
+        int messagesPerChannel = Integer.parseInt(options.getOrDefault("messages", "1000"));
+        int authors = Integer.parseInt(options.getOrDefault("authors", "8"));
+        double authorSkew = Double.parseDouble(options.getOrDefault("author-skew", "1.0"));
+        long writeLatencyMicros = Long.parseLong(options.getOrDefault("write-latency-us", "500"));
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        boolean compactExtraction = "compact".equalsIgnoreCase(options.getOrDefault("extraction-mode", "compact"));
+        FakeChatModel.Settings llm = new FakeChatModel.Settings(
+                Long.parseLong(options.getOrDefault("llm-latency-ms", "300")),
+                Long.parseLong(options.getOrDefault("llm-jitter-ms", "200")),
+                Double.parseDouble(options.getOrDefault("rate-limit-rate", "0")),
+                Double.parseDouble(options.getOrDefault("error-rate", "0")),
+                seed);
+
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        DependencyGuards dependencyGuards = StandIns.dependencyGuards(meterRegistry);
+        FakeChatModel extractionModel = new FakeChatModel(FakeChatModel.Role.CHAT_TO_GRAPH, llm);
+        FakeChatModel cypherModel = new FakeChatModel(FakeChatModel.Role.GRAPH_TO_CYPHER, llm);
+        AtomicLong statements = new AtomicLong();
+        MeteredChatModel meteredExtractionModel = new MeteredChatModel(extractionModel, "chat-to-graph", meterRegistry);
+        Neo4jClient neo4jClient = StandIns.neo4jClient(statements, writeLatencyMicros);
+        Neo4jMetrics neo4jMetrics = new Neo4jMetrics(meterRegistry);
+        ReactiveGraphStore reactiveGraphStore = StandIns.reactiveGraphStore(meterRegistry, dependencyGuards);
+        KGService kgService = new KGService(
+                compactExtraction
+                        ? AgentConfig.compactChatToGraphAgent(meteredExtractionModel)
+                        : AgenticServices.agentBuilder(ChatToGraphAgent.class)
+                        .chatModel(meteredExtractionModel)
+                        .outputKey("chat-to-graph")
+                        .build(),
+                AgenticServices.agentBuilder(GraphToCypherQueryAgent.class)
+                        .chatModel(new MeteredChatModel(cypherModel, "graph-to-cypher", meterRegistry))
+                        .outputKey("graph-to-cypher")
+                        .build(),
+                neo4jClient,
+                null,
+                null,
+                neo4jMetrics,
+                dependencyGuards,
+                new GraphIndexes(neo4jClient, neo4jMetrics, dependencyGuards),
+                reactiveGraphStore,
+                meterRegistry
+        );
+        kgService.registerMeters();
+        ChatService chatService = new ChatService(kgService, null, new DiscordMetrics(meterRegistry), dependencyGuards,
+                reactiveGraphStore);
+
+        List<List<Message>> channels = new ArrayList<>(channelCount);
+        for (int i = 0; i < channelCount; i++) {
+            channels.add(StandIns.channel(messagesPerChannel, authors, authorSkew, seed + i));
+        }
+
+        System.gc();
+        HeapSampler heapSampler = new HeapSampler();
+        heapSampler.start();
+        long start = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(channelCount,
+                Thread.ofPlatform().name("ingest-", 0).factory());
+        try {
+            List<Future<?>> runs = new ArrayList<>(channelCount);
+            for (List<Message> channel : channels) {
+                runs.add(executor.submit(() -> ingest(chatService, channel)));
+            }
+            for (Future<?> run : runs) {
+                run.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        heapSampler.stop();
+
+        long totalMessages = (long) channelCount * messagesPerChannel;
+        double seconds = elapsedNanos / 1e9;
+        long llmCalls = extractionModel.getCallCount() + cypherModel.getCallCount();
+        System.out.printf("Ingested %d channels x %d messages (%d authors, skew %.1f) in %.1f s%n",
+                channelCount, messagesPerChannel, authors, authorSkew, seconds);
+        System.out.printf("Throughput        %.1f messages/s%n", totalMessages / seconds);
+        System.out.printf("LLM calls         %.3f per message (extraction %d, cypher %d, rate limited %d, errors %d)%n",
+                (double) llmCalls / totalMessages, extractionModel.getCallCount(), cypherModel.getCallCount(),
+                countRequests(meterRegistry, "rate_limited"), countRequests(meterRegistry, "error"));
+        System.out.printf("Tokens            %.1f per message (extraction %s)%n",
+                meterRegistry.find("llm.tokens").counters().stream().mapToDouble(Counter::count).sum() / totalMessages,
+                compactExtraction ? "compact" : "verbose");
+        System.out.printf("Graph writes      %d statements, %s%n", statements.get(), writeLatency(meterRegistry));
+        System.out.printf("Peak heap         %d MB (baseline %d MB)%n",
+                heapSampler.peakBytes() >> 20, heapSampler.baselineBytes() >> 20);
+    }
+
+    private static void ingest(ChatService chatService, List<Message> channel) {
+        for (int from = 0; from < channel.size(); from += PAGE_SIZE) {
+            chatService.processMessagesInBatch(channel.subList(from, Math.min(from + PAGE_SIZE, channel.size())));
+        }
+    }
+
+    private static long countRequests(MeterRegistry meterRegistry, String outcome) {
+        return meterRegistry.find("llm.requests").tag("outcome", outcome).timers().stream()
+                .mapToLong(Timer::count)
+                .sum();
+    }
+
+    private static String writeLatency(MeterRegistry meterRegistry) {
+        Timer writes = meterRegistry.find("neo4j.statement")
+                .tag("operation", "kg.write")
+                .tag("outcome", "success")
+                .timer();
+        if (writes == null) {
+            return "none succeeded";
+        }
+        StringBuilder latency = new StringBuilder("latency");
+        for (ValueAtPercentile percentile : writes.takeSnapshot().percentileValues()) {
+            latency.append(String.format(" p%.0f %.2f ms,", percentile.percentile() * 100,
+                    percentile.value(TimeUnit.MILLISECONDS)));
+        }
+        return latency.append(String.format(" max %.2f ms", writes.max(TimeUnit.MILLISECONDS))).toString();
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value but got " + arg);
+            }
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    /**
+     * Samples used heap every few milliseconds; more accurate than summing the pools' peaks, which peak at
+     * different times
+     */
+    private static final class HeapSampler {
+        private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        private final long baseline = memory.getHeapMemoryUsage().getUsed();
+        private final AtomicLong peak = new AtomicLong(baseline);
+        private volatile boolean running = true;
+        private Thread thread;
+
+        private void start() {
+            thread = Thread.ofPlatform().name("heap-sampler").daemon(true).start(() -> {
+                while (running) {
+                    peak.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            });
+        }
+
+        private void stop() throws InterruptedException {
+            running = false;
+            thread.join();
+        }
+
+        private long baselineBytes() {
+            return baseline;
+        }
+
+        private long peakBytes() {
+            return peak.get();
+        }
+    }
+}
@@ -1,16 +1,17 @@
 package com.discord.bot;
 
-import com.discord.bot.feature_music.service.MusicService;
 import lombok.extern.slf4j.Slf4j;
-import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.sharding.ShardManager;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @Slf4j
 @SpringBootApplication
 @ConfigurationPropertiesScan("com.discord.bot.properties")
+@EnableScheduling
 public class BotApplication {
 
     public static void main(String[] args) {
@@ -20,11 +21,9 @@ public class BotApplication {
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             log.info("Shutting down Discord Music Bot...");
             try {
-                MusicService musicService = context.getBean(MusicService.class);
-                musicService.shutdown();
-                
-                JDA jda = context.getBean(JDA.class);
-                jda.shutdown();
+                // MusicService writes its final snapshots when the context closes
+                ShardManager shardManager = context.getBean(ShardManager.class);
+                shardManager.shutdown();
                 
                 log.info("Discord Music Bot shutdown complete");
             } catch (Exception e) {
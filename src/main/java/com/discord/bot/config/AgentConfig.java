@@ -1,41 +1,90 @@
 package com.discord.bot.config;
 
 import com.discord.bot.feature_knowledge_graph.agent.ChatToGraphAgent;
+import com.discord.bot.feature_knowledge_graph.agent.CompactChatToGraphAgent;
 import com.discord.bot.feature_knowledge_graph.agent.FriendlyAnswerAgent;
 import com.discord.bot.feature_knowledge_graph.agent.GraphToCypherQueryAgent;
+import com.discord.bot.feature_knowledge_graph.agent.QuestionToCypherAgent;
+import com.discord.bot.llm.ModelEndpointPool;
+import com.discord.bot.observability.MeteredChatModel;
+import com.discord.bot.resilience.DependencyGuards;
+import com.discord.bot.resilience.GuardedChatModel;
 import dev.langchain4j.agentic.AgenticServices;
 import dev.langchain4j.model.chat.ChatModel;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+/**
+ * Every agent talks to its role's model (see {@link ChatModelConfig}) through its own {@link MeteredChatModel}, so
+ * LLM metrics are tagged per agent
+ */
 @Configuration
 public class AgentConfig {
+    private static final String COMPACT_EXTRACTION = "compact";
+
+    // "compact" sends short cacheable instructions and asks for schema-shaped output, "verbose" the worked example
+    @Value("${ai.extraction.mode:compact}")
+    private String extractionMode;
 
     @Bean
-    public ChatToGraphAgent chatToGraphAgent(ChatModel chatModel) {
+    public ChatToGraphAgent chatToGraphAgent(@Qualifier("extractionChatModel") ChatModel extractionChatModel,
+                                             ModelEndpointPool modelEndpointPool, DependencyGuards dependencyGuards,
+                                             MeterRegistry meterRegistry) {
+        if (COMPACT_EXTRACTION.equalsIgnoreCase(extractionMode)) {
+            return compactChatToGraphAgent(new MeteredChatModel(extractionChatModel, "chat-to-graph", meterRegistry));
+        }
+        // Same endpoints, but without schema-shaped output so the worked example's free-form JSON is parsed
+        ChatModel freeFormModel = new GuardedChatModel(modelEndpointPool.modelFor(ModelEndpointPool.EXTRACTION),
+                dependencyGuards.getLlm());
         return AgenticServices
                 .agentBuilder(ChatToGraphAgent.class)
-                .chatModel(chatModel)
+                .chatModel(new MeteredChatModel(freeFormModel, "chat-to-graph", meterRegistry))
                 .outputKey("chat-to-graph")
                 .build();
     }
 
     @Bean
-    public GraphToCypherQueryAgent graphToCypherQueryAgent(ChatModel chatModel) {
+    public GraphToCypherQueryAgent graphToCypherQueryAgent(@Qualifier("cypherChatModel") ChatModel cypherChatModel,
+                                                           MeterRegistry meterRegistry) {
         return AgenticServices
                 .agentBuilder(GraphToCypherQueryAgent.class)
-                .chatModel(chatModel)
+                .chatModel(new MeteredChatModel(cypherChatModel, "graph-to-cypher", meterRegistry))
                 .outputKey("graph-to-cypher")
                 .build();
     }
 
     @Bean
-    public FriendlyAnswerAgent friendlyAnswerAgent(ChatModel chatModel) {
+    public QuestionToCypherAgent questionToCypherAgent(@Qualifier("textToCypherChatModel") ChatModel textToCypherChatModel,
+                                                       MeterRegistry meterRegistry) {
+        return AgenticServices
+                .agentBuilder(QuestionToCypherAgent.class)
+                .chatModel(new MeteredChatModel(textToCypherChatModel, "text-to-cypher", meterRegistry))
+                .outputKey("text-to-cypher")
+                .build();
+    }
+
+    @Bean
+    public FriendlyAnswerAgent friendlyAnswerAgent(@Qualifier("answerChatModel") ChatModel answerChatModel,
+                                                   MeterRegistry meterRegistry) {
         return AgenticServices
                 .agentBuilder(FriendlyAnswerAgent.class)
-                .chatModel(chatModel)
+                .chatModel(new MeteredChatModel(answerChatModel, "friendly-answer", meterRegistry))
                 .outputKey("friendly-answer")
                 .build();
     }
-}
 
+    /**
+     * Extraction agent using {@link CompactChatToGraphAgent}; public for the benchmarks module
+     */
+    public static ChatToGraphAgent compactChatToGraphAgent(ChatModel chatModel) {
+        CompactChatToGraphAgent agent = AgenticServices
+                .agentBuilder(CompactChatToGraphAgent.class)
+                .chatModel(chatModel)
+                .outputKey("chat-to-graph")
+                .build();
+        return agent::extractGraphJson;
+    }
+}
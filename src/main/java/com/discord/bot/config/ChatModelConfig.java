@@ -1,24 +1,51 @@
 package com.discord.bot.config;
 
-import com.discord.bot.properties.OpenAIProperties;
+import com.discord.bot.llm.ModelEndpointPool;
+import com.discord.bot.resilience.DependencyGuards;
+import com.discord.bot.resilience.GuardedChatModel;
+import dev.langchain4j.model.chat.Capability;
 import dev.langchain4j.model.chat.ChatModel;
-import dev.langchain4j.model.openai.OpenAiChatModel;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
+/**
+ * One chat model per agent role, each routed across the endpoints configured for it under {@code ai.routing} and
+ * sharing the LLM's bulkhead and circuit breaker
+ */
 @Configuration
 @RequiredArgsConstructor
 public class ChatModelConfig {
-    private final OpenAIProperties openAIProperties;
+    private final ModelEndpointPool modelEndpointPool;
+    private final DependencyGuards dependencyGuards;
 
     @Bean
-    public ChatModel openAiClient() {
-        return OpenAiChatModel.builder()
-                .baseUrl("https://api.groq.com/openai/v1")
-                .apiKey(openAIProperties.ApiKey())
-                .modelName("meta-llama/llama-4-maverick-17b-128e-instruct")
-                .temperature(0.0)
-                .build();
+    @Primary
+    public ChatModel answerChatModel() {
+        return guarded(modelEndpointPool.modelFor(ModelEndpointPool.ANSWER));
+    }
+
+    /**
+     * Model for graph extraction, which answers in the JSON schema of the agent's return type instead of
+     * free-form JSON. Not strict, as node properties are an open map.
+     */
+    @Bean
+    public ChatModel extractionChatModel() {
+        return guarded(modelEndpointPool.modelFor(ModelEndpointPool.EXTRACTION, Capability.RESPONSE_FORMAT_JSON_SCHEMA));
+    }
+
+    @Bean
+    public ChatModel cypherChatModel() {
+        return guarded(modelEndpointPool.modelFor(ModelEndpointPool.CYPHER));
+    }
+
+    @Bean
+    public ChatModel textToCypherChatModel() {
+        return guarded(modelEndpointPool.modelFor(ModelEndpointPool.TEXT_TO_CYPHER));
+    }
+
+    private ChatModel guarded(ChatModel chatModel) {
+        return new GuardedChatModel(chatModel, dependencyGuards.getLlm());
     }
 }
@@ -1,14 +1,15 @@
 package com.discord.bot.config;
 
 import com.discord.bot.event_listener.ChatMessageEventListener;
+import com.discord.bot.startup.StartupReadinessListener;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import net.dv8tion.jda.api.JDA;
-import net.dv8tion.jda.api.JDABuilder;
-import net.dv8tion.jda.api.interactions.commands.OptionType;
-import net.dv8tion.jda.api.interactions.commands.build.Commands;
 import net.dv8tion.jda.api.requests.GatewayIntent;
-import net.dv8tion.jda.api.requests.restaction.CommandListUpdateAction;
+import net.dv8tion.jda.api.sharding.DefaultShardManagerBuilder;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import net.dv8tion.jda.api.utils.ChunkingFilter;
+import net.dv8tion.jda.api.utils.MemberCachePolicy;
+import net.dv8tion.jda.api.utils.cache.CacheFlag;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -19,20 +20,77 @@ import java.util.EnumSet;
 @Configuration
 @RequiredArgsConstructor
 public class JdaConfig {
+    private static final String LEAN_PROFILE = "lean";
 
     @Value("${discord.token}")
     private String token;
 
+    @Value("${discord.shards.total:1}")
+    private int shardsTotal;
+
+    // Range of shard ids owned by this process, so several processes can split one bot
+    @Value("${discord.shards.min:0}")
+    private int shardMin;
+
+    @Value("${discord.shards.max:-1}")
+    private int shardMax;
+
+    // "default" keeps JDA's full caches, "lean" only keeps what music and ingestion need
+    @Value("${discord.gateway.profile:default}")
+    private String gatewayProfile;
+
+    // An audio node only plays music routed to it by bot processes, it neither handles nor registers commands
+    @Value("${audio.node.server.enabled:false}")
+    private boolean audioNode;
+
+    // Log in to the gateway after the context is up instead of during its refresh, see StartupSequence
+    @Value("${discord.startup.fast:false}")
+    private boolean fastStartup;
+
     private final ChatMessageEventListener chatMessageEventListener;
+    private final StartupReadinessListener startupReadinessListener;
 
     @Bean
-    public JDA jda() {
+    public ShardManager shardManager() {
         if (token == null || token.isBlank()) {
             throw new IllegalStateException("Discord token is not set. Set DISCORD_BOT_TOKEN env var or discord.token property.");
         }
 
-        log.info("Initializing JDA with token: {}...", token.substring(0, Math.min(10, token.length())));
+        final int lastShard = shardMax < 0 ? shardsTotal - 1 : shardMax;
+        if (shardMin < 0 || lastShard < shardMin || lastShard >= shardsTotal) {
+            throw new IllegalStateException("Invalid shard range " + shardMin + ".." + lastShard + " for " + shardsTotal + " shards");
+        }
+
+        log.info("Initializing JDA shards {}..{} of {} with token: {}...",
+                shardMin, lastShard, shardsTotal, token.substring(0, Math.min(10, token.length())));
 
+        try {
+            DefaultShardManagerBuilder builder = audioNode || LEAN_PROFILE.equalsIgnoreCase(gatewayProfile)
+                    ? createLeanBuilder()
+                    : createDefaultBuilder();
+            if (!audioNode) {
+                builder.addEventListeners(chatMessageEventListener);
+            }
+            // Registers slash commands once shard 0 is ready
+            builder.addEventListeners(startupReadinessListener);
+            builder.setShardsTotal(shardsTotal)
+                    .setShards(shardMin, lastShard);
+
+            ShardManager shardManager = builder.build(!fastStartup);
+
+            if (fastStartup) {
+                log.info("JDA configured with {} shards, logging in once startup completes", shardManager.getShardsTotal());
+            } else {
+                log.info("JDA initialized successfully with {} shards", shardManager.getShardsTotal());
+            }
+            return shardManager;
+        } catch (Exception e) {
+            log.error("Failed to initialize JDA", e);
+            throw new RuntimeException("Failed to initialize Discord bot", e);
+        }
+    }
+
+    private DefaultShardManagerBuilder createDefaultBuilder() {
         final EnumSet<GatewayIntent> intents = EnumSet.of(
                 GatewayIntent.GUILD_MESSAGES,
                 GatewayIntent.DIRECT_MESSAGES,
@@ -42,45 +100,22 @@ public class JdaConfig {
                 GatewayIntent.SCHEDULED_EVENTS,
                 GatewayIntent.MESSAGE_CONTENT
         );
-
-        try {
-            JDABuilder builder = JDABuilder.createDefault(token)
-                    .addEventListeners(chatMessageEventListener)
-                    .setEnabledIntents(intents);
-
-            JDA jda = builder.build();
-
-            // Register slash commands
-            registerSlashCommands(jda);
-
-            log.info("JDA initialized successfully");
-            return jda;
-        } catch (Exception e) {
-            log.error("Failed to initialize JDA", e);
-            throw new RuntimeException("Failed to initialize Discord bot", e);
-        }
+        return DefaultShardManagerBuilder.createDefault(token)
+                .setEnabledIntents(intents);
     }
 
-    private void registerSlashCommands(JDA jda) {
-        try {
-            CommandListUpdateAction commands = jda.updateCommands();
-            commands.addCommands(
-                    Commands.slash("play", "Play a song or add it to the queue")
-                            .addOption(OptionType.STRING, "song", "Song name or URL", true),
-                    Commands.slash("skip", "Skip the current song"),
-                    Commands.slash("stop", "Stop the music and clear the queue"),
-                    Commands.slash("queue", "Show the current queue"),
-                    Commands.slash("ping", "Check if the bot is responding"),
-                    Commands.slash("ask", "Ask a question to the bot")
-                            .addOption(OptionType.STRING, "question", "Your question", true),
-                    Commands.slash("fetch", "Fetch all messages from the current channel")
-            );
-            commands.queue(
-                    success -> log.info("Successfully registered {} slash commands", success.size()),
-                    error -> log.error("Failed to register slash commands", error)
-            );
-        } catch (Exception e) {
-            log.error("Error registering slash commands", e);
-        }
+    /**
+     * Slash commands need no intents. Music needs voice states (and the members in voice channels),
+     * /fetch needs message content for REST history. Every other cache stays off.
+     */
+    private DefaultShardManagerBuilder createLeanBuilder() {
+        log.info("Using lean gateway profile");
+        return DefaultShardManagerBuilder.createLight(token, EnumSet.of(
+                        GatewayIntent.GUILD_VOICE_STATES,
+                        GatewayIntent.MESSAGE_CONTENT
+                ))
+                .enableCache(CacheFlag.VOICE_STATE)
+                .setMemberCachePolicy(MemberCachePolicy.VOICE)
+                .setChunkingFilter(ChunkingFilter.NONE);
     }
 }
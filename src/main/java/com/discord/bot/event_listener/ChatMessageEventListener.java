@@ -1,13 +1,15 @@
 package com.discord.bot.event_listener;
 
 import com.discord.bot.feature_chat.ChatService;
-import com.discord.bot.feature_music.service.GuildMusicManager;
-import com.discord.bot.feature_music.service.MusicService;
-import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
-import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
-import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
-import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
-import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.discord.bot.feature_chat.service.ChannelLeaseException;
+import com.discord.bot.feature_chat.service.IngestionScheduler;
+import com.discord.bot.feature_music.domain.MusicReply;
+import com.discord.bot.feature_music.node.MusicNode;
+import com.discord.bot.feature_music.node.MusicNodeRouter;
+import com.discord.bot.observability.DiscordMetrics;
+import com.discord.bot.resilience.DependencyUnavailableException;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.dv8tion.jda.api.entities.Guild;
@@ -15,16 +17,30 @@ import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.channel.concrete.VoiceChannel;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
-import net.dv8tion.jda.api.managers.AudioManager;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
 import org.springframework.stereotype.Component;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiFunction;
+
 @Slf4j
 @Component
 @RequiredArgsConstructor
 public class ChatMessageEventListener extends ListenerAdapter {
-    private final AudioPlayerManager audioPlayerManager;
-    private final MusicService musicService;
+    private static final String NODE_UNAVAILABLE = "❌ Music is unavailable right now, please try again in a moment.";
+    private static final String ANSWERS_UNAVAILABLE = "⏳ Answers are unavailable right now, please try again later.";
+    // Returned by handlers whose final reply was already queued
+    private static final CompletableFuture<Void> DONE = CompletableFuture.completedFuture(null);
+
+    private final MusicNodeRouter musicNodeRouter;
     private final ChatService chatService;
+    private final IngestionScheduler ingestionScheduler;
+    private final DiscordMetrics discordMetrics;
+    // /ask blocks on the LLM and Neo4j, so it never runs on the shard's event thread that music commands share
+    private final ExecutorService askExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ask-", 0).factory());
 //    @Override
 //    public void onMessageReceived(MessageReceivedEvent event) {
 //        if (event.getAuthor().isBot()) return;
@@ -36,48 +52,75 @@ public class ChatMessageEventListener extends ListenerAdapter {
 //        }
 //    }
 
+    @PreDestroy
+    public void shutdown() {
+        askExecutor.shutdownNow();
+    }
+
     @Override
     public void onSlashCommandInteraction(SlashCommandInteractionEvent event) {
+        // Each handler returns a future completing once its final reply was handed to JDA
+        Timer.Sample sample = discordMetrics.startCommand();
+        String commandName = event.getName();
         try {
-            String commandName = event.getName();
             log.info("Received slash command: {} from user: {}", commandName, event.getUser().getName());
 
-            switch (commandName) {
+            CompletableFuture<?> completion = switch (commandName) {
                 case "play" -> handlePlayCommand(event);
                 case "skip" -> handleSkipCommand(event);
                 case "stop" -> handleStopCommand(event);
                 case "queue" -> handleQueueCommand(event);
+                case "remove" -> handleRemoveCommand(event);
+                case "move" -> handleMoveCommand(event);
+                case "skipto" -> handleSkipToCommand(event);
+                case "shuffle" -> handleShuffleCommand(event);
                 case "ping" -> handlePingCommand(event);
                 case "ask" -> handleAskCommand(event);
                 case "fetch" -> handleFetchCommand(event);
                 default -> {
                     log.warn("Unknown command: {}", commandName);
                     event.reply("Unknown command: " + commandName).setEphemeral(true).queue();
+                    yield DONE;
                 }
-            }
+            };
+            completion.whenComplete((ignored, error) -> discordMetrics.stopCommand(sample, commandName, error));
         } catch (Exception e) {
             log.error("Error handling slash command: {}", event.getName(), e);
             event.reply("An error occurred while processing your command.").setEphemeral(true).queue();
+            discordMetrics.stopCommand(sample, commandName, e);
         }
     }
 
-    private void handleAskCommand(SlashCommandInteractionEvent event) {
+    private CompletableFuture<?> handleAskCommand(SlashCommandInteractionEvent event) {
         event.deferReply().queue();
-        final String answer = chatService.getAnswerToQuestion(event);
-        event.getHook().sendMessage(answer).queue();
+        return CompletableFuture.supplyAsync(() -> chatService.getAnswerToQuestion(event), askExecutor)
+                .whenComplete((answer, error) -> {
+                    if (error == null) {
+                        event.getHook().sendMessage(answer).queue();
+                        return;
+                    }
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    if (cause instanceof DependencyUnavailableException) {
+                        log.warn("Not answering /ask: {}", cause.getMessage());
+                        event.getHook().sendMessage(ANSWERS_UNAVAILABLE).queue();
+                        return;
+                    }
+                    log.error("Error answering question", cause);
+                    event.getHook().sendMessage("❌ An error occurred while answering your question.").queue();
+                });
     }
 
-    private void handlePlayCommand(SlashCommandInteractionEvent event) {
+    private CompletableFuture<?> handlePlayCommand(SlashCommandInteractionEvent event) {
         Guild guild = event.getGuild();
         if (guild == null) {
             event.reply("This command must be used in a guild.").setEphemeral(true).queue();
-            return;
+            return DONE;
         }
 
         Member member = event.getMember();
         if (member == null) {
             event.reply("Could not identify the member.").setEphemeral(true).queue();
-            return;
+            return DONE;
         }
 
         VoiceChannel voiceChannel = member.getVoiceState() != null ?
@@ -85,116 +128,158 @@ public class ChatMessageEventListener extends ListenerAdapter {
 
         if (voiceChannel == null) {
             event.reply("You need to be in a voice channel to use this command.").setEphemeral(true).queue();
-            return;
+            return DONE;
         }
 
         String query = event.getOption("song").getAsString();
         if (query.trim().isEmpty()) {
             event.reply("Please provide a song name or URL.").setEphemeral(true).queue();
-            return;
+            return DONE;
         }
 
-        // Set up music manager and connect to voice channel
-        GuildMusicManager musicManager = musicService.getOrCreateMusicManager(guild);
-        AudioManager audioManager = guild.getAudioManager();
+        MusicNode node = getMusicNode(event, guild);
+        if (node == null) {
+            return DONE;
+        }
+        // Track loading can take a while, and on an audio node also a network round trip
+        event.deferReply().queue();
+        return node.play(guild, voiceChannel, query).whenComplete((reply, error) -> {
+            if (error != null) {
+                log.error("Music node {} failed to play: {}", node.getName(), query, error);
+                event.getHook().sendMessage(NODE_UNAVAILABLE).queue();
+                return;
+            }
+            event.getHook().sendMessage(reply.message()).queue();
+        });
+    }
 
-        audioManager.setSendingHandler(musicManager.getSendHandler());
-        audioManager.openAudioConnection(voiceChannel);
+    private CompletableFuture<?> handleSkipCommand(SlashCommandInteractionEvent event) {
+        return runMusicCommand(event, (node, guild) -> node.skip(guild));
+    }
 
-        // Load and play the track
-        audioPlayerManager.loadItemOrdered(musicManager, query, new AudioLoadResultHandler() {
-            @Override
-            public void trackLoaded(AudioTrack track) {
-                musicManager.getScheduler().queue(track);
-                event.reply("🎵 Playing: **" + track.getInfo().title + "**").queue();
-                log.info("Track loaded and queued: {}", track.getInfo().title);
-            }
+    private CompletableFuture<?> handleStopCommand(SlashCommandInteractionEvent event) {
+        return runMusicCommand(event, (node, guild) -> node.stop(guild)
+                .whenComplete((reply, error) -> musicNodeRouter.release(guild)));
+    }
 
-            @Override
-            public void playlistLoaded(AudioPlaylist playlist) {
-                int tracksAdded = 0;
-                for (AudioTrack track : playlist.getTracks()) {
-                    musicManager.getScheduler().queue(track);
-                    tracksAdded++;
-                }
-                event.reply("📀 Playlist queued: **" + playlist.getName() + "** (" + tracksAdded + " tracks)").queue();
-                log.info("Playlist loaded: {} with {} tracks", playlist.getName(), tracksAdded);
-            }
+    private CompletableFuture<?> handleQueueCommand(SlashCommandInteractionEvent event) {
+        OptionMapping pageOption = event.getOption("page");
+        int page = pageOption != null ? pageOption.getAsInt() : 1;
+        return runMusicCommand(event, (node, guild) -> node.queue(guild, page));
+    }
 
-            @Override
-            public void noMatches() {
-                event.reply("❌ No matches found for: " + query).queue();
-                log.warn("No matches found for query: {}", query);
-            }
+    private CompletableFuture<?> handleRemoveCommand(SlashCommandInteractionEvent event) {
+        int position = event.getOption("position").getAsInt();
+        return runMusicCommand(event, (node, guild) -> node.remove(guild, position));
+    }
 
-            @Override
-            public void loadFailed(FriendlyException exception) {
-                event.reply("❌ Could not play: " + exception.getMessage()).queue();
-                log.error("Failed to load track: {}", query, exception);
-            }
-        });
+    private CompletableFuture<?> handleMoveCommand(SlashCommandInteractionEvent event) {
+        int from = event.getOption("from").getAsInt();
+        int to = event.getOption("to").getAsInt();
+        return runMusicCommand(event, (node, guild) -> node.move(guild, from, to));
     }
 
-    private void handleSkipCommand(SlashCommandInteractionEvent event) {
-        Guild guild = event.getGuild();
-        if (guild == null) {
-            event.reply("This command must be used in a guild.").setEphemeral(true).queue();
-            return;
-        }
+    private CompletableFuture<?> handleSkipToCommand(SlashCommandInteractionEvent event) {
+        int position = event.getOption("position").getAsInt();
+        return runMusicCommand(event, (node, guild) -> node.skipTo(guild, position));
+    }
 
-        GuildMusicManager musicManager = musicService.getOrCreateMusicManager(guild);
-        musicManager.getScheduler().nextTrack();
-        event.reply("⏭️ Skipped to next track.").queue();
-        log.info("Track skipped in guild: {}", guild.getName());
+    private CompletableFuture<?> handleShuffleCommand(SlashCommandInteractionEvent event) {
+        return runMusicCommand(event, (node, guild) -> node.shuffle(guild));
     }
 
-    private void handleStopCommand(SlashCommandInteractionEvent event) {
+    /**
+     * Run a music command on the guild's node and reply with its outcome. A remote node answers after a network
+     * round trip, so its commands are deferred first and answered through the interaction hook.
+     */
+    private CompletableFuture<?> runMusicCommand(SlashCommandInteractionEvent event,
+                                                 BiFunction<MusicNode, Guild, CompletableFuture<MusicReply>> command) {
         Guild guild = event.getGuild();
         if (guild == null) {
             event.reply("This command must be used in a guild.").setEphemeral(true).queue();
-            return;
+            return DONE;
         }
 
-        GuildMusicManager musicManager = musicService.getOrCreateMusicManager(guild);
-        musicManager.getScheduler().stop();
-        guild.getAudioManager().closeAudioConnection();
-        event.reply("⏹️ Stopped music and cleared queue.").queue();
-        log.info("Music stopped in guild: {}", guild.getName());
+        MusicNode node = getMusicNode(event, guild);
+        if (node == null) {
+            return DONE;
+        }
+        boolean deferred = node.isRemote();
+        if (deferred) {
+            event.deferReply().queue();
+        }
+        return command.apply(node, guild).whenComplete((reply, error) -> {
+            if (error != null) {
+                log.error("Music node {} failed to run /{}", node.getName(), event.getName(), error);
+                reply = MusicReply.error(NODE_UNAVAILABLE);
+            }
+            if (!deferred) {
+                event.reply(reply.message()).setEphemeral(reply.ephemeral()).queue();
+            } else if (!reply.ephemeral()) {
+                event.getHook().sendMessage(reply.message()).queue();
+            } else {
+                // The deferred reply is public, only a new follow-up can be ephemeral
+                String message = reply.message();
+                event.getHook().deleteOriginal().queue(deleted -> event.getHook().sendMessage(message)
+                        .setEphemeral(true)
+                        .queue());
+            }
+        });
     }
 
-    private void handleQueueCommand(SlashCommandInteractionEvent event) {
-        Guild guild = event.getGuild();
-        if (guild == null) {
-            event.reply("This command must be used in a guild.").setEphemeral(true).queue();
-            return;
+    /**
+     * Resolve the node playing the guild's music, replying with an error if every node is down
+     */
+    private MusicNode getMusicNode(SlashCommandInteractionEvent event, Guild guild) {
+        MusicNode node = musicNodeRouter.nodeFor(guild);
+        if (node == null) {
+            event.reply(NODE_UNAVAILABLE).setEphemeral(true).queue();
         }
-
-        GuildMusicManager musicManager = musicService.getOrCreateMusicManager(guild);
-        String queueInfo = musicManager.getScheduler().getQueueInfo();
-        event.reply(queueInfo).queue();
+        return node;
     }
 
-    private void handlePingCommand(SlashCommandInteractionEvent event) {
+    private CompletableFuture<?> handlePingCommand(SlashCommandInteractionEvent event) {
         long gatewayPing = event.getJDA().getGatewayPing();
         event.reply("🏓 Pong! Gateway ping: " + gatewayPing + "ms").queue();
         log.info("Ping command executed, gateway ping: {}ms", gatewayPing);
+        return DONE;
     }
 
-    private void handleFetchCommand(SlashCommandInteractionEvent event) {
+    private CompletableFuture<?> handleFetchCommand(SlashCommandInteractionEvent event) {
         event.deferReply().queue();
         try {
             event.getChannel();
             if (!event.getChannel().getType().isMessage()) {
                 event.getHook().sendMessage("❌ This command can only be used in a text channel.").queue();
-                return;
+                return DONE;
+            }
+
+            // Ingestion runs on the shard's ingestion worker so this event thread is released right away
+            CompletableFuture<Void> ingestion = ingestionScheduler.submit(event.getChannel().asTextChannel());
+            if (ingestion == null) {
+                event.getHook().sendMessage("⏳ Messages from this channel are already being fetched.").queue();
+                return DONE;
             }
 
-            chatService.fetchAllMessages(event.getChannel().asTextChannel());
-            event.getHook().sendMessage("✅ Successfully fetched all messages from this channel.").queue();
             log.info("Fetch command executed by user: {}", event.getUser().getName());
+            return ingestion.whenComplete((ignored, error) -> {
+                if (error != null) {
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    if (cause instanceof ChannelLeaseException) {
+                        log.info("Not fetching: {}", cause.getMessage());
+                        event.getHook().sendMessage("⏳ Messages from this channel are being fetched by another instance.").queue();
+                        return;
+                    }
+                    log.error("Error fetching messages", error);
+                    event.getHook().sendMessage("❌ An error occurred while fetching messages.").queue();
+                    return;
+                }
+                event.getHook().sendMessage("✅ Successfully fetched all messages from this channel.").queue();
+            });
         } catch (Exception e) {
             log.error("Error fetching messages", e);
             event.getHook().sendMessage("❌ An error occurred while fetching messages.").queue();
+            return CompletableFuture.failedFuture(e);
         }
     }
 }
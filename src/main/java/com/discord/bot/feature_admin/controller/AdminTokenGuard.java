@@ -0,0 +1,44 @@
+package com.discord.bot.feature_admin.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Checks the {@value #HEADER} header of admin endpoints against the shared secret {@code admin.token}; when it is
+ * blank the endpoints are disabled. Both tokens are hashed and compared in constant time, so neither the content
+ * nor the length of the secret can be guessed from response times.
+ */
+@Component
+public class AdminTokenGuard {
+    public static final String HEADER = "X-Admin-Token";
+
+    private final byte[] adminTokenDigest;
+
+    public AdminTokenGuard(@Value("${admin.token:}") String adminToken) {
+        this.adminTokenDigest = adminToken.isBlank() ? null : digest(adminToken);
+    }
+
+    /**
+     * @throws ResponseStatusException With 403 if the token is missing or wrong, or admin endpoints are disabled
+     */
+    public void check(String token) {
+        if (adminTokenDigest == null || token == null || !MessageDigest.isEqual(adminTokenDigest, digest(token))) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+        }
+    }
+
+    private static byte[] digest(String token) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            // Every JVM ships SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package com.discord.bot.feature_admin.controller;
+
+import com.discord.bot.feature_admin.domain.CacheFootprintReport;
+import com.discord.bot.feature_admin.service.CacheFootprintService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/admin")
+@RequiredArgsConstructor
+public class CacheFootprintController {
+
+    private final AdminTokenGuard adminTokenGuard;
+    private final CacheFootprintService cacheFootprintService;
+
+    @GetMapping("/cache")
+    public CacheFootprintReport getCacheFootprint(
+            @RequestHeader(value = AdminTokenGuard.HEADER, required = false) String token,
+            @RequestParam(defaultValue = "25") int limit) {
+        adminTokenGuard.check(token);
+        return cacheFootprintService.getReport(limit);
+    }
+}
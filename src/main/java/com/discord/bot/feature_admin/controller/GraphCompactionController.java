@@ -0,0 +1,31 @@
+package com.discord.bot.feature_admin.controller;
+
+import com.discord.bot.feature_knowledge_graph.domain.GraphCompactionReport;
+import com.discord.bot.feature_knowledge_graph.service.GraphCompactionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+@RestController
+@RequestMapping("/admin")
+@RequiredArgsConstructor
+public class GraphCompactionController {
+
+    private final AdminTokenGuard adminTokenGuard;
+    private final GraphCompactionService graphCompactionService;
+
+    // Runs a compaction now and waits for it, e.g. after a large /fetch
+    @PostMapping("/graph/compaction")
+    public GraphCompactionReport compact(@RequestHeader(value = AdminTokenGuard.HEADER, required = false) String token) {
+        adminTokenGuard.check(token);
+        GraphCompactionReport report = graphCompactionService.compact();
+        if (report == null) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A compaction is already running");
+        }
+        return report;
+    }
+}
@@ -0,0 +1,53 @@
+package com.discord.bot.feature_admin.controller;
+
+import com.discord.bot.feature_knowledge_graph.domain.GraphTransferReport;
+import com.discord.bot.feature_knowledge_graph.service.GraphTransferService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.function.Supplier;
+
+@RestController
+@RequestMapping("/admin")
+@RequiredArgsConstructor
+public class GraphTransferController {
+
+    private final AdminTokenGuard adminTokenGuard;
+    private final GraphTransferService graphTransferService;
+
+    // Writes the graph to kg.transfer.directory/<name> and waits for it
+    @PostMapping("/graph/export/{name}")
+    public GraphTransferReport export(@RequestHeader(value = AdminTokenGuard.HEADER, required = false) String token,
+                                      @PathVariable String name) {
+        return transfer(token, () -> graphTransferService.export(name));
+    }
+
+    // Loads kg.transfer.directory/<name> into an empty database and waits for it
+    @PostMapping("/graph/import/{name}")
+    public GraphTransferReport importGraph(@RequestHeader(value = AdminTokenGuard.HEADER, required = false) String token,
+                                           @PathVariable String name) {
+        return transfer(token, () -> graphTransferService.importGraph(name));
+    }
+
+    private GraphTransferReport transfer(String token, Supplier<GraphTransferReport> transfer) {
+        adminTokenGuard.check(token);
+        GraphTransferReport report;
+        try {
+            report = transfer.get();
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        } catch (IllegalStateException e) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, e.getMessage());
+        }
+        if (report == null) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "A graph export or import is already running");
+        }
+        return report;
+    }
+}
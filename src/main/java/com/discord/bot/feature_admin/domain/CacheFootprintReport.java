@@ -0,0 +1,15 @@
+package com.discord.bot.feature_admin.domain;
+
+import java.util.List;
+
+// Cache sizes across all shards owned by this process, with the largest guilds first
+public record CacheFootprintReport(
+        String gatewayProfile,
+        int shards,
+        long guilds,
+        long cachedUsers,
+        long cachedMembers,
+        long activeMusicGuilds,
+        List<GuildCacheReport> largestGuilds
+) {
+}
@@ -0,0 +1,17 @@
+package com.discord.bot.feature_admin.domain;
+
+// Cached entity counts for one guild
+public record GuildCacheReport(
+        String guildId,
+        String name,
+        int shardId,
+        int memberCount,
+        long cachedMembers,
+        long cachedVoiceStates,
+        long channels,
+        long roles,
+        long emojis,
+        long stickers,
+        long scheduledEvents
+) {
+}
@@ -0,0 +1,66 @@
+package com.discord.bot.feature_admin.service;
+
+import com.discord.bot.feature_admin.domain.CacheFootprintReport;
+import com.discord.bot.feature_admin.domain.GuildCacheReport;
+import com.discord.bot.feature_music.service.MusicService;
+import lombok.RequiredArgsConstructor;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class CacheFootprintService {
+
+    @Value("${discord.gateway.profile:default}")
+    private String gatewayProfile;
+
+    private final ShardManager shardManager;
+    private final MusicService musicService;
+
+    /**
+     * Build a report of JDA entity cache sizes, so instances can be sized by active guilds instead of total members
+     *
+     * @param limit Maximum number of guilds to include, largest member caches first
+     */
+    public CacheFootprintReport getReport(final int limit) {
+        final List<GuildCacheReport> guilds = shardManager.getGuildCache().stream()
+                .map(this::toReport)
+                .toList();
+
+        final List<GuildCacheReport> largest = guilds.stream()
+                .sorted(Comparator.comparingLong(GuildCacheReport::cachedMembers).reversed())
+                .limit(Math.max(limit, 0))
+                .toList();
+
+        return new CacheFootprintReport(
+                gatewayProfile,
+                shardManager.getShardsRunning(),
+                guilds.size(),
+                shardManager.getUserCache().size(),
+                guilds.stream().mapToLong(GuildCacheReport::cachedMembers).sum(),
+                musicService.getActiveManagerCount(),
+                largest
+        );
+    }
+
+    private GuildCacheReport toReport(final Guild guild) {
+        return new GuildCacheReport(
+                guild.getId(),
+                guild.getName(),
+                guild.getJDA().getShardInfo().getShardId(),
+                guild.getMemberCount(),
+                guild.getMemberCache().size(),
+                guild.getVoiceStates().size(),
+                guild.getChannels().size(),
+                guild.getRoleCache().size(),
+                guild.getEmojiCache().size(),
+                guild.getStickerCache().size(),
+                guild.getScheduledEventCache().size()
+        );
+    }
+}
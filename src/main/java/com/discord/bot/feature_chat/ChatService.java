@@ -1,21 +1,36 @@
 package com.discord.bot.feature_chat;
 
+import com.discord.bot.feature_chat.domain.ChannelCheckpoint;
+import com.discord.bot.feature_chat.domain.ChannelLease;
 import com.discord.bot.feature_chat.domain.MsgData;
+import com.discord.bot.feature_chat.service.ChannelLeaseException;
 import com.discord.bot.feature_chat.service.ChannelTrackingService;
+import com.discord.bot.feature_knowledge_graph.domain.ChatLine;
+import com.discord.bot.feature_knowledge_graph.domain.QueryScope;
 import com.discord.bot.feature_knowledge_graph.service.KGService;
+import com.discord.bot.feature_knowledge_graph.service.ReactiveGraphStore;
+import com.discord.bot.observability.DiscordMetrics;
+import com.discord.bot.resilience.DependencyGuards;
+import com.discord.bot.resilience.DependencyUnavailableException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.dv8tion.jda.api.entities.Message;
 import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
 import net.dv8tion.jda.api.events.interaction.command.SlashCommandInteractionEvent;
+import net.dv8tion.jda.api.interactions.commands.OptionMapping;
 import opennlp.tools.util.StringUtil;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
@@ -27,13 +42,20 @@ public class ChatService {
     private static final int BATCH_SIZE = 100;
     private final KGService kgService;
     private final ChannelTrackingService channelTrackingService;
+    private final DiscordMetrics discordMetrics;
+    private final DependencyGuards dependencyGuards;
+    private final ReactiveGraphStore reactiveGraphStore;
 
     /**
      * Fetches all new messages from the provided TextChannel and processes them.
      * Uses pagination to retrieve messages in batches and updates the channel's
      * last-processed timestamp only if new messages were processed.
+     * The lease is checked before every page, and the checkpoint is only written if nobody moved it meanwhile.
+     *
+     * @param lease The lease held on the channel for this run
+     * @throws ChannelLeaseException If the lease was lost during the run; the checkpoint is left as is
      */
-    public void fetchAllMessages(final TextChannel channel) {
+    public void fetchAllMessages(final TextChannel channel, final ChannelLease lease) {
         if (channel == null) {
             log.error("Channel not found");
             return;
@@ -43,7 +65,8 @@ public class ChatService {
         log.info("Fetching messages from channel: {} ({})", channel.getName(), channelId);
 
         try {
-            final var optionalLastProcessed = channelTrackingService.getLastProcessedTimestamp(channelId);
+            final ChannelCheckpoint checkpoint = channelTrackingService.getCheckpoint(channelId);
+            final var optionalLastProcessed = checkpoint.lastProcessed();
             optionalLastProcessed.ifPresentOrElse(
                     ts -> log.info("Found last processed timestamp: {}. Only fetching messages after this time.", ts),
                     () -> log.info("No previous timestamp found. Fetching all messages from channel.")
@@ -53,6 +76,7 @@ public class ChatService {
             Message before = null;
 
             while (true) {
+                lease.checkValid();
                 final List<Message> batch = fetchBatch(channel, before);
                 if (batch.isEmpty()) {
                     log.info("Reached start of channel history (no more messages).");
@@ -89,13 +113,18 @@ public class ChatService {
             }
 
             if (latestProcessedTimestamp != null) {
-                channelTrackingService.updateLastProcessedTimestamp(channelId, latestProcessedTimestamp);
+                if (!channelTrackingService.compareAndSetCheckpoint(channelId, channel.getGuild().getId(),
+                        checkpoint.version(), latestProcessedTimestamp, lease)) {
+                    throw new ChannelLeaseException(channelId, "the checkpoint was moved by another instance");
+                }
                 log.info("Updated last processed timestamp for channel {} to {}", channelId, latestProcessedTimestamp);
             } else {
                 log.info("No new messages processed for channel {}. Timestamp unchanged.", channelId);
             }
 
             log.info("Finished fetching all messages from channel: {}", channel.getName());
+        } catch (ChannelLeaseException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error in fetchAllMessages", e);
             throw new RuntimeException(e);
@@ -105,19 +134,28 @@ public class ChatService {
     /**
      * Fetches a batch of messages using the proper JDA history calls.
      * If 'before' is null, retrieves the most recent messages; otherwise retrieves messages before 'before'.
+     * Throws {@link DependencyUnavailableException} rather than ending the run early while Discord is unavailable,
+     * so the checkpoint is not moved past messages that were never fetched.
      */
     private List<Message> fetchBatch(TextChannel channel, Message before) {
+        final long start = System.nanoTime();
         try {
             final int size = BATCH_SIZE;
-            if (before == null) {
-                // retrievePast returns a List<Message>
-                return channel.getHistory().retrievePast(size).complete();
-            } else {
+            final List<Message> batch = dependencyGuards.getDiscord().call(() -> {
+                if (before == null) {
+                    // retrievePast returns a List<Message>
+                    return channel.getHistory().retrievePast(size).complete();
+                }
                 // getHistoryBefore returns a MessageHistory - extract messages via getRetrievedHistory()
                 var history = channel.getHistoryBefore(before, size).complete();
                 return history.getRetrievedHistory();
-            }
+            });
+            discordMetrics.recordHistoryFetch(System.nanoTime() - start, true);
+            return batch;
+        } catch (DependencyUnavailableException e) {
+            throw e;
         } catch (Exception e) {
+            discordMetrics.recordHistoryFetch(System.nanoTime() - start, false);
             log.error("Error fetching message batch for channel {}: {}", channel.getId(), e.getMessage(), e);
             // Return empty list to signal caller to stop; avoid throwing here to allow timestamp update logic to run.
             return List.of();
@@ -139,12 +177,13 @@ public class ChatService {
 
 
     /**
-     * Process a batch of messages and return the latest timestamp
+     * Process a batch of messages and return the latest timestamp.
+     * Package-private so the benchmarks module can drive it with in-memory messages.
      *
      * @param batch The batch of messages to process
      * @return The timestamp of the latest message in the batch, or null if batch is empty
      */
-    private OffsetDateTime processMessagesInBatch(final List<Message> batch) {
+    OffsetDateTime processMessagesInBatch(final List<Message> batch) {
         if (batch.isEmpty()) {
             return null;
         }
@@ -156,14 +195,19 @@ public class ChatService {
                             msg.getAuthor().getName() + " | " + msg.getContentDisplay(),
                             msg.getTimeCreated(),
                             msg.getAuthor().getName(),
-                            msg.getContentDisplay()
+                            msg.getContentDisplay(),
+                            msg.getId(),
+                            msg.getChannel().getId(),
+                            msg.getGuildId(),
+                            msg.getAuthor().getId()
                     );
                 })
                 .toList();
 
-        // Collect info set
-        final Set<String> info = extracted.stream()
-                .map(MsgData::key).collect(Collectors.toSet());
+        // Collect info set; history comes newest first, so a repeated line keeps its latest message as source
+        final Map<String, ChatLine> info = new LinkedHashMap<>();
+        extracted.forEach(msg -> info.putIfAbsent(msg.key(),
+                new ChatLine(msg.key(), msg.messageId(), msg.channelId(), msg.guildId(), msg.authorId(), msg.ts())));
 
         // Latest timestamp
         final OffsetDateTime latestTimestamp = extracted.stream()
@@ -172,12 +216,20 @@ public class ChatService {
                 .orElse(null);
 
         // Break the collected info into smaller sub-batches before sending to KG service
-        final List<String> all = info.stream().toList();
+        final List<ChatLine> all = List.copyOf(info.values());
+        if (reactiveGraphStore.isEnabled()) {
+            writePipelined(all);
+            return latestTimestamp;
+        }
         convertListToChunk(all)
                 .forEach(subBatch -> {
                     try {
-                        final var cypher = kgService.getJsonGraph(subBatch);
-                        kgService.createKNGraph(cypher);
+                        final var graph = kgService.extractGraph(subBatch);
+                        kgService.ensureIndexes(graph);
+                        kgService.createKNGraph(graph);
+                    } catch (DependencyUnavailableException e) {
+                        // The remaining sub-batches would fail the same way; the checkpoint stays put
+                        throw e;
                     } catch (Exception e) {
                         log.error("Error generating KG for sub-batch", e);
                     }
@@ -186,7 +238,51 @@ public class ChatService {
         return latestTimestamp;
     }
 
-    private <T> Stream<List<T>> convertListToChunk(final List<T> list) {
+    /**
+     * Extract sub-batch after sub-batch while earlier ones are still being written, with at most
+     * kg.reactive.max-in-flight-transactions writes of this worker pending. Returns once all are written, so the
+     * checkpoint only moves past written facts.
+     */
+    private void writePipelined(final List<ChatLine> lines) {
+        final List<CompletableFuture<Void>> pending = new ArrayList<>();
+        convertListToChunk(lines)
+                .forEach(subBatch -> {
+                    pending.removeIf(CompletableFuture::isDone);
+                    if (pending.size() >= reactiveGraphStore.getMaxInFlightTransactions()) {
+                        // Writes fall behind extraction, wait for the oldest before spending more LLM calls
+                        awaitWrite(pending.getFirst());
+                    }
+                    try {
+                        final var graph = kgService.extractGraph(subBatch);
+                        kgService.ensureIndexes(graph);
+                        pending.add(reactiveGraphStore.write(graph)
+                                .onErrorResume(e -> !(e instanceof DependencyUnavailableException), e -> {
+                                    log.error("Error writing KG for sub-batch", e);
+                                    return Mono.empty();
+                                })
+                                .toFuture());
+                    } catch (DependencyUnavailableException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        log.error("Error generating KG for sub-batch", e);
+                    }
+                });
+        pending.forEach(ChatService::awaitWrite);
+    }
+
+    private static void awaitWrite(final CompletableFuture<Void> write) {
+        try {
+            write.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof DependencyUnavailableException unavailable) {
+                // The remaining sub-batches would fail the same way; the checkpoint stays put
+                throw unavailable;
+            }
+            throw e;
+        }
+    }
+
+    <T> Stream<List<T>> convertListToChunk(final List<T> list) {
         final int size = list.size();
         final int numberOfChunks = (size + ChatService.KG_BATCH_SIZE - 1) / ChatService.KG_BATCH_SIZE;
 
@@ -200,7 +296,14 @@ public class ChatService {
         if (StringUtil.isEmpty(question)) {
             return "Please provide a question to ask.";
         }
+        if (event.getGuild() == null) {
+            return "Please ask in a server, answers come from what was said there.";
+        }
         final String userName = event.getUser().getName();
-        return kgService.searchAnswerFromGraph(question, userName);
+        // ISO-8601 duration from the command's choices, e.g. P7D
+        final OptionMapping period = event.getOption("period");
+        final OptionMapping author = event.getOption("author");
+        final QueryScope scope = new QueryScope(event.getGuild().getId(), author != null ? author.getAsUser().getId() : null);
+        return kgService.searchAnswerFromGraph(question, userName, period != null ? Duration.parse(period.getAsString()) : null, scope);
     }
 }
@@ -0,0 +1,17 @@
+package com.discord.bot.feature_chat.domain;
+
+import java.time.OffsetDateTime;
+import java.util.Optional;
+
+// Where a channel's ingestion stopped; the version grows with every checkpoint write
+public record ChannelCheckpoint(
+        // Null before the first ingestion
+        OffsetDateTime lastProcessedTimestamp,
+        long version
+) {
+    public static final ChannelCheckpoint NONE = new ChannelCheckpoint(null, 0);
+
+    public Optional<OffsetDateTime> lastProcessed() {
+        return Optional.ofNullable(lastProcessedTimestamp);
+    }
+}
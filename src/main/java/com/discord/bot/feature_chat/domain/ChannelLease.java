@@ -0,0 +1,47 @@
+package com.discord.bot.feature_chat.domain;
+
+import com.discord.bot.feature_chat.service.ChannelLeaseException;
+import lombok.Getter;
+
+/**
+ * Ownership of a channel's ingestion, held by one instance at a time. The epoch grows with every acquisition, so
+ * a checkpoint write of an earlier holder is rejected even while that holder still believes it owns the channel.
+ */
+@Getter
+public class ChannelLease {
+    private final String channelId;
+    private final String owner;
+    private final long epoch;
+
+    // Local estimate of the expiry, on the monotonic clock; the stored expiry is on Neo4j's clock
+    private volatile long validUntilNanos;
+    private volatile boolean lost;
+
+    public ChannelLease(String channelId, String owner, long epoch, long validUntilNanos) {
+        this.channelId = channelId;
+        this.owner = owner;
+        this.epoch = epoch;
+        this.validUntilNanos = validUntilNanos;
+    }
+
+    public boolean isValid() {
+        return !lost && System.nanoTime() - validUntilNanos < 0;
+    }
+
+    /**
+     * @throws ChannelLeaseException If the lease expired or was taken over
+     */
+    public void checkValid() {
+        if (!isValid()) {
+            throw new ChannelLeaseException(channelId, "the lease was lost");
+        }
+    }
+
+    public void renewedUntil(long validUntilNanos) {
+        this.validUntilNanos = validUntilNanos;
+    }
+
+    public void markLost() {
+        lost = true;
+    }
+}
@@ -2,6 +2,6 @@ package com.discord.bot.feature_chat.domain;
 
 import java.time.OffsetDateTime;
 
-public record MsgData(String key, OffsetDateTime ts, String author, String content) {
+public record MsgData(String key, OffsetDateTime ts, String author, String content, String messageId,
+                      String channelId, String guildId, String authorId) {
 }
-
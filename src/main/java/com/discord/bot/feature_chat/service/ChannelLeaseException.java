@@ -0,0 +1,17 @@
+package com.discord.bot.feature_chat.service;
+
+import lombok.Getter;
+
+/**
+ * Thrown when a channel is being ingested by another instance, or when this instance lost its lease on it while
+ * ingesting. Nothing is checkpointed in either case, so the holder's work is left untouched.
+ */
+@Getter
+public class ChannelLeaseException extends RuntimeException {
+    private final String channelId;
+
+    public ChannelLeaseException(String channelId, String reason) {
+        super("Channel " + channelId + " cannot be ingested here: " + reason);
+        this.channelId = channelId;
+    }
+}
@@ -0,0 +1,208 @@
+package com.discord.bot.feature_chat.service;
+
+import com.discord.bot.feature_chat.domain.ChannelLease;
+import com.discord.bot.observability.Neo4jMetrics;
+import com.discord.bot.properties.IngestionCoordinationProperties;
+import com.discord.bot.resilience.DependencyGuards;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leases on Channel nodes, so that across instances sharing one graph a channel is ingested by one of them at a
+ * time. A lease names its owner and expires {@code ingestion.coordination.lease-ttl-ms} after its last renewal on
+ * Neo4j's clock; held leases are renewed every {@code heartbeat-interval-ms} on a thread of their own, so no other
+ * scheduled job can hold renewal back until leases expire. Every statement first takes the channel node's write
+ * lock, so concurrent acquisitions and checkpoint writes of different instances serialize.
+ */
+@Slf4j
+@Service
+public class ChannelLeaseService {
+    private final Neo4jClient neo4jClient;
+    private final Neo4jMetrics neo4jMetrics;
+    private final DependencyGuards dependencyGuards;
+    private final IngestionCoordinationProperties properties;
+    private final String owner;
+
+    private final Map<String, ChannelLease> held = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+            .name("channel-lease-heartbeat")
+            .daemon(true)
+            .factory());
+    private volatile boolean constraintCreated;
+
+    public ChannelLeaseService(Neo4jClient neo4jClient, Neo4jMetrics neo4jMetrics, DependencyGuards dependencyGuards,
+                               IngestionCoordinationProperties properties, MeterRegistry meterRegistry) {
+        this.neo4jClient = neo4jClient;
+        this.neo4jMetrics = neo4jMetrics;
+        this.dependencyGuards = dependencyGuards;
+        this.properties = properties;
+        // pid@host, unique per process
+        this.owner = properties.instanceId().isBlank()
+                ? ManagementFactory.getRuntimeMXBean().getName()
+                : properties.instanceId();
+        Gauge.builder("ingestion.leases.held", held, Map::size)
+                .description("Channel leases this instance holds")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        heartbeat.scheduleWithFixedDelay(this::renewHeldLeases,
+                properties.heartbeatIntervalMs(), properties.heartbeatIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+    }
+
+    /**
+     * Take the channel's lease unless another instance holds a live one
+     *
+     * @return The lease, or empty if the channel is being ingested elsewhere
+     */
+    public Optional<ChannelLease> tryAcquire(String channelId) {
+        ensureConstraint();
+        long start = System.nanoTime();
+        Optional<Long> epoch = dependencyGuards.getNeo4j().call(() -> neo4jMetrics.write("channel.lease.acquire", () -> neo4jClient.query("""
+                        MERGE (c:Channel {id: $channelId})
+                        SET c.leaseLock = true REMOVE c.leaseLock
+                        WITH c
+                        WHERE c.leaseOwner IS NULL OR c.leaseExpiresAt < timestamp()
+                        SET c.leaseOwner = $owner,
+                            c.leaseExpiresAt = timestamp() + $ttlMs,
+                            c.leaseEpoch = coalesce(c.leaseEpoch, 0) + 1
+                        RETURN c.leaseEpoch AS epoch
+                        """)
+                .bind(channelId).to("channelId")
+                .bind(owner).to("owner")
+                .bind(properties.leaseTtlMs()).to("ttlMs")
+                .fetchAs(Long.class)
+                .mappedBy((typeSystem, record) -> record.get("epoch").asLong())
+                .one(), found -> found.isPresent() ? 1 : 0));
+        if (epoch.isEmpty()) {
+            log.info("Channel {} is leased by another instance", channelId);
+            return Optional.empty();
+        }
+        ChannelLease lease = new ChannelLease(channelId, owner, epoch.get(),
+                start + TimeUnit.MILLISECONDS.toNanos(properties.leaseTtlMs()));
+        held.put(channelId, lease);
+        log.debug("Acquired lease on channel {} with epoch {}", channelId, lease.getEpoch());
+        return Optional.of(lease);
+    }
+
+    /**
+     * Give the lease up so another instance can take the channel at once. A lease that was lost meanwhile is left
+     * to its new holder.
+     */
+    public void release(ChannelLease lease) {
+        held.remove(lease.getChannelId(), lease);
+        lease.markLost();
+        try {
+            dependencyGuards.getNeo4j().call(() -> neo4jMetrics.write("channel.lease.release", () -> neo4jClient.query("""
+                            MATCH (c:Channel {id: $channelId})
+                            WHERE c.leaseOwner = $owner AND c.leaseEpoch = $epoch
+                            SET c.leaseOwner = null, c.leaseExpiresAt = null, c.leaseReleasedAt = timestamp()
+                            """)
+                    .bind(lease.getChannelId()).to("channelId")
+                    .bind(lease.getOwner()).to("owner")
+                    .bind(lease.getEpoch()).to("epoch")
+                    .run()));
+        } catch (Exception e) {
+            // It expires on its own
+            log.warn("Failed to release the lease on channel {}", lease.getChannelId(), e);
+        }
+    }
+
+    /**
+     * Extend every held lease. A lease that could not be renewed is marked lost once its local expiry passed,
+     * or right away if another instance took it over.
+     */
+    private void renewHeldLeases() {
+        for (ChannelLease lease : List.copyOf(held.values())) {
+            long start = System.nanoTime();
+            try {
+                if (renew(lease)) {
+                    lease.renewedUntil(start + TimeUnit.MILLISECONDS.toNanos(properties.leaseTtlMs()));
+                } else {
+                    log.warn("Lease on channel {} was taken over", lease.getChannelId());
+                    lease.markLost();
+                    held.remove(lease.getChannelId(), lease);
+                }
+            } catch (Exception e) {
+                log.warn("Failed to renew the lease on channel {}", lease.getChannelId(), e);
+                if (!lease.isValid()) {
+                    held.remove(lease.getChannelId(), lease);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tracked channels without a live lease, those released longest ago first
+     */
+    public List<String> findUnleasedChannels(int limit) {
+        return dependencyGuards.getNeo4j().call(() -> neo4jMetrics.read("channel.lease.candidates", () -> new ArrayList<>(neo4jClient.query("""
+                                MATCH (c:Channel)
+                                WHERE c.leaseOwner IS NULL OR c.leaseExpiresAt < timestamp()
+                                RETURN c.id AS id
+                                ORDER BY coalesce(c.leaseReleasedAt, 0)
+                                LIMIT $limit
+                                """)
+                        .bind(limit).to("limit")
+                        .fetchAs(String.class)
+                        .mappedBy((typeSystem, record) -> record.get("id").asString())
+                        .all()), List::size));
+    }
+
+    public int getHeldCount() {
+        return held.size();
+    }
+
+    boolean renew(ChannelLease lease) {
+        return dependencyGuards.getNeo4j().call(() -> neo4jMetrics.write("channel.lease.renew", () -> neo4jClient.query("""
+                        MATCH (c:Channel {id: $channelId})
+                        SET c.leaseLock = true REMOVE c.leaseLock
+                        WITH c
+                        WHERE c.leaseOwner = $owner AND c.leaseEpoch = $epoch
+                        SET c.leaseExpiresAt = timestamp() + $ttlMs
+                        RETURN count(c) AS renewed
+                        """)
+                .bind(lease.getChannelId()).to("channelId")
+                .bind(lease.getOwner()).to("owner")
+                .bind(lease.getEpoch()).to("epoch")
+                .bind(properties.leaseTtlMs()).to("ttlMs")
+                .fetchAs(Long.class)
+                .mappedBy((typeSystem, record) -> record.get("renewed").asLong())
+                .one()
+                .orElse(0L), renewed -> 1)) > 0;
+    }
+
+    /**
+     * MERGE on Channel.id only excludes duplicates under concurrent acquisitions with a uniqueness constraint
+     */
+    private void ensureConstraint() {
+        if (constraintCreated) {
+            return;
+        }
+        dependencyGuards.getNeo4j().call(() -> neo4jMetrics.write("channel.lease.constraint", () -> neo4jClient.query(
+                        "CREATE CONSTRAINT channel_id IF NOT EXISTS FOR (c:Channel) REQUIRE c.id IS UNIQUE")
+                .run()));
+        constraintCreated = true;
+    }
+}
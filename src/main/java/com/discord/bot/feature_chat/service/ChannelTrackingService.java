@@ -1,5 +1,10 @@
 package com.discord.bot.feature_chat.service;
 
+import com.discord.bot.feature_chat.domain.ChannelCheckpoint;
+import com.discord.bot.feature_chat.domain.ChannelLease;
+import com.discord.bot.observability.Neo4jMetrics;
+import com.discord.bot.resilience.DependencyGuards;
+import com.discord.bot.resilience.DependencyUnavailableException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.neo4j.driver.Value;
@@ -8,70 +13,153 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
-import java.util.Optional;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class ChannelTrackingService {
     private final Neo4jClient neo4jClient;
+    private final Neo4jMetrics neo4jMetrics;
+    private final DependencyGuards dependencyGuards;
 
     /**
-     * Get the last processed message timestamp for a channel
+     * Get the last processed message timestamp for a channel, with the checkpoint's version
      *
      * @param channelId The Discord channel ID
-     * @return Optional containing the last processed timestamp, or empty if not found
+     * @return The checkpoint; its timestamp is null and version 0 if the channel was never checkpointed
+     * @throws DependencyUnavailableException If the Neo4j circuit breaker is open
      */
-    public Optional<OffsetDateTime> getLastProcessedTimestamp(String channelId) {
+    public ChannelCheckpoint getCheckpoint(String channelId) {
         try {
-            return neo4jClient.query("""
+            return dependencyGuards.getNeo4j().call(() -> neo4jMetrics.read("channel.checkpoint.read", () -> neo4jClient.query("""
                             MATCH (c:Channel {id: $channelId})
-                            RETURN c.lastProcessedTimestamp AS timestamp
+                            RETURN c.lastProcessedTimestamp AS timestamp, coalesce(c.checkpointVersion, 0) AS version
                             """)
                     .bind(channelId).to("channelId")
-                    .fetchAs(OffsetDateTime.class)
+                    .fetchAs(ChannelCheckpoint.class)
                     .mappedBy((typeSystem, record) -> {
                         Value timestamp = record.get("timestamp");
-                        if (Objects.isNull(timestamp) || timestamp.isNull()) return null;
-                        //If stored as string
-                        try {
-                            return OffsetDateTime.parse(timestamp.asString());
-                        } catch (Exception e) {
-                            return null;
+                        OffsetDateTime lastProcessed = null;
+                        if (Objects.nonNull(timestamp) && !timestamp.isNull()) {
+                            //If stored as string
+                            try {
+                                lastProcessed = OffsetDateTime.parse(timestamp.asString());
+                            } catch (Exception e) {
+                                log.warn("Unreadable checkpoint {} for channel {}", timestamp, channelId);
+                            }
                         }
+                        return new ChannelCheckpoint(lastProcessed, record.get("version").asLong());
                     })
-                    .one();
+                    .one(), found -> found.isPresent() ? 1 : 0))
+                    .orElse(ChannelCheckpoint.NONE);
+        } catch (DependencyUnavailableException e) {
+            // An empty result would re-ingest the whole channel
+            throw e;
         } catch (Exception e) {
             log.error("Error getting last processed timestamp for channel: {}", channelId, e);
-            return Optional.empty();
+            return ChannelCheckpoint.NONE;
         }
     }
 
     /**
-     * Update the last processed message timestamp for a channel
+     * Move a channel's checkpoint forward, only if it is still at the version read before ingesting and the lease
+     * is still held by its owner in the same epoch. A run that started without a checkpoint ingested the whole
+     * history with guild scope, so it also records the channel's guild.
      *
-     * @param channelId The Discord channel ID
-     * @param timestamp The timestamp of the last processed message
+     * @param channelId       The Discord channel ID
+     * @param guildId         The channel's guild
+     * @param expectedVersion Version of the checkpoint the run started from
+     * @param timestamp       The timestamp of the last processed message
+     * @param lease           The lease the run holds on the channel
+     * @return Whether the checkpoint was written; false if another instance moved it or took the lease over
      */
     @Transactional
-    public void updateLastProcessedTimestamp(String channelId, OffsetDateTime timestamp) {
+    public boolean compareAndSetCheckpoint(String channelId, String guildId, long expectedVersion,
+                                           OffsetDateTime timestamp, ChannelLease lease) {
         try {
             // Store as ISO-8601 string for compatibility
             String timestampStr = timestamp.toString();
-            neo4jClient.query("""
-                            MERGE (c:Channel {id: $channelId})
-                            SET c.lastProcessedTimestamp = $timestamp
+            long written = dependencyGuards.getNeo4j().call(() -> neo4jMetrics.write("channel.checkpoint.write", () -> neo4jClient.query("""
+                            MATCH (c:Channel {id: $channelId})
+                            SET c.checkpointLock = true REMOVE c.checkpointLock
+                            WITH c
+                            WHERE c.leaseOwner = $owner AND c.leaseEpoch = $epoch
+                              AND coalesce(c.checkpointVersion, 0) = $expectedVersion
+                            SET c.guildId = CASE WHEN c.lastProcessedTimestamp IS NULL THEN $guildId ELSE c.guildId END,
+                                c.lastProcessedTimestamp = $timestamp,
+                                c.checkpointVersion = $expectedVersion + 1,
+                                c.checkpointUpdatedAt = timestamp()
+                            RETURN count(c) AS written
                             """)
                     .bind(channelId).to("channelId")
+                    .bind(guildId).to("guildId")
+                    .bind(lease.getOwner()).to("owner")
+                    .bind(lease.getEpoch()).to("epoch")
+                    .bind(expectedVersion).to("expectedVersion")
                     .bind(timestampStr).to("timestamp")
-                    .run();
+                    .fetchAs(Long.class)
+                    .mappedBy((typeSystem, record) -> record.get("written").asLong())
+                    .one()
+                    .orElse(0L), count -> 1));
 
+            if (written == 0) {
+                log.warn("Checkpoint of channel {} moved past version {} or its lease was taken over", channelId, expectedVersion);
+                return false;
+            }
             log.debug("Updated last processed timestamp for channel {} to {}", channelId, timestamp);
+            return true;
         } catch (Exception e) {
             log.error("Error updating last processed timestamp for channel: {}", channelId, e);
             throw new RuntimeException("Failed to update channel timestamp", e);
         }
     }
-}
 
+    /**
+     * Channels whose facts were ingested before guild scoping: checkpointed, or reset for re-ingestion, but without
+     * the guild a complete scoped ingestion records
+     */
+    public List<String> findUnscopedChannels(int limit) {
+        return dependencyGuards.getNeo4j().call(() -> neo4jMetrics.read("channel.unscoped", () -> new ArrayList<>(neo4jClient.query("""
+                                MATCH (c:Channel)
+                                WHERE c.guildId IS NULL
+                                  AND (c.lastProcessedTimestamp IS NOT NULL OR c.rescopedAt IS NOT NULL)
+                                RETURN c.id AS id
+                                LIMIT $limit
+                                """)
+                        .bind(limit).to("limit")
+                        .fetchAs(String.class)
+                        .mappedBy((typeSystem, record) -> record.get("id").asString())
+                        .all()), List::size));
+    }
+
+    /**
+     * Drop the checkpoint of a channel ingested before guild scoping, so its next ingestion reads the whole history
+     * again and writes it scoped. Bumps the version like any checkpoint write, under the held lease.
+     *
+     * @return Whether the checkpoint was reset; false if the lease was lost or the channel is already scoped
+     */
+    @Transactional
+    public boolean resetUnscopedCheckpoint(String channelId, ChannelLease lease) {
+        return dependencyGuards.getNeo4j().call(() -> neo4jMetrics.write("channel.checkpoint.reset", () -> neo4jClient.query("""
+                        MATCH (c:Channel {id: $channelId})
+                        SET c.checkpointLock = true REMOVE c.checkpointLock
+                        WITH c
+                        WHERE c.leaseOwner = $owner AND c.leaseEpoch = $epoch AND c.guildId IS NULL
+                        SET c.lastProcessedTimestamp = null,
+                            c.checkpointVersion = coalesce(c.checkpointVersion, 0) + 1,
+                            c.checkpointUpdatedAt = timestamp(),
+                            c.rescopedAt = timestamp()
+                        RETURN count(c) AS reset
+                        """)
+                .bind(channelId).to("channelId")
+                .bind(lease.getOwner()).to("owner")
+                .bind(lease.getEpoch()).to("epoch")
+                .fetchAs(Long.class)
+                .mappedBy((typeSystem, record) -> record.get("reset").asLong())
+                .one()
+                .orElse(0L), reset -> 1)) > 0;
+    }
+}
@@ -0,0 +1,81 @@
+package com.discord.bot.feature_chat.service;
+
+import com.discord.bot.feature_chat.domain.ChannelLease;
+import com.discord.bot.properties.IngestionCoordinationProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+
+/**
+ * Re-ingests channels whose facts were written before the graph was scoped per guild. Those facts carry no
+ * {@code guildId}, so /ask never reads them, and the channel's checkpoint would keep a normal /fetch from reading
+ * the older messages again. Each run leases up to {@code ingestion.coordination.max-leases-per-instance} such
+ * channels of this instance's guilds, drops their checkpoints and queues a full ingestion; the first checkpoint
+ * it writes records the channel's guild, which takes the channel off the list.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GuildScopeMigration {
+    // Candidates read per run; channels of guilds other instances serve are skipped
+    private static final int CANDIDATES = 200;
+
+    private final ChannelTrackingService channelTrackingService;
+    private final ChannelLeaseService channelLeaseService;
+    private final IngestionScheduler ingestionScheduler;
+    private final ShardManager shardManager;
+    private final IngestionCoordinationProperties properties;
+
+    @Scheduled(fixedDelayString = "${ingestion.coordination.rescope-interval-ms:300000}", initialDelay = 60000)
+    public void rescope() {
+        if (!properties.rescopeEnabled()) {
+            return;
+        }
+        try {
+            int queued = rescopeChannels();
+            if (queued > 0) {
+                log.info("Queued {} channels ingested before guild scoping for re-ingestion", queued);
+            }
+        } catch (Exception e) {
+            log.error("Guild scope migration failed, retrying on the next run", e);
+        }
+    }
+
+    /**
+     * Reset and queue unscoped channels up to this instance's free capacity
+     *
+     * @return Number of channels queued
+     */
+    public int rescopeChannels() {
+        int capacity = properties.maxLeasesPerInstance() - ingestionScheduler.getActiveChannelCount();
+        int queued = 0;
+        for (String channelId : channelTrackingService.findUnscopedChannels(CANDIDATES)) {
+            if (queued >= capacity) {
+                break;
+            }
+            TextChannel channel = shardManager.getTextChannelById(channelId);
+            if (channel == null) {
+                // Deleted, or in a guild this instance does not serve
+                continue;
+            }
+            Optional<ChannelLease> lease = channelLeaseService.tryAcquire(channelId);
+            if (lease.isEmpty()) {
+                continue;
+            }
+            if (!channelTrackingService.resetUnscopedCheckpoint(channelId, lease.get())) {
+                channelLeaseService.release(lease.get());
+                continue;
+            }
+            log.info("Re-ingesting channel {} of guild {} with guild scope", channelId, channel.getGuild().getId());
+            if (ingestionScheduler.submit(channel, lease.get()) != null) {
+                queued++;
+            }
+        }
+        return queued;
+    }
+}
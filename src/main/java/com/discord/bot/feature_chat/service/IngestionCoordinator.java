@@ -0,0 +1,76 @@
+package com.discord.bot.feature_chat.service;
+
+import com.discord.bot.feature_chat.domain.ChannelLease;
+import com.discord.bot.properties.IngestionCoordinationProperties;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Periodically catches up tracked channels nobody is ingesting, when {@code ingestion.coordination.sweep-enabled}
+ * is set. Each instance claims at most {@code max-leases-per-instance} channels at a time, those left alone longest
+ * first, so instances sharing one graph split the channels between them instead of all ingesting the same ones.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class IngestionCoordinator {
+    private final ChannelLeaseService channelLeaseService;
+    private final IngestionScheduler ingestionScheduler;
+    private final ShardManager shardManager;
+    private final IngestionCoordinationProperties properties;
+
+    @Scheduled(fixedDelayString = "${ingestion.coordination.sweep-interval-ms:300000}",
+            initialDelayString = "${ingestion.coordination.sweep-interval-ms:300000}")
+    public void sweep() {
+        if (!properties.sweepEnabled()) {
+            return;
+        }
+        try {
+            int claimed = claimChannels();
+            if (claimed > 0) {
+                log.info("Ingestion sweep claimed {} channels", claimed);
+            }
+        } catch (Exception e) {
+            log.error("Ingestion sweep failed, retrying on the next run", e);
+        }
+    }
+
+    /**
+     * Lease and queue unowned channels up to this instance's free capacity
+     *
+     * @return Number of channels queued
+     */
+    public int claimChannels() {
+        int capacity = properties.maxLeasesPerInstance() - ingestionScheduler.getActiveChannelCount();
+        if (capacity <= 0) {
+            return 0;
+        }
+
+        List<String> candidates = channelLeaseService.findUnleasedChannels(capacity);
+        int claimed = 0;
+        for (String channelId : candidates) {
+            // Another instance may have claimed it since the query
+            Optional<ChannelLease> lease = channelLeaseService.tryAcquire(channelId);
+            if (lease.isEmpty()) {
+                continue;
+            }
+            TextChannel channel = shardManager.getTextChannelById(channelId);
+            if (channel == null) {
+                // Deleted, or in a guild this instance does not serve
+                channelLeaseService.release(lease.get());
+                continue;
+            }
+            if (ingestionScheduler.submit(channel, lease.get()) != null) {
+                claimed++;
+            }
+        }
+        return claimed;
+    }
+}
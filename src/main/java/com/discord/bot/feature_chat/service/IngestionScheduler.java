@@ -0,0 +1,125 @@
+package com.discord.bot.feature_chat.service;
+
+import com.discord.bot.feature_chat.ChatService;
+import com.discord.bot.feature_chat.domain.ChannelLease;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.api.entities.channel.concrete.TextChannel;
+import org.slf4j.MDC;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs channel ingestion off the JDA event threads on one worker per shard, so a long /fetch
+ * only delays other fetches of the same shard and never blocks command handling.
+ * Each run gets a trace id in the MDC under {@value #TRACE_ID}, so the logs of its history pages, LLM calls and
+ * Neo4j writes can be told apart from concurrent runs.
+ * A run holds the channel's lease from {@link ChannelLeaseService} throughout, so no other instance ingests the
+ * channel at the same time.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IngestionScheduler {
+    public static final String TRACE_ID = "traceId";
+
+    private final ChatService chatService;
+    private final ChannelLeaseService channelLeaseService;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Integer, ExecutorService> executorsByShard = new ConcurrentHashMap<>();
+    private final Set<String> activeChannels = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Queue a channel for ingestion on its shard's worker, which first takes the channel's lease
+     *
+     * @param channel The channel to ingest
+     * @return Future completing when the channel is ingested, or failing with {@link ChannelLeaseException} if
+     * another instance holds the channel; null if the channel is already being ingested here
+     */
+    public CompletableFuture<Void> submit(final TextChannel channel) {
+        final String channelId = channel.getId();
+        return schedule(channel, () -> channelLeaseService.tryAcquire(channelId)
+                .orElseThrow(() -> new ChannelLeaseException(channelId, "it is being ingested by another instance")));
+    }
+
+    /**
+     * Queue a channel whose lease was already taken, as the coordinator's sweep does
+     *
+     * @return Future completing when the channel is ingested, or null if the channel is already being ingested
+     * here, in which case the lease is released
+     */
+    public CompletableFuture<Void> submit(final TextChannel channel, final ChannelLease lease) {
+        final CompletableFuture<Void> ingestion = schedule(channel, () -> lease);
+        if (ingestion == null) {
+            channelLeaseService.release(lease);
+        }
+        return ingestion;
+    }
+
+    /**
+     * Number of channels queued or running across all shards
+     */
+    public int getActiveChannelCount() {
+        return activeChannels.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executorsByShard.values().forEach(ExecutorService::shutdownNow);
+    }
+
+    private CompletableFuture<Void> schedule(final TextChannel channel, final Supplier<ChannelLease> lease) {
+        final String channelId = channel.getId();
+        if (!activeChannels.add(channelId)) {
+            log.info("Channel {} is already being ingested", channelId);
+            return null;
+        }
+
+        final int shardId = channel.getJDA().getShardInfo().getShardId();
+        final ExecutorService executor = executorsByShard.computeIfAbsent(shardId, this::createExecutor);
+        final String traceId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        log.info("Ingestion {} queued for channel {}", traceId, channelId);
+        return CompletableFuture
+                .runAsync(() -> ingest(channel, lease.get(), traceId), executor)
+                .whenComplete((ignored, error) -> activeChannels.remove(channelId));
+    }
+
+    private void ingest(final TextChannel channel, final ChannelLease lease, final String traceId) {
+        final Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        MDC.put(TRACE_ID, traceId);
+        try {
+            chatService.fetchAllMessages(channel, lease);
+            outcome = "success";
+        } catch (ChannelLeaseException e) {
+            outcome = "lease_lost";
+            throw e;
+        } finally {
+            channelLeaseService.release(lease);
+            MDC.remove(TRACE_ID);
+            sample.stop(Timer.builder("ingestion.channel")
+                    .description("Time to ingest a channel, from the first history page to the checkpoint update")
+                    .tag("outcome", outcome)
+                    .register(meterRegistry));
+        }
+    }
+
+    private ExecutorService createExecutor(int shardId) {
+        return Executors.newSingleThreadExecutor(Thread.ofPlatform()
+                .name("ingest-shard-" + shardId)
+                .daemon(true)
+                .factory());
+    }
+}
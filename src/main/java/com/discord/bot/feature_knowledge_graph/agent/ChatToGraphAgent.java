@@ -13,17 +13,19 @@ public interface ChatToGraphAgent {
     @UserMessage("""
                 You will receive input as a **list of chat lines**, where each line is formatted like:
             
-                    author | message
+                    #n author | message
+            
+                where n is the line number.
             
                 Example list element:
-                    "alanta335 | i like red color"
+                    "#1 alanta335 | i like red color"
             
                 Your tasks:
                 1. Identify the primary author (they appear as the author in all lines).
                 2. For each message line: do *not* output the full message text. Instead, extract meaningful facts or assumptions about the author (preferences, events, actions).
                 3. Build a knowledge-graph representation including:
                    • Nodes: each node has an “id”, a “label”, and optionally “properties” if you have data.
-                   • Relationships: each has “source” (node id), “target” (node id), and “label”.
+                   • Relationships: each has “source” (node id), “target” (node id), “label”, and “line” (the number of the line stating the fact).
                    • Labels: choose descriptive label names for nodes and relationships.
                    • Properties: include only non-null properties (omit unknowns).
                    • Paths: list meaningful paths from the author node through relationships to entity/event nodes (e.g., "author-1 -> LIKES_COLOR -> colorPref-1").
@@ -37,9 +39,9 @@ public interface ChatToGraphAgent {
             
                 Example input list:
                 [
-                  "alanta335 | i like red color",
-                  "alanta335 | my favourite anime is death note",
-                  "alanta335 | i am late for school"
+                  "#1 alanta335 | i like red color",
+                  "#2 alanta335 | my favourite anime is death note",
+                  "#3 alanta335 | i am late for school"
                 ]
             
                 Example output:
@@ -78,17 +80,20 @@ public interface ChatToGraphAgent {
                     {
                       "source": "author-1",
                       "target": "colorPref-1",
-                      "label": "LIKES_COLOR"
+                      "label": "LIKES_COLOR",
+                      "line": 1
                     },
                     {
                       "source": "author-1",
                       "target": "animePref-1",
-                      "label": "FAVOURITE_ANIME"
+                      "label": "FAVOURITE_ANIME",
+                      "line": 2
                     },
                     {
                       "source": "author-1",
                       "target": "event-1",
-                      "label": "EXPERIENCED_EVENT"
+                      "label": "EXPERIENCED_EVENT",
+                      "line": 3
                     }
                   ],
                   "paths": [
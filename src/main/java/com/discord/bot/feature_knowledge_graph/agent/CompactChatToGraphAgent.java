@@ -0,0 +1,31 @@
+package com.discord.bot.feature_knowledge_graph.agent;
+
+import com.discord.bot.feature_knowledge_graph.domain.GraphResult;
+import dev.langchain4j.agentic.Agent;
+import dev.langchain4j.service.SystemMessage;
+import dev.langchain4j.service.UserMessage;
+import dev.langchain4j.service.V;
+
+import java.util.List;
+
+/**
+ * Same extraction as {@link ChatToGraphAgent} with a short, fixed system message and only the chat lines in the
+ * user message, so providers can cache the prompt prefix. The output shape comes from the JSON schema derived
+ * from {@link GraphResult} rather than from a worked example.
+ */
+public interface CompactChatToGraphAgent {
+
+    @Agent("Extract a knowledge graph about the authors of chat lines")
+    @SystemMessage("""
+            Extract a knowledge graph about the authors of Discord chat lines. Each line is "#<n> author | message".
+            Do not copy message text; record facts about the author: preferences, possessions, activities, events.
+            - nodes: one node per author with id "author-<n>", label "Author" and properties.username; other ids are
+              camelCase with a number (e.g. "colorPref-1"), labels are PascalCase, properties hold known values only.
+            - relationships: source and target node ids, label in UPPER_SNAKE_CASE (e.g. LIKES_COLOR), line n of the
+              chat line stating the fact.
+            - paths: one "source -> LABEL -> target" string per relationship.
+            Skip lines without facts; return empty lists if there are none.
+            """)
+    @UserMessage("{{chatLines}}")
+    GraphResult extractGraphJson(@V("chatLines") List<String> chatLines);
+}
@@ -0,0 +1,29 @@
+package com.discord.bot.feature_knowledge_graph.agent;
+
+import dev.langchain4j.agentic.Agent;
+import dev.langchain4j.service.UserMessage;
+import dev.langchain4j.service.V;
+
+/**
+ * Writes the read query answering a question. The query is scoped to the asking guild afterwards, so the agent
+ * only has to describe what to match.
+ */
+public interface QuestionToCypherAgent {
+    @Agent("Write a read-only Cypher query answering a question about a Neo4j knowledge graph.")
+    @UserMessage("""
+                Write one read-only Cypher query that answers the question from the knowledge graph below.
+                Rules:
+                1. Use only the node labels, relationship types and properties listed in the schema.
+                2. Only use MATCH, OPTIONAL MATCH, WHERE, WITH, RETURN, ORDER BY and LIMIT. Never write to the graph
+                   and never use CALL.
+                3. Put conditions on node properties in WHERE, never inside a pattern's parentheses, and compare
+                   names case-insensitively with toLower.
+                4. Return property values, not whole nodes, and at most 25 rows.
+                5. Output only the query, without explanation or code fences.
+                Schema:
+                {{schema}}
+                Question:
+                {{question}}
+            """)
+    String toCypher(@V("schema") String schema, @V("question") String question);
+}
@@ -0,0 +1,14 @@
+package com.discord.bot.feature_knowledge_graph.domain;
+
+import java.time.OffsetDateTime;
+
+// A chat message as sent to extraction, with where, when and by whom it was written
+public record ChatLine(
+        String text,
+        String messageId,
+        String channelId,
+        String guildId,
+        String authorId,
+        OffsetDateTime timestamp
+) {
+}
@@ -0,0 +1,13 @@
+package com.discord.bot.feature_knowledge_graph.domain;
+
+import java.util.List;
+import java.util.Map;
+
+// Cypher for one batch of chat lines of a guild, the node ids it writes per label, and every relationship it writes
+public record ExtractedGraph(
+        String guildId,
+        List<String> cypherCommands,
+        Map<String, List<String>> nodeIds,
+        List<FactSource> facts
+) {
+}
@@ -0,0 +1,12 @@
+package com.discord.bot.feature_knowledge_graph.domain;
+
+// An extracted relationship and the chat line it came from, null if the extraction named none
+public record FactSource(
+        String sourceLabel,
+        String sourceId,
+        String type,
+        String targetLabel,
+        String targetId,
+        ChatLine line
+) {
+}
@@ -0,0 +1,21 @@
+package com.discord.bot.feature_knowledge_graph.domain;
+
+// Graph size before and after one compaction run and what the run changed
+public record GraphCompactionReport(
+        long nodesBefore,
+        long nodesAfter,
+        long relationshipsBefore,
+        long relationshipsAfter,
+        int labelsBefore,
+        int labelsAfter,
+        int relationshipTypesBefore,
+        int relationshipTypesAfter,
+        long nodesRelabeled,
+        long relationshipsRetyped,
+        long nodesMerged,
+        long parallelRelationshipsRemoved,
+        long durationMs,
+        // False if the run stopped at kg.compaction.max-batches-per-run, the next run continues
+        boolean complete
+) {
+}
@@ -0,0 +1,20 @@
+package com.discord.bot.feature_knowledge_graph.domain;
+
+import java.util.List;
+
+// manifest.json of an export, listing its files in import order
+public record GraphExportManifest(
+        int version,
+        String exportedAt,
+        List<File> nodes,
+        List<File> relationships
+) {
+    /**
+     * @param name   Node label or relationship type the file holds
+     * @param header File with the CSV header line
+     * @param data   Gzipped CSV rows
+     * @param rows   Rows in the data file
+     */
+    public record File(String name, String header, String data, long rows) {
+    }
+}
@@ -1,9 +1,10 @@
 package com.discord.bot.feature_knowledge_graph.domain;
 
-// Relationship
+// Relationship, with the number of the chat line stating it when the extraction gave one
 public record GraphRelationship(
         String source,
         String target,
-        String label
+        String label,
+        Integer line
 ) {
 }
@@ -0,0 +1,14 @@
+package com.discord.bot.feature_knowledge_graph.domain;
+
+// What one graph export or import moved and how fast
+public record GraphTransferReport(
+        String name,
+        long nodes,
+        long relationships,
+        int files,
+        long bytes,
+        long durationMs,
+        long nodesPerSecond,
+        long relationshipsPerSecond
+) {
+}
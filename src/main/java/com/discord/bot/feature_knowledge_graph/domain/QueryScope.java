@@ -0,0 +1,9 @@
+package com.discord.bot.feature_knowledge_graph.domain;
+
+// The part of the graph a question is answered from
+public record QueryScope(
+        String guildId,
+        // Only facts stated by this member, or null for every member's
+        String authorId
+) {
+}
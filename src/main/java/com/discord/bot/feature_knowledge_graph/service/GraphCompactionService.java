@@ -0,0 +1,346 @@
+package com.discord.bot.feature_knowledge_graph.service;
+
+import com.discord.bot.feature_knowledge_graph.domain.GraphCompactionReport;
+import com.discord.bot.observability.Neo4jMetrics;
+import com.discord.bot.properties.GraphCompactionProperties;
+import com.discord.bot.resilience.DependencyGuards;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Shrinks the knowledge graph that ingestion only ever grows. A run brings node labels and relationship types to
+ * their canonical names (see {@link GraphVocabulary}), merges nodes of a guild with the same label and name into
+ * one, and removes relationships duplicating another of the same type between the same nodes. Every change happens
+ * in transactions of at most {@code kg.compaction.batch-size} items with a pause in between, through the Neo4j
+ * bulkhead, so compaction never holds Neo4j for long. Scheduled runs have a thread of their own, so a long run
+ * never delays the other scheduled jobs.
+ */
+@Slf4j
+@Service
+public class GraphCompactionService {
+    private final Neo4jClient neo4jClient;
+    private final TransactionTemplate transactionTemplate;
+    private final Neo4jMetrics neo4jMetrics;
+    private final DependencyGuards dependencyGuards;
+    private final GraphCompactionProperties properties;
+    private final GraphVocabulary vocabulary;
+    private final GraphIndexes graphIndexes;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+            .name("graph-compaction")
+            .daemon(true)
+            .factory());
+    private int batches;
+
+    public GraphCompactionService(Neo4jClient neo4jClient, TransactionTemplate transactionTemplate,
+                                  Neo4jMetrics neo4jMetrics, DependencyGuards dependencyGuards,
+                                  GraphCompactionProperties properties, GraphIndexes graphIndexes,
+                                  MeterRegistry meterRegistry) {
+        this.neo4jClient = neo4jClient;
+        this.transactionTemplate = transactionTemplate;
+        this.neo4jMetrics = neo4jMetrics;
+        this.dependencyGuards = dependencyGuards;
+        this.properties = properties;
+        this.vocabulary = new GraphVocabulary(properties.labels(), properties.relationshipTypes());
+        this.graphIndexes = graphIndexes;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (properties.enabled()) {
+            scheduler.scheduleWithFixedDelay(this::compactOnSchedule,
+                    properties.initialDelayMs(), properties.intervalMs(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    private void compactOnSchedule() {
+        try {
+            compact();
+        } catch (Exception e) {
+            log.error("Graph compaction failed, retrying on the next run", e);
+        }
+    }
+
+    /**
+     * Run one compaction
+     *
+     * @return What the run changed, or null if a run is already in progress
+     */
+    public GraphCompactionReport compact() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Graph compaction is already running");
+            return null;
+        }
+        try {
+            return runCompaction();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private GraphCompactionReport runCompaction() {
+        long start = System.nanoTime();
+        batches = 0;
+        GraphSize before = graphSize();
+
+        long relabeled = 0;
+        for (String label : before.labels()) {
+            String canonical = vocabulary.canonicalLabel(label);
+            if (canonical != null && !canonical.equals(label)) {
+                relabeled += untilDone(() -> relabelBatch(label, canonical));
+            }
+        }
+
+        long retyped = 0;
+        for (String type : before.relationshipTypes()) {
+            String canonical = vocabulary.canonicalRelationshipType(type);
+            if (canonical != null && !canonical.equals(type)) {
+                // Time-bounded reads go through this index, so it has to exist before facts move to the type
+                graphIndexes.ensureMessageTimeIndexes(List.of(canonical));
+                retyped += untilDone(() -> retypeBatch(type, canonical));
+            }
+        }
+
+        // Labels and types changed above, so the duplicate passes work on the current ones
+        GraphSize canonical = graphSize();
+        long merged = 0;
+        for (String label : canonical.labels()) {
+            merged += untilDone(() -> mergeDuplicatesBatch(label));
+        }
+        long parallelRemoved = 0;
+        for (String type : canonical.relationshipTypes()) {
+            parallelRemoved += untilDone(() -> removeParallelBatch(type));
+        }
+
+        GraphSize after = graphSize();
+        long durationNanos = System.nanoTime() - start;
+        boolean complete = batches < properties.maxBatchesPerRun();
+        GraphCompactionReport report = new GraphCompactionReport(
+                before.nodes(), after.nodes(), before.relationships(), after.relationships(),
+                before.labels().size(), after.labels().size(),
+                before.relationshipTypes().size(), after.relationshipTypes().size(),
+                relabeled, retyped, merged, parallelRemoved,
+                TimeUnit.NANOSECONDS.toMillis(durationNanos), complete);
+        record(report, durationNanos);
+        log.info("Graph compaction {} in {} ms: nodes {} -> {}, relationships {} -> {}, labels {} -> {}, "
+                        + "relationship types {} -> {} ({} relabeled, {} retyped, {} merged, {} parallel removed)",
+                complete ? "finished" : "paused", report.durationMs(), report.nodesBefore(), report.nodesAfter(),
+                report.relationshipsBefore(), report.relationshipsAfter(), report.labelsBefore(), report.labelsAfter(),
+                report.relationshipTypesBefore(), report.relationshipTypesAfter(),
+                relabeled, retyped, merged, parallelRemoved);
+        return report;
+    }
+
+    /**
+     * Repeat a batch, each in its own transaction, until it changes nothing or the run is out of batches
+     *
+     * @return Total items the batches changed
+     */
+    private long untilDone(Supplier<Long> batch) {
+        long total = 0;
+        while (batches < properties.maxBatchesPerRun()) {
+            batches++;
+            Long changed = dependencyGuards.getNeo4j().call(() -> transactionTemplate.execute(status -> batch.get()));
+            if (changed == null || changed == 0) {
+                break;
+            }
+            total += changed;
+            pause();
+        }
+        return total;
+    }
+
+    private long relabelBatch(String label, String canonical) {
+        return count("kg.compaction.relabel", neo4jClient.query("MATCH (n:" + GraphVocabulary.quote(label) + ") "
+                + "WITH n LIMIT $batchSize "
+                + "SET n:" + GraphVocabulary.quote(canonical) + " REMOVE n:" + GraphVocabulary.quote(label) + " "
+                + "RETURN count(n) AS changed"));
+    }
+
+    /**
+     * Relationship types cannot be changed in place, so each relationship is recreated with the canonical type.
+     * MERGE folds it into an existing one of that type between the same nodes.
+     */
+    private long retypeBatch(String type, String canonical) {
+        return count("kg.compaction.retype", neo4jClient.query("MATCH (a)-[r:" + GraphVocabulary.quote(type) + "]->(b) "
+                + "WITH a, r, b LIMIT $batchSize "
+                + "MERGE (a)-[c:" + GraphVocabulary.quote(canonical) + "]->(b) "
+                // Provenance of the newer statement wins
+                + "SET c += CASE WHEN c.messageTs > r.messageTs THEN {} ELSE properties(r) END "
+                + "DELETE r "
+                + "RETURN count(*) AS changed"));
+    }
+
+    /**
+     * Duplicates are found by grouping the label's nodes by guild and normalized name in a single pass, so a label
+     * without duplicates costs one scan per run. A group is kept as its node with the lowest element id.
+     */
+    private long mergeDuplicatesBatch(String label) {
+        Collection<Map<String, Object>> duplicates = neo4jMetrics.read("kg.compaction.duplicates", () -> neo4jClient
+                .query("MATCH (n:" + GraphVocabulary.quote(label) + ") WHERE n." + GraphScope.GUILD_ID + " IS NOT NULL "
+                        + "WITH n." + GraphScope.GUILD_ID + " AS guildId, " + normalizedName("n") + " AS name, "
+                        + "elementId(n) AS id WHERE name IS NOT NULL AND name <> '' "
+                        // Guilds never share a node
+                        + "WITH guildId, name, collect(id) AS ids WHERE size(ids) > 1 "
+                        + "WITH ids, reduce(kept = head(ids), id IN ids | CASE WHEN id < kept THEN id ELSE kept END) AS kept "
+                        + "UNWIND [id IN ids WHERE id <> kept] AS duplicate "
+                        + "RETURN kept, duplicate LIMIT $batchSize")
+                .bind(properties.batchSize()).to("batchSize")
+                .fetch().all(), Collection::size);
+        for (Map<String, Object> duplicate : duplicates) {
+            mergeInto((String) duplicate.get("kept"), (String) duplicate.get("duplicate"));
+        }
+        return duplicates.size();
+    }
+
+    private String normalizedName(String variable) {
+        return properties.identityProperties().stream()
+                .map(property -> variable + "." + GraphVocabulary.quote(property))
+                .collect(Collectors.joining(", ", "toLower(trim(toString(coalesce(", "))))"));
+    }
+
+    /**
+     * Move the duplicate's relationships to the kept node, copy the properties the kept node lacks, and delete it
+     */
+    private void mergeInto(String keptId, String duplicateId) {
+        Collection<Map<String, Object>> relationships = neo4jMetrics.read("kg.compaction.relationships",
+                () -> neo4jClient.query("""
+                                MATCH (d)-[r]-(o) WHERE elementId(d) = $duplicate
+                                RETURN type(r) AS type, startNode(r) = d AS outgoing, elementId(o) AS other,
+                                       properties(r) AS properties
+                                """)
+                        .bind(duplicateId).to("duplicate")
+                        .fetch().all(), Collection::size);
+        for (Map<String, Object> relationship : relationships) {
+            String other = (String) relationship.get("other");
+            if (keptId.equals(other)) {
+                // Would become a loop on the kept node
+                continue;
+            }
+            String target = duplicateId.equals(other) ? keptId : other;
+            String type = GraphVocabulary.quote((String) relationship.get("type"));
+            String pattern = (Boolean) relationship.get("outgoing") ? "(k)-[r:" + type + "]->(o)" : "(k)<-[r:" + type + "]-(o)";
+            neo4jMetrics.write("kg.compaction.merge", () -> neo4jClient
+                    .query("MATCH (k), (o) WHERE elementId(k) = $kept AND elementId(o) = $other "
+                            + "MERGE " + pattern + " "
+                            + "SET r += CASE WHEN r.messageTs > $properties.messageTs THEN {} ELSE $properties END")
+                    .bind(keptId).to("kept")
+                    .bind(target).to("other")
+                    .bind(relationship.get("properties")).to("properties")
+                    .run());
+        }
+        neo4jMetrics.write("kg.compaction.merge", () -> neo4jClient.query("""
+                        MATCH (k), (d) WHERE elementId(k) = $kept AND elementId(d) = $duplicate
+                        WITH k, d, properties(k) AS kept
+                        SET k += properties(d)
+                        SET k += kept
+                        DETACH DELETE d
+                        """)
+                .bind(keptId).to("kept")
+                .bind(duplicateId).to("duplicate")
+                .run());
+    }
+
+    /**
+     * Deletes the copies a newer parallel relationship exists for, found by expanding from each relationship's start
+     * node, so the scan stops at the batch's limit instead of grouping every relationship of the type
+     */
+    private long removeParallelBatch(String type) {
+        String quoted = GraphVocabulary.quote(type);
+        return count("kg.compaction.parallel", neo4jClient.query("MATCH (a)-[r:" + quoted + "]->(b) "
+                // The most recently stated copy is kept, facts without a source last
+                + "WHERE EXISTS { MATCH (a)-[o:" + quoted + "]->(b) WHERE o <> r AND ("
+                + "coalesce(o.messageTs, datetime({epochMillis: 0})) > coalesce(r.messageTs, datetime({epochMillis: 0})) "
+                + "OR (coalesce(o.messageTs, datetime({epochMillis: 0})) = coalesce(r.messageTs, datetime({epochMillis: 0})) "
+                + "AND elementId(o) > elementId(r))) } "
+                + "WITH r LIMIT $batchSize "
+                + "DELETE r "
+                + "RETURN count(r) AS changed"));
+    }
+
+    private long count(String operation, Neo4jClient.UnboundRunnableSpec statement) {
+        return neo4jMetrics.read(operation, () -> statement
+                .bind(properties.batchSize()).to("batchSize")
+                .fetchAs(Long.class)
+                .mappedBy((typeSystem, record) -> record.get("changed").asLong())
+                .one()
+                .orElse(0L), rows -> (int) Math.min(rows, Integer.MAX_VALUE));
+    }
+
+    private GraphSize graphSize() {
+        return dependencyGuards.getNeo4j().call(() -> neo4jMetrics.read("kg.compaction.size", () -> neo4jClient.query("""
+                                CALL { MATCH (n) RETURN count(n) AS nodes }
+                                CALL { MATCH ()-[r]->() RETURN count(r) AS relationships }
+                                CALL { CALL db.labels() YIELD label RETURN collect(label) AS labels }
+                                CALL { CALL db.relationshipTypes() YIELD relationshipType
+                                       RETURN collect(relationshipType) AS types }
+                                RETURN nodes, relationships, labels, types
+                                """)
+                        .fetchAs(GraphSize.class)
+                        .mappedBy((typeSystem, record) -> new GraphSize(
+                                record.get("nodes").asLong(),
+                                record.get("relationships").asLong(),
+                                record.get("labels").asList(value -> value.asString()),
+                                record.get("types").asList(value -> value.asString())))
+                        .one()
+                        .orElseThrow(), size -> 1));
+    }
+
+    private void pause() {
+        if (properties.pauseMs() <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(properties.pauseMs());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Graph compaction interrupted", e);
+        }
+    }
+
+    private void record(GraphCompactionReport report, long durationNanos) {
+        Timer.builder("kg.compaction")
+                .description("Duration of graph compaction runs")
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        changes("relabeled").increment(report.nodesRelabeled());
+        changes("retyped").increment(report.relationshipsRetyped());
+        changes("merged").increment(report.nodesMerged());
+        changes("parallel_removed").increment(report.parallelRelationshipsRemoved());
+    }
+
+    private Counter changes(String kind) {
+        return Counter.builder("kg.compaction.changes")
+                .description("Nodes and relationships changed by graph compaction")
+                .tag("kind", kind)
+                .register(meterRegistry);
+    }
+
+    private record GraphSize(long nodes, long relationships, List<String> labels, List<String> relationshipTypes) {
+    }
+}
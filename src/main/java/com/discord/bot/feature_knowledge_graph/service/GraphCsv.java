@@ -0,0 +1,203 @@
+package com.discord.bot.feature_knowledge_graph.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CSV as read by {@code neo4j-admin database import}: comma separated, fields quoted with {@code "} when needed,
+ * arrays joined with {@code ;}. An empty unquoted field is a missing property, {@code ""} an empty string.
+ * A {@code ;} or {@code \} inside an array element is escaped with {@code \}, which neo4j-admin keeps as is, so
+ * such elements only round-trip through {@link #parse(String, String)}.
+ * Property columns carry their type in the header ({@code messageTs:datetime}); values of other types than
+ * those listed in {@link #typeOf(Object)} are written as strings.
+ */
+final class GraphCsv {
+    static final String STRING = "string";
+    private static final char ARRAY_DELIMITER = ';';
+    private static final char ESCAPE = '\\';
+
+    private GraphCsv() {
+    }
+
+    /**
+     * Header type of a property value, e.g. {@code long} or {@code string[]}
+     */
+    static String typeOf(Object value) {
+        if (value instanceof List<?> list) {
+            return list.isEmpty() ? STRING + "[]" : typeOf(list.getFirst()) + "[]";
+        }
+        return switch (value) {
+            case Long ignored -> "long";
+            case Integer ignored -> "long";
+            case Double ignored -> "double";
+            case Float ignored -> "double";
+            case Boolean ignored -> "boolean";
+            case ZonedDateTime ignored -> "datetime";
+            case LocalDateTime ignored -> "localdatetime";
+            case LocalDate ignored -> "date";
+            default -> STRING;
+        };
+    }
+
+    /**
+     * Text of a property value; null stays null, so the field is written empty and unquoted
+     */
+    static String format(Object value) {
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof List<?> list) {
+            StringBuilder joined = new StringBuilder();
+            for (Object element : list) {
+                if (!joined.isEmpty()) {
+                    joined.append(ARRAY_DELIMITER);
+                }
+                String text = format(element);
+                for (int i = 0; i < text.length(); i++) {
+                    char c = text.charAt(i);
+                    if (c == ARRAY_DELIMITER || c == ESCAPE) {
+                        joined.append(ESCAPE);
+                    }
+                    joined.append(c);
+                }
+            }
+            return joined.toString();
+        }
+        if (value instanceof ZonedDateTime dateTime) {
+            return dateTime.getZone().equals(dateTime.getOffset())
+                    ? DateTimeFormatter.ISO_OFFSET_DATE_TIME.format(dateTime)
+                    : DateTimeFormatter.ISO_ZONED_DATE_TIME.format(dateTime);
+        }
+        return value.toString();
+    }
+
+    /**
+     * Value of a field written by {@link #format(Object)} for a column of the given header type
+     */
+    static Object parse(String text, String type) {
+        if (text == null) {
+            return null;
+        }
+        if (type.endsWith("[]")) {
+            String elementType = type.substring(0, type.length() - 2);
+            if (text.isEmpty()) {
+                return List.of();
+            }
+            return splitArray(text).stream()
+                    .map(element -> parse(element, elementType))
+                    .toList();
+        }
+        return switch (type) {
+            case "long" -> Long.parseLong(text);
+            case "double" -> Double.parseDouble(text);
+            case "boolean" -> Boolean.parseBoolean(text);
+            case "datetime" -> ZonedDateTime.parse(text);
+            case "localdatetime" -> LocalDateTime.parse(text);
+            case "date" -> LocalDate.parse(text);
+            default -> text;
+        };
+    }
+
+    static void writeRow(Writer writer, List<String> fields) throws IOException {
+        for (int i = 0; i < fields.size(); i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            String field = fields.get(i);
+            if (field == null) {
+                continue;
+            }
+            if (field.isEmpty() || needsQuotes(field)) {
+                writer.write('"');
+                writer.write(field.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(field);
+            }
+        }
+        writer.write('\n');
+    }
+
+    /**
+     * Read the next row, which may span lines inside quotes
+     *
+     * @return The row's fields, null for empty unquoted ones, or null at the end of the input
+     */
+    static List<String> readRow(Reader reader) throws IOException {
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean inQuotes = false;
+        while (true) {
+            if (inQuotes) {
+                if (c == -1) {
+                    throw new IOException("Unterminated quoted field");
+                }
+                if (c == '"') {
+                    c = reader.read();
+                    if (c == '"') {
+                        field.append('"');
+                    } else {
+                        inQuotes = false;
+                        continue;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+                inQuotes = true;
+            } else if (c == ',' || c == '\n' || c == -1) {
+                fields.add(quoted || !field.isEmpty() ? field.toString() : null);
+                if (c != ',') {
+                    return fields;
+                }
+                field.setLength(0);
+                quoted = false;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+    }
+
+    private static List<String> splitArray(String text) {
+        List<String> elements = new ArrayList<>();
+        StringBuilder element = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ESCAPE && i + 1 < text.length()) {
+                element.append(text.charAt(++i));
+            } else if (c == ARRAY_DELIMITER) {
+                elements.add(element.toString());
+                element.setLength(0);
+            } else {
+                element.append(c);
+            }
+        }
+        elements.add(element.toString());
+        return elements;
+    }
+
+    private static boolean needsQuotes(String field) {
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        // neo4j-admin trims unquoted fields by default
+        return Character.isWhitespace(field.charAt(0)) || Character.isWhitespace(field.charAt(field.length() - 1));
+    }
+}
@@ -0,0 +1,75 @@
+package com.discord.bot.feature_knowledge_graph.service;
+
+import com.discord.bot.observability.Neo4jMetrics;
+import com.discord.bot.resilience.DependencyGuards;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Range indexes behind fact writes and scoped reads: node ids per label, matched when a fact's source is recorded,
+ * node guilds per label, which scoped queries start from, and guild with {@value #MESSAGE_TS} per relationship
+ * type, which Neo4j only indexes per type, for a guild's time-bounded reads. Indexes are
+ * created the first time a label or type is written, outside of the write transaction as Neo4j does not mix
+ * schema and data changes in one transaction.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class GraphIndexes {
+    public static final String MESSAGE_TS = "messageTs";
+
+    private final Neo4jClient neo4jClient;
+    private final Neo4jMetrics neo4jMetrics;
+    private final DependencyGuards dependencyGuards;
+
+    private final Set<String> indexedLabels = ConcurrentHashMap.newKeySet();
+    private final Set<String> indexedTypes = ConcurrentHashMap.newKeySet();
+
+    public void ensureNodeIdIndexes(Collection<String> labels) {
+        for (String label : labels) {
+            if (label != null && !indexedLabels.contains(label)) {
+                create("CREATE RANGE INDEX IF NOT EXISTS FOR (n:" + GraphVocabulary.quote(label) + ") ON (n.id)");
+                create("CREATE RANGE INDEX IF NOT EXISTS FOR (n:" + GraphVocabulary.quote(label) + ") ON (n."
+                        + GraphScope.GUILD_ID + ")");
+                indexedLabels.add(label);
+            }
+        }
+    }
+
+    public void ensureMessageTimeIndexes(Collection<String> relationshipTypes) {
+        for (String type : relationshipTypes) {
+            if (type != null && !indexedTypes.contains(type)) {
+                create("CREATE RANGE INDEX IF NOT EXISTS FOR ()-[r:" + GraphVocabulary.quote(type) + "]-() ON (r."
+                        + GraphScope.GUILD_ID + ", r." + MESSAGE_TS + ")");
+                indexedTypes.add(type);
+            }
+        }
+    }
+
+    /**
+     * Relationship types with an index on guild and {@value #MESSAGE_TS}, including those indexed by earlier runs
+     */
+    public List<String> messageTimeIndexedTypes() {
+        return dependencyGuards.getNeo4j().call(() -> neo4jMetrics.read("kg.indexes.read", () -> new ArrayList<>(neo4jClient.query("""
+                                SHOW RANGE INDEXES YIELD entityType, labelsOrTypes, properties, state
+                                WHERE entityType = 'RELATIONSHIP' AND properties = ['guildId', 'messageTs'] AND state = 'ONLINE'
+                                RETURN labelsOrTypes[0] AS type
+                                """)
+                        .fetchAs(String.class)
+                        .mappedBy((typeSystem, record) -> record.get("type").asString())
+                        .all()), List::size));
+    }
+
+    private void create(String statement) {
+        log.info("Creating index: {}", statement);
+        dependencyGuards.getNeo4j().call(() -> neo4jMetrics.write("kg.indexes.create", () -> neo4jClient.query(statement).run()));
+    }
+}
@@ -0,0 +1,513 @@
+package com.discord.bot.feature_knowledge_graph.service;
+
+import com.discord.bot.feature_knowledge_graph.domain.GraphNode;
+import com.discord.bot.feature_knowledge_graph.domain.GraphRelationship;
+import com.discord.bot.feature_knowledge_graph.domain.GraphResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Guild scope of the knowledge graph. Every node and relationship carries the {@value #GUILD_ID} of the guild its
+ * chat lines came from, and node ids are prefixed with it, so the same person in two guilds is two nodes.
+ * Generated read queries are rewritten so that each node pattern only matches the asking guild's nodes, and each
+ * relationship pattern optionally only the facts one member stated ({@value #AUTHOR_ID}). Both are bound as
+ * parameters of the same names.
+ * <p>
+ * The rewrite fails closed: a parenthesis in a {@code MATCH} pattern or at either end of a relationship must be a
+ * node pattern it fully understands, a relationship must follow a node it scoped, and anything else in those
+ * positions rejects the query. Only parentheses that cannot be patterns (calls, arithmetic) are left alone.
+ */
+final class GraphScope {
+    static final String GUILD_ID = "guildId";
+    static final String AUTHOR_ID = "authorId";
+
+    // Clauses that write, call procedures, read files, switch databases or administer the server
+    private static final Set<String> FORBIDDEN = Set.of("CALL", "CREATE", "INSERT", "MERGE", "SET", "DELETE",
+            "DETACH", "REMOVE", "FOREACH", "LOAD", "USE", "SHOW", "TERMINATE", "DROP", "ALTER", "GRANT", "DENY",
+            "REVOKE");
+    // A parenthesis after one of these may open a pattern; after any other word it is a function call
+    private static final Set<String> KEYWORDS = Set.of("MATCH", "OPTIONAL", "WHERE", "AND", "OR", "XOR", "NOT",
+            "WITH", "RETURN", "DISTINCT", "UNWIND", "AS", "IN", "IS", "CASE", "WHEN", "THEN", "ELSE", "END", "ORDER",
+            "BY", "ASC", "ASCENDING", "DESC", "DESCENDING", "SKIP", "OFFSET", "LIMIT", "UNION", "STARTS", "ENDS",
+            "CONTAINS", "SHORTEST", "PATH", "PATHS", "GROUPS", "WALK", "TRAIL", "ACYCLIC");
+    // Clauses ending a MATCH pattern
+    private static final Set<String> CLAUSES = Set.of("MATCH", "OPTIONAL", "WHERE", "WITH", "RETURN", "UNWIND",
+            "ORDER", "SKIP", "OFFSET", "LIMIT", "UNION", "FINISH", "FILTER", "LET");
+    // Words after IS that make it a predicate rather than a label expression
+    private static final Set<String> IS_PREDICATES = Set.of("NULL", "NOT", "TYPED", "NORMALIZED", "NFC", "NFD",
+            "NFKC", "NFKD");
+    // Namespaces of the built-in functions; the rest belong to plugins, some of which run Cypher given as a string
+    private static final Set<String> FUNCTION_NAMESPACES = Set.of("date", "datetime", "localdatetime", "localtime",
+            "time", "duration", "point", "vector");
+
+    private GraphScope() {
+    }
+
+    static String scopedId(String guildId, String id) {
+        return id == null ? null : guildId + ":" + id;
+    }
+
+    /**
+     * The same graph with every node id, and every relationship end, prefixed with the guild
+     */
+    static GraphResult scope(GraphResult graph, String guildId) {
+        List<GraphNode> nodes = graph.nodes() == null ? null : graph.nodes().stream()
+                .map(node -> new GraphNode(scopedId(guildId, node.id()), node.label(), node.properties()))
+                .toList();
+        List<GraphRelationship> relationships = graph.relationships() == null ? null : graph.relationships().stream()
+                .map(relationship -> new GraphRelationship(scopedId(guildId, relationship.source()),
+                        scopedId(guildId, relationship.target()), relationship.label(), relationship.line()))
+                .toList();
+        return new GraphResult(nodes, relationships, graph.paths());
+    }
+
+    /**
+     * Constrain every node pattern of a read query to {@code $guildId}, and with {@code byAuthor} every
+     * relationship pattern to {@code $authorId}
+     *
+     * @throws IllegalArgumentException If the query writes, calls a procedure or plugin function, or has a pattern
+     *                                  the rewrite cannot scope
+     */
+    static String restrict(String query, boolean byAuthor) {
+        return new Rewrite(withoutComments(query), byAuthor).run();
+    }
+
+    private enum Bracket {
+        // A call's arguments, a parenthesized expression, a group of patterns, a list or a map
+        CALL, EXPRESSION, GROUP, LIST, MAP
+    }
+
+    private enum Token {
+        NONE, KEYWORD, NAME, VALUE, SYMBOL
+    }
+
+    private static final class Rewrite {
+        private final String query;
+        private final boolean byAuthor;
+        private final StringBuilder scoped;
+        private final List<Bracket> brackets = new ArrayList<>();
+
+        private Token previous = Token.NONE;
+        private char previousSymbol;
+        // The last name followed a dot, and the name that dotted chain started with
+        private boolean dotted;
+        private String root = "";
+        // The last token closed a node pattern, so a relationship may follow
+        private boolean afterNode;
+        // The last token was a relationship, so a node pattern must follow
+        private boolean expectNode;
+        // Inside a MATCH clause, whose pattern starts at this bracket depth
+        private boolean inMatch;
+        private int matchDepth;
+
+        private Rewrite(String query, boolean byAuthor) {
+            this.query = query;
+            this.byAuthor = byAuthor;
+            this.scoped = new StringBuilder(query.length() + 64);
+        }
+
+        private String run() {
+            int i = 0;
+            while (i < query.length()) {
+                char c = query.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    scoped.append(c);
+                    i++;
+                    continue;
+                }
+                if (expectNode && c != '(') {
+                    throw new IllegalArgumentException("A relationship must lead to a node pattern");
+                }
+                if (c == '(') {
+                    i = openParenthesis(i);
+                } else if ((c == '-' || c == '<') && isRelationship(i)) {
+                    if (afterNode) {
+                        i = relationship(i);
+                    } else if (previous == Token.SYMBOL && previousSymbol == ')') {
+                        throw new IllegalArgumentException("A relationship must start from a node pattern");
+                    } else {
+                        i = symbol(i);
+                    }
+                } else if (c == '\'' || c == '"') {
+                    i = token(i, skipQuoted(query, i), Token.VALUE);
+                } else if (c == '`') {
+                    i = name(i, skipQuoted(query, i));
+                } else if (c == '$') {
+                    i = token(i, skipName(query, i + 1), Token.VALUE);
+                } else if (Character.isDigit(c)) {
+                    i = token(i, skipNumber(i), Token.VALUE);
+                } else if (Character.isJavaIdentifierStart(c)) {
+                    i = word(i);
+                } else {
+                    i = symbol(i);
+                }
+            }
+            if (expectNode) {
+                throw new IllegalArgumentException("A relationship must lead to a node pattern");
+            }
+            return scoped.toString();
+        }
+
+        private int token(int start, int end, Token kind) {
+            scoped.append(query, start, end);
+            previous = kind;
+            afterNode = false;
+            return end;
+        }
+
+        private int word(int start) {
+            int end = skipName(query, start);
+            String word = query.substring(start, end).toUpperCase(Locale.ROOT);
+            // Property keys and labels may be named like clauses
+            if (isProperty()) {
+                return name(start, end);
+            }
+            if (FORBIDDEN.contains(word)) {
+                throw new IllegalArgumentException("Not a plain read query: " + word);
+            }
+            if (CLAUSES.contains(word) && brackets.size() == matchDepth) {
+                inMatch = false;
+            }
+            if (word.equals("MATCH")) {
+                inMatch = true;
+                matchDepth = brackets.size();
+            }
+            return KEYWORDS.contains(word) ? token(start, end, Token.KEYWORD) : name(start, end);
+        }
+
+        private int name(int start, int end) {
+            dotted = isProperty() && previousSymbol == '.';
+            if (!dotted) {
+                root = query.substring(start, end).replace("`", "").toLowerCase(Locale.ROOT);
+            }
+            return token(start, end, Token.NAME);
+        }
+
+        private boolean isProperty() {
+            return previous == Token.SYMBOL && (previousSymbol == '.' || previousSymbol == ':');
+        }
+
+        private int symbol(int i) {
+            char c = query.charAt(i);
+            if (c == '[') {
+                brackets.add(Bracket.LIST);
+            } else if (c == '{') {
+                brackets.add(Bracket.MAP);
+            } else if (c == ')' || c == ']' || c == '}') {
+                return close(i);
+            }
+            scoped.append(c);
+            previous = Token.SYMBOL;
+            previousSymbol = c;
+            afterNode = false;
+            return i + 1;
+        }
+
+        private int close(int i) {
+            Bracket closed = brackets.isEmpty() ? null : brackets.removeLast();
+            if (brackets.size() < matchDepth) {
+                inMatch = false;
+            }
+            scoped.append(query.charAt(i));
+            previous = Token.SYMBOL;
+            previousSymbol = query.charAt(i);
+            // A quantified group of patterns may go on like a node
+            afterNode = closed == Bracket.GROUP;
+            return i + 1;
+        }
+
+        private int openParenthesis(int start) {
+            boolean pattern = expectNode || inMatchPattern();
+            expectNode = false;
+            if (pattern && charAt(skipWhitespace(query, start + 1)) == '(') {
+                return open(start, Bracket.GROUP);
+            }
+            if (!pattern && previous == Token.NAME) {
+                // Plugin functions such as apoc.cypher.run would run a query given as a string
+                if (dotted && !FUNCTION_NAMESPACES.contains(root)) {
+                    throw new IllegalArgumentException("Not a built-in function in namespace " + root);
+                }
+                return open(start, Bracket.CALL);
+            }
+            int end = pattern(start, ')', GUILD_ID, pattern);
+            if (end < 0) {
+                return open(start, Bracket.EXPRESSION);
+            }
+            previous = Token.SYMBOL;
+            previousSymbol = ')';
+            afterNode = true;
+            return end;
+        }
+
+        private int open(int start, Bracket bracket) {
+            brackets.add(bracket);
+            scoped.append('(');
+            previous = Token.SYMBOL;
+            previousSymbol = '(';
+            afterNode = false;
+            return start + 1;
+        }
+
+        private boolean inMatchPattern() {
+            if (!inMatch) {
+                return false;
+            }
+            for (int depth = matchDepth; depth < brackets.size(); depth++) {
+                if (brackets.get(depth) != Bracket.GROUP) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean isRelationship(int i) {
+            if (query.charAt(i) == '<') {
+                i = skipWhitespace(query, i + 1);
+                if (charAt(i) != '-') {
+                    return false;
+                }
+            }
+            char next = charAt(skipWhitespace(query, i + 1));
+            return next == '-' || next == '[';
+        }
+
+        /**
+         * Copy the relationship starting at {@code start}, scoped to the author if asked, and expect a node after it
+         */
+        private int relationship(int start) {
+            int i = start;
+            if (query.charAt(i) == '<') {
+                i = skipWhitespace(query, i + 1);
+            }
+            i = skipWhitespace(query, i + 1);
+            if (query.charAt(i) == '[') {
+                scoped.append(query, start, i);
+                i = skipWhitespace(query, pattern(i, ']', byAuthor ? AUTHOR_ID : null, true));
+                if (charAt(i) != '-') {
+                    throw new IllegalArgumentException("Unterminated relationship pattern");
+                }
+                start = i;
+            } else if (byAuthor) {
+                scoped.append(query, start, i).append("[{").append(AUTHOR_ID).append(": $").append(AUTHOR_ID)
+                        .append("}]");
+                start = i;
+            }
+            int end = i + 1;
+            int arrow = skipWhitespace(query, end);
+            if (charAt(arrow) == '>') {
+                end = arrow + 1;
+            }
+            scoped.append(query, start, end);
+            previous = Token.SYMBOL;
+            previousSymbol = '-';
+            afterNode = false;
+            expectNode = true;
+            return end;
+        }
+
+        /**
+         * Rewrite the pattern opening at {@code start} with {@code property: $property} in its property map, or
+         * only check it when {@code property} is null
+         *
+         * @param required Whether only a pattern can open here; otherwise it may be a parenthesized expression
+         * @return Index after the pattern, or -1 if an expression opens there
+         */
+        private int pattern(int start, char close, String property, boolean required) {
+            int i = skipWhitespace(query, start + 1);
+            // Variable
+            int end = skipName(query, i);
+            i = skipWhitespace(query, end);
+            // Labels or types, and a variable length
+            if (charAt(i) == ':' || isLabelIs(i)) {
+                required = true;
+                end = skipLabels(i + (charAt(i) == ':' ? 1 : 2));
+                i = skipWhitespace(query, end);
+            }
+            if (close == ']' && charAt(i) == '*') {
+                end = skipQuantifier(i);
+                i = skipWhitespace(query, end);
+            }
+            String constraint = property == null ? "" : property + ": $" + property;
+            if (charAt(i) == '{') {
+                int mapEnd = skipMap(query, i);
+                int after = skipWhitespace(query, mapEnd);
+                if (charAt(after) != close) {
+                    throw new IllegalArgumentException("Cannot scope the pattern at " + start);
+                }
+                // Values in the map are expressions that may hold patterns themselves
+                String properties = restrict(query.substring(i + 1, mapEnd - 1), byAuthor);
+                String separator = constraint.isEmpty() || properties.isBlank() ? "" : ", ";
+                scoped.append(query, start, i)
+                        .append('{').append(constraint).append(separator).append(properties).append('}')
+                        .append(query, mapEnd, after + 1);
+                return after + 1;
+            }
+            if (charAt(i) == close) {
+                scoped.append(query, start, end);
+                if (!constraint.isEmpty()) {
+                    scoped.append(end == start + 1 ? "{" : " {").append(constraint).append('}');
+                }
+                scoped.append(query, i, i + 1);
+                return i + 1;
+            }
+            if (required || isWord(i, "WHERE")) {
+                throw new IllegalArgumentException("Cannot scope the pattern at " + start);
+            }
+            return -1;
+        }
+
+        private boolean isLabelIs(int i) {
+            if (!isWord(i, "IS")) {
+                return false;
+            }
+            int next = skipWhitespace(query, i + 2);
+            return charAt(next) != ':' && !IS_PREDICATES.contains(
+                    query.substring(next, skipName(query, next)).toUpperCase(Locale.ROOT));
+        }
+
+        /**
+         * @return Index after the label expression starting at {@code i}, e.g. {@code Person|!(Place&%)}
+         */
+        private int skipLabels(int i) {
+            while (true) {
+                i = skipWhitespace(query, i);
+                while (charAt(i) == '!') {
+                    i = skipWhitespace(query, i + 1);
+                }
+                if (charAt(i) == '%') {
+                    i++;
+                } else if (charAt(i) == '(') {
+                    i = skipWhitespace(query, skipLabels(i + 1));
+                    if (charAt(i) != ')') {
+                        throw new IllegalArgumentException("Cannot scope the label expression at " + i);
+                    }
+                    i++;
+                } else {
+                    int end = skipName(query, i);
+                    if (end == i) {
+                        throw new IllegalArgumentException("Cannot scope the label expression at " + i);
+                    }
+                    i = end;
+                }
+                int next = skipWhitespace(query, i);
+                char c = charAt(next);
+                if (c != '|' && c != '&' && (c != ':' || charAt(next + 1) == ':')) {
+                    return i;
+                }
+                i = charAt(next + 1) == ':' ? next + 2 : next + 1;
+            }
+        }
+
+        private int skipQuantifier(int i) {
+            i++;
+            while (i < query.length() && (Character.isDigit(query.charAt(i)) || query.charAt(i) == '.'
+                    || Character.isWhitespace(query.charAt(i)))) {
+                i++;
+            }
+            return i;
+        }
+
+        private int skipNumber(int i) {
+            while (i < query.length() && (Character.isLetterOrDigit(query.charAt(i)) || query.charAt(i) == '_'
+                    || query.charAt(i) == '.' && i + 1 < query.length() && Character.isDigit(query.charAt(i + 1)))) {
+                i++;
+            }
+            return i;
+        }
+
+        private boolean isWord(int i, String word) {
+            int end = i + word.length();
+            return query.regionMatches(true, i, word, 0, word.length())
+                    && (end == query.length() || !Character.isJavaIdentifierPart(query.charAt(end)));
+        }
+
+        private char charAt(int i) {
+            return i < query.length() ? query.charAt(i) : 0;
+        }
+    }
+
+    /**
+     * The query with its comments blanked out
+     */
+    private static String withoutComments(String query) {
+        StringBuilder stripped = new StringBuilder(query.length());
+        int i = 0;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                int end = skipQuoted(query, i);
+                stripped.append(query, i, end);
+                i = end;
+            } else if (c == '/' && i + 1 < query.length() && (query.charAt(i + 1) == '/' || query.charAt(i + 1) == '*')) {
+                int end = query.charAt(i + 1) == '/' ? query.indexOf('\n', i) : query.indexOf("*/", i + 2) + 2;
+                i = end <= i ? query.length() : end;
+                stripped.append(' ');
+            } else {
+                stripped.append(c);
+                i++;
+            }
+        }
+        return stripped.toString();
+    }
+
+    private static int skipName(String query, int i) {
+        if (i < query.length() && query.charAt(i) == '`') {
+            return skipQuoted(query, i);
+        }
+        while (i < query.length() && Character.isJavaIdentifierPart(query.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipWhitespace(String query, int i) {
+        while (i < query.length() && Character.isWhitespace(query.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * @return Index after the closing quote, or the end of the query if it is unterminated
+     */
+    private static int skipQuoted(String query, int start) {
+        char quote = query.charAt(start);
+        int i = start + 1;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (c == '\\' && quote != '`') {
+                i += 2;
+            } else if (c == quote) {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        return query.length();
+    }
+
+    /**
+     * @return Index after the brace closing the map opening at {@code start}
+     */
+    private static int skipMap(String query, int start) {
+        int depth = 0;
+        int i = start;
+        while (i < query.length()) {
+            char c = query.charAt(i);
+            if (c == '\'' || c == '"' || c == '`') {
+                i = skipQuoted(query, i);
+                continue;
+            }
+            if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return i + 1;
+            }
+            i++;
+        }
+        return query.length();
+    }
+}
@@ -0,0 +1,477 @@
+package com.discord.bot.feature_knowledge_graph.service;
+
+import com.discord.bot.feature_knowledge_graph.domain.GraphExportManifest;
+import com.discord.bot.feature_knowledge_graph.domain.GraphTransferReport;
+import com.discord.bot.observability.Neo4jMetrics;
+import com.discord.bot.properties.GraphTransferProperties;
+import com.discord.bot.resilience.DependencyGuards;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.SessionConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Moves the whole graph (knowledge graph nodes and relationships as well as the Channel checkpoints) in and out of
+ * Neo4j without going through extraction. An export writes, per node label and per relationship type, a header
+ * file and a gzipped CSV data file in the format of {@code neo4j-admin database import}, plus a manifest and the
+ * matching neo4j-admin argument file. An import loads an export into an empty database with one UNWIND statement
+ * per {@code kg.transfer.batch-size} rows; for very large graphs the offline importer is faster still.
+ */
+@Slf4j
+@Service
+public class GraphTransferService {
+    private static final int FORMAT_VERSION = 1;
+    private static final String MANIFEST = "manifest.json";
+    private static final String ADMIN_IMPORT_ARGS = "import.args";
+    // Imported nodes carry this label and their exported id until their relationships are loaded
+    private static final String IMPORT_LABEL = "GraphImport";
+    private static final String IMPORT_INDEX = "graph_import_id";
+    private static final Pattern EXPORT_NAME = Pattern.compile("[A-Za-z0-9._-]+");
+    private static final int GZIP_BUFFER_BYTES = 1 << 16;
+
+    private final Driver driver;
+    private final Neo4jClient neo4jClient;
+    private final Neo4jMetrics neo4jMetrics;
+    private final DependencyGuards dependencyGuards;
+    private final GraphIndexes graphIndexes;
+    private final GraphTransferProperties properties;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final String database;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public GraphTransferService(Driver driver, Neo4jClient neo4jClient, Neo4jMetrics neo4jMetrics,
+                                DependencyGuards dependencyGuards, GraphIndexes graphIndexes,
+                                GraphTransferProperties properties, ObjectMapper objectMapper,
+                                MeterRegistry meterRegistry, @Value("${spring.data.neo4j.database:}") String database) {
+        this.driver = driver;
+        this.neo4jClient = neo4jClient;
+        this.neo4jMetrics = neo4jMetrics;
+        this.dependencyGuards = dependencyGuards;
+        this.graphIndexes = graphIndexes;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.database = database;
+    }
+
+    /**
+     * Export the graph to {@code kg.transfer.directory/<name>}
+     *
+     * @return What was exported, or null if an export or import is already in progress
+     * @throws IllegalArgumentException If the name is not a plain file name
+     * @throws IllegalStateException    If an export with that name already exists
+     */
+    public GraphTransferReport export(String name) {
+        Path directory = directory(name);
+        if (Files.exists(directory)) {
+            throw new IllegalStateException("Export " + name + " already exists");
+        }
+        if (!running.compareAndSet(false, true)) {
+            log.info("A graph export or import is already running");
+            return null;
+        }
+        try {
+            long start = System.nanoTime();
+            Files.createDirectories(directory);
+            List<GraphExportManifest.File> nodeFiles = new ArrayList<>();
+            for (String label : names("CALL db.labels() YIELD label RETURN label AS name")) {
+                if (!IMPORT_LABEL.equals(label)) {
+                    nodeFiles.add(exportNodes(directory, label, nodeFiles.size()));
+                }
+            }
+            List<GraphExportManifest.File> relationshipFiles = new ArrayList<>();
+            for (String type : names("CALL db.relationshipTypes() YIELD relationshipType RETURN relationshipType AS name")) {
+                relationshipFiles.add(exportRelationships(directory, type, relationshipFiles.size()));
+            }
+            GraphExportManifest manifest = new GraphExportManifest(FORMAT_VERSION,
+                    OffsetDateTime.now(ZoneOffset.UTC).toString(), nodeFiles, relationshipFiles);
+            objectMapper.writerWithDefaultPrettyPrinter().writeValue(directory.resolve(MANIFEST).toFile(), manifest);
+            writeAdminImportArgs(directory, manifest);
+            return report("export", name, directory, manifest, System.nanoTime() - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to export the graph to " + directory, e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Load the export {@code kg.transfer.directory/<name>} into an empty database
+     *
+     * @return What was imported, or null if an export or import is already in progress
+     * @throws IllegalArgumentException If there is no such export
+     * @throws IllegalStateException    If the database already holds nodes
+     */
+    public GraphTransferReport importGraph(String name) {
+        Path directory = directory(name);
+        if (!Files.isRegularFile(directory.resolve(MANIFEST))) {
+            throw new IllegalArgumentException("No export named " + name);
+        }
+        if (!running.compareAndSet(false, true)) {
+            log.info("A graph export or import is already running");
+            return null;
+        }
+        try {
+            long start = System.nanoTime();
+            GraphExportManifest manifest = objectMapper.readValue(directory.resolve(MANIFEST).toFile(),
+                    GraphExportManifest.class);
+            if (countNodes() > 0) {
+                throw new IllegalStateException("The database already holds nodes, import only into an empty one");
+            }
+            run("kg.import.index", "CREATE RANGE INDEX " + IMPORT_INDEX + " IF NOT EXISTS FOR (n:" + IMPORT_LABEL
+                    + ") ON (n.importId)");
+            run("kg.import.index", "CALL db.awaitIndex('" + IMPORT_INDEX + "', 300)");
+            try {
+                for (GraphExportManifest.File file : manifest.nodes()) {
+                    importNodes(directory, file);
+                }
+                for (GraphExportManifest.File file : manifest.relationships()) {
+                    importRelationships(directory, file);
+                }
+            } finally {
+                removeImportIds();
+            }
+            graphIndexes.ensureNodeIdIndexes(manifest.nodes().stream().map(GraphExportManifest.File::name).toList());
+            graphIndexes.ensureMessageTimeIndexes(manifest.relationships().stream()
+                    .map(GraphExportManifest.File::name).toList());
+            return report("import", name, directory, manifest, System.nanoTime() - start);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to import the graph from " + directory, e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private GraphExportManifest.File exportNodes(Path directory, String label, int index) throws IOException {
+        String match = "MATCH (n:" + GraphVocabulary.quote(label) + ") WHERE labels(n)[0] = $label ";
+        List<String> keys = names(match + "UNWIND keys(n) AS key RETURN DISTINCT key AS name ORDER BY name", label);
+        String prefix = String.format("nodes-%03d", index);
+        Map<String, String> types = new HashMap<>();
+        long rows = stream("kg.export.nodes", match + "RETURN elementId(n) AS id, labels(n) AS labels, "
+                        + "properties(n) AS properties", Map.of("label", label), directory.resolve(prefix + ".csv.gz"),
+                record -> {
+                    List<String> fields = new ArrayList<>(keys.size() + 2);
+                    fields.add(record.get("id").asString());
+                    fields.add(String.join(";", record.get("labels").asList(value -> value.asString())));
+                    addProperties(fields, keys, record.get("properties").asMap(), types);
+                    return fields;
+                });
+        List<String> header = new ArrayList<>(List.of(":ID", ":LABEL"));
+        keys.forEach(key -> header.add(column(key, types)));
+        writeHeader(directory.resolve(prefix + "-header.csv"), header);
+        log.info("Exported {} {} nodes", rows, label);
+        return new GraphExportManifest.File(label, prefix + "-header.csv", prefix + ".csv.gz", rows);
+    }
+
+    private GraphExportManifest.File exportRelationships(Path directory, String type, int index) throws IOException {
+        String match = "MATCH (a)-[r:" + GraphVocabulary.quote(type) + "]->(b) ";
+        List<String> keys = names(match + "UNWIND keys(r) AS key RETURN DISTINCT key AS name ORDER BY name");
+        String prefix = String.format("relationships-%03d", index);
+        Map<String, String> types = new HashMap<>();
+        long rows = stream("kg.export.relationships", match + "RETURN elementId(a) AS start, elementId(b) AS end, "
+                        + "properties(r) AS properties", Map.of(), directory.resolve(prefix + ".csv.gz"),
+                record -> {
+                    List<String> fields = new ArrayList<>(keys.size() + 3);
+                    fields.add(record.get("start").asString());
+                    fields.add(record.get("end").asString());
+                    fields.add(type);
+                    addProperties(fields, keys, record.get("properties").asMap(), types);
+                    return fields;
+                });
+        List<String> header = new ArrayList<>(List.of(":START_ID", ":END_ID", ":TYPE"));
+        keys.forEach(key -> header.add(column(key, types)));
+        writeHeader(directory.resolve(prefix + "-header.csv"), header);
+        log.info("Exported {} {} relationships", rows, type);
+        return new GraphExportManifest.File(type, prefix + "-header.csv", prefix + ".csv.gz", rows);
+    }
+
+    /**
+     * Stream a query's records into a gzipped CSV file. The driver fetches records in batches as they are
+     * written, so the export never holds more than one batch in memory.
+     *
+     * @return Rows written
+     */
+    private long stream(String operation, String query, Map<String, Object> parameters, Path file,
+                        Function<Record, List<String>> row) {
+        return dependencyGuards.getNeo4j().call(() -> neo4jMetrics.read(operation, () -> {
+            long rows = 0;
+            try (Session session = driver.session(sessionConfig());
+                 Writer writer = gzipWriter(file)) {
+                Result result = session.run(query, parameters);
+                while (result.hasNext()) {
+                    GraphCsv.writeRow(writer, row.apply(result.next()));
+                    rows++;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return rows;
+        }, rows -> (int) Math.min(rows, Integer.MAX_VALUE)));
+    }
+
+    private void importNodes(Path directory, GraphExportManifest.File file) throws IOException {
+        List<Column> columns = readHeader(directory.resolve(file.header()));
+        long rows = readRows(directory.resolve(file.data()), columns, batch -> {
+            // A batch mostly shares one set of labels, labels cannot be parameters
+            Map<List<String>, List<Map<String, Object>>> byLabels = new LinkedHashMap<>();
+            for (Map<String, Object> node : batch) {
+                @SuppressWarnings("unchecked")
+                List<String> labels = (List<String>) node.remove("labels");
+                byLabels.computeIfAbsent(labels, ignored -> new ArrayList<>()).add(node);
+            }
+            byLabels.forEach((labels, nodes) -> write("kg.import.nodes",
+                    "UNWIND $rows AS row CREATE (n:" + IMPORT_LABEL
+                            + labels.stream().map(label -> ":" + GraphVocabulary.quote(label)).collect(Collectors.joining())
+                            + " {importId: row.id}) SET n += row.properties", nodes));
+        });
+        log.info("Imported {} {} nodes", rows, file.name());
+    }
+
+    private void importRelationships(Path directory, GraphExportManifest.File file) throws IOException {
+        List<Column> columns = readHeader(directory.resolve(file.header()));
+        String statement = "UNWIND $rows AS row "
+                + "MATCH (a:" + IMPORT_LABEL + " {importId: row.start}) "
+                + "MATCH (b:" + IMPORT_LABEL + " {importId: row.end}) "
+                + "CREATE (a)-[r:" + GraphVocabulary.quote(file.name()) + "]->(b) SET r += row.properties";
+        long rows = readRows(directory.resolve(file.data()), columns,
+                batch -> write("kg.import.relationships", statement, batch));
+        log.info("Imported {} {} relationships", rows, file.name());
+    }
+
+    /**
+     * Read a data file and hand its rows to the consumer in batches of {@code kg.transfer.batch-size}, each row
+     * a map of {@code id}, {@code labels}, {@code start} and {@code end} as present plus {@code properties}
+     *
+     * @return Rows read
+     */
+    private long readRows(Path file, List<Column> columns,
+                          Consumer<List<Map<String, Object>>> consumer) throws IOException {
+        long rows = 0;
+        List<Map<String, Object>> batch = new ArrayList<>(properties.batchSize());
+        try (Reader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file), GZIP_BUFFER_BYTES), StandardCharsets.UTF_8))) {
+            for (List<String> fields = GraphCsv.readRow(reader); fields != null; fields = GraphCsv.readRow(reader)) {
+                batch.add(toRow(columns, fields));
+                rows++;
+                if (batch.size() >= properties.batchSize()) {
+                    consumer.accept(batch);
+                    batch = new ArrayList<>(properties.batchSize());
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            consumer.accept(batch);
+        }
+        return rows;
+    }
+
+    private static Map<String, Object> toRow(List<Column> columns, List<String> fields) {
+        Map<String, Object> row = new HashMap<>();
+        Map<String, Object> rowProperties = new HashMap<>();
+        for (int i = 0; i < columns.size() && i < fields.size(); i++) {
+            Column column = columns.get(i);
+            String field = fields.get(i);
+            switch (column.name()) {
+                case ":ID" -> row.put("id", field);
+                case ":LABEL" -> row.put("labels", field == null ? List.of() : List.of(field.split(";")));
+                case ":START_ID" -> row.put("start", field);
+                case ":END_ID" -> row.put("end", field);
+                case ":TYPE" -> {
+                    // One type per file, taken from the manifest
+                }
+                default -> {
+                    Object value = GraphCsv.parse(field, column.type());
+                    if (value != null) {
+                        rowProperties.put(column.name(), value);
+                    }
+                }
+            }
+        }
+        row.put("properties", rowProperties);
+        return row;
+    }
+
+    /**
+     * Take the import label and ids off the imported nodes, a batch per transaction
+     */
+    private void removeImportIds() {
+        long removed;
+        do {
+            removed = dependencyGuards.getNeo4j().call(() -> neo4jMetrics.read("kg.import.cleanup", () -> neo4jClient
+                    .query("MATCH (n:" + IMPORT_LABEL + ") WITH n LIMIT $batchSize "
+                            + "REMOVE n:" + IMPORT_LABEL + " REMOVE n.importId RETURN count(*) AS changed")
+                    .bind(properties.batchSize()).to("batchSize")
+                    .fetchAs(Long.class)
+                    .mappedBy((typeSystem, record) -> record.get("changed").asLong())
+                    .one()
+                    .orElse(0L), changed -> 1));
+        } while (removed > 0);
+        run("kg.import.index", "DROP INDEX " + IMPORT_INDEX + " IF EXISTS");
+    }
+
+    private void write(String operation, String statement, List<Map<String, Object>> rows) {
+        dependencyGuards.getNeo4j().call(() -> neo4jMetrics.write(operation, () -> neo4jClient.query(statement)
+                .bind(rows).to("rows")
+                .run()));
+    }
+
+    private void run(String operation, String statement) {
+        dependencyGuards.getNeo4j().call(() -> neo4jMetrics.write(operation, () -> neo4jClient.query(statement).run()));
+    }
+
+    private long countNodes() {
+        return dependencyGuards.getNeo4j().call(() -> neo4jMetrics.read("kg.import.count", () -> neo4jClient
+                .query("MATCH (n) RETURN count(n) AS nodes")
+                .fetchAs(Long.class)
+                .mappedBy((typeSystem, record) -> record.get("nodes").asLong())
+                .one()
+                .orElse(0L), nodes -> 1));
+    }
+
+    private List<String> names(String query) {
+        return names(query, null);
+    }
+
+    private List<String> names(String query, String label) {
+        return dependencyGuards.getNeo4j().call(() -> neo4jMetrics.read("kg.export.schema", () -> new ArrayList<>(
+                neo4jClient.query(query)
+                        .bindAll(label == null ? Map.of() : Map.of("label", label))
+                        .fetchAs(String.class)
+                        .mappedBy((typeSystem, record) -> record.get("name").asString())
+                        .all()), List::size));
+    }
+
+    /**
+     * Add the row's property fields in column order and widen a column's type to string when its values disagree
+     */
+    private static void addProperties(List<String> fields, List<String> keys, Map<String, Object> values,
+                                      Map<String, String> types) {
+        for (String key : keys) {
+            Object value = values.get(key);
+            if (value != null) {
+                types.merge(key, GraphCsv.typeOf(value), (known, type) -> known.equals(type) ? known : GraphCsv.STRING);
+            }
+            fields.add(GraphCsv.format(value));
+        }
+    }
+
+    private static String column(String key, Map<String, String> types) {
+        return key + ":" + types.getOrDefault(key, GraphCsv.STRING);
+    }
+
+    private static void writeHeader(Path file, List<String> header) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            GraphCsv.writeRow(writer, header);
+        }
+    }
+
+    private static List<Column> readHeader(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            List<String> header = GraphCsv.readRow(reader);
+            if (header == null) {
+                throw new IOException("Empty header file " + file);
+            }
+            return header.stream()
+                    .map(column -> {
+                        int separator = column.lastIndexOf(':');
+                        return separator <= 0
+                                ? new Column(column, GraphCsv.STRING)
+                                : new Column(column.substring(0, separator), column.substring(separator + 1));
+                    })
+                    .toList();
+        }
+    }
+
+    /**
+     * Arguments of {@code neo4j-admin database import full @import.args <database>}, run from the export
+     * directory, for restores too large for an online import
+     */
+    private static void writeAdminImportArgs(Path directory, GraphExportManifest manifest) throws IOException {
+        List<String> arguments = new ArrayList<>();
+        manifest.nodes().forEach(file -> arguments.add("--nodes=" + file.header() + "," + file.data()));
+        manifest.relationships().forEach(file -> arguments.add("--relationships=" + file.header() + "," + file.data()));
+        arguments.add("--array-delimiter=;");
+        arguments.add("--multiline-fields=true");
+        arguments.add("--id-type=string");
+        Files.write(directory.resolve(ADMIN_IMPORT_ARGS), arguments, StandardCharsets.UTF_8);
+    }
+
+    private GraphTransferReport report(String direction, String name, Path directory, GraphExportManifest manifest,
+                                       long durationNanos) throws IOException {
+        long nodes = manifest.nodes().stream().mapToLong(GraphExportManifest.File::rows).sum();
+        long relationships = manifest.relationships().stream().mapToLong(GraphExportManifest.File::rows).sum();
+        long bytes;
+        try (Stream<Path> files = Files.list(directory)) {
+            bytes = files.mapToLong(file -> file.toFile().length()).sum();
+        }
+        long durationMs = Math.max(TimeUnit.NANOSECONDS.toMillis(durationNanos), 1);
+        GraphTransferReport report = new GraphTransferReport(name, nodes, relationships,
+                manifest.nodes().size() + manifest.relationships().size(), bytes, durationMs,
+                nodes * 1000 / durationMs, relationships * 1000 / durationMs);
+        Timer.builder("kg.transfer")
+                .description("Duration of graph exports and imports")
+                .tag("direction", direction)
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+        log.info("Graph {} {} finished in {} ms: {} nodes ({}/s), {} relationships ({}/s), {} bytes", direction, name,
+                durationMs, nodes, report.nodesPerSecond(), relationships, report.relationshipsPerSecond(), bytes);
+        return report;
+    }
+
+    private Path directory(String name) {
+        if (name == null || !EXPORT_NAME.matcher(name).matches() || name.startsWith(".")) {
+            throw new IllegalArgumentException("Export names may only contain letters, digits, '.', '_' and '-'");
+        }
+        return properties.directory().resolve(name);
+    }
+
+    private SessionConfig sessionConfig() {
+        return database.isBlank() ? SessionConfig.defaultConfig() : SessionConfig.forDatabase(database);
+    }
+
+    private static Writer gzipWriter(Path file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(
+                new GZIPOutputStream(Files.newOutputStream(file), GZIP_BUFFER_BYTES), StandardCharsets.UTF_8));
+    }
+
+    private record Column(String name, String type) {
+    }
+}
@@ -0,0 +1,80 @@
+package com.discord.bot.feature_knowledge_graph.service;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Canonical names for node labels and relationship types. Names are first brought into the extraction prompt's
+ * casing, PascalCase labels and UPPER_SNAKE_CASE types, so {@code color_preference} and {@code colorPreference}
+ * both become {@code ColorPreference}, then mapped through the configured aliases.
+ */
+public class GraphVocabulary {
+    // Word boundaries: any run of non-alphanumerics, or a lower case letter or digit followed by an upper case one
+    private static final Pattern WORD_BOUNDARY = Pattern.compile("[^A-Za-z0-9]+|(?<=[a-z0-9])(?=[A-Z])");
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z][A-Za-z0-9_]*");
+
+    private final Map<String, String> labelAliases = new HashMap<>();
+    private final Map<String, String> relationshipTypeAliases = new HashMap<>();
+
+    public GraphVocabulary(Map<String, String> labelAliases, Map<String, String> relationshipTypeAliases) {
+        labelAliases.forEach((alias, canonical) ->
+                this.labelAliases.put(pascalCase(alias), pascalCase(requireIdentifier(canonical))));
+        relationshipTypeAliases.forEach((alias, canonical) ->
+                this.relationshipTypeAliases.put(upperSnakeCase(alias), upperSnakeCase(requireIdentifier(canonical))));
+    }
+
+    /**
+     * @return The canonical label, or null if the label has no letters or digits to build one from
+     */
+    public String canonicalLabel(String label) {
+        String normalized = pascalCase(label);
+        return normalized.isEmpty() ? null : labelAliases.getOrDefault(normalized, normalized);
+    }
+
+    /**
+     * @return The canonical relationship type, or null if the type has no letters or digits to build one from
+     */
+    public String canonicalRelationshipType(String type) {
+        String normalized = upperSnakeCase(type);
+        return normalized.isEmpty() ? null : relationshipTypeAliases.getOrDefault(normalized, normalized);
+    }
+
+    /**
+     * Quote a label or relationship type for use in Cypher, which cannot take them as parameters
+     */
+    public static String quote(String name) {
+        return "`" + name.replace("`", "``") + "`";
+    }
+
+    private static String pascalCase(String name) {
+        StringBuilder result = new StringBuilder(name.length());
+        for (String word : WORD_BOUNDARY.split(name)) {
+            if (!word.isEmpty()) {
+                result.append(Character.toUpperCase(word.charAt(0))).append(word.substring(1).toLowerCase(Locale.ROOT));
+            }
+        }
+        return result.toString();
+    }
+
+    private static String upperSnakeCase(String name) {
+        StringBuilder result = new StringBuilder(name.length() + 4);
+        for (String word : WORD_BOUNDARY.split(name)) {
+            if (!word.isEmpty()) {
+                if (!result.isEmpty()) {
+                    result.append('_');
+                }
+                result.append(word.toUpperCase(Locale.ROOT));
+            }
+        }
+        return result.toString();
+    }
+
+    private static String requireIdentifier(String name) {
+        if (name == null || !IDENTIFIER.matcher(name).matches()) {
+            throw new IllegalArgumentException("Not a valid canonical label or relationship type: " + name);
+        }
+        return name;
+    }
+}
@@ -3,19 +3,41 @@ package com.discord.bot.feature_knowledge_graph.service;
 import com.discord.bot.feature_knowledge_graph.agent.ChatToGraphAgent;
 import com.discord.bot.feature_knowledge_graph.agent.FriendlyAnswerAgent;
 import com.discord.bot.feature_knowledge_graph.agent.GraphToCypherQueryAgent;
+import com.discord.bot.feature_knowledge_graph.domain.ChatLine;
+import com.discord.bot.feature_knowledge_graph.domain.ExtractedGraph;
+import com.discord.bot.feature_knowledge_graph.domain.FactSource;
+import com.discord.bot.feature_knowledge_graph.domain.GraphNode;
+import com.discord.bot.feature_knowledge_graph.domain.GraphRelationship;
 import com.discord.bot.feature_knowledge_graph.domain.GraphResult;
-import dev.langchain4j.community.rag.content.retriever.neo4j.Neo4jText2CypherRetriever;
+import com.discord.bot.feature_knowledge_graph.domain.QueryScope;
+import com.discord.bot.observability.Neo4jMetrics;
+import com.discord.bot.resilience.DependencyGuards;
+import com.discord.bot.resilience.DependencyUnavailableException;
 import dev.langchain4j.exception.RateLimitException;
-import dev.langchain4j.rag.content.Content;
-import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.service.output.OutputParsingException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.summary.ResultSummary;
 import org.springframework.data.neo4j.core.Neo4jClient;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.lang.reflect.UndeclaredThrowableException;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -23,14 +45,51 @@ import java.util.List;
 public class KGService {
     private static final int MAX_RETRIES = 3;
     private static final long RETRY_DELAY_MS = 2000; // 1 second
+    // Facts handed to the answer agent for a time-bounded question
+    private static final int TIME_BOUNDED_FACT_LIMIT = 100;
 
     private final ChatToGraphAgent chatToGraphAgent;
     private final GraphToCypherQueryAgent graphToCypherQueryAgent;
     private final Neo4jClient neo4jClient;
-    private final Neo4jText2CypherRetriever neo4jText2CypherRetriever;
+    private final ScopedGraphRetriever scopedGraphRetriever;
     private final FriendlyAnswerAgent friendlyAnswerAgent;
+    private final Neo4jMetrics neo4jMetrics;
+    private final DependencyGuards dependencyGuards;
+    private final GraphIndexes graphIndexes;
+    private final ReactiveGraphStore reactiveGraphStore;
+    private final MeterRegistry meterRegistry;
 
-    public List<String> getJsonGraph(final List<String> messages) {
+    private Counter extractionRetries;
+    private Counter extractionParseFailures;
+    private Counter extractedMessages;
+
+    @PostConstruct
+    public void registerMeters() {
+        extractionRetries = Counter.builder("llm.retries")
+                .description("LLM calls repeated after a rate limit or on the next model endpoint")
+                .tag("agent", "chat-to-graph")
+                .tag("reason", "rate_limited")
+                .register(meterRegistry);
+        extractionParseFailures = Counter.builder("llm.parse.failures")
+                .description("LLM answers that could not be parsed into the agent's result")
+                .tag("agent", "chat-to-graph")
+                .register(meterRegistry);
+        // Divide llm.tokens by this for tokens per ingested message
+        extractedMessages = Counter.builder("kg.messages.extracted")
+                .description("Chat lines sent to graph extraction")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Extract the facts stated in a batch of chat lines and convert them to Cypher. Lines are numbered for the
+     * extraction agent, which names the line behind each relationship, so every fact keeps its source message.
+     * Node ids are scoped to the lines' guild before the conversion, so guilds never share a node.
+     */
+    public ExtractedGraph extractGraph(final List<ChatLine> lines) {
+        final List<String> messages = IntStream.range(0, lines.size())
+                .mapToObj(i -> "#" + (i + 1) + " " + lines.get(i).text())
+                .toList();
+        extractedMessages.increment(messages.size());
         GraphResult graphResult = null;
         int retryCount = 0;
 
@@ -44,6 +103,7 @@ public class KGService {
                     log.error("Rate limit exceeded after {} retries. Giving up.", MAX_RETRIES, e);
                     throw new RuntimeException("Rate limit exceeded. Please try again later.", e);
                 }
+                extractionRetries.increment();
                 log.warn("Rate limit exceeded. Retrying in {}ms (attempt {}/{})", RETRY_DELAY_MS, retryCount, MAX_RETRIES);
                 try {
                     Thread.sleep(RETRY_DELAY_MS);
@@ -51,6 +111,13 @@ public class KGService {
                     Thread.currentThread().interrupt();
                     throw new RuntimeException("Retry interrupted", ie);
                 }
+            } catch (DependencyUnavailableException e) {
+                // Retrying would only wait out the breaker on the ingestion thread
+                throw e;
+            } catch (OutputParsingException e) {
+                extractionParseFailures.increment();
+                log.error("Could not parse extracted graph", e);
+                throw new RuntimeException("Failed to extract graph JSON", e);
             } catch (Exception e) {
                 // For non-rate-limit exceptions, don't retry
                 log.error("Error extracting graph JSON", e);
@@ -62,28 +129,228 @@ public class KGService {
             throw new RuntimeException("Failed to extract graph JSON after retries");
         }
 
-        return graphToCypherQueryAgent.convertJsonGraphToCypherCommands(graphResult);
+        final String guildId = lines.getFirst().guildId();
+        final GraphResult scoped = GraphScope.scope(graphResult, guildId);
+        return new ExtractedGraph(guildId, graphToCypherQueryAgent.convertJsonGraphToCypherCommands(scoped),
+                nodeIds(scoped), factSources(scoped, lines));
+    }
+
+    /**
+     * Create the range indexes the graph's facts are written and read through. Call before
+     * {@link #createKNGraph(ExtractedGraph)}, as index creation cannot share its transaction.
+     */
+    public void ensureIndexes(final ExtractedGraph graph) {
+        graphIndexes.ensureNodeIdIndexes(Stream.concat(graph.nodeIds().keySet().stream(), graph.facts().stream()
+                        .flatMap(fact -> Stream.of(fact.sourceLabel(), fact.targetLabel())))
+                .collect(Collectors.toSet()));
+        graphIndexes.ensureMessageTimeIndexes(graph.facts().stream()
+                .map(FactSource::type)
+                .collect(Collectors.toSet()));
+    }
+
+    /**
+     * Answer a question from the asking guild's part of the graph
+     *
+     * @param period Only use facts from messages written within this period before now, or null for all facts
+     * @param scope  Guild, and optionally member, whose facts answer the question
+     * @throws DependencyUnavailableException If the LLM or Neo4j circuit breaker is open
+     */
+    public String searchAnswerFromGraph(final String question, final String userName, final Duration period,
+                                        final QueryScope scope) {
+        // Both are needed, so fail before spending an LLM call if either is known to be down
+        dependencyGuards.getLlm().checkAvailable();
+        dependencyGuards.getNeo4j().checkAvailable();
+        if (period != null) {
+            final OffsetDateTime to = OffsetDateTime.now(ZoneOffset.UTC);
+            final List<String> facts = findFactsBetween(scope, to.minus(period), to, TIME_BOUNDED_FACT_LIMIT);
+            return friendlyAnswerAgent.formatAnswer(question, String.join("\n", facts), userName);
+        }
+        List<String> rows;
+        try {
+            rows = scopedGraphRetriever.retrieve(question, scope);
+        } catch (IllegalArgumentException e) {
+            // Never run unscoped, answer as if nothing was found
+            log.warn("Generated query for \"{}\" could not be scoped: {}", question, e.getMessage());
+            rows = List.of();
+        }
+        return friendlyAnswerAgent.formatAnswer(question, String.join("\n", rows), userName);
+    }
+
+    /**
+     * Facts of the scope from messages written in {@code [from, to)}, newest first. Each relationship type is read
+     * through its {@value GraphScope#GUILD_ID} and {@value GraphIndexes#MESSAGE_TS} index, so the cost follows the
+     * guild's facts in the period, not the graph size.
+     */
+    public List<String> findFactsBetween(final QueryScope scope, final OffsetDateTime from, final OffsetDateTime to,
+                                         final int limit) {
+        final List<String> types = graphIndexes.messageTimeIndexedTypes();
+        if (types.isEmpty()) {
+            return List.of();
+        }
+        if (reactiveGraphStore.isEnabled()) {
+            // Served by a read session, which a cluster routes to its read replicas
+            return reactiveGraphStore.findFactsBetween(types, scope, from, to, limit).block();
+        }
+        return dependencyGuards.getNeo4j().call(() -> neo4jMetrics.read("kg.facts.between", () -> new ArrayList<>(neo4jClient
+                        .query(factsBetweenQuery(types, scope.authorId() != null))
+                        .bindAll(factsBetweenParameters(scope, from, to, limit))
+                        .fetchAs(String.class)
+                        .mappedBy((typeSystem, record) -> describeFact(record))
+                        .all()), List::size));
+    }
+
+    static String factsBetweenQuery(final List<String> types, final boolean byAuthor) {
+        final String author = byAuthor ? "AND r." + GraphScope.AUTHOR_ID + " = $" + GraphScope.AUTHOR_ID + " " : "";
+        final String perType = types.stream()
+                .map(type -> "MATCH (a)-[r:" + GraphVocabulary.quote(type) + "]->(b) "
+                        + "WHERE r." + GraphScope.GUILD_ID + " = $" + GraphScope.GUILD_ID + " "
+                        + "AND r.messageTs >= $from AND r.messageTs < $to " + author
+                        + "RETURN a, r, b ORDER BY r.messageTs DESC LIMIT $limit")
+                .collect(Collectors.joining(" UNION ALL "));
+        return "CALL { " + perType + " } "
+                + "RETURN labels(a)[0] AS sourceLabel, properties(a) AS source, type(r) AS type, "
+                + "labels(b)[0] AS targetLabel, properties(b) AS target, r.messageTs AS at, "
+                + "r.channelId AS channelId "
+                + "ORDER BY at DESC LIMIT $limit";
     }
 
-    public String searchAnswerFromGraph(final String question, final String userName) {
-        Query query = new Query(question);
-        List<Content> contents = neo4jText2CypherRetriever
-                .retrieve(query);
-        return friendlyAnswerAgent.formatAnswer(question, contents.toString(), userName);
+    static Map<String, Object> factsBetweenParameters(final QueryScope scope, final OffsetDateTime from,
+                                                      final OffsetDateTime to, final int limit) {
+        final Map<String, Object> parameters = new HashMap<>();
+        parameters.put(GraphScope.GUILD_ID, scope.guildId());
+        parameters.put(GraphScope.AUTHOR_ID, scope.authorId());
+        parameters.put("from", from);
+        parameters.put("to", to);
+        parameters.put("limit", limit);
+        return parameters;
+    }
+
+    static String describeFact(final Record record) {
+        return record.get("sourceLabel").asString("?")
+                + " " + withoutId(record.get("source").asMap())
+                + " " + record.get("type").asString()
+                + " " + record.get("targetLabel").asString("?")
+                + " " + withoutId(record.get("target").asMap())
+                + " (said " + record.get("at").asZonedDateTime() + " in channel "
+                + record.get("channelId").asString("?") + ")";
     }
 
     @Transactional
-    public void createKNGraph(final List<String> cypherCommands) {
+    public void createKNGraph(final ExtractedGraph graph) {
         try {
             // Implementation to create knowledge graph in the database using cypher commands
-            for (String command : cypherCommands) {
+            for (String command : graph.cypherCommands()) {
                 log.info("Executing Cypher Command: {}", command);
                 // Execute command against the graph database
-                neo4jClient.query(command)
-                        .run();  // you can fetch result if needed
+                dependencyGuards.getNeo4j().call(() -> neo4jMetrics.write("kg.write", () -> neo4jClient.query(command).run()));
+            }
+            for (Map.Entry<String, List<String>> nodes : graph.nodeIds().entrySet()) {
+                dependencyGuards.getNeo4j().call(() -> neo4jMetrics.write("kg.write.scope", () -> neo4jClient
+                        .query(scopeNodesQuery(nodes.getKey()))
+                        .bindAll(scopeNodesParameters(graph.guildId(), nodes.getValue()))
+                        .run()));
             }
+            for (FactSource fact : graph.facts()) {
+                dependencyGuards.getNeo4j().call(() -> recordSource(graph.guildId(), fact));
+            }
+        } catch (DependencyUnavailableException e) {
+            throw e;
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
+
+    /**
+     * Stamp a fact's relationship with its guild and the message stating it, creating the relationship if the
+     * generated Cypher missed it. A fact stated again keeps the latest message, which is what ageing facts out
+     * goes by.
+     */
+    private ResultSummary recordSource(final String guildId, final FactSource fact) {
+        return neo4jMetrics.write("kg.write.source", () -> neo4jClient.query(recordSourceQuery(fact))
+                .bindAll(recordSourceParameters(guildId, fact))
+                .run());
+    }
+
+    /**
+     * Stamp the batch's nodes of one label with their guild, whether or not the generated Cypher set it
+     */
+    static String scopeNodesQuery(final String label) {
+        return "UNWIND $ids AS id MATCH (n:" + GraphVocabulary.quote(label) + " {id: id}) "
+                + "SET n." + GraphScope.GUILD_ID + " = $" + GraphScope.GUILD_ID;
+    }
+
+    static Map<String, Object> scopeNodesParameters(final String guildId, final List<String> ids) {
+        return Map.of("ids", ids, GraphScope.GUILD_ID, guildId);
+    }
+
+    static String recordSourceQuery(final FactSource fact) {
+        return "MATCH (a:" + GraphVocabulary.quote(fact.sourceLabel()) + " {id: $source}), "
+                + "(b:" + GraphVocabulary.quote(fact.targetLabel()) + " {id: $target}) "
+                + "MERGE (a)-[r:" + GraphVocabulary.quote(fact.type()) + "]->(b) "
+                + "SET r." + GraphScope.GUILD_ID + " = $" + GraphScope.GUILD_ID + " "
+                + "SET r += CASE WHEN $messageTs IS NOT NULL AND (r.messageTs IS NULL OR r.messageTs < $messageTs) "
+                + "THEN {messageId: $messageId, channelId: $channelId, authorId: $authorId, messageTs: $messageTs} "
+                + "ELSE {} END";
+    }
+
+    static Map<String, Object> recordSourceParameters(final String guildId, final FactSource fact) {
+        final ChatLine line = fact.line();
+        // Relationships without a source line only get their guild
+        final Map<String, Object> parameters = new HashMap<>();
+        parameters.put("source", fact.sourceId());
+        parameters.put("target", fact.targetId());
+        parameters.put(GraphScope.GUILD_ID, guildId);
+        parameters.put("messageId", line == null ? null : line.messageId());
+        parameters.put("channelId", line == null ? null : line.channelId());
+        parameters.put(GraphScope.AUTHOR_ID, line == null ? null : line.authorId());
+        parameters.put("messageTs", line == null ? null : line.timestamp());
+        return parameters;
+    }
+
+    /**
+     * Ids of the graph's nodes per label
+     */
+    private static Map<String, List<String>> nodeIds(final GraphResult graph) {
+        if (graph.nodes() == null) {
+            return Map.of();
+        }
+        final Map<String, List<String>> ids = new LinkedHashMap<>();
+        for (GraphNode node : graph.nodes()) {
+            if (node.id() != null && node.label() != null) {
+                ids.computeIfAbsent(node.label(), label -> new ArrayList<>()).add(node.id());
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Relationships between nodes of the graph, with the labels of both ends and the chat line stating them.
+     * Relationships naming no existing line are kept without one, so they are still scoped to the guild.
+     */
+    private static List<FactSource> factSources(final GraphResult graph, final List<ChatLine> lines) {
+        if (graph.relationships() == null || graph.nodes() == null) {
+            return List.of();
+        }
+        final Map<String, String> labels = new HashMap<>();
+        graph.nodes().forEach(node -> labels.put(node.id(), node.label()));
+        final List<FactSource> facts = new ArrayList<>(graph.relationships().size());
+        for (GraphRelationship relationship : graph.relationships()) {
+            final Integer line = relationship.line();
+            final String sourceLabel = labels.get(relationship.source());
+            final String targetLabel = labels.get(relationship.target());
+            if (sourceLabel == null || targetLabel == null || relationship.label() == null) {
+                continue;
+            }
+            final boolean sourced = line != null && line >= 1 && line <= lines.size();
+            facts.add(new FactSource(sourceLabel, relationship.source(), relationship.label(), targetLabel,
+                    relationship.target(), sourced ? lines.get(line - 1) : null));
+        }
+        return facts;
+    }
+
+    private static Map<String, Object> withoutId(final Map<String, Object> properties) {
+        final Map<String, Object> shown = new HashMap<>(properties);
+        shown.remove("id");
+        return shown;
+    }
 }
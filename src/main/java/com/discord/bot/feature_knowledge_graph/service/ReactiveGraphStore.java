@@ -0,0 +1,159 @@
+package com.discord.bot.feature_knowledge_graph.service;
+
+import com.discord.bot.feature_knowledge_graph.domain.ExtractedGraph;
+import com.discord.bot.feature_knowledge_graph.domain.FactSource;
+import com.discord.bot.feature_knowledge_graph.domain.QueryScope;
+import com.discord.bot.observability.Neo4jMetrics;
+import com.discord.bot.properties.ReactiveGraphProperties;
+import com.discord.bot.resilience.AsyncLimiter;
+import com.discord.bot.resilience.DependencyGuard;
+import com.discord.bot.resilience.DependencyGuards;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.neo4j.driver.AccessMode;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Query;
+import org.neo4j.driver.SessionConfig;
+import org.neo4j.driver.TransactionConfig;
+import org.neo4j.driver.reactivestreams.ReactiveSession;
+import org.neo4j.driver.reactivestreams.ReactiveTransactionContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Knowledge graph writes and time-bounded reads on the reactive driver, used instead of the blocking
+ * {@link org.springframework.data.neo4j.core.Neo4jClient} when {@code kg.reactive.enabled} is set. A write holds no
+ * thread while Neo4j works on it, so an ingestion worker extracts the next batch meanwhile. At most
+ * {@code kg.reactive.max-in-flight-transactions} writes run at once; the rest wait for a slot without a thread.
+ * Reads run in read sessions, which a cluster (a {@code neo4j://} URI) routes to its read replicas.
+ */
+@Component
+public class ReactiveGraphStore {
+    private final Driver driver;
+    private final Neo4jMetrics neo4jMetrics;
+    private final DependencyGuards dependencyGuards;
+    private final ReactiveGraphProperties properties;
+    private final String database;
+    private final AsyncLimiter writes;
+    private final TransactionConfig transactionConfig;
+
+    public ReactiveGraphStore(Driver driver, Neo4jMetrics neo4jMetrics, DependencyGuards dependencyGuards,
+                              ReactiveGraphProperties properties, MeterRegistry meterRegistry,
+                              @Value("${spring.data.neo4j.database:}") String database) {
+        this.driver = driver;
+        this.neo4jMetrics = neo4jMetrics;
+        this.dependencyGuards = dependencyGuards;
+        this.properties = properties;
+        this.database = database;
+        this.writes = new AsyncLimiter(properties.maxInFlightTransactions());
+        this.transactionConfig = TransactionConfig.builder()
+                .withTimeout(Duration.ofMillis(properties.transactionTimeoutMs()))
+                .build();
+        Gauge.builder("kg.reactive.writes.in.flight", writes, AsyncLimiter::getInUse)
+                .description("Reactive knowledge graph write transactions running")
+                .register(meterRegistry);
+        Gauge.builder("kg.reactive.writes.waiting", writes, AsyncLimiter::getWaiting)
+                .description("Reactive knowledge graph write transactions waiting for a slot")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return properties.enabled();
+    }
+
+    public int getMaxInFlightTransactions() {
+        return properties.maxInFlightTransactions();
+    }
+
+    /**
+     * Write a batch's Cypher, guild scope and fact sources in one write transaction, like
+     * {@link KGService#createKNGraph(ExtractedGraph)}. Statements are idempotent, so the driver may retry the
+     * transaction on transient errors.
+     *
+     * @return Completes when the transaction committed; fails with DependencyUnavailableException while the Neo4j
+     * circuit breaker is open
+     */
+    public Mono<Void> write(ExtractedGraph graph) {
+        List<Query> statements = new ArrayList<>(graph.cypherCommands().size() + graph.nodeIds().size()
+                + graph.facts().size());
+        graph.cypherCommands().forEach(command -> statements.add(new Query(command)));
+        graph.nodeIds().forEach((label, ids) -> statements.add(new Query(KGService.scopeNodesQuery(label),
+                KGService.scopeNodesParameters(graph.guildId(), ids))));
+        for (FactSource fact : graph.facts()) {
+            statements.add(new Query(KGService.recordSourceQuery(fact),
+                    KGService.recordSourceParameters(graph.guildId(), fact)));
+        }
+        return writes.limit(guarded("kg.write.reactive", inSession(AccessMode.WRITE,
+                session -> session.executeWrite(tx -> runAll(tx, statements), transactionConfig)), changes -> changes))
+                .then();
+    }
+
+    /**
+     * Reactive counterpart of {@link KGService#findFactsBetween(QueryScope, OffsetDateTime, OffsetDateTime, int)}
+     *
+     * @param types Relationship types with a guild and {@value GraphIndexes#MESSAGE_TS} index
+     */
+    public Mono<List<String>> findFactsBetween(List<String> types, QueryScope scope, OffsetDateTime from,
+                                               OffsetDateTime to, int limit) {
+        return guarded("kg.facts.between.reactive", inSession(AccessMode.READ,
+                session -> session.executeRead(tx -> Flux.from(tx.run(
+                                        KGService.factsBetweenQuery(types, scope.authorId() != null),
+                                        KGService.factsBetweenParameters(scope, from, to, limit)))
+                                .concatMap(result -> Flux.from(result.records()))
+                                .map(KGService::describeFact)
+                                .collectList(),
+                        transactionConfig)), List::size);
+    }
+
+    /**
+     * Run the statements one after another in the transaction, each result consumed before the next starts
+     *
+     * @return Nodes, relationships and properties changed
+     */
+    private static Mono<Integer> runAll(ReactiveTransactionContext tx, List<Query> statements) {
+        return Flux.fromIterable(statements)
+                .concatMap(statement -> Mono.from(tx.run(statement))
+                        .flatMap(result -> Mono.from(result.consume())))
+                .map(Neo4jMetrics::changes)
+                .reduce(0, Integer::sum);
+    }
+
+    private <T> Mono<T> inSession(AccessMode accessMode, Function<ReactiveSession, org.reactivestreams.Publisher<T>> work) {
+        SessionConfig.Builder config = SessionConfig.builder().withDefaultAccessMode(accessMode);
+        if (!database.isBlank()) {
+            config.withDatabase(database);
+        }
+        return Mono.usingWhen(Mono.fromSupplier(() -> driver.session(ReactiveSession.class, config.build())),
+                session -> Mono.from(work.apply(session)),
+                session -> Mono.from(session.close()));
+    }
+
+    /**
+     * Pass the Neo4j circuit breaker and record the outcome in neo4j.statement, as the blocking path does
+     */
+    private <T> Mono<T> guarded(String operation, Mono<T> work, ToIntFunction<T> rows) {
+        return Mono.defer(() -> {
+            DependencyGuard.Call call = dependencyGuards.getNeo4j().begin();
+            long start = System.nanoTime();
+            return work
+                    .doOnSuccess(result -> {
+                        call.succeeded();
+                        neo4jMetrics.recordSuccess(operation, start, result == null ? 0 : rows.applyAsInt(result));
+                    })
+                    .doOnError(e -> {
+                        call.failed(e);
+                        neo4jMetrics.recordFailure(operation, start);
+                    })
+                    .doOnCancel(call::abandoned);
+        });
+    }
+}
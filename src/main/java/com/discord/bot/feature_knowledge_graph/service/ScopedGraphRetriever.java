@@ -0,0 +1,140 @@
+package com.discord.bot.feature_knowledge_graph.service;
+
+import com.discord.bot.feature_knowledge_graph.agent.QuestionToCypherAgent;
+import com.discord.bot.feature_knowledge_graph.domain.QueryScope;
+import com.discord.bot.observability.Neo4jMetrics;
+import com.discord.bot.resilience.DependencyGuards;
+import lombok.extern.slf4j.Slf4j;
+import org.neo4j.driver.AccessMode;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.SessionConfig;
+import org.neo4j.driver.TransactionConfig;
+import org.neo4j.driver.types.Entity;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Answers questions from one guild's part of the graph: the LLM writes a read query from the question and the
+ * graph's schema, {@link GraphScope} confines it to the guild (and optionally one author's facts), and it runs in a
+ * read transaction with a timeout. With the {@value GraphScope#GUILD_ID} indexes each node pattern starts from,
+ * a query's cost follows the guild's data rather than the whole deployment's.
+ */
+@Slf4j
+@Component
+public class ScopedGraphRetriever {
+    // Rows handed to the answer agent
+    private static final int MAX_ROWS = 25;
+    private static final Duration QUERY_TIMEOUT = Duration.ofSeconds(10);
+    private static final long SCHEMA_TTL_NANOS = Duration.ofMinutes(10).toNanos();
+
+    private final QuestionToCypherAgent questionToCypherAgent;
+    private final Driver driver;
+    private final Neo4jClient neo4jClient;
+    private final Neo4jMetrics neo4jMetrics;
+    private final DependencyGuards dependencyGuards;
+    private final String database;
+    private final TransactionConfig transactionConfig = TransactionConfig.builder()
+            .withTimeout(QUERY_TIMEOUT)
+            .build();
+
+    private volatile String schema;
+    private volatile long schemaLoadedAt;
+
+    public ScopedGraphRetriever(QuestionToCypherAgent questionToCypherAgent, Driver driver, Neo4jClient neo4jClient,
+                                Neo4jMetrics neo4jMetrics, DependencyGuards dependencyGuards,
+                                @Value("${spring.data.neo4j.database:}") String database) {
+        this.questionToCypherAgent = questionToCypherAgent;
+        this.driver = driver;
+        this.neo4jClient = neo4jClient;
+        this.neo4jMetrics = neo4jMetrics;
+        this.dependencyGuards = dependencyGuards;
+        this.database = database;
+    }
+
+    /**
+     * Rows answering the question within the scope, one line each
+     *
+     * @throws IllegalArgumentException If the generated query could not be scoped
+     */
+    public List<String> retrieve(String question, QueryScope scope) {
+        String generated = stripFences(questionToCypherAgent.toCypher(schema(), question));
+        String query = GraphScope.restrict(generated, scope.authorId() != null);
+        log.debug("Scoped graph query: {}", query);
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put(GraphScope.GUILD_ID, scope.guildId());
+        parameters.put(GraphScope.AUTHOR_ID, scope.authorId());
+        return dependencyGuards.getNeo4j().call(() -> neo4jMetrics.read("kg.ask.query", () -> {
+            try (Session session = driver.session(sessionConfig())) {
+                return session.executeRead(tx -> tx.run(query, parameters).stream()
+                        .limit(MAX_ROWS)
+                        .map(ScopedGraphRetriever::describe)
+                        .toList(), transactionConfig);
+            }
+        }, List::size));
+    }
+
+    /**
+     * Labels, relationship types and property keys, read from the database's token stores rather than its data
+     */
+    public String schema() {
+        String current = schema;
+        if (current != null && System.nanoTime() - schemaLoadedAt < SCHEMA_TTL_NANOS) {
+            return current;
+        }
+        Map<String, Object> tokens = dependencyGuards.getNeo4j().call(() -> neo4jMetrics.read("kg.schema", () -> neo4jClient.query("""
+                        CALL { CALL db.labels() YIELD label WHERE label <> 'Channel' RETURN collect(label) AS labels }
+                        CALL { CALL db.relationshipTypes() YIELD relationshipType
+                               RETURN collect(relationshipType) AS types }
+                        CALL { CALL db.propertyKeys() YIELD propertyKey RETURN collect(propertyKey) AS keys }
+                        RETURN labels, types, keys
+                        """)
+                .fetch()
+                .one()
+                .orElse(Map.of()), found -> 1));
+        current = "Node labels: " + tokens.getOrDefault("labels", List.of()) + "\n"
+                + "Relationship types: " + tokens.getOrDefault("types", List.of()) + "\n"
+                + "Properties: " + tokens.getOrDefault("keys", List.of());
+        schema = current;
+        schemaLoadedAt = System.nanoTime();
+        return current;
+    }
+
+    private SessionConfig sessionConfig() {
+        SessionConfig.Builder config = SessionConfig.builder().withDefaultAccessMode(AccessMode.READ);
+        if (!database.isBlank()) {
+            config.withDatabase(database);
+        }
+        return config.build();
+    }
+
+    private static String describe(Record record) {
+        return record.keys().stream()
+                .map(key -> {
+                    org.neo4j.driver.Value value = record.get(key);
+                    Object shown = value.asObject() instanceof Entity entity ? entity.asMap() : value.asObject();
+                    return key + " = " + (shown instanceof String text ? "\"" + text + "\"" : shown);
+                })
+                .collect(Collectors.joining(", "));
+    }
+
+    private static String stripFences(String query) {
+        String stripped = query.strip();
+        if (stripped.startsWith("```")) {
+            stripped = stripped.substring(stripped.indexOf('\n') + 1);
+            int end = stripped.lastIndexOf("```");
+            if (end >= 0) {
+                stripped = stripped.substring(0, end);
+            }
+        }
+        return stripped.strip();
+    }
+}
@@ -0,0 +1,26 @@
+package com.discord.bot.feature_music.controller;
+
+import com.discord.bot.feature_music.domain.PlaybackHealth;
+import com.discord.bot.feature_music.service.PlaybackMetrics;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Actuator endpoint at /actuator/playback listing per-guild playback health, worst guilds first. Not exposed over
+ * HTTP unless added to {@code management.endpoints.web.exposure.include}, as it has no authentication.
+ */
+@Component
+@Endpoint(id = "playback")
+@RequiredArgsConstructor
+public class PlaybackEndpoint {
+    private final PlaybackMetrics playbackMetrics;
+
+    @ReadOperation
+    public List<PlaybackHealth> playback() {
+        return playbackMetrics.getHealth();
+    }
+}
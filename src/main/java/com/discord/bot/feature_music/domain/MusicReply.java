@@ -0,0 +1,18 @@
+package com.discord.bot.feature_music.domain;
+
+/**
+ * Outcome of a music command, rendered by the listener as the interaction reply
+ *
+ * @param message   Text shown to the user
+ * @param ephemeral Whether only the invoking user should see it, used for errors
+ */
+public record MusicReply(String message, boolean ephemeral) {
+
+    public static MusicReply of(String message) {
+        return new MusicReply(message, false);
+    }
+
+    public static MusicReply error(String message) {
+        return new MusicReply(message, true);
+    }
+}
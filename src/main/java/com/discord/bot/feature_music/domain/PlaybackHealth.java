@@ -0,0 +1,31 @@
+package com.discord.bot.feature_music.domain;
+
+/**
+ * Point-in-time playback quality figures for one guild.
+ *
+ * @param guildId               Guild the figures belong to
+ * @param providedFrames        Frames handed to Discord since the manager was created
+ * @param missedFrames          canProvide() calls that returned no frame while a track was playing
+ * @param provideHitRate        providedFrames / (providedFrames + missedFrames)
+ * @param consecutiveMisses     Current run of missed frames
+ * @param maxConsecutiveMisses  Longest run of missed frames, i.e. the worst audible stutter
+ * @param provideP50Micros      Median provide() call latency
+ * @param provideP99Micros      99th percentile provide() call latency
+ * @param bufferFill            Frame buffer fill of the playing track between 0 and 1, or -1 if unknown
+ * @param lastTrackLoadMs       Time the last /play took to resolve
+ * @param averageTransitionGapMs Average gap between tracks
+ */
+public record PlaybackHealth(
+        String guildId,
+        long providedFrames,
+        long missedFrames,
+        double provideHitRate,
+        int consecutiveMisses,
+        int maxConsecutiveMisses,
+        double provideP50Micros,
+        double provideP99Micros,
+        double bufferFill,
+        long lastTrackLoadMs,
+        long averageTransitionGapMs
+) {
+}
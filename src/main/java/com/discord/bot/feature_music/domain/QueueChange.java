@@ -0,0 +1,25 @@
+package com.discord.bot.feature_music.domain;
+
+import java.util.List;
+
+/**
+ * Queue change small enough to persist on top of a {@link QueueSnapshot} instead of rewriting the whole queue.
+ * Reordering and removals are not expressed as changes, they need a new snapshot.
+ */
+public sealed interface QueueChange {
+
+    /**
+     * Playback moved on: the first {@code skipped} upcoming tracks are dropped and the next one becomes the current
+     * track at its start, or nothing plays if none is left
+     *
+     * @param skipped Upcoming tracks dropped before the new current track
+     */
+    record Advance(int skipped) implements QueueChange {
+    }
+
+    /**
+     * @param tracks Encoded tracks added to the end of the queue, in order
+     */
+    record Append(List<byte[]> tracks) implements QueueChange {
+    }
+}
@@ -0,0 +1,43 @@
+package com.discord.bot.feature_music.domain;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Persistable state of one guild's player: lavaplayer-encoded tracks plus the playback position.
+ *
+ * @param voiceChannelId Voice channel the bot was connected to, or 0 if unknown
+ * @param currentTrack   Encoded now-playing track, or null if nothing was playing
+ * @param positionMs     Position inside the current track
+ * @param upcoming       Encoded upcoming tracks in play order
+ */
+public record QueueSnapshot(
+        long voiceChannelId,
+        byte[] currentTrack,
+        long positionMs,
+        List<byte[]> upcoming
+) {
+    public boolean isEmpty() {
+        return currentTrack == null && upcoming.isEmpty();
+    }
+
+    /**
+     * State after a change made since this snapshot was taken
+     */
+    public QueueSnapshot apply(QueueChange change) {
+        return switch (change) {
+            case QueueChange.Advance advance -> {
+                int next = Math.min(advance.skipped(), upcoming.size());
+                byte[] current = next < upcoming.size() ? upcoming.get(next) : null;
+                List<byte[]> rest = upcoming.subList(Math.min(next + 1, upcoming.size()), upcoming.size());
+                yield new QueueSnapshot(voiceChannelId, current, 0, new ArrayList<>(rest));
+            }
+            case QueueChange.Append append -> {
+                List<byte[]> queued = new ArrayList<>(upcoming.size() + append.tracks().size());
+                queued.addAll(upcoming);
+                queued.addAll(append.tracks());
+                yield new QueueSnapshot(voiceChannelId, currentTrack, positionMs, queued);
+            }
+        };
+    }
+}
@@ -0,0 +1,193 @@
+package com.discord.bot.feature_music.node;
+
+import com.discord.bot.feature_music.domain.MusicReply;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.channel.concrete.VoiceChannel;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves music commands from bot processes when this process runs as an audio node. The node owns the music
+ * managers and voice connections of the guilds routed to it, so playback is isolated from the bot's ingestion
+ * and LLM work.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "audio.node.server.enabled", havingValue = "true")
+@RequiredArgsConstructor
+public class AudioNodeServer {
+
+    @Value("${audio.node.server.bind-address:127.0.0.1}")
+    private String bindAddress;
+
+    @Value("${audio.node.server.port:7070}")
+    private int port;
+
+    private final LocalMusicNode localMusicNode;
+    private final ShardManager shardManager;
+    private final ObjectMapper objectMapper;
+
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private volatile ServerSocket serverSocket;
+
+    @PostConstruct
+    public void start() throws IOException {
+        ServerSocket server = new ServerSocket();
+        server.bind(new InetSocketAddress(bindAddress, port));
+        serverSocket = server;
+        Thread.ofPlatform().name("audio-node-server").daemon(true).start(this::acceptLoop);
+        log.info("Audio node listening on {}:{}", bindAddress, port);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        ServerSocket server = serverSocket;
+        serverSocket = null;
+        if (server != null) {
+            server.close();
+        }
+        connections.forEach(Connection::close);
+    }
+
+    /**
+     * Push the node's state to every connected bot; bots treat a silent node as down
+     */
+    @Scheduled(fixedDelayString = "${audio.node.heartbeat-interval-ms:2000}")
+    public void broadcastState() {
+        NodeMessage state = NodeMessage.state(localMusicNode.getLoad());
+        connections.forEach(connection -> connection.send(state));
+    }
+
+    private void acceptLoop() {
+        while (serverSocket != null) {
+            try {
+                Connection connection = new Connection(serverSocket.accept());
+                connections.add(connection);
+                Thread.ofVirtual().name("audio-node-client").start(() -> serve(connection));
+            } catch (IOException e) {
+                if (serverSocket != null) {
+                    log.warn("Audio node failed to accept a connection", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Connection connection) {
+        log.info("Bot connected from {}", connection.socket.getRemoteSocketAddress());
+        connection.send(NodeMessage.state(localMusicNode.getLoad()));
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(connection.socket.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                NodeRequest request;
+                try {
+                    request = objectMapper.readValue(line, NodeRequest.class);
+                } catch (JsonProcessingException e) {
+                    // One bad line must not drop the connection and every guild routed over it
+                    log.warn("Ignoring malformed request from bot {}: {}", connection.socket.getRemoteSocketAddress(), line);
+                    connection.send(NodeMessage.reply(requestId(line),
+                            MusicReply.error("❌ The audio node could not read this command."), localMusicNode.getLoad()));
+                    continue;
+                }
+                dispatch(request).whenComplete((reply, error) -> {
+                    MusicReply result = reply;
+                    if (error != null) {
+                        log.error("Audio node failed to handle {} for guild {}", request.op(), request.guildId(), error);
+                        result = MusicReply.error("An error occurred while processing your command.");
+                    }
+                    connection.send(NodeMessage.reply(request.id(), result, localMusicNode.getLoad()));
+                });
+            }
+        } catch (IOException e) {
+            log.warn("Bot connection {} failed: {}", connection.socket.getRemoteSocketAddress(), e.getMessage());
+        } finally {
+            connections.remove(connection);
+            connection.close();
+        }
+    }
+
+    /**
+     * Id of a request that did not parse as a whole, so its sender still gets an answer; 0 if there is none
+     */
+    private long requestId(String line) {
+        try {
+            return objectMapper.readTree(line).path("id").asLong();
+        } catch (JsonProcessingException e) {
+            return 0;
+        }
+    }
+
+    private CompletableFuture<MusicReply> dispatch(NodeRequest request) {
+        Guild guild = shardManager.getGuildById(request.guildId());
+        if (guild == null) {
+            return CompletableFuture.completedFuture(MusicReply.error("❌ The audio node cannot see this server."));
+        }
+        return switch (request.op()) {
+            case "play" -> {
+                VoiceChannel voiceChannel = guild.getVoiceChannelById(request.channelId());
+                yield voiceChannel == null
+                        ? CompletableFuture.completedFuture(MusicReply.error("❌ The audio node cannot see your voice channel."))
+                        : localMusicNode.play(guild, voiceChannel, request.query());
+            }
+            case "skip" -> localMusicNode.skip(guild);
+            case "stop" -> localMusicNode.stop(guild);
+            case "queue" -> localMusicNode.queue(guild, request.position());
+            case "remove" -> localMusicNode.remove(guild, request.position());
+            case "move" -> localMusicNode.move(guild, request.position(), request.target());
+            case "skipto" -> localMusicNode.skipTo(guild, request.position());
+            case "shuffle" -> localMusicNode.shuffle(guild);
+            default -> CompletableFuture.completedFuture(MusicReply.error("Unknown command: " + request.op()));
+        };
+    }
+
+    private final class Connection {
+        private final Socket socket;
+        private final BufferedWriter writer;
+
+        private Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.socket.setTcpNoDelay(true);
+            this.writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+        }
+
+        private synchronized void send(NodeMessage message) {
+            try {
+                writer.write(objectMapper.writeValueAsString(message));
+                writer.newLine();
+                writer.flush();
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        private void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Already closed
+            }
+        }
+    }
+}
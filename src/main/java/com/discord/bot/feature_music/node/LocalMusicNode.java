@@ -0,0 +1,198 @@
+package com.discord.bot.feature_music.node;
+
+import com.discord.bot.feature_music.domain.MusicReply;
+import com.discord.bot.feature_music.service.GuildMusicManager;
+import com.discord.bot.feature_music.service.MusicService;
+import com.discord.bot.feature_music.service.TrackResolutionCache;
+import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.channel.concrete.VoiceChannel;
+import net.dv8tion.jda.api.managers.AudioManager;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Plays music in this process. The bot uses it when no audio nodes are configured, and an audio node serves
+ * remote requests through it.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class LocalMusicNode implements MusicNode {
+    private final MusicService musicService;
+    private final TrackResolutionCache trackResolutionCache;
+
+    @Override
+    public String getName() {
+        return "local";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public int getLoad() {
+        return musicService.getActiveManagerCount();
+    }
+
+    @Override
+    public CompletableFuture<MusicReply> play(Guild guild, VoiceChannel voiceChannel, String query) {
+        // Set up music manager and connect to voice channel
+        GuildMusicManager musicManager = musicService.getOrCreateMusicManager(guild);
+        AudioManager audioManager = guild.getAudioManager();
+
+        audioManager.setSendingHandler(musicManager.getSendHandler());
+        audioManager.openAudioConnection(voiceChannel);
+        musicManager.setVoiceChannelId(voiceChannel.getIdLong());
+
+        // Load and play the track, repeated queries are served from the resolution cache
+        final CompletableFuture<MusicReply> reply = new CompletableFuture<>();
+        final long loadStartNanos = System.nanoTime();
+        final long loadGeneration = musicManager.getLoadGeneration();
+        trackResolutionCache.loadItemOrdered(guild.getIdLong(), query, new AudioLoadResultHandler() {
+            @Override
+            public void trackLoaded(AudioTrack track) {
+                recordTrackLoad(musicManager, loadStartNanos);
+                if (isStale()) {
+                    return;
+                }
+                musicManager.getScheduler().queue(track);
+                reply.complete(MusicReply.of("🎵 Playing: **" + track.getInfo().title + "**"));
+                log.info("Track loaded and queued: {}", track.getInfo().title);
+            }
+
+            @Override
+            public void playlistLoaded(AudioPlaylist playlist) {
+                recordTrackLoad(musicManager, loadStartNanos);
+                if (isStale()) {
+                    return;
+                }
+                int tracksAdded = musicManager.getScheduler().queueAll(playlist.getTracks());
+                reply.complete(MusicReply.of("📀 Playlist queued: **" + playlist.getName() + "** (" + tracksAdded + " tracks)"));
+                log.info("Playlist loaded: {} with {} tracks", playlist.getName(), tracksAdded);
+            }
+
+            @Override
+            public void noMatches() {
+                reply.complete(MusicReply.of("❌ No matches found for: " + query));
+                log.warn("No matches found for query: {}", query);
+            }
+
+            @Override
+            public void loadFailed(FriendlyException exception) {
+                reply.complete(MusicReply.of("❌ Could not play: " + exception.getMessage()));
+                log.error("Failed to load track: {}", query, exception);
+            }
+
+            /**
+             * The guild stopped while this load was running, so its result is dropped
+             */
+            private boolean isStale() {
+                if (musicManager.getLoadGeneration() == loadGeneration) {
+                    return false;
+                }
+                reply.complete(MusicReply.of("⏹️ Playback was stopped before **" + query + "** finished loading."));
+                return true;
+            }
+        });
+        return reply;
+    }
+
+    @Override
+    public CompletableFuture<MusicReply> skip(Guild guild) {
+        return withActiveManager(guild, musicManager -> {
+            musicManager.getScheduler().nextTrack();
+            log.info("Track skipped in guild: {}", guild.getName());
+            return MusicReply.of("⏭️ Skipped to next track.");
+        });
+    }
+
+    @Override
+    public CompletableFuture<MusicReply> stop(Guild guild) {
+        // Stop requests still waiting for a lookup, and drop the results of loads already running
+        trackResolutionCache.cancel(guild.getIdLong());
+        GuildMusicManager musicManager = musicService.getMusicManager(guild);
+        if (musicManager != null) {
+            musicManager.invalidateLoads();
+            musicManager.getScheduler().stop();
+        }
+        guild.getAudioManager().closeAudioConnection();
+        log.info("Music stopped in guild: {}", guild.getName());
+        return CompletableFuture.completedFuture(MusicReply.of("⏹️ Stopped music and cleared queue."));
+    }
+
+    @Override
+    public CompletableFuture<MusicReply> queue(Guild guild, int page) {
+        GuildMusicManager musicManager = musicService.getMusicManager(guild);
+        if (musicManager == null) {
+            return CompletableFuture.completedFuture(MusicReply.of("📋 The queue is empty."));
+        }
+        return CompletableFuture.completedFuture(MusicReply.of(musicManager.getScheduler().getQueueInfo(page)));
+    }
+
+    @Override
+    public CompletableFuture<MusicReply> remove(Guild guild, int position) {
+        return withActiveManager(guild, musicManager -> {
+            String removed = musicManager.getScheduler().remove(position);
+            if (removed == null) {
+                return MusicReply.error("❌ There is no track at position " + position + ".");
+            }
+            return MusicReply.of("🗑️ Removed: **" + removed + "**");
+        });
+    }
+
+    @Override
+    public CompletableFuture<MusicReply> move(Guild guild, int from, int to) {
+        return withActiveManager(guild, musicManager -> {
+            if (!musicManager.getScheduler().move(from, to)) {
+                return MusicReply.error("❌ Positions must be between 1 and " + musicManager.getScheduler().getQueueSize() + ".");
+            }
+            return MusicReply.of("↕️ Moved track from position " + from + " to " + to + ".");
+        });
+    }
+
+    @Override
+    public CompletableFuture<MusicReply> skipTo(Guild guild, int position) {
+        return withActiveManager(guild, musicManager -> {
+            if (!musicManager.getScheduler().skipTo(position)) {
+                return MusicReply.error("❌ There is no track at position " + position + ".");
+            }
+            return MusicReply.of("⏭️ Skipped to track " + position + ".");
+        });
+    }
+
+    @Override
+    public CompletableFuture<MusicReply> shuffle(Guild guild) {
+        return withActiveManager(guild, musicManager -> {
+            musicManager.getScheduler().shuffle();
+            return MusicReply.of("🔀 Shuffled " + musicManager.getScheduler().getQueueSize() + " tracks.");
+        });
+    }
+
+    /**
+     * Run a queue command against the guild's music manager, or reply with an error if there is none
+     */
+    private CompletableFuture<MusicReply> withActiveManager(Guild guild, Function<GuildMusicManager, MusicReply> command) {
+        GuildMusicManager musicManager = musicService.getMusicManager(guild);
+        if (musicManager == null) {
+            return CompletableFuture.completedFuture(MusicReply.error("Nothing is playing right now."));
+        }
+        musicManager.markActive();
+        return CompletableFuture.completedFuture(command.apply(musicManager));
+    }
+
+    private void recordTrackLoad(GuildMusicManager musicManager, long startNanos) {
+        if (musicManager.getPlaybackStats() != null) {
+            musicManager.getPlaybackStats().recordTrackLoad(System.nanoTime() - startNanos);
+        }
+    }
+}
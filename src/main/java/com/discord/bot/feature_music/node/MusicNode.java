@@ -0,0 +1,49 @@
+package com.discord.bot.feature_music.node;
+
+import com.discord.bot.feature_music.domain.MusicReply;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.channel.concrete.VoiceChannel;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A place where a guild's players, queue and voice connection live: either this process or a separate audio node.
+ * Positions are 1-based, as shown by /queue.
+ */
+public interface MusicNode {
+
+    String getName();
+
+    /**
+     * Whether commands can currently be sent to this node
+     */
+    boolean isAvailable();
+
+    /**
+     * Number of guilds with a music manager on this node, used to balance new guilds
+     */
+    int getLoad();
+
+    /**
+     * Whether commands are sent over the network, so their replies can take longer than Discord's interaction window
+     */
+    default boolean isRemote() {
+        return false;
+    }
+
+    CompletableFuture<MusicReply> play(Guild guild, VoiceChannel voiceChannel, String query);
+
+    CompletableFuture<MusicReply> skip(Guild guild);
+
+    CompletableFuture<MusicReply> stop(Guild guild);
+
+    CompletableFuture<MusicReply> queue(Guild guild, int page);
+
+    CompletableFuture<MusicReply> remove(Guild guild, int position);
+
+    CompletableFuture<MusicReply> move(Guild guild, int from, int to);
+
+    CompletableFuture<MusicReply> skipTo(Guild guild, int position);
+
+    CompletableFuture<MusicReply> shuffle(Guild guild);
+}
@@ -0,0 +1,119 @@
+package com.discord.bot.feature_music.node;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.api.entities.Guild;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides where each guild's music plays. Without configured audio nodes everything stays in this process.
+ * With nodes, a guild sticks to the node it was first assigned, new guilds go to the least loaded node,
+ * and guilds of a node that stops answering are moved to another node on their next command.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class MusicNodeRouter {
+
+    @Value("${audio.node.remote-addresses:}")
+    private List<String> remoteAddresses;
+
+    // Play in this process when every remote node is down
+    @Value("${audio.node.local-fallback:true}")
+    private boolean localFallback;
+
+    @Value("${audio.node.request-timeout-ms:30000}")
+    private long requestTimeoutMs;
+
+    @Value("${audio.node.heartbeat-timeout-ms:6000}")
+    private long heartbeatTimeoutMs;
+
+    @Value("${audio.node.reconnect-delay-ms:2000}")
+    private long reconnectDelayMs;
+
+    private final LocalMusicNode localMusicNode;
+    private final ObjectMapper objectMapper;
+
+    private final List<RemoteMusicNode> remoteNodes = new ArrayList<>();
+    private final Map<Long, MusicNode> assignments = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void connect() {
+        for (String address : remoteAddresses) {
+            if (address.isBlank()) {
+                continue;
+            }
+            RemoteMusicNode node = new RemoteMusicNode(address, objectMapper, requestTimeoutMs, heartbeatTimeoutMs, reconnectDelayMs);
+            node.start();
+            remoteNodes.add(node);
+        }
+        if (!remoteNodes.isEmpty()) {
+            log.info("Routing music to {} audio nodes, local fallback {}", remoteNodes.size(), localFallback ? "on" : "off");
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        remoteNodes.forEach(RemoteMusicNode::close);
+    }
+
+    /**
+     * Node that plays music for the guild
+     *
+     * @return The guild's node, or null if no node is available
+     */
+    public MusicNode nodeFor(Guild guild) {
+        if (remoteNodes.isEmpty()) {
+            return localMusicNode;
+        }
+        long guildId = guild.getIdLong();
+        MusicNode assigned = assignments.get(guildId);
+        if (assigned != null && assigned.isAvailable()) {
+            return assigned;
+        }
+
+        MusicNode node = pickNode();
+        if (node == null) {
+            assignments.remove(guildId);
+            return null;
+        }
+        if (assigned != null) {
+            log.warn("Audio node {} is down, moving guild {} to {}", assigned.getName(), guild.getName(), node.getName());
+        }
+        assignments.put(guildId, node);
+        return node;
+    }
+
+    /**
+     * Forget the guild's node once its music stopped, so its next session can be balanced anew
+     */
+    public void release(Guild guild) {
+        assignments.remove(guild.getIdLong());
+    }
+
+    private MusicNode pickNode() {
+        // Reported load lags behind by one heartbeat, so also count guilds assigned since
+        MusicNode best = remoteNodes.stream()
+                .filter(RemoteMusicNode::isAvailable)
+                .min(Comparator.comparingInt(node -> Math.max(node.getLoad(), assignedCount(node))))
+                .orElse(null);
+        if (best == null && localFallback) {
+            return localMusicNode;
+        }
+        return best;
+    }
+
+    private int assignedCount(MusicNode node) {
+        return (int) assignments.values().stream().filter(assigned -> assigned == node).count();
+    }
+}
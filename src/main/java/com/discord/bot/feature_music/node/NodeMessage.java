@@ -0,0 +1,30 @@
+package com.discord.bot.feature_music.node;
+
+import com.discord.bot.feature_music.domain.MusicReply;
+
+/**
+ * Message sent from an audio node to the bot, one JSON object per line. Nodes answer every request with a
+ * reply and push a state message on each heartbeat, which doubles as the liveness signal.
+ *
+ * @param type         "reply" or "state"
+ * @param id           Request id a reply answers, 0 for state messages
+ * @param message      Reply text
+ * @param ephemeral    Whether the reply is only shown to the invoking user
+ * @param activeGuilds Guilds with a music manager on the node
+ */
+public record NodeMessage(String type, long id, String message, boolean ephemeral, int activeGuilds) {
+    public static final String REPLY = "reply";
+    public static final String STATE = "state";
+
+    public static NodeMessage reply(long id, MusicReply reply, int activeGuilds) {
+        return new NodeMessage(REPLY, id, reply.message(), reply.ephemeral(), activeGuilds);
+    }
+
+    public static NodeMessage state(int activeGuilds) {
+        return new NodeMessage(STATE, 0, null, false, activeGuilds);
+    }
+
+    public MusicReply toReply() {
+        return new MusicReply(message, ephemeral);
+    }
+}
@@ -0,0 +1,15 @@
+package com.discord.bot.feature_music.node;
+
+/**
+ * Command sent from the bot to an audio node, one JSON object per line
+ *
+ * @param id        Correlates the node's reply with this request
+ * @param op        play, skip, stop, queue, remove, move, skipto or shuffle
+ * @param guildId   Guild the command is for
+ * @param channelId Voice channel to join, only used by play
+ * @param query     Search query or URL, only used by play
+ * @param position  Page for queue, position for remove and skipto, source position for move
+ * @param target    Target position for move
+ */
+public record NodeRequest(long id, String op, long guildId, long channelId, String query, int position, int target) {
+}
@@ -0,0 +1,235 @@
+package com.discord.bot.feature_music.node;
+
+import com.discord.bot.feature_music.domain.MusicReply;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.channel.concrete.VoiceChannel;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client for an audio node process. Keeps one socket open, reconnecting in the background, and multiplexes
+ * requests over it by id. The node is considered available while its heartbeats keep arriving.
+ */
+@Slf4j
+public class RemoteMusicNode implements MusicNode {
+    private static final int CONNECT_TIMEOUT_MS = 5000;
+
+    private final String host;
+    private final int port;
+    private final ObjectMapper objectMapper;
+    private final long requestTimeoutMs;
+    private final long heartbeatTimeoutMs;
+    private final long reconnectDelayMs;
+
+    private final AtomicLong requestIds = new AtomicLong();
+    private final Map<Long, CompletableFuture<MusicReply>> pending = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+
+    private volatile Socket socket;
+    private volatile BufferedWriter writer;
+    private volatile long lastMessageMillis;
+    private volatile int remoteLoad;
+    private volatile boolean closed;
+
+    /**
+     * @param address            host:port of the node
+     * @param requestTimeoutMs   Fail a request if the node has not replied by then
+     * @param heartbeatTimeoutMs Treat the node as down if it has been silent this long
+     * @param reconnectDelayMs   Wait between connection attempts
+     */
+    public RemoteMusicNode(String address, ObjectMapper objectMapper, long requestTimeoutMs,
+                           long heartbeatTimeoutMs, long reconnectDelayMs) {
+        int separator = address.lastIndexOf(':');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Audio node address must be host:port, got " + address);
+        }
+        this.host = address.substring(0, separator).trim();
+        this.port = Integer.parseInt(address.substring(separator + 1).trim());
+        this.objectMapper = objectMapper;
+        this.requestTimeoutMs = requestTimeoutMs;
+        this.heartbeatTimeoutMs = heartbeatTimeoutMs;
+        this.reconnectDelayMs = reconnectDelayMs;
+    }
+
+    public void start() {
+        Thread.ofVirtual().name("audio-node-" + getName()).start(this::connectLoop);
+    }
+
+    public void close() {
+        closed = true;
+        closeSocket();
+    }
+
+    @Override
+    public String getName() {
+        return host + ":" + port;
+    }
+
+    @Override
+    public boolean isRemote() {
+        return true;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return socket != null && System.currentTimeMillis() - lastMessageMillis < heartbeatTimeoutMs;
+    }
+
+    @Override
+    public int getLoad() {
+        return remoteLoad;
+    }
+
+    @Override
+    public CompletableFuture<MusicReply> play(Guild guild, VoiceChannel voiceChannel, String query) {
+        return send("play", guild, voiceChannel.getIdLong(), query, 0, 0);
+    }
+
+    @Override
+    public CompletableFuture<MusicReply> skip(Guild guild) {
+        return send("skip", guild, 0, null, 0, 0);
+    }
+
+    @Override
+    public CompletableFuture<MusicReply> stop(Guild guild) {
+        return send("stop", guild, 0, null, 0, 0);
+    }
+
+    @Override
+    public CompletableFuture<MusicReply> queue(Guild guild, int page) {
+        return send("queue", guild, 0, null, page, 0);
+    }
+
+    @Override
+    public CompletableFuture<MusicReply> remove(Guild guild, int position) {
+        return send("remove", guild, 0, null, position, 0);
+    }
+
+    @Override
+    public CompletableFuture<MusicReply> move(Guild guild, int from, int to) {
+        return send("move", guild, 0, null, from, to);
+    }
+
+    @Override
+    public CompletableFuture<MusicReply> skipTo(Guild guild, int position) {
+        return send("skipto", guild, 0, null, position, 0);
+    }
+
+    @Override
+    public CompletableFuture<MusicReply> shuffle(Guild guild) {
+        return send("shuffle", guild, 0, null, 0, 0);
+    }
+
+    private CompletableFuture<MusicReply> send(String op, Guild guild, long channelId, String query, int position, int target) {
+        long id = requestIds.incrementAndGet();
+        CompletableFuture<MusicReply> reply = new CompletableFuture<>();
+        pending.put(id, reply);
+        try {
+            String line = objectMapper.writeValueAsString(
+                    new NodeRequest(id, op, guild.getIdLong(), channelId, query, position, target));
+            synchronized (writeLock) {
+                BufferedWriter out = writer;
+                if (out == null) {
+                    throw new IOException("Audio node " + getName() + " is not connected");
+                }
+                out.write(line);
+                out.newLine();
+                out.flush();
+            }
+        } catch (IOException e) {
+            pending.remove(id);
+            reply.completeExceptionally(e);
+            return reply;
+        }
+        return reply.orTimeout(requestTimeoutMs, TimeUnit.MILLISECONDS)
+                .whenComplete((ignored, error) -> pending.remove(id));
+    }
+
+    private void connectLoop() {
+        while (!closed) {
+            try (Socket connection = new Socket()) {
+                connection.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MS);
+                connection.setTcpNoDelay(true);
+                BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8));
+                synchronized (writeLock) {
+                    writer = new BufferedWriter(
+                            new OutputStreamWriter(connection.getOutputStream(), StandardCharsets.UTF_8));
+                }
+                socket = connection;
+                lastMessageMillis = System.currentTimeMillis();
+                log.info("Connected to audio node {}", getName());
+
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    handle(line);
+                }
+                log.warn("Audio node {} closed the connection", getName());
+            } catch (IOException e) {
+                if (!closed) {
+                    log.warn("Audio node {} unreachable: {}", getName(), e.getMessage());
+                }
+            } finally {
+                closeSocket();
+            }
+
+            try {
+                Thread.sleep(reconnectDelayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void handle(String line) {
+        NodeMessage message;
+        try {
+            message = objectMapper.readValue(line, NodeMessage.class);
+        } catch (IOException e) {
+            log.warn("Ignoring malformed message from audio node {}: {}", getName(), line);
+            return;
+        }
+        lastMessageMillis = System.currentTimeMillis();
+        remoteLoad = message.activeGuilds();
+        if (NodeMessage.REPLY.equals(message.type())) {
+            CompletableFuture<MusicReply> reply = pending.remove(message.id());
+            if (reply != null) {
+                reply.complete(message.toReply());
+            }
+        }
+    }
+
+    private void closeSocket() {
+        synchronized (writeLock) {
+            writer = null;
+        }
+        Socket current = socket;
+        socket = null;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException ignored) {
+                // Already broken
+            }
+        }
+        // Requests in flight will never be answered on this connection
+        IOException lost = new IOException("Connection to audio node " + getName() + " lost");
+        pending.values().forEach(reply -> reply.completeExceptionally(lost));
+        pending.clear();
+    }
+}
@@ -0,0 +1,146 @@
+package com.discord.bot.feature_music.service;
+
+import com.sedmelluq.discord.lavaplayer.player.AudioConfiguration;
+import com.sedmelluq.discord.lavaplayer.player.AudioConfiguration.ResamplingQuality;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.List;
+
+/**
+ * Trades audio quality for CPU under load. Every tick it looks at process CPU and the share of frames that missed
+ * their 20 ms deadline; under pressure it steps the shared Opus encoding and resampling quality down one level,
+ * and once load has stayed low for a few ticks it steps back up. Lavaplayer reads the configuration when a track's
+ * pipeline is built, so a change applies to tracks started afterwards and never interrupts a playing one.
+ * Opus sources played at full volume without filters bypass both the decoder and encoder, so they cost
+ * nothing at any level.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AudioQualityController {
+
+    private static final List<QualityLevel> LEVELS = List.of(
+            new QualityLevel(AudioConfiguration.OPUS_QUALITY_MAX, ResamplingQuality.HIGH),
+            new QualityLevel(8, ResamplingQuality.HIGH),
+            new QualityLevel(6, ResamplingQuality.MEDIUM),
+            new QualityLevel(4, ResamplingQuality.MEDIUM),
+            new QualityLevel(2, ResamplingQuality.LOW),
+            new QualityLevel(0, ResamplingQuality.LOW)
+    );
+
+    @Value("${audio.adaptive-quality.enabled:true}")
+    private boolean enabled;
+
+    @Value("${audio.adaptive-quality.cpu-high:0.80}")
+    private double cpuHigh;
+
+    @Value("${audio.adaptive-quality.cpu-low:0.50}")
+    private double cpuLow;
+
+    @Value("${audio.adaptive-quality.miss-rate-high:0.01}")
+    private double missRateHigh;
+
+    @Value("${audio.adaptive-quality.miss-rate-low:0.001}")
+    private double missRateLow;
+
+    @Value("${audio.adaptive-quality.recover-ticks:3}")
+    private int recoverTicks;
+
+    private final AudioPlayerManager audioPlayerManager;
+    private final PlaybackMetrics playbackMetrics;
+    private final MeterRegistry meterRegistry;
+
+    private volatile int level;
+    private int calmTicks;
+    private long lastProvidedFrames;
+    private long lastMissedFrames;
+
+    @PostConstruct
+    public void registerMeters() {
+        Gauge.builder("music.quality.level", this, AudioQualityController::getLevel)
+                .description("Audio quality step, 0 is full quality")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${audio.adaptive-quality.interval-ms:5000}",
+            initialDelayString = "${audio.adaptive-quality.interval-ms:5000}")
+    public void adjust() {
+        if (!enabled) {
+            return;
+        }
+        long provided = playbackMetrics.getTotalProvidedFrames();
+        long missed = playbackMetrics.getTotalMissedFrames();
+        long providedDelta = provided - lastProvidedFrames;
+        long missedDelta = missed - lastMissedFrames;
+        lastProvidedFrames = provided;
+        lastMissedFrames = missed;
+
+        double missRate = providedDelta + missedDelta == 0 ? 0 : (double) missedDelta / (providedDelta + missedDelta);
+        adjust(processCpuLoad(), missRate);
+    }
+
+    /**
+     * Move at most one quality level based on one tick's measurements
+     *
+     * @param cpuLoad  Process CPU load between 0 and 1, negative if unknown
+     * @param missRate Share of frame requests during the tick that found no frame while playing
+     */
+    synchronized void adjust(double cpuLoad, double missRate) {
+        boolean pressured = cpuLoad >= cpuHigh || missRate >= missRateHigh;
+        boolean calm = cpuLoad < cpuLow && missRate < missRateLow;
+
+        if (pressured) {
+            calmTicks = 0;
+            if (level < LEVELS.size() - 1) {
+                apply(level + 1, cpuLoad, missRate);
+            }
+        } else if (calm && level > 0) {
+            // Recover slower than we degrade so quality does not flap around the threshold
+            if (++calmTicks >= recoverTicks) {
+                calmTicks = 0;
+                apply(level - 1, cpuLoad, missRate);
+            }
+        } else {
+            calmTicks = 0;
+        }
+    }
+
+    /**
+     * Current quality step, 0 is full quality
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    private void apply(int newLevel, double cpuLoad, double missRate) {
+        QualityLevel quality = LEVELS.get(newLevel);
+        AudioConfiguration configuration = audioPlayerManager.getConfiguration();
+        configuration.setOpusEncodingQuality(quality.opusQuality());
+        configuration.setResamplingQuality(quality.resamplingQuality());
+        log.info("Audio quality {} to level {} (opus {}, resampling {}), cpu {}, frame miss rate {}",
+                newLevel > level ? "lowered" : "raised", newLevel, quality.opusQuality(), quality.resamplingQuality(),
+                String.format("%.2f", cpuLoad), String.format("%.4f", missRate));
+        level = newLevel;
+    }
+
+    private double processCpuLoad() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        if (os instanceof com.sun.management.OperatingSystemMXBean sunOs) {
+            return sunOs.getProcessCpuLoad();
+        }
+        return -1;
+    }
+
+    private record QualityLevel(int opusQuality, ResamplingQuality resamplingQuality) {
+    }
+}
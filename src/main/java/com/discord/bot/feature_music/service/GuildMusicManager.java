@@ -3,17 +3,55 @@ package com.discord.bot.feature_music.service;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayer;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 
 public class GuildMusicManager {
-    private final AudioPlayer player;
     private final TrackScheduler scheduler;
     private final LavaPlayerSendHandler sendHandler;
+    private final GuildPlaybackStats playbackStats;
+
+    // Timestamps used by the idle reaper, 0 means "not set"
+    private volatile long lastActivityMillis;
+    private volatile long emptyChannelSinceMillis;
+
+    // Voice channel to resume in, recorded with queue snapshots
+    private volatile long voiceChannelId;
+
+    // Bumped on /stop so loads that were already running do not queue their result afterwards
+    private final AtomicLong loadGeneration = new AtomicLong();
 
     public GuildMusicManager(AudioPlayerManager manager) {
-        this.player = manager.createPlayer();
-        this.scheduler = new TrackScheduler(player);
-        this.player.addListener(scheduler);
-        this.sendHandler = new LavaPlayerSendHandler(player);
+        this(manager, new TrackCodec(manager), 0);
+    }
+
+    /**
+     * @param manager         Player manager used to create the players
+     * @param trackCodec      Codec used to keep bulk-queued tracks in encoded form
+     * @param preloadWindowMs Preload the next track this long before the current one ends, 0 disables preloading
+     */
+    public GuildMusicManager(AudioPlayerManager manager, TrackCodec trackCodec, long preloadWindowMs) {
+        this(manager, trackCodec, preloadWindowMs, null);
+    }
+
+    /**
+     * @param playbackStats Per-guild playback metrics fed by the send handler, may be null
+     */
+    public GuildMusicManager(AudioPlayerManager manager, TrackCodec trackCodec, long preloadWindowMs,
+                             GuildPlaybackStats playbackStats) {
+        AudioPlayer player = manager.createPlayer();
+        AudioPlayer standby = preloadWindowMs > 0 ? manager.createPlayer() : null;
+        this.scheduler = new TrackScheduler(player, standby, preloadWindowMs, trackCodec);
+        player.addListener(scheduler);
+        if (standby != null) {
+            standby.addListener(scheduler);
+        }
+        this.playbackStats = playbackStats;
+        if (playbackStats != null) {
+            playbackStats.bind(scheduler);
+        }
+        this.sendHandler = new LavaPlayerSendHandler(scheduler, playbackStats);
+        this.lastActivityMillis = System.currentTimeMillis();
     }
 
     public TrackScheduler getScheduler() {
@@ -23,5 +61,56 @@ public class GuildMusicManager {
     public net.dv8tion.jda.api.audio.AudioSendHandler getSendHandler() {
         return sendHandler;
     }
-}
 
+    /**
+     * Playback metrics of this guild, or null when metrics are not collected
+     */
+    public GuildPlaybackStats getPlaybackStats() {
+        return playbackStats;
+    }
+
+    /**
+     * Mark this manager as in use so the idle reaper leaves it alone
+     */
+    public void markActive() {
+        this.lastActivityMillis = System.currentTimeMillis();
+    }
+
+    public long getLastActivityMillis() {
+        return lastActivityMillis;
+    }
+
+    public long getEmptyChannelSinceMillis() {
+        return emptyChannelSinceMillis;
+    }
+
+    public void setEmptyChannelSinceMillis(long emptyChannelSinceMillis) {
+        this.emptyChannelSinceMillis = emptyChannelSinceMillis;
+    }
+
+    public long getVoiceChannelId() {
+        return voiceChannelId;
+    }
+
+    public void setVoiceChannelId(long voiceChannelId) {
+        this.voiceChannelId = voiceChannelId;
+    }
+
+    public long getLoadGeneration() {
+        return loadGeneration.get();
+    }
+
+    /**
+     * Discard the results of loads started before this call
+     */
+    public void invalidateLoads() {
+        loadGeneration.incrementAndGet();
+    }
+
+    /**
+     * Stop playback and release the underlying player; the manager must not be used afterwards
+     */
+    public void destroy() {
+        scheduler.destroy();
+    }
+}
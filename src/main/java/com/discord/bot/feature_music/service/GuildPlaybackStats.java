@@ -0,0 +1,191 @@
+package com.discord.bot.feature_music.service;
+
+import com.discord.bot.feature_music.domain.PlaybackHealth;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayer;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.InternalAudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.playback.AudioFrameBuffer;
+import com.sedmelluq.discord.lavaplayer.track.playback.AudioTrackExecutor;
+import com.sedmelluq.discord.lavaplayer.track.playback.LocalAudioTrackExecutor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-guild playback instrumentation fed by the send handler. canProvide() is only ever called from the guild's
+ * audio send thread, so the streak counters are plain volatile fields.
+ */
+public class GuildPlaybackStats {
+    private final long guildId;
+    private final MeterRegistry registry;
+    private final List<Meter> meters = new ArrayList<>();
+    private final Counter providedFrames;
+    private final Counter missedFrames;
+    private final Timer provideTimer;
+    private final Timer trackLoadTimer;
+
+    private volatile TrackScheduler scheduler;
+    private volatile int consecutiveMisses;
+    private volatile int maxConsecutiveMisses;
+    private volatile long lastTrackLoadMs;
+
+    public GuildPlaybackStats(long guildId, MeterRegistry registry) {
+        this.guildId = guildId;
+        this.registry = registry;
+        Tags tags = Tags.of("guild", Long.toString(guildId));
+
+        this.providedFrames = register(Counter.builder("music.frames.provided")
+                .description("Audio frames handed to Discord")
+                .tags(tags)
+                .register(registry));
+        this.missedFrames = register(Counter.builder("music.frames.missed")
+                .description("Frame requests with no audio available while a track was playing")
+                .tags(tags)
+                .register(registry));
+        this.provideTimer = register(Timer.builder("music.frames.provide.latency")
+                .description("Latency of AudioPlayer.provide calls")
+                .tags(tags)
+                .publishPercentiles(0.5, 0.99)
+                .register(registry));
+        this.trackLoadTimer = register(Timer.builder("music.track.load")
+                .description("Time from /play to a resolved track or playlist")
+                .tags(tags)
+                .register(registry));
+        register(Gauge.builder("music.frames.consecutive.missed", this, stats -> stats.consecutiveMisses)
+                .description("Current run of missed frames")
+                .tags(tags)
+                .register(registry));
+        register(Gauge.builder("music.frame.buffer.fill", this, GuildPlaybackStats::getBufferFill)
+                .description("Fill level of the playing track's frame buffer between 0 and 1")
+                .tags(tags)
+                .register(registry));
+        register(Gauge.builder("music.transition.gap", this, stats -> stats.getAverageTransitionGapMs())
+                .description("Average gap between consecutive tracks in milliseconds")
+                .tags(tags)
+                .baseUnit("milliseconds")
+                .register(registry));
+    }
+
+    /**
+     * Attach the scheduler whose player is sampled for buffer fill and transition gaps
+     */
+    public void bind(TrackScheduler scheduler) {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Record one canProvide() call
+     *
+     * @param nanos    Time spent in AudioPlayer.provide
+     * @param provided Whether a frame was available
+     * @param playing  Whether a track was playing; misses while idle are not stutters
+     */
+    public void recordProvide(long nanos, boolean provided, boolean playing) {
+        provideTimer.record(nanos, TimeUnit.NANOSECONDS);
+        if (provided) {
+            providedFrames.increment();
+            consecutiveMisses = 0;
+            return;
+        }
+        if (!playing) {
+            return;
+        }
+        missedFrames.increment();
+        int misses = consecutiveMisses + 1;
+        consecutiveMisses = misses;
+        if (misses > maxConsecutiveMisses) {
+            maxConsecutiveMisses = misses;
+        }
+    }
+
+    public void recordTrackLoad(long nanos) {
+        trackLoadTimer.record(nanos, TimeUnit.NANOSECONDS);
+        lastTrackLoadMs = TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    public long getProvidedFrames() {
+        return (long) providedFrames.count();
+    }
+
+    public long getMissedFrames() {
+        return (long) missedFrames.count();
+    }
+
+    public PlaybackHealth snapshot() {
+        long provided = (long) providedFrames.count();
+        long missed = (long) missedFrames.count();
+        double hitRate = provided + missed == 0 ? 1.0 : (double) provided / (provided + missed);
+
+        double p50 = 0;
+        double p99 = 0;
+        for (ValueAtPercentile percentile : provideTimer.takeSnapshot().percentileValues()) {
+            if (percentile.percentile() == 0.5) {
+                p50 = percentile.value(TimeUnit.MICROSECONDS);
+            } else if (percentile.percentile() == 0.99) {
+                p99 = percentile.value(TimeUnit.MICROSECONDS);
+            }
+        }
+
+        return new PlaybackHealth(
+                Long.toString(guildId),
+                provided,
+                missed,
+                hitRate,
+                consecutiveMisses,
+                maxConsecutiveMisses,
+                p50,
+                p99,
+                getBufferFill(),
+                lastTrackLoadMs,
+                getAverageTransitionGapMs()
+        );
+    }
+
+    /**
+     * Remove this guild's meters from the registry
+     */
+    public void close() {
+        meters.forEach(registry::remove);
+        meters.clear();
+    }
+
+    private <M extends Meter> M register(M meter) {
+        meters.add(meter);
+        return meter;
+    }
+
+    private long getAverageTransitionGapMs() {
+        TrackScheduler current = scheduler;
+        return current != null ? current.getAverageTransitionGapMs() : 0;
+    }
+
+    /**
+     * Frame buffer fill of the playing track; only local executors expose their buffer
+     */
+    private double getBufferFill() {
+        TrackScheduler current = scheduler;
+        if (current == null) {
+            return -1;
+        }
+        AudioPlayer player = current.getActivePlayer();
+        AudioTrack track = player.getPlayingTrack();
+        if (!(track instanceof InternalAudioTrack internal)) {
+            return -1;
+        }
+        AudioTrackExecutor executor = internal.getActiveExecutor();
+        if (!(executor instanceof LocalAudioTrackExecutor local)) {
+            return -1;
+        }
+        AudioFrameBuffer buffer = local.getAudioBuffer();
+        int full = buffer.getFullCapacity();
+        return full == 0 ? -1 : 1.0 - (double) buffer.getRemainingCapacity() / full;
+    }
+}
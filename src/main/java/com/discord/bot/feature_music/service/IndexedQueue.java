@@ -0,0 +1,206 @@
+package com.discord.bot.feature_music.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Thread-safe circular array queue with random access.
+ * Peeking and paging only copy the requested window, and remove/move shift the shorter side of the ring,
+ * so typical queue commands near the head stay cheap even with thousands of entries.
+ *
+ * @param <E> Element type
+ */
+public class IndexedQueue<E> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private Object[] elements = new Object[INITIAL_CAPACITY];
+    private int head;
+    private int size;
+
+    public synchronized void add(E element) {
+        ensureCapacity(size + 1);
+        elements[physical(size)] = element;
+        size++;
+    }
+
+    public synchronized void addAll(Collection<? extends E> items) {
+        ensureCapacity(size + items.size());
+        for (E element : items) {
+            elements[physical(size)] = element;
+            size++;
+        }
+    }
+
+    public synchronized void addFirst(E element) {
+        ensureCapacity(size + 1);
+        head = (head - 1) & (elements.length - 1);
+        elements[head] = element;
+        size++;
+    }
+
+    /**
+     * Remove and return the head of the queue, or null if it is empty
+     */
+    public synchronized E poll() {
+        if (size == 0) {
+            return null;
+        }
+        E element = elementAt(0);
+        elements[head] = null;
+        head = (head + 1) & (elements.length - 1);
+        size--;
+        return element;
+    }
+
+    public synchronized E get(int index) {
+        checkIndex(index);
+        return elementAt(index);
+    }
+
+    /**
+     * Copy of at most {@code count} elements from the head
+     */
+    public synchronized List<E> peek(int count) {
+        return page(0, count);
+    }
+
+    /**
+     * Copy of at most {@code limit} elements starting at {@code offset}
+     */
+    public synchronized List<E> page(int offset, int limit) {
+        if (offset < 0 || limit <= 0 || offset >= size) {
+            return Collections.emptyList();
+        }
+        int end = Math.min(size, offset + limit);
+        List<E> window = new ArrayList<>(end - offset);
+        for (int i = offset; i < end; i++) {
+            window.add(elementAt(i));
+        }
+        return window;
+    }
+
+    /**
+     * Remove the element at the given index, shifting whichever side of the ring is shorter
+     */
+    public synchronized E removeAt(int index) {
+        checkIndex(index);
+        E removed = elementAt(index);
+        if (index < size / 2) {
+            for (int i = index; i > 0; i--) {
+                elements[physical(i)] = elements[physical(i - 1)];
+            }
+            elements[head] = null;
+            head = (head + 1) & (elements.length - 1);
+        } else {
+            for (int i = index; i < size - 1; i++) {
+                elements[physical(i)] = elements[physical(i + 1)];
+            }
+            elements[physical(size - 1)] = null;
+        }
+        size--;
+        return removed;
+    }
+
+    /**
+     * Move an element; only the entries between the two positions are shifted
+     */
+    public synchronized void move(int from, int to) {
+        checkIndex(from);
+        checkIndex(to);
+        Object moved = elements[physical(from)];
+        if (from < to) {
+            for (int i = from; i < to; i++) {
+                elements[physical(i)] = elements[physical(i + 1)];
+            }
+        } else {
+            for (int i = from; i > to; i--) {
+                elements[physical(i)] = elements[physical(i - 1)];
+            }
+        }
+        elements[physical(to)] = moved;
+    }
+
+    /**
+     * Drop up to {@code count} elements from the head
+     *
+     * @return Number of elements dropped
+     */
+    public synchronized int removeFirst(int count) {
+        int dropped = Math.min(Math.max(count, 0), size);
+        for (int i = 0; i < dropped; i++) {
+            elements[physical(i)] = null;
+        }
+        head = (head + dropped) & (elements.length - 1);
+        size -= dropped;
+        return dropped;
+    }
+
+    /**
+     * Fisher-Yates shuffle in place, without copying the queue
+     */
+    public synchronized void shuffle(Random random) {
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int pi = physical(i);
+            int pj = physical(j);
+            Object tmp = elements[pi];
+            elements[pi] = elements[pj];
+            elements[pj] = tmp;
+        }
+    }
+
+    /**
+     * Full copy of the queue in order, for the rare callers that need every element
+     */
+    public synchronized List<E> toList() {
+        return page(0, size);
+    }
+
+    public synchronized void clear() {
+        elements = new Object[INITIAL_CAPACITY];
+        head = 0;
+        size = 0;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    private E elementAt(int index) {
+        return (E) elements[physical(index)];
+    }
+
+    private int physical(int index) {
+        return (head + index) & (elements.length - 1);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for queue size " + size);
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= elements.length) {
+            return;
+        }
+        int capacity = elements.length;
+        while (capacity < required) {
+            capacity <<= 1;
+        }
+        Object[] grown = new Object[capacity];
+        for (int i = 0; i < size; i++) {
+            grown[i] = elements[physical(i)];
+        }
+        elements = grown;
+        head = 0;
+    }
+}
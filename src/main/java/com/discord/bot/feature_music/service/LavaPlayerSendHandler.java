@@ -1,6 +1,5 @@
 package com.discord.bot.feature_music.service;
 
-import com.sedmelluq.discord.lavaplayer.player.AudioPlayer;
 import com.sedmelluq.discord.lavaplayer.track.playback.MutableAudioFrame;
 import net.dv8tion.jda.api.audio.AudioSendHandler;
 
@@ -8,15 +7,22 @@ import java.nio.Buffer;
 import java.nio.ByteBuffer;
 
 public class LavaPlayerSendHandler implements AudioSendHandler {
-    private final AudioPlayer audioPlayer;
+    private final TrackScheduler scheduler;
     private final ByteBuffer buffer;
     private final MutableAudioFrame frame;
+    private final GuildPlaybackStats playbackStats;
+
+    public LavaPlayerSendHandler(TrackScheduler scheduler) {
+        this(scheduler, null);
+    }
 
     /**
-     * @param audioPlayer Audio player to wrap.
+     * @param scheduler     Scheduler whose active player is wrapped; the active player changes on preloaded transitions.
+     * @param playbackStats Receives provide latency and frame hits/misses, may be null
      */
-    public LavaPlayerSendHandler(AudioPlayer audioPlayer) {
-        this.audioPlayer = audioPlayer;
+    public LavaPlayerSendHandler(TrackScheduler scheduler, GuildPlaybackStats playbackStats) {
+        this.scheduler = scheduler;
+        this.playbackStats = playbackStats;
         this.buffer = ByteBuffer.allocate(1024*20);
         this.frame = new MutableAudioFrame();
         this.frame.setBuffer(buffer);
@@ -25,7 +31,21 @@ public class LavaPlayerSendHandler implements AudioSendHandler {
     @Override
     public boolean canProvide() {
         // returns true if audio was provided
-        return audioPlayer.provide(frame);
+        if (playbackStats == null) {
+            return provideFrame();
+        }
+        long start = System.nanoTime();
+        boolean provided = provideFrame();
+        playbackStats.recordProvide(System.nanoTime() - start, provided, scheduler.isPlaying() && !scheduler.isPaused());
+        return provided;
+    }
+
+    private boolean provideFrame() {
+        boolean provided = scheduler.getActivePlayer().provide(frame);
+        if (provided) {
+            scheduler.onFrameProvided();
+        }
+        return provided;
     }
 
     @Override
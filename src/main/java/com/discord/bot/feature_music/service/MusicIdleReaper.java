@@ -0,0 +1,115 @@
+package com.discord.bot.feature_music.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.channel.middleman.AudioChannel;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Periodically evicts music managers of guilds that stopped listening, so players,
+ * schedulers and voice connections track active use instead of historical use.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class MusicIdleReaper {
+
+    @Value("${audio.reaper.idle-timeout-ms:900000}")
+    private long idleTimeoutMs;
+
+    @Value("${audio.reaper.empty-channel-timeout-ms:120000}")
+    private long emptyChannelTimeoutMs;
+
+    private final MusicService musicService;
+    private final ShardManager shardManager;
+
+    @Scheduled(fixedDelayString = "${audio.reaper.interval-ms:60000}",
+            initialDelayString = "${audio.reaper.interval-ms:60000}")
+    public void reap() {
+        int evicted = reapIdleManagers(System.currentTimeMillis());
+        if (evicted > 0) {
+            log.info("Idle reaper evicted {} music managers, {} still active",
+                    evicted, musicService.getActiveManagerCount());
+        }
+    }
+
+    /**
+     * Evict every manager that has been idle or alone in its voice channel for too long
+     *
+     * @param now Current time in epoch millis
+     * @return Number of evicted managers
+     */
+    public int reapIdleManagers(long now) {
+        int evicted = 0;
+        for (int shardId : List.copyOf(musicService.getShardIds())) {
+            evicted += reapShard(shardId, now);
+        }
+        return evicted;
+    }
+
+    private int reapShard(int shardId, long now) {
+        // A reconnecting shard has an incomplete guild cache, so leave its managers alone until it is back
+        JDA jda = shardManager.getShardById(shardId);
+        if (jda == null || jda.getStatus() != JDA.Status.CONNECTED) {
+            return 0;
+        }
+
+        // Copy the entries so eviction does not race with iteration
+        List<Map.Entry<Long, GuildMusicManager>> entries = new ArrayList<>(musicService.getMusicManagers(shardId).entrySet());
+        int evicted = 0;
+
+        for (Map.Entry<Long, GuildMusicManager> entry : entries) {
+            long guildId = entry.getKey();
+            GuildMusicManager manager = entry.getValue();
+            Guild guild = jda.getGuildById(guildId);
+
+            if (guild == null) {
+                musicService.removeMusicManager(guildId);
+                evicted++;
+                continue;
+            }
+
+            if (shouldEvict(guild, manager, now)) {
+                log.info("Evicting idle music manager for guild: {}", guild.getName());
+                musicService.removeMusicManager(guild);
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    private boolean shouldEvict(Guild guild, GuildMusicManager manager, long now) {
+        AudioChannel connected = guild.getAudioManager().getConnectedChannel();
+
+        if (connected != null && hasNoListeners(connected)) {
+            if (manager.getEmptyChannelSinceMillis() == 0) {
+                manager.setEmptyChannelSinceMillis(now);
+            } else if (now - manager.getEmptyChannelSinceMillis() >= emptyChannelTimeoutMs) {
+                return true;
+            }
+        } else {
+            manager.setEmptyChannelSinceMillis(0);
+        }
+
+        TrackScheduler scheduler = manager.getScheduler();
+        if (scheduler.isPlaying() && !scheduler.isPaused()) {
+            manager.markActive();
+            return false;
+        }
+        return now - manager.getLastActivityMillis() >= idleTimeoutMs;
+    }
+
+    private boolean hasNoListeners(AudioChannel channel) {
+        return channel.getMembers().stream()
+                .allMatch(member -> member.getUser().isBot());
+    }
+}
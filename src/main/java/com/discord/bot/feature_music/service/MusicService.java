@@ -1,72 +1,208 @@
 package com.discord.bot.feature_music.service;
 
+import com.discord.bot.feature_music.domain.QueueChange;
+import com.discord.bot.feature_music.domain.QueueSnapshot;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.managers.AudioManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class MusicService {
+
+    @Value("${audio.preload.enabled:true}")
+    private boolean preloadEnabled;
+
+    @Value("${audio.preload.window-ms:5000}")
+    private long preloadWindowMs;
+
     private final AudioPlayerManager audioPlayerManager;
-    private final Map<Long, GuildMusicManager> musicManagers = new ConcurrentHashMap<>();
+    private final TrackCodec trackCodec;
+    private final QueueSnapshotStore queueSnapshotStore;
+    private final PlaybackMetrics playbackMetrics;
+    // Managers partitioned by shard id, so each shard's guilds can be iterated and torn down independently
+    private final Map<Integer, Map<Long, GuildMusicManager>> musicManagersByShard = new ConcurrentHashMap<>();
 
     public GuildMusicManager getOrCreateMusicManager(Guild guild) {
         // computeIfAbsent ensures one manager per guild
-        return musicManagers.computeIfAbsent(guild.getIdLong(), guildId -> {
+        GuildMusicManager musicManager = shardPartition(guild).computeIfAbsent(guild.getIdLong(), guildId -> {
             log.info("Creating new music manager for guild: {}", guild.getName());
-            GuildMusicManager manager = new GuildMusicManager(audioPlayerManager);
+            GuildMusicManager manager = new GuildMusicManager(audioPlayerManager, trackCodec,
+                    preloadEnabled ? preloadWindowMs : 0, playbackMetrics.register(guildId));
             // set sending handler for this guild
             guild.getAudioManager().setSendingHandler(manager.getSendHandler());
+            // Pick up the queue this guild had before the last restart, if any
+            queueSnapshotStore.takePending(guildId).ifPresent(snapshot -> {
+                manager.setVoiceChannelId(snapshot.voiceChannelId());
+                manager.getScheduler().restore(snapshot);
+            });
             return manager;
         });
+        musicManager.markActive();
+        return musicManager;
     }
 
     /**
-     * Remove music manager for a guild (cleanup when bot leaves)
+     * Remove music manager for a guild (cleanup when bot leaves or goes idle).
+     * Also closes the voice connection so the UDP socket is released.
      */
     public void removeMusicManager(Guild guild) {
-        GuildMusicManager manager = musicManagers.remove(guild.getIdLong());
+        GuildMusicManager manager = shardPartition(guild).remove(guild.getIdLong());
         if (manager != null) {
             log.info("Removed music manager for guild: {}", guild.getName());
+            AudioManager audioManager = guild.getAudioManager();
+            audioManager.setSendingHandler(null);
+            audioManager.closeAudioConnection();
             // Clean up resources
-            manager.getScheduler().stop();
+            manager.destroy();
+            playbackMetrics.unregister(guild.getIdLong());
+        }
+        queueSnapshotStore.delete(guild.getIdLong());
+    }
+
+    /**
+     * Remove music manager by guild id, for guilds that are no longer visible to the bot
+     */
+    public void removeMusicManager(long guildId) {
+        GuildMusicManager manager = null;
+        for (Map<Long, GuildMusicManager> partition : musicManagersByShard.values()) {
+            manager = partition.remove(guildId);
+            if (manager != null) {
+                break;
+            }
+        }
+        if (manager != null) {
+            log.info("Removed music manager for unknown guild: {}", guildId);
+            manager.destroy();
+            playbackMetrics.unregister(guildId);
         }
+        queueSnapshotStore.delete(guildId);
+    }
+
+    /**
+     * Shard ids that currently have a partition of managers
+     */
+    public Set<Integer> getShardIds() {
+        return Collections.unmodifiableSet(musicManagersByShard.keySet());
+    }
+
+    /**
+     * Read-only view of one shard's active managers keyed by guild id
+     */
+    public Map<Long, GuildMusicManager> getMusicManagers(int shardId) {
+        return Collections.unmodifiableMap(musicManagersByShard.getOrDefault(shardId, Map.of()));
     }
 
     /**
      * Get music manager for a guild (returns null if not exists)
      */
     public GuildMusicManager getMusicManager(Guild guild) {
-        return musicManagers.get(guild.getIdLong());
+        return shardPartition(guild).get(guild.getIdLong());
     }
 
     /**
      * Check if a guild has an active music manager
      */
     public boolean hasMusicManager(Guild guild) {
-        return musicManagers.containsKey(guild.getIdLong());
+        return shardPartition(guild).containsKey(guild.getIdLong());
     }
 
     /**
      * Get the number of active music managers
      */
     public int getActiveManagerCount() {
-        return musicManagers.size();
+        return musicManagersByShard.values().stream().mapToInt(Map::size).sum();
+    }
+
+    /**
+     * Tear down every manager of one shard, e.g. when the shard is shut down or handed to another process
+     *
+     * @return Number of removed managers
+     */
+    public int removeShard(int shardId) {
+        Map<Long, GuildMusicManager> partition = musicManagersByShard.remove(shardId);
+        if (partition == null) {
+            return 0;
+        }
+        partition.forEach((guildId, manager) -> {
+            persistSnapshot(guildId, manager, true);
+            manager.destroy();
+            playbackMetrics.unregister(guildId);
+        });
+        log.info("Removed {} music managers for shard {}", partition.size(), shardId);
+        return partition.size();
+    }
+
+    private Map<Long, GuildMusicManager> shardPartition(Guild guild) {
+        int shardId = guild.getJDA().getShardInfo().getShardId();
+        return musicManagersByShard.computeIfAbsent(shardId, id -> new ConcurrentHashMap<>());
+    }
+
+    /**
+     * Persist what changed in each guild since the last write: advancing to the next track and appending tracks are
+     * small change records, reordering or removing tracks rewrites the whole queue, guilds that only advanced in the
+     * current track get a position record, and untouched guilds write nothing
+     */
+    @Scheduled(fixedDelayString = "${audio.snapshot.flush-interval-ms:5000}")
+    public void persistSnapshots() {
+        if (!queueSnapshotStore.isOpen()) {
+            return;
+        }
+        musicManagersByShard.values().forEach(partition ->
+                partition.forEach((guildId, manager) -> persistSnapshot(guildId, manager, false)));
+    }
+
+    private void persistSnapshot(long guildId, GuildMusicManager manager, boolean force) {
+        TrackScheduler scheduler = manager.getScheduler();
+        List<QueueChange> changes = force ? null : scheduler.takeChanges();
+        if (changes != null) {
+            if (changes.isEmpty()) {
+                if (scheduler.isPlaying()) {
+                    queueSnapshotStore.savePosition(guildId, scheduler.getCurrentTrack().getPosition());
+                }
+                return;
+            }
+            if (!scheduler.isPlaying() && scheduler.getQueueSize() == 0) {
+                // Played to the end, there is nothing left to resume
+                queueSnapshotStore.delete(guildId);
+                return;
+            }
+            if (queueSnapshotStore.saveChanges(guildId, changes)) {
+                return;
+            }
+            scheduler.requireSnapshot();
+        }
+        QueueSnapshot snapshot = scheduler.takeSnapshot(manager.getVoiceChannelId());
+        if (snapshot == null && force) {
+            // No later flush will come, a snapshot racing a change is still better than none
+            snapshot = scheduler.snapshot(manager.getVoiceChannelId());
+        }
+        if (snapshot != null) {
+            queueSnapshotStore.save(guildId, snapshot);
+        }
     }
 
     /**
-     * Clean up all music managers (shutdown)
+     * Clean up all music managers (shutdown), writing a final snapshot for each so queues survive the restart.
+     * Runs before the snapshot store closes, as the store is one of this service's dependencies.
      */
-    public void shutdown() {
-        log.info("Shutting down music service, cleaning up {} managers", musicManagers.size());
-        musicManagers.values().forEach(manager -> manager.getScheduler().stop());
-        musicManagers.clear();
+    @PreDestroy
+    public synchronized void shutdown() {
+        log.info("Shutting down music service, cleaning up {} managers", getActiveManagerCount());
+        List.copyOf(musicManagersByShard.keySet()).forEach(this::removeShard);
     }
 }
 
@@ -0,0 +1,89 @@
+package com.discord.bot.feature_music.service;
+
+import com.discord.bot.feature_music.domain.PlaybackHealth;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Owns the per-guild playback meters. Stats live exactly as long as the guild's music manager, so
+ * evicted guilds do not leave stale time series behind.
+ */
+@Component
+@RequiredArgsConstructor
+public class PlaybackMetrics {
+    private final MeterRegistry meterRegistry;
+    private final TrackResolutionCache trackResolutionCache;
+
+    private final Map<Long, GuildPlaybackStats> statsByGuild = new ConcurrentHashMap<>();
+    // Frames of evicted guilds, so process-wide totals never go backwards
+    private final LongAdder retiredProvidedFrames = new LongAdder();
+    private final LongAdder retiredMissedFrames = new LongAdder();
+
+    @PostConstruct
+    public void registerCacheMeters() {
+        FunctionCounter.builder("music.resolution.cache.hits", trackResolutionCache, TrackResolutionCache::getHitCount)
+                .description("Track resolutions served from the cache")
+                .register(meterRegistry);
+        FunctionCounter.builder("music.resolution.cache.misses", trackResolutionCache, TrackResolutionCache::getMissCount)
+                .description("Track resolutions that went to the source")
+                .register(meterRegistry);
+        FunctionCounter.builder("music.resolution.cache.coalesced", trackResolutionCache, TrackResolutionCache::getCoalescedCount)
+                .description("Track resolutions that joined an identical in-flight load")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Create and register the stats of a guild, replacing any left over from a previous manager
+     */
+    public GuildPlaybackStats register(long guildId) {
+        // The registry hands back existing meters for the same id, so the old ones must be gone first
+        unregister(guildId);
+        GuildPlaybackStats stats = new GuildPlaybackStats(guildId, meterRegistry);
+        statsByGuild.put(guildId, stats);
+        return stats;
+    }
+
+    public void unregister(long guildId) {
+        GuildPlaybackStats stats = statsByGuild.remove(guildId);
+        if (stats != null) {
+            retiredProvidedFrames.add(stats.getProvidedFrames());
+            retiredMissedFrames.add(stats.getMissedFrames());
+            stats.close();
+        }
+    }
+
+    /**
+     * Frames provided across all guilds since startup
+     */
+    public long getTotalProvidedFrames() {
+        return retiredProvidedFrames.sum()
+                + statsByGuild.values().stream().mapToLong(GuildPlaybackStats::getProvidedFrames).sum();
+    }
+
+    /**
+     * Frames missed while playing across all guilds since startup
+     */
+    public long getTotalMissedFrames() {
+        return retiredMissedFrames.sum()
+                + statsByGuild.values().stream().mapToLong(GuildPlaybackStats::getMissedFrames).sum();
+    }
+
+    /**
+     * Current health of every guild with a music manager, worst hit rate first
+     */
+    public List<PlaybackHealth> getHealth() {
+        return statsByGuild.values().stream()
+                .map(GuildPlaybackStats::snapshot)
+                .sorted(Comparator.comparingDouble(PlaybackHealth::provideHitRate))
+                .toList();
+    }
+}
@@ -0,0 +1,91 @@
+package com.discord.bot.feature_music.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.channel.concrete.VoiceChannel;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import net.dv8tion.jda.api.utils.MiscUtil;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Resumes playback after a restart for guilds whose listeners are still in the saved voice channel.
+ * Only a few guilds are resumed per tick so a rolling restart does not trigger a burst of track loads;
+ * everything else is restored lazily on the guild's next /play.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class QueueSnapshotResumer {
+
+    @Value("${audio.snapshot.resume-per-tick:2}")
+    private int resumePerTick;
+
+    private final QueueSnapshotStore queueSnapshotStore;
+    private final MusicService musicService;
+    private final ShardManager shardManager;
+
+    // Guilds already looked at, so guilds with nobody listening are not re-checked every tick
+    private final Set<Long> checkedGuilds = new HashSet<>();
+
+    @Scheduled(fixedDelayString = "${audio.snapshot.resume-interval-ms:1000}",
+            initialDelayString = "${audio.snapshot.resume-interval-ms:1000}")
+    public void resumePending() {
+        List<Long> pending = queueSnapshotStore.getPendingGuildIds();
+        int resumed = 0;
+        for (Long guildId : pending) {
+            if (resumed >= resumePerTick) {
+                break;
+            }
+            if (checkedGuilds.contains(guildId)) {
+                continue;
+            }
+            if (!isStartedShard(guildId)) {
+                continue;
+            }
+            if (resume(guildId)) {
+                resumed++;
+            }
+        }
+    }
+
+    /**
+     * Whether the guild belongs to one of this process's shards that has started, computed from the id alone, so
+     * guilds of other processes' shards cost no guild lookup
+     */
+    private boolean isStartedShard(long guildId) {
+        return shardManager.getShardById(MiscUtil.getShardForGuild(guildId, shardManager.getShardsTotal())) != null;
+    }
+
+    private boolean resume(long guildId) {
+        // Guilds of shards still connecting are not visible yet
+        Guild guild = shardManager.getGuildById(guildId);
+        if (guild == null || guild.getJDA().getStatus() != JDA.Status.CONNECTED) {
+            return false;
+        }
+        checkedGuilds.add(guildId);
+        if (musicService.hasMusicManager(guild)) {
+            return false;
+        }
+
+        long voiceChannelId = queueSnapshotStore.peekVoiceChannelId(guildId);
+        VoiceChannel channel = voiceChannelId != 0 ? guild.getVoiceChannelById(voiceChannelId) : null;
+        if (channel == null || channel.getMembers().stream().allMatch(member -> member.getUser().isBot())) {
+            // Nobody is listening anymore, keep the snapshot for the guild's next /play
+            return false;
+        }
+
+        GuildMusicManager manager = musicService.getOrCreateMusicManager(guild);
+        guild.getAudioManager().setSendingHandler(manager.getSendHandler());
+        guild.getAudioManager().openAudioConnection(channel);
+        log.info("Resumed queue for guild {} in channel {}", guild.getName(), channel.getName());
+        return true;
+    }
+}
@@ -0,0 +1,486 @@
+package com.discord.bot.feature_music.service;
+
+import com.discord.bot.feature_music.domain.QueueChange;
+import com.discord.bot.feature_music.domain.QueueSnapshot;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Append-only, memory-mapped log of per-guild queue snapshots.
+ * <p>
+ * Layout: an 8 byte header (magic, version) followed by records of
+ * {@code [type:1][guildId:8][length:4][payload:length]}. Full records hold an encoded {@link QueueSnapshot}, change
+ * records a {@link QueueChange} applied on top of it in file order, position records only the playback position,
+ * and tombstones drop a guild. The type byte is written last so a
+ * torn write is ignored on the next scan, and the byte after the last record is kept zero so a scan stops there.
+ * Two files of fixed size are mapped once: when the active one fills up, live records are compacted into the other,
+ * whose header is written last, and the previous one is invalidated. A crash in between leaves a valid file behind.
+ * Compaction folds each guild's changes and position into a single full record.
+ */
+@Slf4j
+@Component
+public class QueueSnapshotStore {
+    private static final int MAGIC = 0x51534E50; // "QSNP"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int RECORD_HEADER_BYTES = 1 + 8 + 4;
+    private static final byte RECORD_FULL = 1;
+    private static final byte RECORD_POSITION = 2;
+    private static final byte RECORD_TOMBSTONE = 3;
+    private static final byte RECORD_ADVANCE = 4;
+    private static final byte RECORD_APPEND = 5;
+
+    private final boolean enabled;
+    private final String path;
+    private final int fileSizeBytes;
+
+    private final FileChannel[] channels = new FileChannel[2];
+    private final MappedByteBuffer[] buffers = new MappedByteBuffer[2];
+    // Index of the file records are appended to; buffer is its mapping
+    private int active;
+    private MappedByteBuffer buffer;
+    private int writePosition;
+    private boolean compacting;
+
+    // Offsets of the latest live records per guild
+    private final Map<Long, Integer> fullRecords = new HashMap<>();
+    private final Map<Long, Integer> positionRecords = new HashMap<>();
+    // Offsets of the change records written after each guild's full record, in file order
+    private final Map<Long, List<Integer>> changeRecords = new HashMap<>();
+    // Guilds restored from disk that have not been picked up yet
+    private final Set<Long> pendingRestores = new LinkedHashSet<>();
+
+    public QueueSnapshotStore(@Value("${audio.snapshot.enabled:true}") boolean enabled,
+                              @Value("${audio.snapshot.path:data/queue-snapshots.bin}") String path,
+                              @Value("${audio.snapshot.file-size-bytes:67108864}") int fileSizeBytes) {
+        this.enabled = enabled;
+        this.path = path;
+        this.fileSizeBytes = fileSizeBytes;
+    }
+
+    @PostConstruct
+    public synchronized void open() {
+        if (!enabled) {
+            log.info("Queue snapshots disabled");
+            return;
+        }
+        try {
+            Path file = Path.of(path);
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            Path[] files = {file, file.resolveSibling(file.getFileName() + ".alt")};
+            for (int i = 0; i < files.length; i++) {
+                channels[i] = FileChannel.open(files[i], StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                buffers[i] = channels[i].map(FileChannel.MapMode.READ_WRITE, 0, fileSizeBytes);
+            }
+            active = hasHeader(buffers[0]) || !hasHeader(buffers[1]) ? 0 : 1;
+            buffer = buffers[active];
+            if (hasHeader(buffer)) {
+                scan();
+            } else {
+                writePosition = HEADER_BYTES;
+                buffer.put(writePosition, (byte) 0);
+                writeHeader(buffer);
+            }
+            pendingRestores.addAll(fullRecords.keySet());
+            log.info("Opened queue snapshot store at {} with {} guilds pending restore", file, pendingRestores.size());
+        } catch (IOException e) {
+            log.error("Failed to open queue snapshot store at {}, snapshots disabled", path, e);
+            close();
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        buffer = null;
+        for (int i = 0; i < channels.length; i++) {
+            try {
+                if (buffers[i] != null) {
+                    buffers[i].force();
+                }
+                if (channels[i] != null) {
+                    channels[i].close();
+                }
+            } catch (IOException e) {
+                log.error("Error closing queue snapshot store", e);
+            }
+            // The mappings are released once the buffers are collected
+            buffers[i] = null;
+            channels[i] = null;
+        }
+    }
+
+    public synchronized boolean isOpen() {
+        return buffer != null;
+    }
+
+    /**
+     * Guild ids with a snapshot on disk that has not been restored yet, in file order
+     */
+    public synchronized List<Long> getPendingGuildIds() {
+        return new ArrayList<>(pendingRestores);
+    }
+
+    /**
+     * Voice channel stored in a guild's pending snapshot without consuming it
+     *
+     * @return The channel id, or 0 if there is no pending snapshot or it has no channel
+     */
+    public synchronized long peekVoiceChannelId(long guildId) {
+        if (!isOpen() || !pendingRestores.contains(guildId)) {
+            return 0;
+        }
+        // The channel id is the first field of the payload
+        return buffer.getLong(fullRecords.get(guildId) + RECORD_HEADER_BYTES);
+    }
+
+    /**
+     * Hand out a guild's pending snapshot exactly once
+     */
+    public synchronized Optional<QueueSnapshot> takePending(long guildId) {
+        if (!isOpen() || !pendingRestores.remove(guildId)) {
+            return Optional.empty();
+        }
+        try {
+            QueueSnapshot snapshot = read(guildId);
+            return snapshot.isEmpty() ? Optional.empty() : Optional.of(snapshot);
+        } catch (IOException e) {
+            log.warn("Could not read queue snapshot for guild {}", guildId, e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Write a guild's full queue state; an empty snapshot removes the guild instead
+     */
+    public synchronized void save(long guildId, QueueSnapshot snapshot) {
+        if (snapshot.isEmpty()) {
+            delete(guildId);
+            return;
+        }
+        try {
+            int offset = append(RECORD_FULL, guildId, encode(snapshot));
+            if (offset >= 0) {
+                fullRecords.put(guildId, offset);
+                positionRecords.remove(guildId);
+                changeRecords.remove(guildId);
+                pendingRestores.remove(guildId);
+            }
+        } catch (IOException e) {
+            log.warn("Could not encode queue snapshot for guild {}", guildId, e);
+        }
+    }
+
+    /**
+     * Write changes made since the guild's last full snapshot without rewriting its queue
+     *
+     * @return false if the guild has no full snapshot or a change was not written; a full snapshot is needed then
+     */
+    public synchronized boolean saveChanges(long guildId, List<QueueChange> changes) {
+        for (QueueChange change : changes) {
+            if (!fullRecords.containsKey(guildId)) {
+                return false;
+            }
+            byte type = change instanceof QueueChange.Advance ? RECORD_ADVANCE : RECORD_APPEND;
+            int offset;
+            try {
+                offset = append(type, guildId, encode(change));
+            } catch (IOException e) {
+                log.warn("Could not encode queue change for guild {}", guildId, e);
+                return false;
+            }
+            // Compacting while writing may have dropped the guild
+            if (offset < 0 || !fullRecords.containsKey(guildId)) {
+                return false;
+            }
+            changeRecords.computeIfAbsent(guildId, id -> new ArrayList<>()).add(offset);
+            if (type == RECORD_ADVANCE) {
+                positionRecords.remove(guildId);
+            }
+            pendingRestores.remove(guildId);
+        }
+        return true;
+    }
+
+    /**
+     * Cheap position-only update for a guild whose queue did not change since its last full snapshot
+     */
+    public synchronized void savePosition(long guildId, long positionMs) {
+        if (!fullRecords.containsKey(guildId)) {
+            return;
+        }
+        int offset = append(RECORD_POSITION, guildId, ByteBuffer.allocate(8).putLong(positionMs).array());
+        if (offset >= 0) {
+            positionRecords.put(guildId, offset);
+        }
+    }
+
+    public synchronized void delete(long guildId) {
+        pendingRestores.remove(guildId);
+        if (fullRecords.remove(guildId) == null) {
+            return;
+        }
+        positionRecords.remove(guildId);
+        changeRecords.remove(guildId);
+        append(RECORD_TOMBSTONE, guildId, new byte[0]);
+    }
+
+    /**
+     * @return Offset of the written record, or -1 if it was not written
+     */
+    private int append(byte type, long guildId, byte[] payload) {
+        if (!isOpen()) {
+            return -1;
+        }
+        int recordSize = RECORD_HEADER_BYTES + payload.length;
+        if (writePosition + recordSize > buffer.capacity()) {
+            if (compacting) {
+                return -1;
+            }
+            compact();
+            if (!isOpen() || writePosition + recordSize > buffer.capacity()) {
+                log.warn("Queue snapshot for guild {} ({} bytes) does not fit in the snapshot file", guildId, recordSize);
+                return -1;
+            }
+        }
+        int offset = writePosition;
+        writeRecord(buffer, offset, type, guildId, payload);
+        writePosition += recordSize;
+        return offset;
+    }
+
+    private static void writeRecord(MappedByteBuffer target, int offset, byte type, long guildId, byte[] payload) {
+        // The file may hold older records past this one, end the scan here until the next record is committed
+        int next = offset + RECORD_HEADER_BYTES + payload.length;
+        if (next < target.capacity()) {
+            target.put(next, (byte) 0);
+        }
+        target.putLong(offset + 1, guildId);
+        target.putInt(offset + 9, payload.length);
+        target.put(offset + RECORD_HEADER_BYTES, payload);
+        // Commit the record by writing its type last
+        target.put(offset, type);
+    }
+
+    private void scan() {
+        int position = HEADER_BYTES;
+        while (position + RECORD_HEADER_BYTES <= buffer.capacity()) {
+            byte type = buffer.get(position);
+            if (type == 0) {
+                break;
+            }
+            long guildId = buffer.getLong(position + 1);
+            int length = buffer.getInt(position + 9);
+            if (length < 0 || position + RECORD_HEADER_BYTES + length > buffer.capacity()) {
+                log.warn("Truncated queue snapshot record at offset {}, ignoring the rest of the file", position);
+                break;
+            }
+            switch (type) {
+                case RECORD_FULL -> {
+                    fullRecords.put(guildId, position);
+                    positionRecords.remove(guildId);
+                    changeRecords.remove(guildId);
+                }
+                case RECORD_POSITION -> positionRecords.put(guildId, position);
+                case RECORD_ADVANCE, RECORD_APPEND -> {
+                    if (fullRecords.containsKey(guildId)) {
+                        changeRecords.computeIfAbsent(guildId, id -> new ArrayList<>()).add(position);
+                        if (type == RECORD_ADVANCE) {
+                            positionRecords.remove(guildId);
+                        }
+                    }
+                }
+                case RECORD_TOMBSTONE -> {
+                    fullRecords.remove(guildId);
+                    positionRecords.remove(guildId);
+                    changeRecords.remove(guildId);
+                }
+                default -> log.warn("Unknown queue snapshot record type {} at offset {}", type, position);
+            }
+            position += RECORD_HEADER_BYTES + length;
+        }
+        writePosition = position;
+    }
+
+    /**
+     * Fold each guild's latest records into one full record in the other file and switch over to it
+     */
+    private void compact() {
+        compacting = true;
+        try {
+            Map<Long, byte[]> payloads = new HashMap<>();
+            for (long guildId : fullRecords.keySet()) {
+                try {
+                    QueueSnapshot snapshot = read(guildId);
+                    if (!snapshot.isEmpty()) {
+                        payloads.put(guildId, encode(snapshot));
+                        continue;
+                    }
+                } catch (IOException e) {
+                    log.warn("Could not read queue snapshot for guild {} during compaction", guildId, e);
+                }
+                pendingRestores.remove(guildId);
+            }
+
+            MappedByteBuffer previous = buffer;
+            buffer = buffers[1 - active];
+            // Invalidate the target before overwriting it, a crash from here on leaves the previous file in use
+            buffer.putInt(0, 0);
+            buffer.force();
+            writePosition = HEADER_BYTES;
+            buffer.put(writePosition, (byte) 0);
+            fullRecords.clear();
+            positionRecords.clear();
+            changeRecords.clear();
+
+            for (Map.Entry<Long, byte[]> entry : payloads.entrySet()) {
+                int offset = append(RECORD_FULL, entry.getKey(), entry.getValue());
+                if (offset < 0) {
+                    log.warn("Dropping queue snapshot for guild {} during compaction, file is full", entry.getKey());
+                    pendingRestores.remove(entry.getKey());
+                    continue;
+                }
+                fullRecords.put(entry.getKey(), offset);
+            }
+            buffer.force();
+            writeHeader(buffer);
+            buffer.force();
+            previous.putInt(0, 0);
+            previous.force();
+            active = 1 - active;
+            log.info("Compacted queue snapshot file to {} bytes for {} guilds", writePosition, fullRecords.size());
+        } finally {
+            compacting = false;
+        }
+    }
+
+    private static boolean hasHeader(MappedByteBuffer target) {
+        return target.getInt(0) == MAGIC && target.getInt(4) == VERSION;
+    }
+
+    private static void writeHeader(MappedByteBuffer target) {
+        target.putInt(4, VERSION);
+        target.putInt(0, MAGIC);
+    }
+
+    /**
+     * A guild's full record with its later changes and position applied
+     */
+    private QueueSnapshot read(long guildId) throws IOException {
+        QueueSnapshot snapshot = decode(readPayload(fullRecords.get(guildId)));
+        for (int offset : changeRecords.getOrDefault(guildId, List.of())) {
+            snapshot = snapshot.apply(decodeChange(buffer.get(offset), readPayload(offset)));
+        }
+        Integer positionOffset = positionRecords.get(guildId);
+        if (positionOffset != null) {
+            long positionMs = new DataInputStream(new ByteArrayInputStream(readPayload(positionOffset))).readLong();
+            snapshot = new QueueSnapshot(snapshot.voiceChannelId(), snapshot.currentTrack(), positionMs, snapshot.upcoming());
+        }
+        return snapshot;
+    }
+
+    private byte[] readPayload(int offset) {
+        int length = buffer.getInt(offset + 9);
+        byte[] payload = new byte[length];
+        buffer.get(offset + RECORD_HEADER_BYTES, payload);
+        return payload;
+    }
+
+    private static byte[] encode(QueueSnapshot snapshot) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(snapshot.voiceChannelId());
+        out.writeLong(snapshot.positionMs());
+        writeBytes(out, snapshot.currentTrack());
+        out.writeInt(snapshot.upcoming().size());
+        for (byte[] track : snapshot.upcoming()) {
+            writeBytes(out, track);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static QueueSnapshot decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        long voiceChannelId = in.readLong();
+        long positionMs = in.readLong();
+        byte[] currentTrack = readBytes(in);
+        int count = in.readInt();
+        List<byte[]> upcoming = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            upcoming.add(readBytes(in));
+        }
+        return new QueueSnapshot(voiceChannelId, currentTrack, positionMs, upcoming);
+    }
+
+    private static byte[] encode(QueueChange change) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        switch (change) {
+            case QueueChange.Advance advance -> out.writeInt(advance.skipped());
+            case QueueChange.Append append -> {
+                out.writeInt(append.tracks().size());
+                for (byte[] track : append.tracks()) {
+                    writeBytes(out, track);
+                }
+            }
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    private static QueueChange decodeChange(byte type, byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        if (type == RECORD_ADVANCE) {
+            return new QueueChange.Advance(in.readInt());
+        }
+        int count = in.readInt();
+        List<byte[]> tracks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tracks.add(readBytes(in));
+        }
+        return new QueueChange.Append(tracks);
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] data) throws IOException {
+        if (data == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(data.length);
+        out.write(data);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] data = new byte[length];
+        in.readFully(data);
+        return data;
+    }
+}
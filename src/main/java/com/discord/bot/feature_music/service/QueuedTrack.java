@@ -0,0 +1,53 @@
+package com.discord.bot.feature_music.service;
+
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrackInfo;
+
+import java.io.IOException;
+
+/**
+ * Queue entry that holds either a live track or only its encoded bytes.
+ * Bulk-queued playlist entries stay encoded and are turned into an AudioTrack when they reach the head of the queue.
+ */
+public final class QueuedTrack {
+    private final AudioTrack track;
+    private final byte[] encoded;
+
+    private QueuedTrack(AudioTrack track, byte[] encoded) {
+        this.track = track;
+        this.encoded = encoded;
+    }
+
+    public static QueuedTrack of(AudioTrack track) {
+        return new QueuedTrack(track, null);
+    }
+
+    public static QueuedTrack ofEncoded(byte[] encoded) {
+        return new QueuedTrack(null, encoded);
+    }
+
+    public boolean isMaterialized() {
+        return track != null;
+    }
+
+    /**
+     * Encoded form of this entry, or null if it only holds a live track
+     */
+    public byte[] getEncoded() {
+        return encoded;
+    }
+
+    /**
+     * Get a playable track, decoding it if this entry is still encoded
+     */
+    public AudioTrack materialize(TrackCodec codec) throws IOException {
+        return track != null ? track : codec.decode(encoded);
+    }
+
+    /**
+     * Track info for display; decodes a throwaway track for encoded entries
+     */
+    public AudioTrackInfo getInfo(TrackCodec codec) throws IOException {
+        return materialize(codec).getInfo();
+    }
+}
@@ -0,0 +1,37 @@
+package com.discord.bot.feature_music.service;
+
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageInput;
+import com.sedmelluq.discord.lavaplayer.tools.io.MessageOutput;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.DecodedTrackHolder;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Converts tracks to and from lavaplayer's compact binary track encoding.
+ * Encoded tracks only hold the track info, so they are much cheaper to keep around than live AudioTrack instances.
+ */
+@Component
+@RequiredArgsConstructor
+public class TrackCodec {
+    private final AudioPlayerManager audioPlayerManager;
+
+    public byte[] encode(AudioTrack track) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        audioPlayerManager.encodeTrack(new MessageOutput(out), track);
+        return out.toByteArray();
+    }
+
+    public AudioTrack decode(byte[] encoded) throws IOException {
+        DecodedTrackHolder holder = audioPlayerManager.decodeTrack(new MessageInput(new ByteArrayInputStream(encoded)));
+        if (holder == null || holder.decodedTrack == null) {
+            throw new IOException("Encoded track could not be decoded by any source manager");
+        }
+        return holder.decodedTrack;
+    }
+}
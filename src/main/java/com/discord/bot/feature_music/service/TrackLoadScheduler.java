@@ -0,0 +1,316 @@
+package com.discord.bot.feature_music.service;
+
+import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
+import com.sedmelluq.discord.lavaplayer.player.AudioPlayerManager;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fair front door to lavaplayer's item loader pool. Each guild has its own queue and at most one load in flight,
+ * with single tracks ahead of playlists. Guilds take turns using deficit round robin: a single track costs one
+ * turn, a playlist several, and playlists may only occupy part of the pool, so a guild pasting huge playlists
+ * cannot delay other guilds' /play.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TrackLoadScheduler {
+
+    // Keep at or below the item loader pool size so lavaplayer never queues work behind our back
+    @Value("${audio.load-scheduler.max-concurrent:${audio.item-loader-thread-pool-size:10}}")
+    private int maxConcurrent;
+
+    @Value("${audio.load-scheduler.max-concurrent-playlists:4}")
+    private int maxConcurrentPlaylists;
+
+    // Turns a playlist load costs relative to a single track
+    @Value("${audio.load-scheduler.playlist-cost:4}")
+    private int playlistCost;
+
+    @Value("${audio.load-scheduler.max-queued-per-guild:10}")
+    private int maxQueuedPerGuild;
+
+    private final AudioPlayerManager audioPlayerManager;
+    private final MeterRegistry meterRegistry;
+
+    // Guarded by this
+    private final Map<Long, GuildLoads> guilds = new HashMap<>();
+    private final ArrayDeque<GuildLoads> ready = new ArrayDeque<>();
+    private int inFlight;
+    private int playlistsInFlight;
+    private int queued;
+
+    private Timer trackWaitTimer;
+    private Timer playlistWaitTimer;
+    private Counter cancelledLoads;
+    private Counter rejectedLoads;
+
+    @PostConstruct
+    public void registerMeters() {
+        trackWaitTimer = Timer.builder("music.load.wait")
+                .description("Time a load waited for a loader thread")
+                .tag("type", "track")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        playlistWaitTimer = Timer.builder("music.load.wait")
+                .description("Time a load waited for a loader thread")
+                .tag("type", "playlist")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        cancelledLoads = Counter.builder("music.load.cancelled")
+                .description("Queued loads dropped because no request waited for them any more")
+                .register(meterRegistry);
+        rejectedLoads = Counter.builder("music.load.rejected")
+                .description("Loads refused because their guild had too many queued")
+                .register(meterRegistry);
+        Gauge.builder("music.load.queued", this, TrackLoadScheduler::getQueuedCount)
+                .description("Loads waiting for a loader thread")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Queue a load for a guild
+     *
+     * @param guildId Guild the load is for
+     * @param query   Identifier or search query to resolve
+     * @param handler Handler receiving the result; gets loadFailed if the load is rejected or cancelled
+     */
+    public void load(long guildId, String query, AudioLoadResultHandler handler) {
+        PendingLoad load = new PendingLoad(guildId, query, handler, isPlaylistQuery(query), System.nanoTime());
+        List<PendingLoad> toStart;
+        synchronized (this) {
+            GuildLoads loads = guilds.computeIfAbsent(guildId, id -> new GuildLoads());
+            if (loads.size() >= maxQueuedPerGuild) {
+                rejectedLoads.increment();
+                toStart = null;
+            } else {
+                loads.add(load);
+                queued++;
+                if (!loads.busy && !loads.ready) {
+                    loads.ready = true;
+                    ready.addLast(loads);
+                }
+                toStart = pollRunnable();
+            }
+        }
+        if (toStart == null) {
+            handler.loadFailed(new FriendlyException("Too many songs are still loading for this server, try again shortly.",
+                    FriendlyException.Severity.COMMON, null));
+            return;
+        }
+        toStart.forEach(this::start);
+    }
+
+    /**
+     * Drop a queued load, e.g. because no request waits for its result any more. A load already running is left to
+     * finish.
+     *
+     * @param handler Handler the load was queued with
+     * @return Whether the load was still queued and is dropped; its handler is not called
+     */
+    public boolean cancel(long guildId, AudioLoadResultHandler handler) {
+        synchronized (this) {
+            GuildLoads loads = guilds.get(guildId);
+            if (loads == null || !loads.remove(handler)) {
+                return false;
+            }
+            queued--;
+            if (loads.isEmpty()) {
+                if (loads.ready) {
+                    loads.ready = false;
+                    ready.remove(loads);
+                }
+                if (!loads.busy) {
+                    guilds.remove(guildId);
+                }
+            }
+        }
+        cancelledLoads.increment();
+        return true;
+    }
+
+    public synchronized int getQueuedCount() {
+        return queued;
+    }
+
+    public synchronized int getInFlightCount() {
+        return inFlight;
+    }
+
+    /**
+     * Take as many loads as the free loader slots allow, in fair order
+     */
+    private List<PendingLoad> pollRunnable() {
+        List<PendingLoad> toStart = new ArrayList<>();
+        while (inFlight < maxConcurrent) {
+            PendingLoad next = pollNext();
+            if (next == null) {
+                break;
+            }
+            inFlight++;
+            if (next.playlist()) {
+                playlistsInFlight++;
+            }
+            queued--;
+            toStart.add(next);
+        }
+        return toStart;
+    }
+
+    private PendingLoad pollNext() {
+        boolean playlistsAllowed = playlistsInFlight < maxConcurrentPlaylists;
+        // Enough visits for every guild to save up for a playlist
+        int visits = ready.size() * Math.max(playlistCost, 1);
+        for (int i = 0; i < visits && !ready.isEmpty(); i++) {
+            GuildLoads loads = ready.pollFirst();
+            PendingLoad head = loads.peek(playlistsAllowed);
+            if (head != null) {
+                loads.deficit++;
+                int cost = head.playlist() ? playlistCost : 1;
+                if (loads.deficit >= cost) {
+                    loads.deficit -= cost;
+                    loads.remove(head);
+                    loads.ready = false;
+                    loads.busy = true;
+                    return head;
+                }
+            }
+            ready.addLast(loads);
+        }
+        return null;
+    }
+
+    private void start(PendingLoad load) {
+        (load.playlist() ? playlistWaitTimer : trackWaitTimer)
+                .record(System.nanoTime() - load.enqueuedNanos(), TimeUnit.NANOSECONDS);
+        try {
+            audioPlayerManager.loadItem(load.query(), new AudioLoadResultHandler() {
+                @Override
+                public void trackLoaded(AudioTrack track) {
+                    finish(load);
+                    load.handler().trackLoaded(track);
+                }
+
+                @Override
+                public void playlistLoaded(AudioPlaylist playlist) {
+                    finish(load);
+                    load.handler().playlistLoaded(playlist);
+                }
+
+                @Override
+                public void noMatches() {
+                    finish(load);
+                    load.handler().noMatches();
+                }
+
+                @Override
+                public void loadFailed(FriendlyException exception) {
+                    finish(load);
+                    load.handler().loadFailed(exception);
+                }
+            });
+        } catch (RuntimeException e) {
+            finish(load);
+            load.handler().loadFailed(new FriendlyException("Could not start loading.", FriendlyException.Severity.FAULT, e));
+        }
+    }
+
+    /**
+     * Free the load's slot and hand the freed capacity to the next loads
+     */
+    private void finish(PendingLoad load) {
+        List<PendingLoad> toStart;
+        synchronized (this) {
+            inFlight--;
+            if (load.playlist()) {
+                playlistsInFlight--;
+            }
+            GuildLoads loads = guilds.get(load.guildId());
+            if (loads != null) {
+                loads.busy = false;
+                if (loads.isEmpty()) {
+                    guilds.remove(load.guildId());
+                } else {
+                    loads.ready = true;
+                    ready.addLast(loads);
+                }
+            }
+            toStart = pollRunnable();
+        }
+        toStart.forEach(this::start);
+    }
+
+    /**
+     * Playlist URLs of the common sources; searches resolve to a handful of results and count as single tracks
+     */
+    static boolean isPlaylistQuery(String query) {
+        String lower = query.toLowerCase();
+        return lower.startsWith("http") && (lower.contains("list=")
+                || lower.contains("/playlist")
+                || lower.contains("/sets/")
+                || lower.contains("/album/"));
+    }
+
+    private record PendingLoad(long guildId, String query, AudioLoadResultHandler handler, boolean playlist,
+                               long enqueuedNanos) {
+    }
+
+    /**
+     * One guild's queued loads; single tracks go before playlists
+     */
+    private static final class GuildLoads {
+        private final ArrayDeque<PendingLoad> tracks = new ArrayDeque<>();
+        private final ArrayDeque<PendingLoad> playlists = new ArrayDeque<>();
+        // Turns saved up towards the next load, reset when the guild has nothing left to load
+        private int deficit;
+        // A load of this guild is running
+        private boolean busy;
+        // The guild is in the round robin
+        private boolean ready;
+
+        private void add(PendingLoad load) {
+            (load.playlist() ? playlists : tracks).addLast(load);
+        }
+
+        private PendingLoad peek(boolean playlistsAllowed) {
+            if (!tracks.isEmpty()) {
+                return tracks.peekFirst();
+            }
+            return playlistsAllowed ? playlists.peekFirst() : null;
+        }
+
+        private void remove(PendingLoad load) {
+            (load.playlist() ? playlists : tracks).remove(load);
+        }
+
+        private boolean remove(AudioLoadResultHandler handler) {
+            return tracks.removeIf(load -> load.handler() == handler)
+                    || playlists.removeIf(load -> load.handler() == handler);
+        }
+
+        private int size() {
+            return tracks.size() + playlists.size();
+        }
+
+        private boolean isEmpty() {
+            return tracks.isEmpty() && playlists.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,389 @@
+package com.discord.bot.feature_music.service;
+
+import com.sedmelluq.discord.lavaplayer.player.AudioLoadResultHandler;
+import com.sedmelluq.discord.lavaplayer.tools.FriendlyException;
+import com.sedmelluq.discord.lavaplayer.track.AudioPlaylist;
+import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
+import com.sedmelluq.discord.lavaplayer.track.BasicAudioPlaylist;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Resolves /play queries through lavaplayer with a TTL + LRU cache of encoded results.
+ * Identical queries that are already loading are coalesced into a single remote lookup.
+ * Like lavaplayer's loadItemOrdered, results reach each guild's handlers in the order the guild asked, whether
+ * they came from the cache, a coalesced lookup or a lookup of their own.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class TrackResolutionCache {
+
+    @Value("${audio.resolution-cache.max-entries:1000}")
+    private int maxEntries;
+
+    @Value("${audio.resolution-cache.ttl-ms:3600000}")
+    private long ttlMs;
+
+    @Value("${audio.resolution-cache.max-tracks-per-entry:500}")
+    private int maxTracksPerEntry;
+
+    private final TrackLoadScheduler trackLoadScheduler;
+    private final TrackCodec trackCodec;
+
+    // Guarded by itself
+    private final Map<String, SharedLoad> inFlightLoads = new HashMap<>();
+    // Completes once the guild's latest request got its result
+    private final Map<Long, CompletableFuture<Void>> deliveryTails = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    // Access-ordered map gives us LRU eviction, guarded by its own monitor
+    private final LinkedHashMap<String, CachedResolution> cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedResolution> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    /**
+     * Drop-in replacement for AudioPlayerManager#loadItemOrdered that serves repeated queries from cache
+     *
+     * @param guildId Guild the load is for, remote lookups are scheduled fairly between guilds
+     * @param query   Identifier or search query to resolve
+     * @param handler Handler receiving fresh track instances for this request
+     */
+    public void loadItemOrdered(long guildId, String query, AudioLoadResultHandler handler) {
+        loadItem(guildId, query.trim(), new OrderedHandler(guildId, handler));
+    }
+
+    private void loadItem(long guildId, String key, AudioLoadResultHandler handler) {
+        CachedResolution cached = getIfFresh(key);
+        if (cached != null) {
+            try {
+                dispatchCached(cached, handler);
+                hits.incrementAndGet();
+                return;
+            } catch (IOException e) {
+                log.warn("Cached resolution for '{}' could not be decoded, reloading", key, e);
+                invalidate(key);
+            }
+        }
+
+        SharedLoad load;
+        synchronized (inFlightLoads) {
+            SharedLoad inFlight = inFlightLoads.get(key);
+            if (inFlight != null) {
+                inFlight.waiters.add(new Waiter(guildId, handler));
+                load = null;
+            } else {
+                load = new SharedLoad(key, guildId);
+                load.waiters.add(new Waiter(guildId, handler));
+                inFlightLoads.put(key, load);
+            }
+        }
+        if (load == null) {
+            coalesced.incrementAndGet();
+            log.debug("Joining in-flight load for query: {}", key);
+            return;
+        }
+
+        misses.incrementAndGet();
+        trackLoadScheduler.load(guildId, key, load);
+    }
+
+    /**
+     * Stop the guild's requests still waiting for a lookup, e.g. on /stop. A lookup other guilds also wait for
+     * keeps going, moved to one of their queues if it had not started yet; a lookup nobody waits for any more is
+     * dropped from the scheduler.
+     *
+     * @return Number of stopped requests
+     */
+    public int cancel(long guildId) {
+        List<Waiter> stopped = new ArrayList<>();
+        List<SharedLoad> abandoned = new ArrayList<>();
+        Map<SharedLoad, Long> handedOver = new HashMap<>();
+        synchronized (inFlightLoads) {
+            Iterator<SharedLoad> loads = inFlightLoads.values().iterator();
+            while (loads.hasNext()) {
+                SharedLoad load = loads.next();
+                load.waiters.removeIf(waiter -> waiter.guildId() == guildId && stopped.add(waiter));
+                if (load.waiters.isEmpty()) {
+                    loads.remove();
+                    abandoned.add(load);
+                } else if (load.queuedFor == guildId) {
+                    handedOver.put(load, load.waiters.getFirst().guildId());
+                }
+            }
+        }
+        abandoned.forEach(load -> trackLoadScheduler.cancel(load.queuedFor, load));
+        handedOver.forEach((load, nextGuildId) -> {
+            // A lookup already running is left to finish
+            if (trackLoadScheduler.cancel(guildId, load)) {
+                load.queuedFor = nextGuildId;
+                trackLoadScheduler.load(nextGuildId, load.key, load);
+            }
+        });
+
+        FriendlyException exception = new FriendlyException("Playback was stopped.", FriendlyException.Severity.COMMON, null);
+        stopped.forEach(waiter -> waiter.handler().loadFailed(exception));
+        return stopped.size();
+    }
+
+    /**
+     * Remove a single query from the cache
+     */
+    public void invalidate(String query) {
+        synchronized (cache) {
+            cache.remove(query.trim());
+        }
+    }
+
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    private CachedResolution getIfFresh(String key) {
+        synchronized (cache) {
+            CachedResolution cached = cache.get(key);
+            if (cached == null) {
+                return null;
+            }
+            if (cached.expiresAtMillis() < System.currentTimeMillis()) {
+                cache.remove(key);
+                return null;
+            }
+            return cached;
+        }
+    }
+
+    private void store(String key, CachedResolution resolution) {
+        if (resolution == null) {
+            return;
+        }
+        synchronized (cache) {
+            cache.put(key, resolution);
+        }
+    }
+
+    private long expiry() {
+        return System.currentTimeMillis() + ttlMs;
+    }
+
+    /**
+     * Encode tracks for the cache; returns null if any track cannot be encoded so the result is simply not cached
+     */
+    private List<byte[]> encodeAll(List<AudioTrack> tracks) {
+        List<byte[]> encoded = new ArrayList<>(tracks.size());
+        for (AudioTrack track : tracks) {
+            try {
+                encoded.add(trackCodec.encode(track));
+            } catch (IOException e) {
+                log.debug("Track {} cannot be encoded, skipping cache", track.getIdentifier(), e);
+                return null;
+            }
+        }
+        return encoded;
+    }
+
+    private void dispatchCached(CachedResolution cached, AudioLoadResultHandler handler) throws IOException {
+        List<AudioTrack> tracks = new ArrayList<>(cached.tracks().size());
+        for (byte[] encoded : cached.tracks()) {
+            tracks.add(trackCodec.decode(encoded));
+        }
+
+        if (!cached.playlist()) {
+            handler.trackLoaded(tracks.getFirst());
+            return;
+        }
+        AudioTrack selected = cached.selectedIndex() >= 0 ? tracks.get(cached.selectedIndex()) : null;
+        handler.playlistLoaded(new BasicAudioPlaylist(cached.playlistName(), tracks, selected, cached.searchResult()));
+    }
+
+    /**
+     * Hand the result of a shared load to a waiting request; each request gets its own track clones
+     */
+    private void dispatchShared(LoadOutcome outcome, FriendlyException error, AudioLoadResultHandler handler) {
+        if (error != null) {
+            handler.loadFailed(error);
+            return;
+        }
+
+        if (outcome.track() != null) {
+            handler.trackLoaded(outcome.track().makeClone());
+        } else if (outcome.playlist() != null) {
+            AudioPlaylist playlist = outcome.playlist();
+            List<AudioTrack> clones = new ArrayList<>(playlist.getTracks().size());
+            AudioTrack selected = null;
+            for (AudioTrack track : playlist.getTracks()) {
+                AudioTrack clone = track.makeClone();
+                if (track == playlist.getSelectedTrack()) {
+                    selected = clone;
+                }
+                clones.add(clone);
+            }
+            handler.playlistLoaded(new BasicAudioPlaylist(playlist.getName(), clones, selected, playlist.isSearchResult()));
+        } else {
+            handler.noMatches();
+        }
+    }
+
+    private record LoadOutcome(AudioTrack track, AudioPlaylist playlist) {
+    }
+
+    private record Waiter(long guildId, AudioLoadResultHandler handler) {
+    }
+
+    /**
+     * One lookup of a query and the requests waiting for it, possibly from several guilds
+     */
+    private final class SharedLoad implements AudioLoadResultHandler {
+        private final String key;
+        // Guild whose scheduler queue holds the lookup
+        private volatile long queuedFor;
+        // Guarded by inFlightLoads
+        private final List<Waiter> waiters = new ArrayList<>();
+
+        private SharedLoad(String key, long queuedFor) {
+            this.key = key;
+            this.queuedFor = queuedFor;
+        }
+
+        @Override
+        public void trackLoaded(AudioTrack track) {
+            store(key, CachedResolution.ofTrack(encodeAll(List.of(track)), expiry()));
+            complete(new LoadOutcome(track, null), null);
+        }
+
+        @Override
+        public void playlistLoaded(AudioPlaylist playlist) {
+            List<AudioTrack> tracks = playlist.getTracks();
+            if (tracks.size() <= maxTracksPerEntry) {
+                store(key, CachedResolution.ofPlaylist(playlist, encodeAll(tracks), expiry()));
+            }
+            complete(new LoadOutcome(null, playlist), null);
+        }
+
+        @Override
+        public void noMatches() {
+            complete(new LoadOutcome(null, null), null);
+        }
+
+        @Override
+        public void loadFailed(FriendlyException exception) {
+            complete(null, exception);
+        }
+
+        private void complete(LoadOutcome outcome, FriendlyException error) {
+            List<Waiter> waiting;
+            synchronized (inFlightLoads) {
+                // Remove before handing out results so late arrivals go to the cache instead
+                inFlightLoads.remove(key, this);
+                waiting = List.copyOf(waiters);
+                waiters.clear();
+            }
+            waiting.forEach(waiter -> dispatchShared(outcome, error, waiter.handler()));
+        }
+    }
+
+    /**
+     * Holds a request's result back until the guild's earlier requests got theirs
+     */
+    private final class OrderedHandler implements AudioLoadResultHandler {
+        private final long guildId;
+        private final AudioLoadResultHandler delegate;
+        private final CompletableFuture<Void> previous;
+        private final CompletableFuture<Void> delivered = new CompletableFuture<>();
+
+        private OrderedHandler(long guildId, AudioLoadResultHandler delegate) {
+            this.guildId = guildId;
+            this.delegate = delegate;
+            CompletableFuture<Void> tail = deliveryTails.put(guildId, delivered);
+            this.previous = tail != null ? tail : CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void trackLoaded(AudioTrack track) {
+            deliver(() -> delegate.trackLoaded(track));
+        }
+
+        @Override
+        public void playlistLoaded(AudioPlaylist playlist) {
+            deliver(() -> delegate.playlistLoaded(playlist));
+        }
+
+        @Override
+        public void noMatches() {
+            deliver(delegate::noMatches);
+        }
+
+        @Override
+        public void loadFailed(FriendlyException exception) {
+            deliver(() -> delegate.loadFailed(exception));
+        }
+
+        private void deliver(Runnable result) {
+            previous.whenComplete((ignored, error) -> {
+                try {
+                    result.run();
+                } catch (RuntimeException e) {
+                    log.error("Load result handler of guild {} failed", guildId, e);
+                } finally {
+                    deliveryTails.remove(guildId, delivered);
+                    delivered.complete(null);
+                }
+            });
+        }
+    }
+
+    private record CachedResolution(
+            String playlistName,
+            List<byte[]> tracks,
+            int selectedIndex,
+            boolean playlist,
+            boolean searchResult,
+            long expiresAtMillis
+    ) {
+        static CachedResolution ofTrack(List<byte[]> tracks, long expiresAtMillis) {
+            return tracks == null ? null : new CachedResolution(null, tracks, -1, false, false, expiresAtMillis);
+        }
+
+        static CachedResolution ofPlaylist(AudioPlaylist playlist, List<byte[]> tracks, long expiresAtMillis) {
+            if (tracks == null) {
+                return null;
+            }
+            int selectedIndex = playlist.getSelectedTrack() != null
+                    ? playlist.getTracks().indexOf(playlist.getSelectedTrack())
+                    : -1;
+            return new CachedResolution(playlist.getName(), tracks, selectedIndex, true, playlist.isSearchResult(), expiresAtMillis);
+        }
+    }
+}
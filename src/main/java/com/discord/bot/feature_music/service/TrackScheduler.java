@@ -1,27 +1,72 @@
 package com.discord.bot.feature_music.service;
 
+import com.discord.bot.feature_music.domain.QueueChange;
+import com.discord.bot.feature_music.domain.QueueSnapshot;
 import com.sedmelluq.discord.lavaplayer.player.AudioPlayer;
 import com.sedmelluq.discord.lavaplayer.player.event.AudioEventAdapter;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrack;
 import com.sedmelluq.discord.lavaplayer.track.AudioTrackEndReason;
+import com.sedmelluq.discord.lavaplayer.track.TrackMarker;
+import com.sedmelluq.discord.lavaplayer.track.TrackMarkerHandler;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Slf4j
 public class TrackScheduler extends AudioEventAdapter {
-    private final AudioPlayer player;
-    private final BlockingQueue<AudioTrack> queue;
+    public static final int QUEUE_PAGE_SIZE = 10;
+    private static final String UNKNOWN_TITLE = "Unknown track";
+    // Unpersisted changes beyond this are replaced by a full snapshot
+    private static final int MAX_PENDING_CHANGES = 256;
+
+    private final IndexedQueue<QueuedTrack> queue;
+    private final long preloadWindowMs;
+    private final TrackCodec trackCodec;
+
+    // The player feeding the send handler and a paused standby player that buffers the next track
+    private volatile AudioPlayer player;
+    private volatile AudioPlayer standby;
+
+    // Transition gap metric: set when a track switch starts, cleared on the first provided frame
+    private volatile long transitionStartedNanos;
+    private volatile long lastTransitionGapMs;
+    private final AtomicLong transitionCount = new AtomicLong();
+    private final AtomicLong totalTransitionGapMs = new AtomicLong();
+
+    // Bumped when a change to the current track or queue completes; changes in flight are counted separately so a
+    // snapshot can tell whether it saw a half-applied change
+    private final AtomicLong modCount = new AtomicLong();
+    private final AtomicInteger changesInFlight = new AtomicInteger();
+
+    // Changes since the last persisted state, unless only a full snapshot can describe them. Guarded by itself.
+    private final List<QueueChange> pendingChanges = new ArrayList<>();
+    private boolean snapshotRequired = true;
 
     /**
      * @param player The audio player this scheduler uses
      */
     public TrackScheduler(AudioPlayer player) {
+        this(player, null, 0, null);
+    }
+
+    /**
+     * @param player          The audio player this scheduler uses
+     * @param standby         Second player used to preload the next track, or null to disable preloading
+     * @param preloadWindowMs How long before the end of the current track the next one starts buffering
+     * @param trackCodec      Codec used to keep bulk-queued tracks encoded, or null to always keep live tracks
+     */
+    public TrackScheduler(AudioPlayer player, AudioPlayer standby, long preloadWindowMs, TrackCodec trackCodec) {
         this.player = player;
-        this.queue = new LinkedBlockingQueue<>();
+        this.standby = standby;
+        this.preloadWindowMs = preloadWindowMs;
+        this.trackCodec = trackCodec;
+        this.queue = new IndexedQueue<>();
     }
 
     /**
@@ -33,12 +78,52 @@ public class TrackScheduler extends AudioEventAdapter {
         // Calling startTrack with the noInterrupt set to true will start the track only if nothing is currently playing. If
         // something is playing, it returns false and does nothing. In that case the player was already playing so this
         // track goes to the queue instead.
-        if (!player.startTrack(track, true)) {
-            if (queue.offer(track)) {
+        changesInFlight.incrementAndGet();
+        QueueChange change = null;
+        try {
+            if (!player.startTrack(track, true)) {
+                queue.add(QueuedTrack.of(track));
                 log.info("{} queued", track.getInfo().title);
-            } else {
-                log.error("Failed to queue track: {}", track.getInfo().title);
+                byte[] encoded = encodeOrNull(track);
+                change = encoded != null ? new QueueChange.Append(List.of(encoded)) : null;
+                // The preload marker may already have passed with an empty queue
+                refreshPreload();
+            }
+        } finally {
+            changeCompleted(change);
+        }
+    }
+
+    /**
+     * Queue many tracks at once, e.g. a playlist. The first track starts right away if nothing is playing;
+     * the rest are stored in encoded form and only become AudioTrack instances when they reach the head.
+     *
+     * @param tracks The tracks to queue, in order
+     * @return Number of tracks queued or started
+     */
+    public int queueAll(List<AudioTrack> tracks) {
+        if (tracks.isEmpty()) {
+            return 0;
+        }
+
+        changesInFlight.incrementAndGet();
+        QueueChange change = null;
+        try {
+            int first = player.startTrack(tracks.getFirst(), true) ? 1 : 0;
+            List<QueuedTrack> entries = new ArrayList<>(tracks.size() - first);
+            for (int i = first; i < tracks.size(); i++) {
+                entries.add(compact(tracks.get(i)));
+            }
+            queue.addAll(entries);
+            log.info("{} tracks queued", entries.size());
+            if (first == 0 && entries.stream().noneMatch(QueuedTrack::isMaterialized)) {
+                change = new QueueChange.Append(entries.stream().map(QueuedTrack::getEncoded).toList());
             }
+
+            refreshPreload();
+            return tracks.size();
+        } finally {
+            changeCompleted(change);
         }
     }
 
@@ -46,13 +131,48 @@ public class TrackScheduler extends AudioEventAdapter {
      * Start the next track, stopping the current one if it is playing.
      */
     public void nextTrack() {
+        changesInFlight.incrementAndGet();
+        QueueChange change = null;
+        try {
+            startNext();
+            change = new QueueChange.Advance(0);
+        } finally {
+            changeCompleted(change);
+        }
+    }
+
+    private void startNext() {
+        long startedNanos = System.nanoTime();
+
+        // A preloaded track already has buffered frames, so switching players avoids the load gap
+        AudioPlayer previous = player;
+        if (promotePreloaded()) {
+            transitionStartedNanos = startedNanos;
+            previous.stopTrack();
+            return;
+        }
+
         // Start the next track, regardless of if something is already playing or not. In case queue was empty, we are
         // giving null to startTrack, which is a valid argument and will simply stop the player.
-        player.startTrack(queue.poll(), false);
+        AudioTrack next = pollNextTrack();
+        transitionStartedNanos = next != null ? startedNanos : 0;
+        player.startTrack(next, false);
+    }
+
+    @Override
+    public void onTrackStart(AudioPlayer player, AudioTrack track) {
+        if (player == this.player) {
+            schedulePreload(track);
+        }
     }
 
     @Override
     public void onTrackEnd(AudioPlayer player, AudioTrack track, AudioTrackEndReason endReason) {
+        // Events from the standby player are only buffering side effects
+        if (player != this.player) {
+            return;
+        }
+
         // Only start the next track if the end reason is suitable for it (FINISHED or LOAD_FAILED)
         if (endReason.mayStartNext) {
             nextTrack();
@@ -63,47 +183,316 @@ public class TrackScheduler extends AudioEventAdapter {
      * Stop the current track and clear the queue
      */
     public void stop() {
-        player.stopTrack();
-        queue.clear();
-        log.info("Stopped player and cleared queue");
+        changesInFlight.incrementAndGet();
+        try {
+            player.stopTrack();
+            if (standby != null) {
+                standby.stopTrack();
+            }
+            queue.clear();
+            log.info("Stopped player and cleared queue");
+        } finally {
+            changeCompleted(null);
+        }
+    }
+
+    /**
+     * Release both players; the scheduler must not be used afterwards
+     */
+    public void destroy() {
+        stop();
+        player.destroy();
+        if (standby != null) {
+            standby.destroy();
+        }
     }
 
     /**
      * Get information about the current queue
      */
     public String getQueueInfo() {
+        return getQueueInfo(1);
+    }
+
+    /**
+     * Get information about the current queue, showing one page of upcoming tracks
+     *
+     * @param page 1-based page number
+     */
+    public String getQueueInfo(int page) {
         AudioTrack currentTrack = player.getPlayingTrack();
-        int queueSize = queue.size();
-        
+        int queueSize = getQueueSize();
+        int pageCount = Math.max(1, (queueSize + QUEUE_PAGE_SIZE - 1) / QUEUE_PAGE_SIZE);
+        int currentPage = Math.min(Math.max(page, 1), pageCount);
+
         StringBuilder info = new StringBuilder();
         info.append("📋 **Queue Information**\n");
-        
+
         if (currentTrack != null) {
             info.append("🎵 **Now Playing:** ").append(currentTrack.getInfo().title).append("\n");
         } else {
             info.append("🎵 **Now Playing:** Nothing\n");
         }
-        
+
         info.append("📊 **Queue Size:** ").append(queueSize).append(" tracks\n");
-        
+
         if (queueSize > 0) {
-            info.append("\n**Up Next:**\n");
-            List<AudioTrack> queueList = new ArrayList<>(queue);
-            int displayCount = Math.min(queueSize, 5); // Show max 5 tracks
-            
-            for (int i = 0; i < displayCount; i++) {
-                AudioTrack track = queueList.get(i);
-                info.append(i + 1).append(". ").append(track.getInfo().title).append("\n");
+            info.append("\n**Up Next** (page ").append(currentPage).append("/").append(pageCount).append("):\n");
+            int offset = (currentPage - 1) * QUEUE_PAGE_SIZE;
+            List<String> window = getUpcomingTitles(offset, QUEUE_PAGE_SIZE);
+
+            for (int i = 0; i < window.size(); i++) {
+                info.append(offset + i + 1).append(". ").append(window.get(i)).append("\n");
             }
-            
-            if (queueSize > 5) {
-                info.append("... and ").append(queueSize - 5).append(" more tracks");
+
+            int remaining = queueSize - offset - window.size();
+            if (remaining > 0) {
+                info.append("... and ").append(remaining).append(" more tracks");
             }
         }
-        
+
         return info.toString();
     }
 
+    /**
+     * Titles of upcoming tracks in play order, including a preloaded track; only the requested window is decoded
+     *
+     * @param offset 0-based offset into the upcoming tracks
+     * @param limit  Maximum number of tracks to return
+     */
+    public List<String> getUpcomingTitles(int offset, int limit) {
+        AudioTrack preloaded = getPreloadedTrack();
+        List<String> titles = new ArrayList<>(limit);
+        List<QueuedTrack> entries;
+        if (preloaded == null) {
+            entries = queue.page(offset, limit);
+        } else if (offset > 0) {
+            entries = queue.page(offset - 1, limit);
+        } else {
+            titles.add(preloaded.getInfo().title);
+            entries = queue.page(0, limit - 1);
+        }
+        entries.forEach(entry -> titles.add(titleOf(entry)));
+        return titles;
+    }
+
+    /**
+     * Remove a track from the queue
+     *
+     * @param position 1-based position in the upcoming tracks
+     * @return Title of the removed track, or null if the position is out of range
+     */
+    public synchronized String remove(int position) {
+        if (!isValidPosition(position)) {
+            return null;
+        }
+        changesInFlight.incrementAndGet();
+        try {
+            AudioTrack preloaded = getPreloadedTrack();
+            if (preloaded != null) {
+                if (position == 1) {
+                    standby.stopTrack();
+                    refreshPreload();
+                    return preloaded.getInfo().title;
+                }
+                return titleOf(queue.removeAt(position - 2));
+            }
+            return titleOf(queue.removeAt(position - 1));
+        } finally {
+            changeCompleted(null);
+        }
+    }
+
+    /**
+     * Move a track to a different position in the queue
+     *
+     * @param from 1-based current position
+     * @param to   1-based target position
+     * @return true if the track was moved
+     */
+    public synchronized boolean move(int from, int to) {
+        if (!isValidPosition(from) || !isValidPosition(to)) {
+            return false;
+        }
+        if (from == to) {
+            return true;
+        }
+        changesInFlight.incrementAndGet();
+        try {
+            // Only moves that touch the head need the preloaded track back in the queue
+            int shift = 1;
+            if (getPreloadedTrack() != null) {
+                if (from == 1 || to == 1) {
+                    reclaimPreloaded();
+                } else {
+                    shift = 2;
+                }
+            }
+            queue.move(from - shift, to - shift);
+            refreshPreload();
+            return true;
+        } finally {
+            changeCompleted(null);
+        }
+    }
+
+    /**
+     * Skip straight to a track, dropping everything queued before it
+     *
+     * @param position 1-based position in the upcoming tracks
+     * @return true if playback jumped to the track
+     */
+    public synchronized boolean skipTo(int position) {
+        if (!isValidPosition(position)) {
+            return false;
+        }
+        changesInFlight.incrementAndGet();
+        QueueChange change = null;
+        try {
+            if (position > 1 && getPreloadedTrack() != null) {
+                standby.stopTrack();
+                queue.removeFirst(position - 2);
+            } else {
+                queue.removeFirst(position - 1);
+            }
+            startNext();
+            change = new QueueChange.Advance(position - 1);
+            return true;
+        } finally {
+            changeCompleted(change);
+        }
+    }
+
+    /**
+     * Shuffle the queue in place
+     */
+    public synchronized void shuffle() {
+        changesInFlight.incrementAndGet();
+        try {
+            reclaimPreloaded();
+            queue.shuffle(ThreadLocalRandom.current());
+            refreshPreload();
+        } finally {
+            changeCompleted(null);
+        }
+    }
+
+    /**
+     * Capture the current track, position and queue in encoded form
+     *
+     * @param voiceChannelId Voice channel to record with the snapshot, or 0 if unknown
+     */
+    public QueueSnapshot snapshot(long voiceChannelId) {
+        AudioTrack current = player.getPlayingTrack();
+        byte[] currentEncoded = current != null ? encodeOrNull(current) : null;
+        long positionMs = currentEncoded != null ? current.getPosition() : 0;
+
+        List<QueuedTrack> entries = queue.toList();
+        List<byte[]> upcoming = new ArrayList<>(entries.size() + 1);
+        AudioTrack preloaded = getPreloadedTrack();
+        if (preloaded != null) {
+            addIfPresent(upcoming, encodeOrNull(preloaded));
+        }
+        for (QueuedTrack entry : entries) {
+            if (entry.isMaterialized()) {
+                try {
+                    addIfPresent(upcoming, encodeOrNull(entry.materialize(trackCodec)));
+                } catch (IOException e) {
+                    log.debug("Skipping queued track in snapshot", e);
+                }
+            } else {
+                upcoming.add(entry.getEncoded());
+            }
+        }
+        return new QueueSnapshot(voiceChannelId, currentEncoded, positionMs, upcoming);
+    }
+
+    /**
+     * Restore a snapshot taken by {@link #snapshot(long)}: resume the current track at its saved position and put
+     * the rest back in the queue, still encoded
+     */
+    public synchronized void restore(QueueSnapshot snapshot) {
+        if (trackCodec == null) {
+            return;
+        }
+        changesInFlight.incrementAndGet();
+        try {
+            queue.addAll(snapshot.upcoming().stream().map(QueuedTrack::ofEncoded).toList());
+
+            AudioTrack current = null;
+            if (snapshot.currentTrack() != null) {
+                try {
+                    current = trackCodec.decode(snapshot.currentTrack());
+                    if (current.isSeekable() && snapshot.positionMs() > 0) {
+                        current.setPosition(snapshot.positionMs());
+                    }
+                } catch (IOException e) {
+                    log.warn("Could not decode restored current track, continuing with the queue", e);
+                }
+            }
+
+            if (current != null) {
+                if (!player.startTrack(current, true)) {
+                    queue.addFirst(QueuedTrack.of(current));
+                }
+            } else if (!isPlaying()) {
+                startNext();
+            }
+            log.info("Restored queue with {} tracks", getQueueSize());
+        } finally {
+            changeCompleted(null);
+        }
+    }
+
+    /**
+     * Take the changes made since the last call or the last {@link #takeSnapshot(long)}, to persist them on top of
+     * the previous snapshot
+     *
+     * @return The changes in order, empty if nothing changed, or null if a full snapshot is required instead
+     */
+    public List<QueueChange> takeChanges() {
+        synchronized (pendingChanges) {
+            if (snapshotRequired) {
+                return null;
+            }
+            List<QueueChange> changes = List.copyOf(pendingChanges);
+            pendingChanges.clear();
+            return changes;
+        }
+    }
+
+    /**
+     * Snapshot that matches the recorded changes, which it then replaces
+     *
+     * @param voiceChannelId Voice channel to record with the snapshot, or 0 if unknown
+     * @return The snapshot, or null if a change ran while it was taken; try again later
+     */
+    public QueueSnapshot takeSnapshot(long voiceChannelId) {
+        long before = modCount.get();
+        if (changesInFlight.get() > 0) {
+            return null;
+        }
+        QueueSnapshot snapshot = snapshot(voiceChannelId);
+        synchronized (pendingChanges) {
+            if (changesInFlight.get() > 0 || modCount.get() != before) {
+                return null;
+            }
+            pendingChanges.clear();
+            snapshotRequired = false;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Make the next {@link #takeChanges()} ask for a full snapshot, e.g. after taken changes could not be persisted
+     */
+    public void requireSnapshot() {
+        synchronized (pendingChanges) {
+            snapshotRequired = true;
+            pendingChanges.clear();
+        }
+    }
+
     /**
      * Get the current playing track
      */
@@ -111,6 +500,13 @@ public class TrackScheduler extends AudioEventAdapter {
         return player.getPlayingTrack();
     }
 
+    /**
+     * Get the player currently feeding audio to the send handler
+     */
+    public AudioPlayer getActivePlayer() {
+        return player;
+    }
+
     /**
      * Check if the player is playing
      */
@@ -118,10 +514,225 @@ public class TrackScheduler extends AudioEventAdapter {
         return player.getPlayingTrack() != null;
     }
 
+    /**
+     * Check if the player is paused
+     */
+    public boolean isPaused() {
+        return player.isPaused();
+    }
+
     /**
      * Get the queue size
      */
     public int getQueueSize() {
-        return queue.size();
+        return queue.size() + (getPreloadedTrack() != null ? 1 : 0);
+    }
+
+    /**
+     * Called by the send handler for every provided frame to close an open transition measurement
+     */
+    public void onFrameProvided() {
+        long started = transitionStartedNanos;
+        if (started == 0) {
+            return;
+        }
+        transitionStartedNanos = 0;
+        long gapMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        lastTransitionGapMs = gapMs;
+        transitionCount.incrementAndGet();
+        totalTransitionGapMs.addAndGet(gapMs);
+        log.debug("Track transition gap: {}ms", gapMs);
+    }
+
+    public long getLastTransitionGapMs() {
+        return lastTransitionGapMs;
+    }
+
+    public long getTransitionCount() {
+        return transitionCount.get();
+    }
+
+    public long getAverageTransitionGapMs() {
+        long count = transitionCount.get();
+        return count == 0 ? 0 : totalTransitionGapMs.get() / count;
+    }
+
+    /**
+     * Record a completed change
+     *
+     * @param change The change, or null if only a full snapshot describes it
+     */
+    private void changeCompleted(QueueChange change) {
+        synchronized (pendingChanges) {
+            modCount.incrementAndGet();
+            if (change == null || snapshotRequired || pendingChanges.size() >= MAX_PENDING_CHANGES) {
+                snapshotRequired = true;
+                pendingChanges.clear();
+            } else {
+                pendingChanges.add(change);
+            }
+        }
+        changesInFlight.decrementAndGet();
+    }
+
+    private AudioTrack getPreloadedTrack() {
+        return standby != null ? standby.getPlayingTrack() : null;
+    }
+
+    private boolean isValidPosition(int position) {
+        return position >= 1 && position <= getQueueSize();
+    }
+
+    /**
+     * Put a preloaded track back at the head of the queue so queue edits see it.
+     * A stopped track cannot be restarted, so a fresh clone goes back into the queue.
+     */
+    private void reclaimPreloaded() {
+        AudioTrack preloaded = getPreloadedTrack();
+        if (preloaded == null) {
+            return;
+        }
+        standby.stopTrack();
+        queue.addFirst(QueuedTrack.of(preloaded.makeClone()));
+    }
+
+    /**
+     * Keep a bulk-queued track in its encoded form when possible
+     */
+    private QueuedTrack compact(AudioTrack track) {
+        if (trackCodec == null) {
+            return QueuedTrack.of(track);
+        }
+        try {
+            return QueuedTrack.ofEncoded(trackCodec.encode(track));
+        } catch (IOException e) {
+            log.debug("Could not encode track {}, keeping it materialized", track.getIdentifier(), e);
+            return QueuedTrack.of(track);
+        }
+    }
+
+    /**
+     * Take the head of the queue as a playable track, skipping entries that can no longer be decoded
+     */
+    private AudioTrack pollNextTrack() {
+        QueuedTrack entry;
+        while ((entry = queue.poll()) != null) {
+            try {
+                return entry.materialize(trackCodec);
+            } catch (IOException e) {
+                log.warn("Dropping queued track that could not be decoded", e);
+            }
+        }
+        return null;
+    }
+
+    private byte[] encodeOrNull(AudioTrack track) {
+        if (trackCodec == null) {
+            return null;
+        }
+        try {
+            return trackCodec.encode(track);
+        } catch (IOException e) {
+            log.debug("Could not encode track {}", track.getIdentifier(), e);
+            return null;
+        }
+    }
+
+    private static void addIfPresent(List<byte[]> target, byte[] encoded) {
+        if (encoded != null) {
+            target.add(encoded);
+        }
+    }
+
+    private String titleOf(QueuedTrack entry) {
+        try {
+            return entry.getInfo(trackCodec).title;
+        } catch (IOException e) {
+            log.debug("Could not decode queued track for display", e);
+            return UNKNOWN_TITLE;
+        }
+    }
+
+    private void refreshPreload() {
+        if (isInPreloadWindow()) {
+            preloadNext();
+        }
+    }
+
+    private boolean isPreloadEnabled() {
+        return standby != null && preloadWindowMs > 0;
+    }
+
+    /**
+     * Arm a marker that starts preloading during the last seconds of the given track
+     */
+    private void schedulePreload(AudioTrack track) {
+        if (!isPreloadEnabled()) {
+            return;
+        }
+
+        // Streams and very short tracks have no meaningful "last seconds" to preload in
+        long duration = track.getDuration();
+        if (track.getInfo().isStream || duration <= preloadWindowMs * 2) {
+            return;
+        }
+        track.setMarker(new TrackMarker(duration - preloadWindowMs, this::onPreloadMarker));
+    }
+
+    private boolean isInPreloadWindow() {
+        if (!isPreloadEnabled()) {
+            return false;
+        }
+        AudioTrack current = player.getPlayingTrack();
+        return current != null
+                && !current.getInfo().isStream
+                && current.getDuration() - current.getPosition() <= preloadWindowMs;
+    }
+
+    private void onPreloadMarker(TrackMarkerHandler.MarkerState state) {
+        if (state != TrackMarkerHandler.MarkerState.REACHED
+                && state != TrackMarkerHandler.MarkerState.LATE
+                && state != TrackMarkerHandler.MarkerState.BYPASSED) {
+            return;
+        }
+        preloadNext();
+    }
+
+    /**
+     * Start the head of the queue on the paused standby player so it fills its frame buffer.
+     * Lookahead is bounded to a single track.
+     */
+    private synchronized void preloadNext() {
+        if (!isPreloadEnabled() || standby.getPlayingTrack() != null) {
+            return;
+        }
+        AudioTrack next = pollNextTrack();
+        if (next == null) {
+            return;
+        }
+        standby.setPaused(true);
+        if (standby.startTrack(next, true)) {
+            log.debug("Preloading next track: {}", next.getInfo().title);
+        }
+    }
+
+    /**
+     * Swap the standby player in if it holds a preloaded track
+     *
+     * @return true if a preloaded track is now playing
+     */
+    private synchronized boolean promotePreloaded() {
+        AudioTrack preloaded = getPreloadedTrack();
+        if (preloaded == null) {
+            return false;
+        }
+        AudioPlayer previous = player;
+        player = standby;
+        standby = previous;
+        player.setPaused(false);
+        // The start event fired while this player was on standby, so arm the marker now
+        schedulePreload(preloaded);
+        log.debug("Switched to preloaded track: {}", preloaded.getInfo().title);
+        return true;
     }
 }
@@ -0,0 +1,157 @@
+package com.discord.bot.llm;
+
+import dev.langchain4j.exception.ContentFilteredException;
+import dev.langchain4j.exception.InvalidRequestException;
+import dev.langchain4j.exception.RateLimitException;
+import dev.langchain4j.exception.UnsupportedFeatureException;
+import dev.langchain4j.http.client.SuccessfulHttpResponse;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.openai.OpenAiChatResponseMetadata;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One OpenAI-compatible endpoint, key and model, with what the router has observed about it: a moving average of
+ * its latency, requests in flight, the share of its request quota left according to the rate-limit headers, and
+ * whether it is down or cooling off after a rate limit.
+ */
+@Slf4j
+public class ModelEndpoint {
+    // Weight of the newest sample in the latency average
+    private static final double LATENCY_ALPHA = 0.2;
+    // Assumed latency until the first answer, optimistic so new endpoints get tried
+    private static final double INITIAL_LATENCY_MS = 500;
+    // Never let a nearly exhausted quota make an endpoint look infinitely expensive
+    private static final double MIN_QUOTA_FRACTION = 0.05;
+
+    @Getter
+    private final String name;
+    @Getter
+    private final String baseUrl;
+    @Getter
+    private final String apiKey;
+    private final Set<String> roles;
+    private final ChatModel chatModel;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile double latencyMs = INITIAL_LATENCY_MS;
+    private volatile double quotaFraction = 1;
+    private volatile long coolingUntilMs;
+    private volatile boolean down;
+
+    public ModelEndpoint(String name, String baseUrl, String apiKey, List<String> roles, ChatModel chatModel) {
+        this.name = name;
+        this.baseUrl = baseUrl;
+        this.apiKey = apiKey;
+        this.roles = roles == null ? Set.of() : Set.copyOf(roles);
+        this.chatModel = chatModel;
+    }
+
+    public boolean serves(String role) {
+        return roles.isEmpty() || roles.contains(role);
+    }
+
+    public boolean isAvailable(long nowMs) {
+        return !down && nowMs >= coolingUntilMs;
+    }
+
+    public boolean isDown() {
+        return down;
+    }
+
+    /**
+     * Expected cost of sending one more request here; lower is better
+     */
+    public double score() {
+        return latencyMs * (inFlight.get() + 1) / Math.max(quotaFraction, MIN_QUOTA_FRACTION);
+    }
+
+    public double getLatencyMs() {
+        return latencyMs;
+    }
+
+    public double getQuotaFraction() {
+        return quotaFraction;
+    }
+
+    ChatResponse chat(ChatRequest chatRequest) {
+        inFlight.incrementAndGet();
+        long start = System.nanoTime();
+        try {
+            ChatResponse response = chatModel.chat(chatRequest);
+            latencyMs = latencyMs + LATENCY_ALPHA * ((System.nanoTime() - start) / 1e6 - latencyMs);
+            consecutiveFailures.set(0);
+            updateQuota(response);
+            return response;
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Whether a failure says something about this endpoint rather than about the request. Malformed or filtered
+     * requests would fail on every endpoint.
+     */
+    static boolean isEndpointFailure(RuntimeException e) {
+        return !(e instanceof InvalidRequestException
+                || e instanceof ContentFilteredException
+                || e instanceof UnsupportedFeatureException);
+    }
+
+    void recordFailure(RuntimeException e, int failureThreshold, long cooldownMs) {
+        if (e instanceof RateLimitException) {
+            coolingUntilMs = System.currentTimeMillis() + cooldownMs;
+            log.warn("Model endpoint {} is rate limited, skipping it for {} ms", name, cooldownMs);
+            return;
+        }
+        if (consecutiveFailures.incrementAndGet() >= failureThreshold && !down) {
+            down = true;
+            log.warn("Model endpoint {} failed {} times in a row, taking it out until a health check passes: {}",
+                    name, failureThreshold, e.getMessage());
+        }
+    }
+
+    void markHealthy() {
+        consecutiveFailures.set(0);
+        if (down) {
+            down = false;
+            log.info("Model endpoint {} passed its health check and is back in rotation", name);
+        }
+    }
+
+    private void updateQuota(ChatResponse response) {
+        if (!(response.metadata() instanceof OpenAiChatResponseMetadata metadata)) {
+            return;
+        }
+        SuccessfulHttpResponse raw = metadata.rawHttpResponse();
+        if (raw == null || raw.headers() == null) {
+            return;
+        }
+        Double remaining = header(raw.headers(), "x-ratelimit-remaining-requests");
+        Double limit = header(raw.headers(), "x-ratelimit-limit-requests");
+        if (remaining != null && limit != null && limit > 0) {
+            quotaFraction = Math.min(1, remaining / limit);
+        }
+    }
+
+    private static Double header(Map<String, List<String>> headers, String name) {
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey()) && !header.getValue().isEmpty()) {
+                try {
+                    return Double.parseDouble(header.getValue().getFirst());
+                } catch (NumberFormatException e) {
+                    return null;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,116 @@
+package com.discord.bot.llm;
+
+import com.discord.bot.properties.ModelRoutingProperties;
+import com.discord.bot.properties.OpenAIProperties;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.openai.OpenAiChatModel;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The configured model endpoints, handed out per agent role as {@link RoutingChatModel}s. Endpoints that were
+ * taken out after repeated failures are probed periodically and put back once they answer again.
+ */
+@Slf4j
+@Component
+public class ModelEndpointPool {
+    public static final String EXTRACTION = "extraction";
+    public static final String CYPHER = "cypher";
+    public static final String ANSWER = "answer";
+    public static final String TEXT_TO_CYPHER = "text-to-cypher";
+
+    private static final String DEFAULT_BASE_URL = "https://api.groq.com/openai/v1";
+    private static final String DEFAULT_MODEL = "meta-llama/llama-4-maverick-17b-128e-instruct";
+    private static final Duration PROBE_TIMEOUT = Duration.ofSeconds(10);
+
+    private final ModelRoutingProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final List<ModelEndpoint> endpoints = new ArrayList<>();
+    private final HttpClient httpClient = HttpClient.newBuilder().connectTimeout(PROBE_TIMEOUT).build();
+
+    public ModelEndpointPool(ModelRoutingProperties properties, OpenAIProperties openAIProperties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        List<ModelRoutingProperties.Endpoint> configured = properties.endpoints() == null || properties.endpoints().isEmpty()
+                ? List.of(new ModelRoutingProperties.Endpoint("groq", DEFAULT_BASE_URL, openAIProperties.ApiKey(), DEFAULT_MODEL, List.of()))
+                : properties.endpoints();
+        for (ModelRoutingProperties.Endpoint endpoint : configured) {
+            endpoints.add(createEndpoint(endpoint));
+        }
+        log.info("Routing chat models across {} endpoints", endpoints.size());
+    }
+
+    /**
+     * Chat model for an agent role, routed across every endpoint serving it
+     *
+     * @param capabilities Capabilities the role's agent relies on, such as schema-shaped output
+     */
+    public RoutingChatModel modelFor(String role, Capability... capabilities) {
+        List<ModelEndpoint> serving = endpoints.stream().filter(endpoint -> endpoint.serves(role)).toList();
+        Counter failovers = Counter.builder("llm.retries")
+                .description("LLM calls repeated after a rate limit or on the next model endpoint")
+                .tag("agent", role)
+                .tag("reason", "failover")
+                .register(meterRegistry);
+        return new RoutingChatModel(role, serving, Set.of(capabilities), properties.failureThreshold(), properties.cooldownMs(),
+                failovers);
+    }
+
+    @Scheduled(fixedDelayString = "${ai.routing.health-check-interval-ms:30000}")
+    public void checkHealth() {
+        for (ModelEndpoint endpoint : endpoints) {
+            if (endpoint.isDown() && probe(endpoint)) {
+                endpoint.markHealthy();
+            }
+        }
+    }
+
+    /**
+     * Whether the endpoint lists its models, which is cheap and needs no quota on OpenAI-compatible APIs
+     */
+    boolean probe(ModelEndpoint endpoint) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(endpoint.getBaseUrl().replaceAll("/+$", "") + "/models"))
+                .header("Authorization", "Bearer " + endpoint.getApiKey())
+                .timeout(PROBE_TIMEOUT)
+                .GET()
+                .build();
+        try {
+            int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            return status >= 200 && status < 300;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            log.debug("Health check of model endpoint {} failed: {}", endpoint.getName(), e.getMessage());
+            return false;
+        }
+    }
+
+    private ModelEndpoint createEndpoint(ModelRoutingProperties.Endpoint endpoint) {
+        // Failover replaces the client's own retries, a failing endpoint should hand over right away
+        OpenAiChatModel chatModel = OpenAiChatModel.builder()
+                .baseUrl(endpoint.baseUrl())
+                .apiKey(endpoint.apiKey())
+                .modelName(endpoint.model())
+                .temperature(0.0)
+                .maxRetries(0)
+                .timeout(Duration.ofMillis(properties.timeoutMs()))
+                .supportedCapabilities(Capability.RESPONSE_FORMAT_JSON_SCHEMA)
+                .strictJsonSchema(false)
+                .build();
+        String name = endpoint.name() != null ? endpoint.name() : endpoint.model() + "@" + endpoint.baseUrl();
+        return new ModelEndpoint(name, endpoint.baseUrl(), endpoint.apiKey(), endpoint.roles(), chatModel);
+    }
+}
@@ -0,0 +1,92 @@
+package com.discord.bot.llm;
+
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import io.micrometer.core.instrument.Counter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Chat model for one agent role that sends each request to the cheapest endpoint serving the role, judged by
+ * latency, load and remaining quota, and fails over to the next one when an endpoint errors. Endpoints that are
+ * down or rate limited are only tried once every other endpoint has failed. Each failover counts as a retry.
+ */
+@Slf4j
+public class RoutingChatModel implements ChatModel {
+    private final String role;
+    private final List<ModelEndpoint> endpoints;
+    private final Set<Capability> capabilities;
+    private final int failureThreshold;
+    private final long cooldownMs;
+    private final Counter failovers;
+
+    public RoutingChatModel(String role, List<ModelEndpoint> endpoints, Set<Capability> capabilities,
+                            int failureThreshold, long cooldownMs, Counter failovers) {
+        if (endpoints.isEmpty()) {
+            throw new IllegalArgumentException("No model endpoint serves the " + role + " role");
+        }
+        this.role = role;
+        this.endpoints = List.copyOf(endpoints);
+        this.capabilities = Set.copyOf(capabilities);
+        this.failureThreshold = failureThreshold;
+        this.cooldownMs = cooldownMs;
+        this.failovers = failovers;
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        RuntimeException lastFailure = null;
+        for (ModelEndpoint endpoint : candidates()) {
+            if (lastFailure != null) {
+                failovers.increment();
+            }
+            try {
+                return endpoint.chat(chatRequest);
+            } catch (RuntimeException e) {
+                if (!ModelEndpoint.isEndpointFailure(e)) {
+                    throw e;
+                }
+                endpoint.recordFailure(e, failureThreshold, cooldownMs);
+                log.warn("Model endpoint {} failed for {}, trying the next one: {}", endpoint.getName(), role, e.getMessage());
+                lastFailure = e;
+            }
+        }
+        // Every endpoint failed; the last failure keeps its type so callers can still back off on rate limits
+        throw lastFailure;
+    }
+
+    /**
+     * Agents ask for schema-shaped output only if the role's model supports it
+     */
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return capabilities;
+    }
+
+    public List<ModelEndpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Endpoints in the order to try them: available ones by score, then the rest by score as a last resort
+     */
+    List<ModelEndpoint> candidates() {
+        long now = System.currentTimeMillis();
+        List<ModelEndpoint> available = new ArrayList<>(endpoints.size());
+        List<ModelEndpoint> unavailable = new ArrayList<>();
+        for (ModelEndpoint endpoint : endpoints) {
+            (endpoint.isAvailable(now) ? available : unavailable).add(endpoint);
+        }
+        Comparator<ModelEndpoint> byScore = Comparator.comparingDouble(ModelEndpoint::score);
+        available.sort(byScore);
+        unavailable.sort(byScore);
+        available.addAll(unavailable);
+        return available;
+    }
+}
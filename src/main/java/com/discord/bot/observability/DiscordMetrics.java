@@ -0,0 +1,46 @@
+package com.discord.bot.observability;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of Discord-facing work: slash commands end to end under {@code discord.command} and channel history
+ * pages under {@code discord.history.fetch}
+ */
+@Component
+@RequiredArgsConstructor
+public class DiscordMetrics {
+    private final MeterRegistry registry;
+
+    public Timer.Sample startCommand() {
+        return Timer.start(registry);
+    }
+
+    /**
+     * Record a command once its final reply was handed to JDA
+     *
+     * @param sample  Sample taken when the command was received
+     * @param command Command name
+     * @param error   Failure of the command, or null
+     */
+    public void stopCommand(Timer.Sample sample, String command, Throwable error) {
+        sample.stop(Timer.builder("discord.command")
+                .description("Slash command latency from receipt to final reply")
+                .tag("command", command)
+                .tag("outcome", error == null ? "success" : "error")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry));
+    }
+
+    public void recordHistoryFetch(long nanos, boolean success) {
+        Timer.builder("discord.history.fetch")
+                .description("Time to retrieve one page of channel history")
+                .tag("outcome", success ? "success" : "error")
+                .register(registry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+}
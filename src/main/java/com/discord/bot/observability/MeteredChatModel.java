@@ -0,0 +1,86 @@
+package com.discord.bot.observability;
+
+import com.discord.bot.llm.ForwardingChatModel;
+import dev.langchain4j.exception.RateLimitException;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chat model handed to one agent, recording that agent's calls under {@code llm.requests} (tagged with the
+ * outcome: success, rate_limited or error) and its prompt and completion tokens under {@code llm.tokens}.
+ * Agents sharing a routing role, such as both extraction agents, share its model, so the wrapper is what tells
+ * their calls apart; failovers between endpoints are counted by the role's {@code RoutingChatModel}.
+ */
+@Slf4j
+public class MeteredChatModel extends ForwardingChatModel {
+    private final String agent;
+    private final Timer successTimer;
+    private final Timer rateLimitedTimer;
+    private final Timer errorTimer;
+    private final Counter promptTokens;
+    private final Counter completionTokens;
+
+    public MeteredChatModel(ChatModel delegate, String agent, MeterRegistry registry) {
+        super(delegate);
+        this.agent = agent;
+        this.successTimer = requestTimer(registry, "success");
+        this.rateLimitedTimer = requestTimer(registry, "rate_limited");
+        this.errorTimer = requestTimer(registry, "error");
+        this.promptTokens = tokenCounter(registry, "prompt");
+        this.completionTokens = tokenCounter(registry, "completion");
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        long start = System.nanoTime();
+        ChatResponse response;
+        try {
+            response = delegate.chat(chatRequest);
+        } catch (RateLimitException e) {
+            rateLimitedTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        } catch (RuntimeException e) {
+            errorTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        successTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+        TokenUsage usage = response.tokenUsage();
+        if (usage != null) {
+            if (usage.inputTokenCount() != null) {
+                promptTokens.increment(usage.inputTokenCount());
+            }
+            if (usage.outputTokenCount() != null) {
+                completionTokens.increment(usage.outputTokenCount());
+            }
+        }
+        log.debug("LLM call for {} took {}ms, tokens {}", agent, TimeUnit.NANOSECONDS.toMillis(elapsedNanos), usage);
+        return response;
+    }
+
+    private Timer requestTimer(MeterRegistry registry, String outcome) {
+        return Timer.builder("llm.requests")
+                .description("LLM calls per agent")
+                .tag("agent", agent)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+    }
+
+    private Counter tokenCounter(MeterRegistry registry, String type) {
+        return Counter.builder("llm.tokens")
+                .description("Tokens sent to and received from the LLM per agent")
+                .tag("agent", agent)
+                .tag("type", type)
+                .register(registry);
+    }
+}
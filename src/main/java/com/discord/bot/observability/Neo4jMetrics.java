@@ -0,0 +1,122 @@
+package com.discord.bot.observability;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.neo4j.driver.summary.ResultSummary;
+import org.neo4j.driver.summary.SummaryCounters;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+
+/**
+ * Times Neo4j statements under {@code neo4j.statement} and records the rows they touched under
+ * {@code neo4j.statement.rows}, both tagged with a short operation name
+ */
+@Component
+@RequiredArgsConstructor
+public class Neo4jMetrics {
+    private final MeterRegistry registry;
+
+    /**
+     * Run a query and record the number of records it returned
+     *
+     * @param operation Operation name used as tag
+     * @param query     Runs the query
+     * @param rows      Counts the records in the query's result
+     */
+    public <T> T read(String operation, Supplier<T> query, ToIntFunction<T> rows) {
+        return measure(operation, query, rows);
+    }
+
+    /**
+     * Run a write statement and record the nodes, relationships and properties it changed
+     *
+     * @param operation Operation name used as tag
+     * @param statement Runs the statement
+     */
+    public ResultSummary write(String operation, Supplier<ResultSummary> statement) {
+        long start = System.nanoTime();
+        ResultSummary summary;
+        try {
+            summary = statement.get();
+        } catch (RuntimeException e) {
+            record(operation, "error", start);
+            throw e;
+        }
+        record(operation, "success", start);
+        rowSummary(operation).record(changes(summary));
+        return summary;
+    }
+
+    /**
+     * Run a write statement that returns records, such as a conditional update reporting whether it applied
+     *
+     * @param operation Operation name used as tag
+     * @param statement Runs the statement
+     * @param changes   Counts what the statement changed from its records
+     */
+    public <T> T write(String operation, Supplier<T> statement, ToIntFunction<T> changes) {
+        return measure(operation, statement, changes);
+    }
+
+    /**
+     * Record a statement or transaction that completed asynchronously, e.g. on the reactive driver
+     *
+     * @param operation  Operation name used as tag
+     * @param startNanos {@link System#nanoTime()} when it started
+     * @param rows       Records returned, or for writes the {@link #changes(ResultSummary)}
+     */
+    public void recordSuccess(String operation, long startNanos, int rows) {
+        record(operation, "success", startNanos);
+        rowSummary(operation).record(rows);
+    }
+
+    public void recordFailure(String operation, long startNanos) {
+        record(operation, "error", startNanos);
+    }
+
+    /**
+     * Nodes, relationships and properties a statement changed
+     */
+    public static int changes(ResultSummary summary) {
+        SummaryCounters counters = summary.counters();
+        return counters.nodesCreated() + counters.nodesDeleted()
+                + counters.relationshipsCreated() + counters.relationshipsDeleted()
+                + counters.propertiesSet();
+    }
+
+    private <T> T measure(String operation, Supplier<T> statement, ToIntFunction<T> rows) {
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = statement.get();
+        } catch (RuntimeException e) {
+            record(operation, "error", start);
+            throw e;
+        }
+        record(operation, "success", start);
+        rowSummary(operation).record(rows.applyAsInt(result));
+        return result;
+    }
+
+    private void record(String operation, String outcome, long startNanos) {
+        Timer.builder("neo4j.statement")
+                .description("Neo4j statement latency")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .publishPercentiles(0.5, 0.99)
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private DistributionSummary rowSummary(String operation) {
+        return DistributionSummary.builder("neo4j.statement.rows")
+                .description("Records returned by reads, or nodes, relationships and properties changed by writes")
+                .tag("operation", operation)
+                .register(registry);
+    }
+}
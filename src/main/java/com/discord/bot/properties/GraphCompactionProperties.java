@@ -0,0 +1,35 @@
+package com.discord.bot.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Settings of the background job that compacts the knowledge graph
+ *
+ * @param enabled            Whether the scheduled run is active; the admin endpoint works either way
+ * @param intervalMs         Pause between the end of one scheduled run and the start of the next
+ * @param initialDelayMs     Wait after startup before the first scheduled run
+ * @param batchSize          Nodes, relationships or duplicate groups changed per transaction
+ * @param pauseMs            Pause between transactions, leaving Neo4j to ingestion and /ask
+ * @param maxBatchesPerRun   Transactions per run; a run stopping here continues on the next one
+ * @param labels             Canonical node label per drifted label, e.g. ColorPreference: Color
+ * @param relationshipTypes  Canonical relationship type per drifted type, e.g. LIKES_COLOR: LIKES
+ * @param identityProperties Properties naming an entity, first present one wins; nodes of a guild with the same
+ *                           label and the same name (ignoring case and surrounding blanks) are merged
+ */
+@ConfigurationProperties("kg.compaction")
+public record GraphCompactionProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("21600000") long intervalMs,
+        @DefaultValue("600000") long initialDelayMs,
+        @DefaultValue("200") int batchSize,
+        @DefaultValue("200") long pauseMs,
+        @DefaultValue("500") int maxBatchesPerRun,
+        @DefaultValue Map<String, String> labels,
+        @DefaultValue Map<String, String> relationshipTypes,
+        @DefaultValue({"username", "name", "title", "value", "color", "description"}) List<String> identityProperties
+) {
+}
@@ -0,0 +1,19 @@
+package com.discord.bot.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.nio.file.Path;
+
+/**
+ * Settings of knowledge graph export and import
+ *
+ * @param directory Exports are written to and imported from sub-directories of this one
+ * @param batchSize Rows written per transaction on import
+ */
+@ConfigurationProperties("kg.transfer")
+public record GraphTransferProperties(
+        @DefaultValue("data/graph-exports") Path directory,
+        @DefaultValue("10000") int batchSize
+) {
+}
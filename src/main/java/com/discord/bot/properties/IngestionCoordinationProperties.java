@@ -0,0 +1,25 @@
+package com.discord.bot.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings of channel ownership when several instances ingest into the same graph
+ *
+ * @param instanceId           Owner name written to leases; blank uses the process and host name
+ * @param leaseTtlMs           A lease not renewed for this long can be taken over by another instance
+ * @param heartbeatIntervalMs  Pause between renewals of the held leases, well below the lease TTL
+ * @param sweepEnabled         Whether instances periodically claim and ingest tracked channels nobody holds
+ * @param maxLeasesPerInstance Channels one instance ingests at once through the sweep, so instances split them
+ * @param rescopeEnabled       Whether channels checkpointed before guild scoping are re-ingested from the start
+ */
+@ConfigurationProperties("ingestion.coordination")
+public record IngestionCoordinationProperties(
+        @DefaultValue("") String instanceId,
+        @DefaultValue("60000") long leaseTtlMs,
+        @DefaultValue("15000") long heartbeatIntervalMs,
+        @DefaultValue("false") boolean sweepEnabled,
+        @DefaultValue("4") int maxLeasesPerInstance,
+        @DefaultValue("false") boolean rescopeEnabled
+) {
+}
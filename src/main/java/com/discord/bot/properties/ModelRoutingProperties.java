@@ -0,0 +1,40 @@
+package com.discord.bot.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.util.List;
+
+/**
+ * OpenAI-compatible endpoints the agents' chat models are routed across
+ *
+ * @param endpoints          Endpoints to route across; without any, the Groq endpoint with {@code ai.api_key}
+ *                           serves every role
+ * @param failureThreshold   Consecutive failures after which an endpoint is taken out until a health check passes
+ * @param cooldownMs         How long a rate-limited endpoint is skipped
+ * @param timeoutMs          Timeout of a single chat request
+ */
+@ConfigurationProperties("ai.routing")
+public record ModelRoutingProperties(
+        List<Endpoint> endpoints,
+        @DefaultValue("3") int failureThreshold,
+        @DefaultValue("30000") long cooldownMs,
+        @DefaultValue("60000") long timeoutMs
+) {
+
+    /**
+     * @param name    Name used in logs
+     * @param baseUrl Base URL of the OpenAI-compatible API, e.g. https://api.groq.com/openai/v1
+     * @param apiKey  Key sent as bearer token
+     * @param model   Model name
+     * @param roles   Agent roles served (extraction, cypher, answer, text-to-cypher); empty serves all
+     */
+    public record Endpoint(
+            String name,
+            String baseUrl,
+            String apiKey,
+            String model,
+            List<String> roles
+    ) {
+    }
+}
@@ -0,0 +1,21 @@
+package com.discord.bot.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings of the reactive Neo4j path of the knowledge graph
+ *
+ * @param enabled                 Write extracted facts and read time-bounded facts through reactive driver
+ *                                sessions instead of the blocking Neo4jClient
+ * @param maxInFlightTransactions Write transactions running at once across all ingestion workers; a worker
+ *                                with this many of its own writes pending waits before extracting more
+ * @param transactionTimeoutMs    Server-side timeout of each reactive transaction
+ */
+@ConfigurationProperties("kg.reactive")
+public record ReactiveGraphProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("8") int maxInFlightTransactions,
+        @DefaultValue("30000") long transactionTimeoutMs
+) {
+}
@@ -0,0 +1,37 @@
+package com.discord.bot.properties;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Bulkhead and circuit breaker settings for each external dependency
+ */
+@ConfigurationProperties("resilience")
+public record ResilienceProperties(
+        @DefaultValue Dependency llm,
+        @DefaultValue Dependency neo4j,
+        @DefaultValue Dependency discord
+) {
+
+    /**
+     * @param maxConcurrent        Calls running at the same time
+     * @param maxQueued            Calls waiting for a free slot; further calls are rejected right away
+     * @param queueTimeoutMs       How long a call waits for a slot before it is rejected
+     * @param windowSize           Number of recent calls the failure rate is computed over
+     * @param minimumCalls         Calls in the window before the breaker may open
+     * @param failureRateThreshold Share of failed calls in the window that opens the breaker
+     * @param openMs               How long an open breaker rejects calls before letting probes through
+     * @param halfOpenProbes       Probe calls that must all succeed to close the breaker again
+     */
+    public record Dependency(
+            @DefaultValue("8") int maxConcurrent,
+            @DefaultValue("32") int maxQueued,
+            @DefaultValue("2000") long queueTimeoutMs,
+            @DefaultValue("20") int windowSize,
+            @DefaultValue("10") int minimumCalls,
+            @DefaultValue("0.5") double failureRateThreshold,
+            @DefaultValue("30000") long openMs,
+            @DefaultValue("2") int halfOpenProbes
+    ) {
+    }
+}
@@ -0,0 +1,95 @@
+package com.discord.bot.resilience;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Non-blocking counterpart of {@link Bulkhead} for reactive pipelines: at most {@code permits} of the limited
+ * publishers run at once, the others wait in subscription order without holding a thread.
+ */
+public class AsyncLimiter {
+    private final Object lock = new Object();
+    private final Deque<MonoSink<Permit>> waiting = new ArrayDeque<>();
+    private final int permits;
+    private int available;
+
+    public AsyncLimiter(int permits) {
+        this.permits = permits;
+        this.available = permits;
+    }
+
+    /**
+     * Subscribe to the work once a permit is free and give the permit back when it completes, fails or is
+     * cancelled
+     */
+    public <T> Mono<T> limit(Mono<T> work) {
+        return Mono.usingWhen(acquire(), permit -> work, Permit::release, (permit, error) -> permit.release(),
+                Permit::release);
+    }
+
+    public int getInUse() {
+        synchronized (lock) {
+            return permits - available;
+        }
+    }
+
+    public int getWaiting() {
+        synchronized (lock) {
+            return waiting.size();
+        }
+    }
+
+    private Mono<Permit> acquire() {
+        return Mono.<Permit>create(sink -> {
+            boolean granted;
+            synchronized (lock) {
+                granted = available > 0;
+                if (granted) {
+                    available--;
+                } else {
+                    waiting.addLast(sink);
+                }
+            }
+            if (granted) {
+                sink.success(new Permit());
+            } else {
+                sink.onCancel(() -> {
+                    synchronized (lock) {
+                        waiting.remove(sink);
+                    }
+                });
+            }
+        }).doOnDiscard(Permit.class, Permit::releaseNow); // handed to a subscriber that cancelled meanwhile
+    }
+
+    private void handOver() {
+        MonoSink<Permit> next;
+        synchronized (lock) {
+            next = waiting.pollFirst();
+            if (next == null) {
+                available++;
+                return;
+            }
+        }
+        // The permit passes straight to the next subscriber without becoming available in between
+        next.success(new Permit());
+    }
+
+    private final class Permit {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Mono<Void> release() {
+            return Mono.fromRunnable(this::releaseNow);
+        }
+
+        private void releaseNow() {
+            if (released.compareAndSet(false, true)) {
+                handOver();
+            }
+        }
+    }
+}
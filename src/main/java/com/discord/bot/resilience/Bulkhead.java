@@ -0,0 +1,62 @@
+package com.discord.bot.resilience;
+
+import com.discord.bot.properties.ResilienceProperties;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the calls running against one dependency. A bounded number of calls wait for a free slot for at most
+ * {@code queueTimeoutMs}; anything beyond that is turned away at once, so a slow dependency holds a fixed number of
+ * threads instead of every thread that touches it.
+ */
+public class Bulkhead {
+    private final Semaphore slots;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final long queueTimeoutMs;
+
+    public Bulkhead(ResilienceProperties.Dependency settings) {
+        this.maxConcurrent = settings.maxConcurrent();
+        this.maxQueued = settings.maxQueued();
+        this.queueTimeoutMs = settings.queueTimeoutMs();
+        this.slots = new Semaphore(maxConcurrent, true);
+    }
+
+    /**
+     * Take a slot, waiting in the queue if there is room in it
+     *
+     * @return Whether a slot was taken; if so it must be given back with {@link #release()}
+     */
+    public boolean tryAcquire() {
+        if (slots.tryAcquire()) {
+            return true;
+        }
+        if (waiting.incrementAndGet() > maxQueued) {
+            waiting.decrementAndGet();
+            return false;
+        }
+        try {
+            return slots.tryAcquire(queueTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            waiting.decrementAndGet();
+        }
+    }
+
+    public void release() {
+        slots.release();
+    }
+
+    public int getInUse() {
+        return maxConcurrent - slots.availablePermits();
+    }
+
+    public int getWaiting() {
+        return waiting.get();
+    }
+}
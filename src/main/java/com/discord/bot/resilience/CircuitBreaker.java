@@ -0,0 +1,154 @@
+package com.discord.bot.resilience;
+
+import com.discord.bot.properties.ResilienceProperties;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Opens once too many of the recent calls failed and rejects calls until {@code openMs} passed. It then lets a few
+ * probe calls through; if they all succeed it closes, if one fails it opens again. Every state change starts a new
+ * generation, and a call's outcome only counts in the generation that admitted it, so a slow call from before the
+ * breaker opened is never taken for a probe.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, HALF_OPEN, OPEN
+    }
+
+    /**
+     * Admission of one call
+     *
+     * @param generation Generation of the state the call was admitted in
+     * @param probe      Whether the call was admitted as a half-open probe
+     */
+    public record Permit(long generation, boolean probe) {
+    }
+
+    private final String name;
+    private final ResilienceProperties.Dependency settings;
+    private final LongSupplier clock;
+
+    // Outcomes of the last windowSize calls, true for failures
+    private final boolean[] window;
+    private int windowIndex;
+    private int windowCalls;
+    private int windowFailures;
+
+    private State state = State.CLOSED;
+    private long generation;
+    private long openedAtMs;
+    private int probesStarted;
+    private int probesSucceeded;
+
+    public CircuitBreaker(String name, ResilienceProperties.Dependency settings, LongSupplier clock) {
+        this.name = name;
+        this.settings = settings;
+        this.clock = clock;
+        this.window = new boolean[settings.windowSize()];
+    }
+
+    /**
+     * Admit a call if the breaker lets it through; every permit must be handed to {@link #onSuccess(Permit)} or
+     * {@link #onFailure(Permit)}, or to {@link #onIgnored(Permit)} if its outcome says nothing about the dependency
+     *
+     * @return The call's permit, or null if it is rejected
+     */
+    public synchronized Permit tryAcquire() {
+        if (state == State.OPEN) {
+            if (clock.getAsLong() - openedAtMs < settings.openMs()) {
+                return null;
+            }
+            state = State.HALF_OPEN;
+            generation++;
+            probesStarted = 0;
+            probesSucceeded = 0;
+            log.info("Circuit breaker {} is half-open, probing with {} calls", name, settings.halfOpenProbes());
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesStarted >= settings.halfOpenProbes()) {
+                return null;
+            }
+            probesStarted++;
+            return new Permit(generation, true);
+        }
+        return new Permit(generation, false);
+    }
+
+    public synchronized void onSuccess(Permit permit) {
+        if (permit.generation() != generation) {
+            return;
+        }
+        if (permit.probe()) {
+            if (++probesSucceeded >= settings.halfOpenProbes()) {
+                close();
+            }
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure(Permit permit) {
+        if (permit.generation() != generation) {
+            return;
+        }
+        if (permit.probe()) {
+            open("a probe call failed");
+            return;
+        }
+        record(true);
+        if (windowCalls >= settings.minimumCalls() && windowFailures >= settings.failureRateThreshold() * windowCalls) {
+            open(windowFailures + " of the last " + windowCalls + " calls failed");
+        }
+    }
+
+    /**
+     * Hand back a permit whose call neither succeeded nor failed because of the dependency
+     */
+    public synchronized void onIgnored(Permit permit) {
+        if (permit.probe() && permit.generation() == generation) {
+            probesStarted--;
+        }
+    }
+
+    public synchronized State getState() {
+        if (state == State.OPEN && clock.getAsLong() - openedAtMs >= settings.openMs()) {
+            // Not moved to half-open until the next call, but it would be let through
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    private void record(boolean failure) {
+        if (windowCalls == window.length) {
+            if (window[windowIndex]) {
+                windowFailures--;
+            }
+        } else {
+            windowCalls++;
+        }
+        window[windowIndex] = failure;
+        if (failure) {
+            windowFailures++;
+        }
+        windowIndex = (windowIndex + 1) % window.length;
+    }
+
+    private void open(String reason) {
+        state = State.OPEN;
+        generation++;
+        openedAtMs = clock.getAsLong();
+        log.warn("Circuit breaker {} opened for {} ms: {}", name, settings.openMs(), reason);
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        generation++;
+        windowIndex = 0;
+        windowCalls = 0;
+        windowFailures = 0;
+        log.info("Circuit breaker {} closed, {} probe calls succeeded", name, settings.halfOpenProbes());
+    }
+}
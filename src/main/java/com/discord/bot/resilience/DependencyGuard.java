@@ -0,0 +1,145 @@
+package com.discord.bot.resilience;
+
+import com.discord.bot.properties.ResilienceProperties;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Bulkhead and circuit breaker for one dependency. Calls are rejected with {@link DependencyUnavailableException}
+ * while the breaker is open or the bulkhead is full. Only failures matching the dependency's predicate count
+ * against the breaker, so a rejected request or an error of another dependency called inside does not open it.
+ */
+public class DependencyGuard {
+    private final String name;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final Predicate<Throwable> isDependencyFailure;
+
+    private final AtomicLong rejectedByBreaker = new AtomicLong();
+    private final AtomicLong rejectedByBulkhead = new AtomicLong();
+
+    public DependencyGuard(String name, ResilienceProperties.Dependency settings, Predicate<Throwable> isDependencyFailure,
+                           LongSupplier clock) {
+        this.name = name;
+        this.circuitBreaker = new CircuitBreaker(name, settings, clock);
+        this.bulkhead = new Bulkhead(settings);
+        this.isDependencyFailure = isDependencyFailure;
+    }
+
+    public <T> T call(Supplier<T> call) {
+        CircuitBreaker.Permit permit = circuitBreaker.tryAcquire();
+        if (permit == null) {
+            rejectedByBreaker.incrementAndGet();
+            throw new DependencyUnavailableException(name, "circuit breaker is open");
+        }
+        if (!bulkhead.tryAcquire()) {
+            circuitBreaker.onIgnored(permit);
+            rejectedByBulkhead.incrementAndGet();
+            throw new DependencyUnavailableException(name, "too many calls in progress");
+        }
+        try {
+            T result = call.get();
+            circuitBreaker.onSuccess(permit);
+            return result;
+        } catch (RuntimeException | Error e) {
+            if (isDependencyFailure.test(e)) {
+                circuitBreaker.onFailure(permit);
+            } else {
+                circuitBreaker.onIgnored(permit);
+            }
+            throw e;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * Start a call that completes later, e.g. a reactive transaction. Only the circuit breaker applies: waiting
+     * for a bulkhead slot would block, so the caller bounds its concurrency itself.
+     *
+     * @return The call, to be finished exactly once
+     * @throws DependencyUnavailableException If the circuit breaker is open
+     */
+    public Call begin() {
+        CircuitBreaker.Permit permit = circuitBreaker.tryAcquire();
+        if (permit == null) {
+            rejectedByBreaker.incrementAndGet();
+            throw new DependencyUnavailableException(name, "circuit breaker is open");
+        }
+        return new Call(permit);
+    }
+
+    public void run(Runnable call) {
+        call(() -> {
+            call.run();
+            return null;
+        });
+    }
+
+    /**
+     * Fail fast before starting work that needs this dependency
+     *
+     * @throws DependencyUnavailableException If the circuit breaker is open
+     */
+    public void checkAvailable() {
+        if (circuitBreaker.getState() == CircuitBreaker.State.OPEN) {
+            rejectedByBreaker.incrementAndGet();
+            throw new DependencyUnavailableException(name, "circuit breaker is open");
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public CircuitBreaker.State getState() {
+        return circuitBreaker.getState();
+    }
+
+    public int getInUse() {
+        return bulkhead.getInUse();
+    }
+
+    public int getWaiting() {
+        return bulkhead.getWaiting();
+    }
+
+    public long getRejectedByBreaker() {
+        return rejectedByBreaker.get();
+    }
+
+    public long getRejectedByBulkhead() {
+        return rejectedByBulkhead.get();
+    }
+
+    /**
+     * A call started with {@link #begin()}
+     */
+    public class Call {
+        private final CircuitBreaker.Permit permit;
+
+        private Call(CircuitBreaker.Permit permit) {
+            this.permit = permit;
+        }
+
+        public void succeeded() {
+            circuitBreaker.onSuccess(permit);
+        }
+
+        public void failed(Throwable failure) {
+            if (isDependencyFailure.test(failure)) {
+                circuitBreaker.onFailure(permit);
+            } else {
+                circuitBreaker.onIgnored(permit);
+            }
+        }
+
+        // Cancelled before an outcome was known
+        public void abandoned() {
+            circuitBreaker.onIgnored(permit);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.discord.bot.resilience;
+
+import com.discord.bot.properties.ResilienceProperties;
+import dev.langchain4j.exception.ContentFilteredException;
+import dev.langchain4j.exception.InvalidRequestException;
+import dev.langchain4j.exception.UnsupportedFeatureException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Getter;
+import net.dv8tion.jda.api.exceptions.ErrorResponseException;
+import org.neo4j.driver.exceptions.ClientException;
+import org.neo4j.driver.exceptions.Neo4jException;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Guards for the LLM provider, Neo4j and Discord REST, each with its own bulkhead and circuit breaker so a slow
+ * or failing dependency only holds up the work that needs it. Breaker states are published as
+ * {@code resilience.breaker.state} (0 closed, 1 half-open, 2 open), slots in use as {@code resilience.bulkhead.in.use}
+ * and rejected calls as {@code resilience.rejected}, all tagged with the {@code dependency}.
+ */
+@Getter
+@Component
+public class DependencyGuards {
+    private final DependencyGuard llm;
+    private final DependencyGuard neo4j;
+    private final DependencyGuard discord;
+
+    public DependencyGuards(ResilienceProperties properties, MeterRegistry meterRegistry) {
+        this.llm = new DependencyGuard("llm", properties.llm(), DependencyGuards::isLlmFailure, System::currentTimeMillis);
+        this.neo4j = new DependencyGuard("neo4j", properties.neo4j(), DependencyGuards::isNeo4jFailure, System::currentTimeMillis);
+        this.discord = new DependencyGuard("discord", properties.discord(), DependencyGuards::isDiscordFailure, System::currentTimeMillis);
+        List.of(llm, neo4j, discord).forEach(guard -> registerMeters(guard, meterRegistry));
+    }
+
+    /**
+     * Requests the provider rejected would fail on any healthy provider too
+     */
+    static boolean isLlmFailure(Throwable error) {
+        return !(error instanceof DependencyUnavailableException
+                || error instanceof InvalidRequestException
+                || error instanceof ContentFilteredException
+                || error instanceof UnsupportedFeatureException);
+    }
+
+    /**
+     * Only driver errors other than rejected statements count; Spring wraps them in data access exceptions
+     */
+    static boolean isNeo4jFailure(Throwable error) {
+        return causeOfType(error, Neo4jException.class) instanceof Neo4jException driverError
+                && !(driverError instanceof ClientException);
+    }
+
+    /**
+     * Discord's 4xx answers are about the request, such as missing access to a channel
+     */
+    static boolean isDiscordFailure(Throwable error) {
+        if (error instanceof DependencyUnavailableException) {
+            return false;
+        }
+        return !(error instanceof ErrorResponseException response) || response.isServerError();
+    }
+
+    private static Throwable causeOfType(Throwable error, Class<? extends Throwable> type) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (type.isInstance(cause)) {
+                return cause;
+            }
+        }
+        return null;
+    }
+
+    private static void registerMeters(DependencyGuard guard, MeterRegistry meterRegistry) {
+        Gauge.builder("resilience.breaker.state", guard, g -> g.getState().ordinal())
+                .description("Circuit breaker state: 0 closed, 1 half-open, 2 open")
+                .tag("dependency", guard.getName())
+                .register(meterRegistry);
+        Gauge.builder("resilience.bulkhead.in.use", guard, DependencyGuard::getInUse)
+                .description("Calls running against the dependency")
+                .tag("dependency", guard.getName())
+                .register(meterRegistry);
+        FunctionCounter.builder("resilience.rejected", guard, DependencyGuard::getRejectedByBreaker)
+                .description("Calls rejected without reaching the dependency")
+                .tag("dependency", guard.getName())
+                .tag("reason", "breaker_open")
+                .register(meterRegistry);
+        FunctionCounter.builder("resilience.rejected", guard, DependencyGuard::getRejectedByBulkhead)
+                .description("Calls rejected without reaching the dependency")
+                .tag("dependency", guard.getName())
+                .tag("reason", "bulkhead_full")
+                .register(meterRegistry);
+    }
+}
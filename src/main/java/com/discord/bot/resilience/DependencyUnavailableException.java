@@ -0,0 +1,16 @@
+package com.discord.bot.resilience;
+
+import lombok.Getter;
+
+/**
+ * Thrown instead of calling a dependency whose circuit breaker is open or whose bulkhead is full
+ */
+@Getter
+public class DependencyUnavailableException extends RuntimeException {
+    private final String dependency;
+
+    public DependencyUnavailableException(String dependency, String reason) {
+        super(dependency + " is unavailable: " + reason);
+        this.dependency = dependency;
+    }
+}
@@ -0,0 +1,23 @@
+package com.discord.bot.resilience;
+
+import com.discord.bot.llm.ForwardingChatModel;
+import dev.langchain4j.model.chat.ChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+
+/**
+ * Chat model whose calls go through the LLM's {@link DependencyGuard}
+ */
+public class GuardedChatModel extends ForwardingChatModel {
+    private final DependencyGuard guard;
+
+    public GuardedChatModel(ChatModel delegate, DependencyGuard guard) {
+        super(delegate);
+        this.guard = guard;
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest chatRequest) {
+        return guard.call(() -> delegate.chat(chatRequest));
+    }
+}
@@ -0,0 +1,117 @@
+package com.discord.bot.startup;
+
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.interactions.commands.OptionType;
+import net.dv8tion.jda.api.interactions.commands.build.Commands;
+import net.dv8tion.jda.api.interactions.commands.build.OptionData;
+import net.dv8tion.jda.api.interactions.commands.build.SlashCommandData;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Registers the bot's global slash commands. Discord keeps commands between restarts, so they are only pushed
+ * when their definitions or the application changed since the last successful registration. Delete the hash file
+ * to force a registration, e.g. after removing commands by hand.
+ */
+@Slf4j
+@Component
+public class SlashCommandRegistrar {
+
+    @Value("${discord.commands.hash-file:data/slash-commands.sha256}")
+    private String hashFile;
+
+    /**
+     * Push the command list unless the stored hash shows Discord already has it
+     *
+     * @param jda A ready shard
+     */
+    public void registerIfChanged(JDA jda) {
+        try {
+            List<SlashCommandData> commands = definitions();
+            String hash = hash(jda.getSelfUser().getApplicationId(), commands);
+            Path hashPath = Path.of(hashFile);
+            if (hash.equals(readStoredHash(hashPath))) {
+                log.info("Slash commands unchanged, skipping registration");
+                return;
+            }
+
+            jda.updateCommands().addCommands(commands).queue(
+                    success -> {
+                        log.info("Successfully registered {} slash commands", success.size());
+                        storeHash(hashPath, hash);
+                    },
+                    error -> log.error("Failed to register slash commands", error)
+            );
+        } catch (Exception e) {
+            log.error("Error registering slash commands", e);
+        }
+    }
+
+    private List<SlashCommandData> definitions() {
+        return List.of(
+                Commands.slash("play", "Play a song or add it to the queue")
+                        .addOption(OptionType.STRING, "song", "Song name or URL", true),
+                Commands.slash("skip", "Skip the current song"),
+                Commands.slash("stop", "Stop the music and clear the queue"),
+                Commands.slash("queue", "Show the current queue")
+                        .addOption(OptionType.INTEGER, "page", "Page of the queue to show", false),
+                Commands.slash("remove", "Remove a track from the queue")
+                        .addOption(OptionType.INTEGER, "position", "Position in the queue", true),
+                Commands.slash("move", "Move a track to another position in the queue")
+                        .addOption(OptionType.INTEGER, "from", "Current position in the queue", true)
+                        .addOption(OptionType.INTEGER, "to", "New position in the queue", true),
+                Commands.slash("skipto", "Skip to a track in the queue")
+                        .addOption(OptionType.INTEGER, "position", "Position in the queue", true),
+                Commands.slash("shuffle", "Shuffle the queue"),
+                Commands.slash("ping", "Check if the bot is responding"),
+                Commands.slash("ask", "Ask a question to the bot")
+                        .addOption(OptionType.STRING, "question", "Your question", true)
+                        .addOptions(new OptionData(OptionType.STRING, "period", "Only use what was said in this period", false)
+                                .addChoice("last day", "P1D")
+                                .addChoice("last week", "P7D")
+                                .addChoice("last month", "P30D"))
+                        .addOption(OptionType.USER, "author", "Only use what this member said", false),
+                Commands.slash("fetch", "Fetch all messages from the current channel")
+        );
+    }
+
+    private String hash(String applicationId, List<SlashCommandData> commands) throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        digest.update(applicationId.getBytes(StandardCharsets.UTF_8));
+        for (SlashCommandData command : commands) {
+            digest.update(command.toData().toJson());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private String readStoredHash(Path hashPath) {
+        try {
+            return Files.exists(hashPath) ? Files.readString(hashPath).trim() : null;
+        } catch (IOException e) {
+            log.warn("Could not read slash command hash from {}", hashPath, e);
+            return null;
+        }
+    }
+
+    private void storeHash(Path hashPath, String hash) {
+        try {
+            if (hashPath.getParent() != null) {
+                Files.createDirectories(hashPath.getParent());
+            }
+            Files.writeString(hashPath, hash);
+        } catch (IOException e) {
+            log.warn("Could not store slash command hash in {}, commands will be registered again on next start",
+                    hashPath, e);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.discord.bot.startup;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.events.session.ReadyEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Watches shards come up: registers slash commands once shard 0 is ready, and publishes
+ * {@code discord.time.to.ready}, the time from JVM start until every shard of this process is connected
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StartupReadinessListener extends ListenerAdapter {
+
+    // An audio node only plays music routed to it by bot processes, it neither handles nor registers commands
+    @Value("${audio.node.server.enabled:false}")
+    private boolean audioNode;
+
+    private final SlashCommandRegistrar slashCommandRegistrar;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicLong timeToReadyMs = new AtomicLong(-1);
+
+    @PostConstruct
+    public void registerMeters() {
+        TimeGauge.builder("discord.time.to.ready", timeToReadyMs, TimeUnit.MILLISECONDS,
+                        ms -> ms.get() < 0 ? Double.NaN : ms.get())
+                .description("Time from JVM start until every shard of this process was connected")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void onReady(ReadyEvent event) {
+        JDA jda = event.getJDA();
+        // Commands are global, so only the bot process owning shard 0 registers them
+        if (jda.getShardInfo().getShardId() == 0 && !audioNode) {
+            slashCommandRegistrar.registerIfChanged(jda);
+        }
+
+        ShardManager shardManager = jda.getShardManager();
+        if (shardManager == null || shardManager.getShardsQueued() > 0) {
+            return;
+        }
+        boolean allConnected = shardManager.getStatuses().values().stream()
+                .allMatch(status -> status == JDA.Status.CONNECTED);
+        long uptimeMs = ManagementFactory.getRuntimeMXBean().getUptime();
+        if (allConnected && timeToReadyMs.compareAndSet(-1, uptimeMs)) {
+            log.info("All {} shards ready {} ms after JVM start", shardManager.getShardsRunning(), uptimeMs);
+        }
+    }
+}
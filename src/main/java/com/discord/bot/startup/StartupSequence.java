@@ -0,0 +1,68 @@
+package com.discord.bot.startup;
+
+import com.discord.bot.feature_knowledge_graph.service.ScopedGraphRetriever;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import net.dv8tion.jda.api.sharding.ShardManager;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Work moved off the Spring startup path. With {@code discord.startup.fast} the gateway login starts only once the
+ * context is up, and in every mode the graph retriever's schema, which the first /ask would otherwise wait for,
+ * is read in the background.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StartupSequence {
+
+    @Value("${discord.startup.fast:false}")
+    private boolean fastStartup;
+
+    @Value("${audio.node.server.enabled:false}")
+    private boolean audioNode;
+
+    private final ShardManager shardManager;
+    private final ObjectProvider<ScopedGraphRetriever> scopedGraphRetriever;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        Thread.ofVirtual().name("startup-sequence").start(() -> {
+            if (fastStartup && !login()) {
+                // Same outcome as a failed login during a regular startup
+                System.exit(SpringApplication.exit(event.getApplicationContext(), () -> 1));
+                return;
+            }
+            if (!audioNode) {
+                warmUpGraph();
+            }
+        });
+    }
+
+    private boolean login() {
+        try {
+            log.info("Logging in to the Discord gateway");
+            shardManager.login();
+            return true;
+        } catch (Exception e) {
+            log.error("Failed to log in to the Discord gateway", e);
+            return false;
+        }
+    }
+
+    private void warmUpGraph() {
+        try {
+            long start = System.nanoTime();
+            scopedGraphRetriever.getObject().schema();
+            log.info("Graph retriever ready in {} ms", (System.nanoTime() - start) / 1_000_000);
+        } catch (Exception e) {
+            // Retried on the first /ask
+            log.warn("Could not prepare the graph retriever: {}", e.getMessage());
+        }
+    }
+}
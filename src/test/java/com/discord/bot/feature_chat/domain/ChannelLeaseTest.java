@@ -0,0 +1,36 @@
+package com.discord.bot.feature_chat.domain;
+
+import com.discord.bot.feature_chat.service.ChannelLeaseException;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChannelLeaseTest {
+
+	@Test
+	void leaseIsValidUntilItExpires() {
+		ChannelLease lease = new ChannelLease("1", "a", 1, System.nanoTime() + TimeUnit.MINUTES.toNanos(1));
+		assertTrue(lease.isValid());
+		lease.checkValid();
+
+		lease.renewedUntil(System.nanoTime() - 1);
+		assertFalse(lease.isValid());
+		assertThrows(ChannelLeaseException.class, lease::checkValid);
+
+		lease.renewedUntil(System.nanoTime() + TimeUnit.MINUTES.toNanos(1));
+		assertTrue(lease.isValid());
+	}
+
+	@Test
+	void lostLeaseStaysInvalidWhenRenewed() {
+		ChannelLease lease = new ChannelLease("1", "a", 1, System.nanoTime() + TimeUnit.MINUTES.toNanos(1));
+		lease.markLost();
+		lease.renewedUntil(System.nanoTime() + TimeUnit.MINUTES.toNanos(2));
+		assertFalse(lease.isValid());
+		assertThrows(ChannelLeaseException.class, lease::checkValid);
+	}
+}
@@ -0,0 +1,122 @@
+package com.discord.bot.feature_chat.service;
+
+import com.discord.bot.feature_chat.domain.ChannelLease;
+import com.discord.bot.observability.Neo4jMetrics;
+import com.discord.bot.properties.IngestionCoordinationProperties;
+import com.discord.bot.properties.ResilienceProperties;
+import com.discord.bot.resilience.DependencyGuards;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.neo4j.driver.AuthTokens;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.GraphDatabase;
+import org.springframework.data.neo4j.core.Neo4jClient;
+import org.testcontainers.containers.Neo4jContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.OffsetDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the lease and checkpoint statements against a real Neo4j, as the fencing lives in their Cypher
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ChannelLeaseFencingTest {
+	private static final String CHANNEL = "100";
+	private static final String GUILD = "1";
+
+	@Container
+	private static final Neo4jContainer<?> NEO4J = new Neo4jContainer<>("neo4j:5").withoutAuthentication();
+
+	private static Driver driver;
+	private static Neo4jClient neo4jClient;
+	private static Neo4jMetrics neo4jMetrics;
+	private static DependencyGuards dependencyGuards;
+	private static MeterRegistry meterRegistry;
+
+	@BeforeAll
+	static void connect() {
+		driver = GraphDatabase.driver(NEO4J.getBoltUrl(), AuthTokens.none());
+		neo4jClient = Neo4jClient.create(driver);
+		meterRegistry = new SimpleMeterRegistry();
+		neo4jMetrics = new Neo4jMetrics(meterRegistry);
+		ResilienceProperties.Dependency guard = new ResilienceProperties.Dependency(8, 32, 2000, 20, 10, 0.5, 30000, 2);
+		dependencyGuards = new DependencyGuards(new ResilienceProperties(guard, guard, guard), meterRegistry);
+	}
+
+	@AfterAll
+	static void disconnect() {
+		driver.close();
+	}
+
+	@BeforeEach
+	void clear() {
+		neo4jClient.query("MATCH (c:Channel) DETACH DELETE c").run();
+	}
+
+	@Test
+	void staleEpochIsRejected() throws InterruptedException {
+		ChannelLeaseService first = leases("a", 1);
+		ChannelLeaseService second = leases("b", 60000);
+		ChannelTrackingService tracking = tracking();
+
+		ChannelLease stale = first.tryAcquire(CHANNEL).orElseThrow();
+		// The first lease expires on Neo4j's clock and the channel is taken over
+		Thread.sleep(50);
+		ChannelLease current = second.tryAcquire(CHANNEL).orElseThrow();
+		assertEquals(stale.getEpoch() + 1, current.getEpoch());
+
+		// Even an instance reusing the owner name of the holder is fenced off by the epoch
+		ChannelLease sameOwner = new ChannelLease(CHANNEL, current.getOwner(), stale.getEpoch(), Long.MAX_VALUE);
+		assertFalse(second.renew(sameOwner));
+		assertFalse(tracking.compareAndSetCheckpoint(CHANNEL, GUILD, 0, OffsetDateTime.now(), sameOwner));
+		assertFalse(first.renew(stale));
+		assertFalse(tracking.compareAndSetCheckpoint(CHANNEL, GUILD, 0, OffsetDateTime.now(), stale));
+
+		// Releasing the stale lease leaves the channel to its holder
+		first.release(stale);
+		assertTrue(leases("c", 60000).tryAcquire(CHANNEL).isEmpty());
+
+		assertTrue(second.renew(current));
+		assertTrue(tracking.compareAndSetCheckpoint(CHANNEL, GUILD, 0, OffsetDateTime.now(), current));
+		assertEquals(1, tracking.getCheckpoint(CHANNEL).version());
+	}
+
+	@Test
+	void foreignOwnerIsRejected() {
+		ChannelLeaseService holder = leases("a", 60000);
+		ChannelTrackingService tracking = tracking();
+		ChannelLease lease = holder.tryAcquire(CHANNEL).orElseThrow();
+
+		assertTrue(leases("b", 60000).tryAcquire(CHANNEL).isEmpty());
+
+		ChannelLease foreign = new ChannelLease(CHANNEL, "b", lease.getEpoch(), Long.MAX_VALUE);
+		assertFalse(holder.renew(foreign));
+		assertFalse(tracking.compareAndSetCheckpoint(CHANNEL, GUILD, 0, OffsetDateTime.now(), foreign));
+		assertFalse(tracking.resetUnscopedCheckpoint(CHANNEL, foreign));
+		holder.release(foreign);
+		assertTrue(leases("b", 60000).tryAcquire(CHANNEL).isEmpty());
+
+		assertTrue(tracking.compareAndSetCheckpoint(CHANNEL, GUILD, 0, OffsetDateTime.now(), lease));
+		// A checkpoint written under a lost lease cannot be replayed by the former holder
+		holder.release(lease);
+		assertFalse(tracking.compareAndSetCheckpoint(CHANNEL, GUILD, 1, OffsetDateTime.now(), lease));
+	}
+
+	private ChannelLeaseService leases(String owner, long ttlMs) {
+		return new ChannelLeaseService(neo4jClient, neo4jMetrics, dependencyGuards,
+				new IngestionCoordinationProperties(owner, ttlMs, 15000, false, 4, true), meterRegistry);
+	}
+
+	private ChannelTrackingService tracking() {
+		return new ChannelTrackingService(neo4jClient, neo4jMetrics, dependencyGuards);
+	}
+}
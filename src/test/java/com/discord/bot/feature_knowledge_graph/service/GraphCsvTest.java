@@ -0,0 +1,60 @@
+package com.discord.bot.feature_knowledge_graph.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class GraphCsvTest {
+
+	@Test
+	void rowsSurviveQuotesCommasAndLineBreaks() throws IOException {
+		List<String> row = Arrays.asList("4:abc:1", "says \"hi\", then\nleaves", null, "", " padded ");
+		StringWriter writer = new StringWriter();
+		GraphCsv.writeRow(writer, row);
+		GraphCsv.writeRow(writer, List.of("second"));
+
+		StringReader reader = new StringReader(writer.toString());
+		assertEquals(row, GraphCsv.readRow(reader));
+		assertEquals(List.of("second"), GraphCsv.readRow(reader));
+		assertNull(GraphCsv.readRow(reader));
+	}
+
+	@Test
+	void valuesRoundTripThroughTheirHeaderType() {
+		List<Object> values = List.of(42L, 1.5, true, "text",
+				ZonedDateTime.of(2024, 5, 1, 12, 0, 0, 0, ZoneOffset.UTC),
+				ZonedDateTime.of(2024, 5, 1, 12, 0, 0, 0, ZoneId.of("Europe/Berlin")),
+				List.of("red", "blue"), List.of(1L, 2L));
+		for (Object value : values) {
+			assertEquals(value, GraphCsv.parse(GraphCsv.format(value), GraphCsv.typeOf(value)));
+		}
+	}
+
+	@Test
+	void arrayElementsKeepDelimitersAndBackslashes() throws IOException {
+		List<String> value = List.of("a;b", "c\\", "\\;", "", "plain");
+		StringWriter writer = new StringWriter();
+		GraphCsv.writeRow(writer, List.of(GraphCsv.format(value)));
+
+		String field = GraphCsv.readRow(new StringReader(writer.toString())).getFirst();
+		assertEquals(value, GraphCsv.parse(field, GraphCsv.typeOf(value)));
+	}
+
+	@Test
+	void headerTypesFollowNeo4jAdminNames() {
+		assertEquals("long", GraphCsv.typeOf(7L));
+		assertEquals("datetime", GraphCsv.typeOf(ZonedDateTime.now(ZoneOffset.UTC)));
+		assertEquals("string[]", GraphCsv.typeOf(List.of("a")));
+		assertEquals("string", GraphCsv.typeOf(new Object()));
+	}
+}
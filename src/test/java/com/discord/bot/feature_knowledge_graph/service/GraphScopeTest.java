@@ -0,0 +1,117 @@
+package com.discord.bot.feature_knowledge_graph.service;
+
+import com.discord.bot.feature_knowledge_graph.domain.GraphNode;
+import com.discord.bot.feature_knowledge_graph.domain.GraphRelationship;
+import com.discord.bot.feature_knowledge_graph.domain.GraphResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GraphScopeTest {
+
+	@Test
+	void everyNodePatternIsConfinedToTheGuild() {
+		assertEquals("MATCH (a:Person {guildId: $guildId, name: 'Alice'})-[:LIKES]->(c {guildId: $guildId}) "
+						+ "WHERE toLower(c.name) = 'blue' AND (a {guildId: $guildId})-->({guildId: $guildId}) "
+						+ "RETURN count(c), c.name",
+				GraphScope.restrict("MATCH (a:Person {name: 'Alice'})-[:LIKES]->(c) "
+						+ "WHERE toLower(c.name) = 'blue' AND (a)-->() RETURN count(c), c.name", false));
+	}
+
+	@Test
+	void relationshipPatternsAreConfinedToTheAuthorWhenAsked() {
+		assertEquals("MATCH (a {guildId: $guildId})-[r:LIKES {authorId: $authorId}]->(b {guildId: $guildId}) "
+						+ "RETURN b.name, [x IN [1, 2] | x]",
+				GraphScope.restrict("MATCH (a)-[r:LIKES]->(b) RETURN b.name, [x IN [1, 2] | x]", true));
+	}
+
+	@Test
+	void textAndExpressionsAreLeftAlone() {
+		String query = "MATCH (n:`My Label` {guildId: $guildId}) WHERE n.name = '(x)' AND (n.age > 3 OR n.set) "
+				+ "RETURN n.name";
+		assertEquals(query, GraphScope.restrict("MATCH (n:`My Label`) WHERE n.name = '(x)' AND (n.age > 3 OR n.set) "
+				+ "RETURN n.name", false));
+	}
+
+	@Test
+	void queriesThatCannotBeScopedAreRejected() {
+		assertThrows(IllegalArgumentException.class,
+				() -> GraphScope.restrict("MATCH (n) DETACH DELETE n", false));
+		assertThrows(IllegalArgumentException.class,
+				() -> GraphScope.restrict("CALL db.labels() YIELD label RETURN label", false));
+		assertThrows(IllegalArgumentException.class,
+				() -> GraphScope.restrict("MATCH (n:Person WHERE n.name = 'a') RETURN n", false));
+	}
+
+	@Test
+	void patternsTheRewriteCannotReadAreRejected() {
+		List<String> queries = List.of(
+				"MATCH (n:$($label)) RETURN n.name",
+				"MATCH (n $props) RETURN n.name",
+				"MATCH (n.name) RETURN 1",
+				"MATCH ANY (n = 1) RETURN n",
+				"MATCH (a)-->(b.name) RETURN 1",
+				"MATCH (a)-->+(b) RETURN b.name",
+				"MATCH (a) WHERE size(a)-->(b) RETURN 1",
+				"MATCH (a) WHERE (a.x)-[:LIKES]->(b) RETURN 1",
+				"MATCH (a)-[r:LIKES WHERE r.x = 1]->(b) RETURN b.name",
+				"MATCH (a)-[r:]->(b) RETURN b.name",
+				"RETURN apoc.cypher.runFirstColumnSingle('MATCH (n) RETURN n.name', {})",
+				"RETURN apoc . `cypher` . run ('MATCH (n) RETURN n.name', {})",
+				"RETURN `apoc`.cypher.run('MATCH (n) RETURN n.name', {})",
+				"MATCH (n) /* comment */ DETACH // comment\n DELETE n",
+				"SHOW DATABASES");
+		for (String query : queries) {
+			assertThrows(IllegalArgumentException.class, () -> GraphScope.restrict(query, true), query);
+		}
+	}
+
+	@Test
+	void everyPatternFormIsScoped() {
+		assertEquals("MATCH (n:% {guildId: $guildId}) RETURN n.name",
+				GraphScope.restrict("MATCH (n:%) RETURN n.name", false));
+		assertEquals("MATCH (n IS Person {guildId: $guildId}) RETURN n.name",
+				GraphScope.restrict("MATCH (n IS Person) RETURN n.name", false));
+		assertEquals("MATCH (n:!(Person|%)&Place {guildId: $guildId}) RETURN n.name",
+				GraphScope.restrict("MATCH (n:!(Person|%)&Place) RETURN n.name", false));
+		assertEquals("MATCH ANY ({guildId: $guildId}) RETURN 1", GraphScope.restrict("MATCH ANY () RETURN 1", false));
+		assertEquals("MATCH p = SHORTEST 1 (a {guildId: $guildId})--({guildId: $guildId}) RETURN p",
+				GraphScope.restrict("MATCH p = SHORTEST 1 (a)--() RETURN p", false));
+		assertEquals("MATCH (a {guildId: $guildId}) WHERE COUNT { (a {guildId: $guildId})-->(b {guildId: $guildId}) } > 1 "
+						+ "RETURN [(a {guildId: $guildId})<--(c {guildId: $guildId}) | c.name]",
+				GraphScope.restrict("MATCH (a) WHERE COUNT { (a)-->(b) } > 1 RETURN [(a)<--(c) | c.name]", false));
+		assertEquals("MATCH (a {guildId: $guildId, name: COLLECT { MATCH (b {guildId: $guildId}) RETURN b.name }[0]}) "
+						+ "RETURN date.truncate('day', a.at)",
+				GraphScope.restrict("MATCH (a {name: COLLECT { MATCH (b) RETURN b.name }[0]}) "
+						+ "RETURN date.truncate('day', a.at)", false));
+	}
+
+	@Test
+	void everyRelationshipFormIsConfinedToTheAuthor() {
+		assertEquals("MATCH (a {guildId: $guildId})-[r IS LIKES {authorId: $authorId}]->(b {guildId: $guildId}) "
+						+ "RETURN b.name",
+				GraphScope.restrict("MATCH (a)-[r IS LIKES]->(b) RETURN b.name", true));
+		assertEquals("MATCH (a {guildId: $guildId})<-[{authorId: $authorId}]-(b {guildId: $guildId})"
+						+ "-[{authorId: $authorId}]->({guildId: $guildId}) RETURN b.name",
+				GraphScope.restrict("MATCH (a)<--(b)-->() RETURN b.name", true));
+		assertEquals("MATCH (a {guildId: $guildId})-[:LIKES|HATES*1..2 {authorId: $authorId}]-(b {guildId: $guildId}) "
+						+ "RETURN b.name",
+				GraphScope.restrict("MATCH (a)-[:LIKES|HATES*1..2]-(b) RETURN b.name", true));
+	}
+
+	@Test
+	void nodeIdsArePrefixedWithTheGuild() {
+		GraphResult graph = new GraphResult(
+				List.of(new GraphNode("author-1", "Person", Map.of("name", "alice"))),
+				List.of(new GraphRelationship("author-1", "color-1", "LIKES", 2)),
+				List.of());
+
+		GraphResult scoped = GraphScope.scope(graph, "42");
+		assertEquals("42:author-1", scoped.nodes().getFirst().id());
+		assertEquals(new GraphRelationship("42:author-1", "42:color-1", "LIKES", 2), scoped.relationships().getFirst());
+	}
+}
@@ -0,0 +1,42 @@
+package com.discord.bot.feature_knowledge_graph.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class GraphVocabularyTest {
+	private final GraphVocabulary vocabulary = new GraphVocabulary(
+			Map.of("ColorPreference", "Color"),
+			Map.of("likes_color", "LIKES"));
+
+	@Test
+	void labelsAreBroughtToPascalCase() {
+		assertEquals("AnimePreference", vocabulary.canonicalLabel("anime_preference"));
+		assertEquals("AnimePreference", vocabulary.canonicalLabel("animePreference"));
+		assertEquals("Author", vocabulary.canonicalLabel("Author"));
+		assertNull(vocabulary.canonicalLabel("--"));
+	}
+
+	@Test
+	void relationshipTypesAreBroughtToUpperSnakeCase() {
+		assertEquals("FAVOURITE_ANIME", vocabulary.canonicalRelationshipType("favouriteAnime"));
+		assertEquals("FAVOURITE_ANIME", vocabulary.canonicalRelationshipType("favourite anime"));
+		assertEquals("EXPERIENCED_EVENT", vocabulary.canonicalRelationshipType("EXPERIENCED_EVENT"));
+	}
+
+	@Test
+	void aliasesApplyToEveryCasingOfTheDriftedName() {
+		assertEquals("Color", vocabulary.canonicalLabel("color_preference"));
+		assertEquals("Color", vocabulary.canonicalLabel("ColorPreference"));
+		assertEquals("LIKES", vocabulary.canonicalRelationshipType("LIKES_COLOR"));
+		assertEquals("LIKES", vocabulary.canonicalRelationshipType("likesColor"));
+	}
+
+	@Test
+	void quotingEscapesBackticks() {
+		assertEquals("`odd``label`", GraphVocabulary.quote("odd`label"));
+	}
+}
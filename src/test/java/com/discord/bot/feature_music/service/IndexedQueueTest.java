@@ -0,0 +1,81 @@
+package com.discord.bot.feature_music.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IndexedQueueTest {
+
+	private IndexedQueue<Integer> queueOf(int size) {
+		IndexedQueue<Integer> queue = new IndexedQueue<>();
+		IntStream.range(0, size).forEach(queue::add);
+		return queue;
+	}
+
+	@Test
+	void pollReturnsElementsInOrderAcrossWraparound() {
+		IndexedQueue<Integer> queue = queueOf(10);
+		queue.poll();
+		queue.poll();
+		IntStream.range(10, 40).forEach(queue::add);
+
+		for (int expected = 2; expected < 40; expected++) {
+			assertEquals(expected, queue.poll());
+		}
+		assertNull(queue.poll());
+	}
+
+	@Test
+	void pageCopiesOnlyTheRequestedWindow() {
+		IndexedQueue<Integer> queue = queueOf(1000);
+
+		assertEquals(List.of(0, 1, 2, 3, 4), queue.peek(5));
+		assertEquals(List.of(990, 991, 992, 993, 994, 995, 996, 997, 998, 999), queue.page(990, 20));
+		assertTrue(queue.page(1000, 10).isEmpty());
+	}
+
+	@Test
+	void removeAtShiftsFromEitherSide() {
+		IndexedQueue<Integer> queue = queueOf(10);
+
+		assertEquals(2, queue.removeAt(2));
+		assertEquals(8, queue.removeAt(7));
+		assertEquals(List.of(0, 1, 3, 4, 5, 6, 7, 9), queue.toList());
+	}
+
+	@Test
+	void moveKeepsOtherElementsInOrder() {
+		IndexedQueue<Integer> queue = queueOf(6);
+
+		queue.move(4, 1);
+		assertEquals(List.of(0, 4, 1, 2, 3, 5), queue.toList());
+		queue.move(0, 5);
+		assertEquals(List.of(4, 1, 2, 3, 5, 0), queue.toList());
+	}
+
+	@Test
+	void removeFirstAndAddFirstAdjustTheHead() {
+		IndexedQueue<Integer> queue = queueOf(8);
+
+		assertEquals(5, queue.removeFirst(5));
+		queue.addFirst(42);
+		assertEquals(List.of(42, 5, 6, 7), queue.toList());
+		assertEquals(4, queue.removeFirst(10));
+		assertTrue(queue.isEmpty());
+	}
+
+	@Test
+	void shuffleKeepsAllElements() {
+		IndexedQueue<Integer> queue = queueOf(100);
+
+		queue.shuffle(new Random(7));
+		assertEquals(100, queue.size());
+		assertEquals(IntStream.range(0, 100).boxed().toList(), queue.toList().stream().sorted().toList());
+	}
+}
@@ -0,0 +1,123 @@
+package com.discord.bot.feature_music.service;
+
+import com.discord.bot.feature_music.domain.QueueChange;
+import com.discord.bot.feature_music.domain.QueueSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueueSnapshotStoreTest {
+	private static final long GUILD = 42;
+
+	private Path directory;
+	private QueueSnapshotStore store;
+
+	@BeforeEach
+	void openStore() throws IOException {
+		directory = Files.createTempDirectory("queue-snapshots");
+		store = reopen(null);
+	}
+
+	@AfterEach
+	void deleteFiles() throws IOException {
+		store.close();
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+				Files.delete(file);
+			}
+		}
+	}
+
+	private QueueSnapshotStore reopen(QueueSnapshotStore previous) {
+		if (previous != null) {
+			previous.close();
+		}
+		QueueSnapshotStore opened = new QueueSnapshotStore(true, directory.resolve("queue.bin").toString(), 4096);
+		opened.open();
+		return opened;
+	}
+
+	private static byte[] track(int id) {
+		return new byte[]{(byte) id};
+	}
+
+	private static List<Integer> ids(QueueSnapshot snapshot) {
+		return snapshot.upcoming().stream().map(track -> (int) track[0]).toList();
+	}
+
+	@Test
+	void changesAreAppliedOnTopOfTheFullSnapshot() {
+		store.save(GUILD, new QueueSnapshot(7, track(1), 1000, List.of(track(2), track(3), track(4))));
+		assertTrue(store.saveChanges(GUILD, List.of(
+				new QueueChange.Append(List.of(track(5), track(6))),
+				new QueueChange.Advance(1))));
+		store.savePosition(GUILD, 2500);
+
+		store = reopen(store);
+		QueueSnapshot restored = store.takePending(GUILD).orElseThrow();
+		assertEquals(7, restored.voiceChannelId());
+		assertEquals(3, restored.currentTrack()[0]);
+		assertEquals(2500, restored.positionMs());
+		assertEquals(List.of(4, 5, 6), ids(restored));
+	}
+
+	@Test
+	void advanceResetsTheSavedPosition() {
+		store.save(GUILD, new QueueSnapshot(7, track(1), 1000, List.of(track(2))));
+		store.savePosition(GUILD, 5000);
+		assertTrue(store.saveChanges(GUILD, List.of(new QueueChange.Advance(0))));
+
+		store = reopen(store);
+		QueueSnapshot restored = store.takePending(GUILD).orElseThrow();
+		assertEquals(2, restored.currentTrack()[0]);
+		assertEquals(0, restored.positionMs());
+	}
+
+	@Test
+	void changesNeedAFullSnapshotFirst() {
+		assertFalse(store.saveChanges(GUILD, List.of(new QueueChange.Advance(0))));
+		store.save(GUILD, new QueueSnapshot(7, track(1), 0, List.of()));
+		store.delete(GUILD);
+		assertFalse(store.saveChanges(GUILD, List.of(new QueueChange.Append(List.of(track(2))))));
+	}
+
+	@Test
+	void queuePlayedToTheEndIsNotRestored() {
+		store.save(GUILD, new QueueSnapshot(7, track(1), 0, List.of(track(2))));
+		assertTrue(store.saveChanges(GUILD, List.of(new QueueChange.Advance(0), new QueueChange.Advance(0))));
+
+		store = reopen(store);
+		assertTrue(store.takePending(GUILD).isEmpty());
+	}
+
+	@Test
+	void compactionFoldsChangesAndSurvivesRestart() {
+		store.save(GUILD, new QueueSnapshot(7, track(0), 0, List.of(track(1))));
+		// Far more records than the file holds, each compaction keeps a single full record per guild
+		for (int i = 2; i < 400; i++) {
+			assertTrue(store.saveChanges(GUILD, List.of(
+					new QueueChange.Append(List.of(track(i))),
+					new QueueChange.Advance(0))));
+			store.savePosition(GUILD, i);
+			store.save(GUILD + 1, new QueueSnapshot(8, track(i), 0, List.of()));
+		}
+
+		store = reopen(store);
+		QueueSnapshot restored = store.takePending(GUILD).orElseThrow();
+		assertEquals((byte) 398, restored.currentTrack()[0]);
+		assertEquals(399, restored.positionMs());
+		assertEquals(List.of((int) (byte) 399), ids(restored));
+		assertEquals((byte) 399, store.takePending(GUILD + 1).orElseThrow().currentTrack()[0]);
+	}
+}
@@ -0,0 +1,153 @@
+package com.discord.bot.llm;
+
+import com.discord.bot.properties.ModelRoutingProperties;
+import com.discord.bot.properties.OpenAIProperties;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.langchain4j.exception.InternalServerException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoutingChatModelTest {
+	private static final String COMPLETION = """
+			{"id":"stub","object":"chat.completion","created":1,"model":"stub",
+			"choices":[{"index":0,"message":{"role":"assistant","content":"hi"},"finish_reason":"stop"}],
+			"usage":{"prompt_tokens":1,"completion_tokens":1,"total_tokens":2}}""";
+
+	private final List<StubEndpoint> stubs = new ArrayList<>();
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@AfterEach
+	void stopStubs() {
+		stubs.forEach(stub -> stub.server.stop(0));
+	}
+
+	@Test
+	void failsOverToTheNextEndpointWhenOneErrors() throws IOException {
+		StubEndpoint broken = stub(500, Map.of());
+		StubEndpoint healthy = stub(200, Map.of());
+		RoutingChatModel model = pool(3, broken, healthy).modelFor(ModelEndpointPool.ANSWER);
+
+		assertEquals("hi", model.chat("hello"));
+		assertEquals(1, broken.completions.get());
+		assertEquals(1, healthy.completions.get());
+		assertEquals(1.0, meterRegistry.get("llm.retries").tag("reason", "failover").counter().count());
+	}
+
+	@Test
+	void takesAFailingEndpointOutUntilItsHealthCheckPasses() throws IOException {
+		StubEndpoint flaky = stub(500, Map.of());
+		StubEndpoint healthy = stub(200, Map.of());
+		ModelEndpointPool pool = pool(2, flaky, healthy);
+		RoutingChatModel model = pool.modelFor(ModelEndpointPool.ANSWER);
+		ModelEndpoint flakyEndpoint = model.getEndpoints().getFirst();
+
+		healthy.status = 500;
+		assertThrows(InternalServerException.class, () -> model.chat("hello"));
+		assertThrows(InternalServerException.class, () -> model.chat("hello"));
+		assertTrue(flakyEndpoint.isDown());
+
+		pool.checkHealth();
+		assertTrue(flakyEndpoint.isDown());
+
+		flaky.status = 200;
+		pool.checkHealth();
+		assertFalse(flakyEndpoint.isDown());
+		assertEquals("hi", model.chat("hello"));
+	}
+
+	@Test
+	void prefersTheEndpointWithMoreQuotaLeft() throws IOException {
+		StubEndpoint nearlyExhausted = stub(200, Map.of("x-ratelimit-remaining-requests", "1", "x-ratelimit-limit-requests", "100"));
+		StubEndpoint plenty = stub(200, Map.of("x-ratelimit-remaining-requests", "100", "x-ratelimit-limit-requests", "100"));
+		RoutingChatModel model = pool(3, nearlyExhausted, plenty).modelFor(ModelEndpointPool.ANSWER);
+
+		for (int i = 0; i < 10; i++) {
+			model.chat("hello");
+		}
+		assertEquals(1, nearlyExhausted.completions.get());
+		assertEquals(9, plenty.completions.get());
+	}
+
+	@Test
+	void rethrowsTheLastFailureWhenEveryEndpointFails() throws IOException {
+		StubEndpoint first = stub(500, Map.of());
+		StubEndpoint second = stub(500, Map.of());
+		RoutingChatModel model = pool(3, first, second).modelFor(ModelEndpointPool.ANSWER);
+
+		assertThrows(InternalServerException.class, () -> model.chat("hello"));
+		assertTrue(first.completions.get() == 1 && second.completions.get() == 1);
+	}
+
+	private ModelEndpointPool pool(int failureThreshold, StubEndpoint... endpoints) {
+		List<ModelRoutingProperties.Endpoint> configured = new ArrayList<>();
+		for (int i = 0; i < endpoints.length; i++) {
+			configured.add(new ModelRoutingProperties.Endpoint("stub-" + i, endpoints[i].baseUrl(), "key-" + i, "stub-model", List.of()));
+		}
+		return new ModelEndpointPool(new ModelRoutingProperties(configured, failureThreshold, 30_000, 5_000),
+				new OpenAIProperties("unused"), meterRegistry);
+	}
+
+	private StubEndpoint stub(int status, Map<String, String> headers) throws IOException {
+		StubEndpoint stub = new StubEndpoint(HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0), headers);
+		stub.status = status;
+		stub.server.createContext("/v1/chat/completions", stub::completion);
+		stub.server.createContext("/v1/models", stub::models);
+		stub.server.start();
+		stubs.add(stub);
+		return stub;
+	}
+
+	/**
+	 * Local OpenAI-compatible server answering every completion with the same message, or with its error status
+	 */
+	private static final class StubEndpoint {
+		private final HttpServer server;
+		private final Map<String, String> headers;
+		private final AtomicInteger completions = new AtomicInteger();
+		private volatile int status;
+
+		private StubEndpoint(HttpServer server, Map<String, String> headers) {
+			this.server = server;
+			this.headers = headers;
+		}
+
+		private String baseUrl() {
+			return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1";
+		}
+
+		private void completion(HttpExchange exchange) throws IOException {
+			completions.incrementAndGet();
+			exchange.getRequestBody().readAllBytes();
+			headers.forEach(exchange.getResponseHeaders()::add);
+			respond(exchange, status, status == 200 ? COMPLETION : "{\"error\":{\"message\":\"stub failure\"}}");
+		}
+
+		private void models(HttpExchange exchange) throws IOException {
+			respond(exchange, status, "{\"object\":\"list\",\"data\":[]}");
+		}
+
+		private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+			byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().add("Content-Type", "application/json");
+			exchange.sendResponseHeaders(status, bytes.length);
+			exchange.getResponseBody().write(bytes);
+			exchange.close();
+		}
+	}
+}
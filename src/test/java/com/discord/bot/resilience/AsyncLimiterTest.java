@@ -0,0 +1,62 @@
+package com.discord.bot.resilience;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AsyncLimiterTest {
+	private final AsyncLimiter limiter = new AsyncLimiter(2);
+
+	@Test
+	void waitingWorkStartsWhenAPermitIsReturned() {
+		AtomicInteger started = new AtomicInteger();
+		Sinks.One<String> first = Sinks.one();
+		Sinks.One<String> second = Sinks.one();
+		Sinks.One<String> third = Sinks.one();
+		limiter.limit(Mono.defer(() -> {
+			started.incrementAndGet();
+			return first.asMono();
+		})).subscribe();
+		limiter.limit(Mono.defer(() -> {
+			started.incrementAndGet();
+			return second.asMono();
+		})).subscribe(value -> {
+		}, error -> {
+		});
+		limiter.limit(Mono.defer(() -> {
+			started.incrementAndGet();
+			return third.asMono();
+		})).subscribe();
+
+		assertEquals(2, started.get());
+		assertEquals(2, limiter.getInUse());
+		assertEquals(1, limiter.getWaiting());
+
+		first.tryEmitValue("done");
+		assertEquals(3, started.get());
+		assertEquals(2, limiter.getInUse());
+		assertEquals(0, limiter.getWaiting());
+
+		second.tryEmitError(new IllegalStateException("failed"));
+		third.tryEmitValue("done");
+		assertEquals(0, limiter.getInUse());
+	}
+
+	@Test
+	void cancelledWorkReturnsItsPermitOrLeavesTheQueue() {
+		Disposable running = limiter.limit(Mono.never()).subscribe();
+		limiter.limit(Mono.never()).subscribe();
+		Disposable waiting = limiter.limit(Mono.never()).subscribe();
+		assertEquals(1, limiter.getWaiting());
+
+		waiting.dispose();
+		assertEquals(0, limiter.getWaiting());
+		running.dispose();
+		assertEquals(1, limiter.getInUse());
+	}
+}
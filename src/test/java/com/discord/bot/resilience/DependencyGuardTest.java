@@ -0,0 +1,123 @@
+package com.discord.bot.resilience;
+
+import com.discord.bot.properties.ResilienceProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DependencyGuardTest {
+	private final AtomicLong now = new AtomicLong();
+
+	private DependencyGuard guard(int maxConcurrent, int maxQueued) {
+		ResilienceProperties.Dependency settings = new ResilienceProperties.Dependency(
+				maxConcurrent, maxQueued, 50, 10, 4, 0.5, 1000, 2);
+		return new DependencyGuard("test", settings, error -> !(error instanceof IllegalArgumentException), now::get);
+	}
+
+	private static void fail(DependencyGuard guard, RuntimeException error) {
+		assertThrows(error.getClass(), () -> guard.run(() -> {
+			throw error;
+		}));
+	}
+
+	@Test
+	void opensOnceTheFailureRateIsReachedAndRejectsCalls() {
+		DependencyGuard guard = guard(4, 0);
+		guard.call(() -> "ok");
+		guard.call(() -> "ok");
+		fail(guard, new IllegalStateException());
+		assertEquals(CircuitBreaker.State.CLOSED, guard.getState());
+
+		fail(guard, new IllegalStateException());
+		assertEquals(CircuitBreaker.State.OPEN, guard.getState());
+		assertThrows(DependencyUnavailableException.class, () -> guard.call(() -> "ok"));
+		assertThrows(DependencyUnavailableException.class, guard::checkAvailable);
+		assertEquals(2, guard.getRejectedByBreaker());
+	}
+
+	@Test
+	void failuresOutsideTheDependencyDoNotCount() {
+		DependencyGuard guard = guard(4, 0);
+		for (int i = 0; i < 10; i++) {
+			fail(guard, new IllegalArgumentException());
+		}
+		assertEquals(CircuitBreaker.State.CLOSED, guard.getState());
+	}
+
+	@Test
+	void closesAfterSuccessfulProbesAndReopensOnAFailedOne() {
+		DependencyGuard guard = guard(4, 0);
+		for (int i = 0; i < 4; i++) {
+			fail(guard, new IllegalStateException());
+		}
+		assertEquals(CircuitBreaker.State.OPEN, guard.getState());
+
+		now.addAndGet(1000);
+		assertEquals(CircuitBreaker.State.HALF_OPEN, guard.getState());
+		guard.call(() -> "probe");
+		fail(guard, new IllegalStateException());
+		assertEquals(CircuitBreaker.State.OPEN, guard.getState());
+
+		now.addAndGet(1000);
+		guard.call(() -> "probe");
+		guard.call(() -> "probe");
+		assertEquals(CircuitBreaker.State.CLOSED, guard.getState());
+	}
+
+	@Test
+	void callsAdmittedBeforeTheBreakerOpenedAreNotProbes() {
+		CircuitBreaker breaker = new CircuitBreaker("test",
+				new ResilienceProperties.Dependency(4, 0, 50, 10, 4, 0.5, 1000, 2), now::get);
+		CircuitBreaker.Permit slowSuccess = breaker.tryAcquire();
+		CircuitBreaker.Permit slowIgnored = breaker.tryAcquire();
+		for (int i = 0; i < 4; i++) {
+			breaker.onFailure(breaker.tryAcquire());
+		}
+		assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+		now.addAndGet(1000);
+		breaker.onSuccess(breaker.tryAcquire());
+		CircuitBreaker.Permit probe = breaker.tryAcquire();
+		assertNotNull(probe);
+		assertNull(breaker.tryAcquire());
+
+		// Finishing now, neither frees a probe slot nor counts as a successful probe
+		breaker.onIgnored(slowIgnored);
+		assertNull(breaker.tryAcquire());
+		breaker.onSuccess(slowSuccess);
+		assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+
+		breaker.onSuccess(probe);
+		assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+	}
+
+	@Test
+	void bulkheadRejectsCallsBeyondItsSlotsAndQueue() throws InterruptedException {
+		DependencyGuard guard = guard(1, 0);
+		CountDownLatch running = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Thread slow = Thread.ofVirtual().start(() -> guard.run(() -> {
+			running.countDown();
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}));
+		running.await();
+
+		assertThrows(DependencyUnavailableException.class, () -> guard.call(() -> "ok"));
+		assertEquals(1, guard.getRejectedByBulkhead());
+		assertEquals(CircuitBreaker.State.CLOSED, guard.getState());
+
+		release.countDown();
+		slow.join();
+		assertEquals("ok", guard.call(() -> "ok"));
+	}
+}